@@ -0,0 +1,205 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of PKCS#11 sessions used for signing on one token. Sessions are opened lazily, up to the pool size,
+ * and reused between operations. Since the login state is shared by all sessions of the token, sessions
+ * opened after login are logged in as well. Sessions that the module reports as lost are discarded and
+ * replaced by new ones on demand.
+ */
+@Slf4j
+class HardwareTokenSessionPool {
+
+    /**
+     * Opens new sessions for the pool.
+     */
+    @FunctionalInterface
+    interface SessionFactory {
+        Session openSession() throws TokenException;
+    }
+
+    /**
+     * Operation executed with a session borrowed from the pool.
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    interface SessionOperation<T> {
+        T execute(Session session) throws Exception;
+    }
+
+    private final SessionFactory sessionFactory;
+
+    private final Semaphore permits;
+
+    private final BlockingQueue<Session> idleSessions = new LinkedBlockingQueue<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param sessionFactory the factory for opening new sessions
+     * @param size the maximum number of sessions in use at the same time
+     */
+    HardwareTokenSessionPool(SessionFactory sessionFactory, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Session pool size must be positive");
+        }
+
+        this.sessionFactory = sessionFactory;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Executes the operation with an idle session, opening a new session if none is available. Blocks while
+     * all sessions are in use.
+     * @param operation the operation
+     * @param <T> the result type
+     * @return result of the operation
+     * @throws Exception if the operation fails
+     */
+    <T> T execute(SessionOperation<T> operation) throws Exception {
+        permits.acquire();
+
+        try {
+            Session session = borrowSession();
+            boolean sessionLost = false;
+
+            try {
+                return operation.execute(session);
+            } catch (PKCS11Exception e) {
+                sessionLost = isSessionLost(e.getErrorCode());
+
+                throw e;
+            } finally {
+                if (sessionLost || closed) {
+                    closeSession(session);
+                } else {
+                    idleSessions.add(session);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Checks the idle sessions and closes those the module no longer recognizes.
+     * @return number of sessions closed
+     */
+    int checkHealth() {
+        List<Session> sessions = new ArrayList<>();
+        idleSessions.drainTo(sessions);
+
+        int closedSessions = 0;
+
+        for (Session session : sessions) {
+            try {
+                session.getSessionInfo();
+
+                if (closed) {
+                    closeSession(session);
+                } else {
+                    idleSessions.add(session);
+                }
+            } catch (TokenException e) {
+                log.warn("Discarding unhealthy session: {}", e.getMessage());
+
+                closeSession(session);
+                closedSessions++;
+            }
+        }
+
+        return closedSessions;
+    }
+
+    /**
+     * @return number of idle sessions
+     */
+    int getIdleSessionCount() {
+        return idleSessions.size();
+    }
+
+    /**
+     * Closes the idle sessions. New sessions are opened when needed.
+     */
+    void clear() {
+        Session session;
+
+        while ((session = idleSessions.poll()) != null) {
+            closeSession(session);
+        }
+    }
+
+    /**
+     * Closes the pool and its idle sessions. Sessions in use are closed when the operation using them completes.
+     */
+    void close() {
+        closed = true;
+
+        clear();
+    }
+
+    /**
+     * @param errorCode PKCS#11 error code
+     * @return true if the error code means that the session can not be used anymore
+     */
+    static boolean isSessionLost(long errorCode) {
+        return errorCode == PKCS11Constants.CKR_SESSION_HANDLE_INVALID
+                || errorCode == PKCS11Constants.CKR_SESSION_CLOSED
+                || errorCode == PKCS11Constants.CKR_DEVICE_REMOVED
+                || errorCode == PKCS11Constants.CKR_DEVICE_ERROR
+                || errorCode == PKCS11Constants.CKR_TOKEN_NOT_PRESENT;
+    }
+
+    private Session borrowSession() throws TokenException {
+        if (closed) {
+            throw new IllegalStateException("Session pool is closed");
+        }
+
+        Session session = idleSessions.poll();
+
+        return session != null ? session : sessionFactory.openSession();
+    }
+
+    private static void closeSession(Session session) {
+        try {
+            session.closeSession();
+        } catch (Exception e) {
+            log.debug("Failed to close session: {}", e.getMessage());
+        }
+    }
+}
@@ -57,6 +57,8 @@ public class HardwareTokenType implements TokenType {
 
     private boolean batchSigningEnabled;
 
+    private final int signSessionPoolSize;
+
     private final String signMechanismName;
 
     private final PrivKeyAttributes privKeyAttributes;
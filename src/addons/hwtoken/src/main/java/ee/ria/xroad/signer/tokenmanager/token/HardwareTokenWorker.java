@@ -57,6 +57,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
@@ -76,6 +80,7 @@ import static ee.ria.xroad.signer.tokenmanager.TokenManager.setTokenActive;
 import static ee.ria.xroad.signer.tokenmanager.TokenManager.setTokenAvailable;
 import static ee.ria.xroad.signer.tokenmanager.TokenManager.setTokenInfo;
 import static ee.ria.xroad.signer.tokenmanager.TokenManager.setTokenStatus;
+import static ee.ria.xroad.signer.tokenmanager.token.HardwareTokenUtil.findPrivateKey;
 import static ee.ria.xroad.signer.tokenmanager.token.HardwareTokenUtil.findPrivateKeys;
 import static ee.ria.xroad.signer.tokenmanager.token.HardwareTokenUtil.findPublicKey;
 import static ee.ria.xroad.signer.tokenmanager.token.HardwareTokenUtil.findPublicKeyCertificates;
@@ -89,6 +94,7 @@ import static ee.ria.xroad.signer.util.ExceptionHelper.keyNotAvailable;
 import static ee.ria.xroad.signer.util.ExceptionHelper.loginFailed;
 import static ee.ria.xroad.signer.util.ExceptionHelper.logoutFailed;
 import static ee.ria.xroad.signer.util.SignerUtil.keyId;
+import static iaik.pkcs.pkcs11.Token.SessionReadWriteBehavior.RO_SESSION;
 import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
 
 /**
@@ -105,11 +111,15 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     private final Map<String, Mechanism> signMechanisms;
 
     // maps key id (hex) to RSAPrivateKey
-    private final Map<String, RSAPrivateKey> privateKeys = new HashMap<>();
+    private final Map<String, RSAPrivateKey> privateKeys = new ConcurrentHashMap<>();
     private final Map<String, List<X509PublicKeyCertificate>> certs = new HashMap<>();
 
     private Session activeSession;
 
+    // sessions and threads for signing in parallel, null if signing is done with the active session
+    private final HardwareTokenSessionPool signSessionPool;
+    private final ExecutorService signingExecutor;
+
     /**
      * @param tokenInfo the token info
      * @param tokenType the token type
@@ -119,6 +129,17 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         this.tokenType = tokenType;
         this.signMechanisms = createSignMechanisms(tokenType.getSignMechanismName());
+
+        int signSessionPoolSize = tokenType.getSignSessionPoolSize();
+
+        if (signSessionPoolSize > 1 && !tokenType.isPinVerificationPerSigning()) {
+            this.signSessionPool = new HardwareTokenSessionPool(
+                    () -> getToken().openSession(SERIAL_SESSION, RO_SESSION, null, null), signSessionPoolSize);
+            this.signingExecutor = Executors.newFixedThreadPool(signSessionPoolSize);
+        } else {
+            this.signSessionPool = null;
+            this.signingExecutor = null;
+        }
     }
 
     private static Map<String, Mechanism> createSignMechanisms(String signMechanismName) {
@@ -194,6 +215,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     public void postStop() throws Exception {
         super.postStop();
 
+        if (signSessionPool != null) {
+            signingExecutor.shutdown();
+            signSessionPool.close();
+        }
+
         try {
             closeActiveSession();
         } catch (Exception e) {
@@ -206,6 +232,14 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         log.trace("onUpdate()");
 
         if (isTokenAvailable(tokenId) && activeSession != null) {
+            if (signSessionPool != null) {
+                int closedSessions = signSessionPool.checkHealth();
+
+                if (closedSessions > 0) {
+                    log.warn("Closed {} unhealthy signing session(s) on token '{}'", closedSessions, getWorkerId());
+                }
+            }
+
             findKeysNotInConf();
             findPublicKeysForPrivateKeys();
             findCertificatesNotInConf();
@@ -233,6 +267,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         return e;
     }
 
+    @Override
+    protected Executor getSigningExecutor() {
+        return signingExecutor;
+    }
+
     // ----------------------- Message handlers -------------------------------
 
     @Override
@@ -397,7 +436,9 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     protected byte[] sign(String keyId, String signatureAlgorithmId, byte[] data) throws Exception {
         log.trace("sign({}, {})", keyId, signatureAlgorithmId);
 
-        assertActiveSession();
+        if (signSessionPool == null) {
+            assertActiveSession();
+        }
 
         if (tokenType.isPinVerificationPerSigning()) {
             try {
@@ -430,9 +471,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
                         "Unsupported signature algorithm '%s'", signatureAlgorithmId);
             }
 
-            activeSession.signInit(signMechanism, key);
+            if (signSessionPool != null) {
+                return signWithSessionPool(keyId, key, signMechanism, data);
+            }
 
-            return activeSession.sign(data);
+            return signWithSession(activeSession, key, signMechanism, data);
         } finally {
             if (tokenType.isPinVerificationPerSigning()) {
                 try {
@@ -444,6 +487,63 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         }
     }
 
+    private byte[] signWithSessionPool(String keyId, RSAPrivateKey key, Mechanism signMechanism, byte[] data)
+            throws Exception {
+        try {
+            return signSessionPool.execute(session -> signWithSession(session, key, signMechanism, data));
+        } catch (PKCS11Exception e) {
+            if (!isRetryable(e.getErrorCode())) {
+                throw e;
+            }
+
+            // The module may have been reset, in which case the sessions are gone, the login state is lost
+            // and the object handles are no longer valid. Log in again, look the key up again and retry once.
+            log.warn("Signing session on token '{}' is not usable ({}), retrying", getWorkerId(), e.getMessage());
+
+            return signSessionPool.execute(session -> {
+                relogin(session);
+
+                return signWithSession(session, refreshPrivateKey(session, keyId), signMechanism, data);
+            });
+        }
+    }
+
+    private static boolean isRetryable(long errorCode) {
+        return errorCode == PKCS11Constants.CKR_USER_NOT_LOGGED_IN
+                || errorCode == PKCS11Constants.CKR_OBJECT_HANDLE_INVALID
+                || errorCode == PKCS11Constants.CKR_KEY_HANDLE_INVALID
+                || HardwareTokenSessionPool.isSessionLost(errorCode);
+    }
+
+    private void relogin(Session session) throws Exception {
+        char[] password = getStoredPin();
+
+        if (password != null) {
+            HardwareTokenUtil.login(session, password);
+        }
+    }
+
+    private RSAPrivateKey refreshPrivateKey(Session session, String keyId) throws Exception {
+        RSAPrivateKey key = findPrivateKey(session, keyId, tokenType.getPrivKeyAttributes().getAllowedMechanisms());
+
+        if (key == null) {
+            throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
+                    keyId, tokenId);
+        }
+
+        // only replace the handle if the key has not been deleted or unloaded in the meantime
+        privateKeys.computeIfPresent(keyId, (id, staleKey) -> key);
+
+        return key;
+    }
+
+    private static byte[] signWithSession(Session session, RSAPrivateKey key, Mechanism signMechanism, byte[] data)
+            throws Exception {
+        session.signInit(signMechanism, key);
+
+        return session.sign(data);
+    }
+
     // ------------------------------------------------------------------------
 
     private void findKeysNotInConf() throws Exception {
@@ -571,7 +671,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     }
 
     private void login() throws Exception {
-        char[] password = PasswordStore.getPassword(tokenId);
+        char[] password = getStoredPin();
 
         if (password == null) {
             log.debug("Cannot login, no password stored");
@@ -605,6 +705,10 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         privateKeys.clear();
 
+        if (signSessionPool != null) {
+            signSessionPool.clear();
+        }
+
         log.trace("logout()");
 
         try {
@@ -709,6 +813,13 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         return tokenType.getToken();
     }
 
+    /**
+     * @return the PIN stored for the token, or null if the token has not been activated
+     */
+    char[] getStoredPin() throws Exception {
+        return PasswordStore.getPassword(tokenId);
+    }
+
     private void setTokenStatusFromErrorCode(long errorCode) throws Exception {
         TokenStatusInfo status = getTokenStatus(getToken().getTokenInfo(), errorCode);
 
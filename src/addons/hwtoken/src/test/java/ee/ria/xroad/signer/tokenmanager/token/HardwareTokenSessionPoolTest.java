@@ -0,0 +1,266 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests the hardware token session pool against mocked PKCS#11 sessions.
+ */
+public class HardwareTokenSessionPoolTest {
+
+    private final List<Session> openedSessions = Collections.synchronizedList(new ArrayList<>());
+
+    private Session openSession() {
+        Session session = mock(Session.class);
+        openedSessions.add(session);
+
+        return session;
+    }
+
+    /**
+     * Test that idle sessions are reused.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reusesIdleSessions() throws Exception {
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(this::openSession, 4);
+
+        Session first = pool.execute(session -> session);
+        Session second = pool.execute(session -> session);
+
+        assertSame(first, second);
+        assertEquals(1, openedSessions.size());
+        assertEquals(1, pool.getIdleSessionCount());
+    }
+
+    /**
+     * Test that concurrent operations use separate sessions and never more than the pool size.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void spreadsConcurrentOperationsOverSessions() throws Exception {
+        final int poolSize = 3;
+        final int threads = 8;
+
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(this::openSession, poolSize);
+        Set<Session> inUse = ConcurrentHashMap.newKeySet();
+        AtomicInteger maxInUse = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int i = 0; i < threads * 10; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+
+                    return pool.execute(session -> {
+                        assertTrue("Session used concurrently", inUse.add(session));
+                        maxInUse.accumulateAndGet(inUse.size(), Math::max);
+                        Thread.sleep(1);
+                        inUse.remove(session);
+
+                        return null;
+                    });
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(openedSessions.size() <= poolSize);
+        assertTrue(maxInUse.get() <= poolSize);
+    }
+
+    /**
+     * Test that a session the module reports as lost is closed and replaced.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void replacesLostSession() throws Exception {
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(this::openSession, 2);
+
+        try {
+            pool.execute(session -> {
+                throw new PKCS11Exception(PKCS11Constants.CKR_SESSION_HANDLE_INVALID);
+            });
+
+            fail("Expected exception");
+        } catch (PKCS11Exception expected) {
+            // expected
+        }
+
+        verify(openedSessions.get(0)).closeSession();
+        assertEquals(0, pool.getIdleSessionCount());
+
+        Session session = pool.execute(s -> s);
+
+        assertSame(openedSessions.get(1), session);
+    }
+
+    /**
+     * Test that other errors keep the session in the pool.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void keepsSessionOnOtherErrors() throws Exception {
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(this::openSession, 2);
+
+        try {
+            pool.execute(session -> {
+                throw new PKCS11Exception(PKCS11Constants.CKR_KEY_HANDLE_INVALID);
+            });
+
+            fail("Expected exception");
+        } catch (PKCS11Exception expected) {
+            // expected
+        }
+
+        verify(openedSessions.get(0), never()).closeSession();
+        assertEquals(1, pool.getIdleSessionCount());
+    }
+
+    /**
+     * Test that the health check closes sessions the module no longer recognizes.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void healthCheckClosesUnhealthySessions() throws Exception {
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(this::openSession, 2);
+        CountDownLatch inUse = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> {
+            try {
+                pool.execute(session -> {
+                    inUse.countDown();
+                    done.await();
+
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        holder.start();
+        inUse.await();
+        pool.execute(session -> null);
+        done.countDown();
+        holder.join();
+
+        assertEquals(2, pool.getIdleSessionCount());
+
+        doThrow(new PKCS11Exception(PKCS11Constants.CKR_SESSION_HANDLE_INVALID))
+                .when(openedSessions.get(1)).getSessionInfo();
+
+        assertEquals(1, pool.checkHealth());
+        assertEquals(1, pool.getIdleSessionCount());
+        verify(openedSessions.get(1)).closeSession();
+        verify(openedSessions.get(0), never()).closeSession();
+    }
+
+    /**
+     * Test that closing the pool closes idle sessions and rejects new operations.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void closeClosesIdleSessions() throws Exception {
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(this::openSession, 2);
+
+        pool.execute(session -> null);
+        pool.close();
+
+        verify(openedSessions.get(0)).closeSession();
+
+        try {
+            pool.execute(session -> null);
+
+            fail("Expected exception");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that failing to open a session releases the pool capacity.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void failedOpenReleasesCapacity() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new TokenException("Token not present");
+            }
+
+            return openSession();
+        }, 1);
+
+        try {
+            pool.execute(session -> null);
+
+            fail("Expected exception");
+        } catch (TokenException expected) {
+            // expected
+        }
+
+        pool.execute(session -> null);
+
+        assertEquals(1, pool.getIdleSessionCount());
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.tokenmanager.module.PrivKeyAttributes;
+import ee.ria.xroad.signer.tokenmanager.module.PubKeyAttributes;
+
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.TestActorRef;
+import iaik.pkcs.pkcs11.Mechanism;
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.Slot;
+import iaik.pkcs.pkcs11.Token;
+import iaik.pkcs.pkcs11.objects.RSAPrivateKey;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+import javax.xml.bind.DatatypeConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
+import static iaik.pkcs.pkcs11.Token.SessionReadWriteBehavior.RO_SESSION;
+import static iaik.pkcs.pkcs11.Token.SessionReadWriteBehavior.RW_SESSION;
+import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests signing with the session pool of the hardware token worker against a mocked PKCS#11 token, in
+ * particular the retry after the module has been reset.
+ */
+public class HardwareTokenWorkerTest {
+
+    private static final ActorSystem ACTOR_SYSTEM = ActorSystem.create();
+
+    private static final AtomicInteger TOKEN_COUNTER = new AtomicInteger();
+
+    private static final char[] PIN = "1234".toCharArray();
+    private static final byte[] DATA = "data to sign".getBytes();
+    private static final byte[] SIGNATURE = "signature".getBytes();
+    private static final int SIGN_SESSION_POOL_SIZE = 2;
+
+    private final List<Session> signSessions = Collections.synchronizedList(new ArrayList<>());
+
+    private String keyId;
+
+    // the key handle found at login and the handle found again after the module was reset
+    private RSAPrivateKey loadedKey;
+    private RSAPrivateKey reloadedKey;
+
+    // error the sign sessions report when signing with the handle found at login
+    private PKCS11Exception loadedKeyError;
+    private boolean keyFoundAfterReset = true;
+
+    private TestActorRef<TestHardwareTokenWorker> workerRef;
+    private HardwareTokenWorker worker;
+
+    /**
+     * Creates a token worker that has logged in and loaded one private key.
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        // tokens and keys stay in the token manager, use new identifiers for every test
+        int tokenNumber = TOKEN_COUNTER.incrementAndGet();
+        keyId = String.format("%08X", tokenNumber);
+
+        loadedKey = createPrivateKey(keyId);
+        reloadedKey = createPrivateKey(keyId);
+
+        Session activeSession = mock(Session.class);
+        when(activeSession.findObjects(anyInt())).thenReturn(new Object[] {loadedKey}, new Object[0]);
+
+        Token token = createToken("token" + tokenNumber);
+        when(token.openSession(SERIAL_SESSION, RW_SESSION, null, null)).thenReturn(activeSession);
+        when(token.openSession(SERIAL_SESSION, RO_SESSION, null, null)).thenAnswer(invocation -> openSignSession());
+
+        HardwareTokenType tokenType = new HardwareTokenType("module", "{moduleType}{slotIndex}{serialNumber}{label}",
+                token, false, 0, "token" + tokenNumber, "label", false, false, SIGN_SESSION_POOL_SIZE,
+                PKCS11Constants.NAME_CKM_RSA_PKCS, createPrivKeyAttributes(), createPubKeyAttributes());
+
+        TokenInfo tokenInfo = TokenManager.createToken(tokenType);
+
+        workerRef = TestActorRef.create(ACTOR_SYSTEM, Props.create(TestHardwareTokenWorker.class, tokenInfo,
+                tokenType));
+        worker = workerRef.underlyingActor();
+    }
+
+    /**
+     * Stops the token worker.
+     */
+    @After
+    public void tearDown() {
+        ACTOR_SYSTEM.stop(workerRef);
+    }
+
+    /**
+     * Shuts down the actor system.
+     * @throws Exception if an error occurs
+     */
+    @AfterClass
+    public static void shutdown() throws Exception {
+        Await.ready(ACTOR_SYSTEM.terminate(), Duration.Inf());
+    }
+
+    /**
+     * Test that signing uses the key handle found at login.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void signsWithLoadedKey() throws Exception {
+        assertArrayEquals(SIGNATURE, sign());
+
+        Session session = signSessions.get(0);
+
+        verify(session).signInit(any(Mechanism.class), same(loadedKey));
+        verify(session, never()).findObjectsInit(any());
+    }
+
+    /**
+     * Test that a lost session is replaced by a new one that is logged in, and that the key is looked up again
+     * on the new session and the new handle is used from then on.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reloginAndReloadKeyWhenSessionIsLost() throws Exception {
+        loadedKeyError = new PKCS11Exception(PKCS11Constants.CKR_SESSION_HANDLE_INVALID);
+
+        assertArrayEquals(SIGNATURE, sign());
+
+        assertEquals(2, signSessions.size());
+        verify(signSessions.get(0)).closeSession();
+
+        Session freshSession = signSessions.get(1);
+
+        verify(freshSession).login(Session.UserType.USER, PIN);
+        verify(freshSession).signInit(any(Mechanism.class), same(reloadedKey));
+
+        assertArrayEquals(SIGNATURE, sign());
+
+        verify(freshSession, times(1)).findObjectsInit(any());
+        verify(freshSession, times(2)).signInit(any(Mechanism.class), same(reloadedKey));
+    }
+
+    /**
+     * Test that an invalid key handle is looked up again and the signing is retried.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reloadKeyWhenKeyHandleIsInvalid() throws Exception {
+        loadedKeyError = new PKCS11Exception(PKCS11Constants.CKR_KEY_HANDLE_INVALID);
+
+        assertArrayEquals(SIGNATURE, sign());
+
+        assertEquals(1, signSessions.size());
+
+        Session session = signSessions.get(0);
+
+        verify(session, never()).closeSession();
+        verify(session).signInit(any(Mechanism.class), same(reloadedKey));
+    }
+
+    /**
+     * Test that the retry fails cleanly if the key is not found after the module was reset.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void failsWhenKeyIsNotFoundAfterReset() throws Exception {
+        loadedKeyError = new PKCS11Exception(PKCS11Constants.CKR_OBJECT_HANDLE_INVALID);
+        keyFoundAfterReset = false;
+
+        try {
+            sign();
+
+            fail("Expected exception");
+        } catch (CodedException expected) {
+            assertEquals(X_KEY_NOT_FOUND, expected.getFaultCode());
+        }
+    }
+
+    /**
+     * Test that other errors are not retried.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void doesNotRetryOtherErrors() throws Exception {
+        loadedKeyError = new PKCS11Exception(PKCS11Constants.CKR_FUNCTION_FAILED);
+
+        try {
+            sign();
+
+            fail("Expected exception");
+        } catch (PKCS11Exception expected) {
+            assertEquals(PKCS11Constants.CKR_FUNCTION_FAILED, expected.getErrorCode());
+        }
+
+        Session session = signSessions.get(0);
+
+        verify(session, never()).login(anyBoolean(), any(char[].class));
+        verify(session, never()).findObjectsInit(any());
+    }
+
+    private byte[] sign() throws Exception {
+        return worker.sign(keyId, CryptoUtils.SHA256WITHRSA_ID, DATA);
+    }
+
+    private Session openSignSession() throws Exception {
+        Session session = mock(Session.class);
+
+        when(session.findObjects(anyInt()))
+                .thenReturn(keyFoundAfterReset ? new Object[] {reloadedKey} : new Object[0]);
+        when(session.sign(DATA)).thenReturn(SIGNATURE);
+
+        if (loadedKeyError != null) {
+            doThrow(loadedKeyError).when(session).signInit(any(Mechanism.class), same(loadedKey));
+        }
+
+        signSessions.add(session);
+
+        return session;
+    }
+
+    private static Token createToken(String serialNumber) throws Exception {
+        iaik.pkcs.pkcs11.TokenInfo tokenInfo = mock(iaik.pkcs.pkcs11.TokenInfo.class);
+        when(tokenInfo.getSerialNumber()).thenReturn(serialNumber);
+        when(tokenInfo.getLabel()).thenReturn("label");
+
+        Slot slot = mock(Slot.class);
+        when(slot.getSlotID()).thenReturn(0L);
+
+        Token token = mock(Token.class);
+        when(token.getTokenInfo()).thenReturn(tokenInfo);
+        when(token.getSlot()).thenReturn(slot);
+
+        return token;
+    }
+
+    private static RSAPrivateKey createPrivateKey(String keyId) {
+        RSAPrivateKey key = new RSAPrivateKey();
+        key.getId().setByteArrayValue(DatatypeConverter.parseHexBinary(keyId));
+
+        return key;
+    }
+
+    private static PrivKeyAttributes createPrivKeyAttributes() {
+        PrivKeyAttributes attributes = new PrivKeyAttributes();
+        attributes.setAllowedMechanisms(Collections.emptySet());
+
+        return attributes;
+    }
+
+    private static PubKeyAttributes createPubKeyAttributes() {
+        PubKeyAttributes attributes = new PubKeyAttributes();
+        attributes.setAllowedMechanisms(Collections.emptySet());
+
+        return attributes;
+    }
+
+    private static class TestHardwareTokenWorker extends HardwareTokenWorker {
+        TestHardwareTokenWorker(TokenInfo tokenInfo, HardwareTokenType tokenType) {
+            super(tokenInfo, tokenType);
+        }
+
+        @Override
+        char[] getStoredPin() {
+            return PIN;
+        }
+    }
+}
@@ -52,11 +52,13 @@ import org.apache.commons.lang3.RandomStringUtils;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
 import java.util.zip.ZipEntry;
@@ -230,14 +232,16 @@ class AsicContainerClientRequestProcessor extends MessageProcessorBase {
         final String filename = AsicUtils.escapeString(queryId)
                 + (response == null ? "" : (response ? "-response" : "-request"));
 
-        LogRecordManager.getByQueryId(queryId, clientId, response, records -> {
-            if (records.isEmpty()) {
+        LogRecordManager.streamByQueryId(queryId, clientId, response, records -> {
+            final Iterator<MessageRecord> it = records.iterator();
+            if (!it.hasNext()) {
                 throw new CodedExceptionWithHttpStatus(HttpServletResponse.SC_NOT_FOUND, ErrorCodes.X_NOT_FOUND,
                         DOCUMENTS_NOT_FOUND_FAULT_MESSAGE);
             }
             try (ZipOutputStream zos = startZipResponse(filename)) {
                 zos.setLevel(0);
-                for (MessageRecord record : records) {
+                while (it.hasNext()) {
+                    final MessageRecord record = it.next();
                     if (record.getTimestampRecord() == null) {
                         // Only happens if there are matching messages that are sent after
                         // the ensureTimestamped check was made. Ignore to emulate the previous behavior.
@@ -247,7 +251,8 @@ class AsicContainerClientRequestProcessor extends MessageProcessorBase {
                             : AsicContainerNameGenerator.TYPE_REQUEST;
                     zos.putNextEntry(new ZipEntry(nameGen.getArchiveFilename(queryId, type)));
 
-                    try (EntryStream es = new EntryStream(zos)) {
+                    // Buffer the container stream, the nested ZipOutputStream issues many small writes
+                    try (OutputStream es = new BufferedOutputStream(new EntryStream(zos))) {
                         record.toAsicContainer().write(es);
                     }
 
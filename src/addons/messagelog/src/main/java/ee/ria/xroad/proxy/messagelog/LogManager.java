@@ -71,6 +71,7 @@ import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveInte
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getCleanInterval;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getHashAlg;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getTimestampRetryDelay;
+import static ee.ria.xroad.common.messagelog.MessageLogProperties.isMessageCompressionEnabled;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.shouldTimestampImmediately;
 import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
@@ -170,6 +171,11 @@ public class LogManager extends AbstractLogManager {
         } else {
             logRecord = createMessageRecord((RestLogMessage) message);
         }
+
+        if (isMessageCompressionEnabled()) {
+            logRecord.compressMessage();
+        }
+
         logRecord = saveMessageRecord(logRecord);
 
         if (shouldTimestampImmediately) {
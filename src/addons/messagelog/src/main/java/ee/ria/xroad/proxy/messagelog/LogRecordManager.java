@@ -48,6 +48,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransaction;
 
@@ -58,6 +59,7 @@ import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransactio
 public final class LogRecordManager {
 
     private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int STREAM_FETCH_SIZE = 10;
     private static final String GET_BY_QUERY_ID_LOG_FORMAT = "getByQueryId({}, {}, {})";
     private static int configuredBatchSize = 0;
 
@@ -118,6 +120,31 @@ public final class LogRecordManager {
         return doInTransaction(session -> processor.apply(getMessageRecords(session, queryId, clientId, isResponse)));
     }
 
+    /**
+     * Streams the log records for a given message Query Id and sender Client Id. The records are read from
+     * the database while the stream is consumed and detached from the session once read, so the result set
+     * is not held in memory. The stream is only usable inside the processor.
+     * @param queryId    the message query id.
+     * @param clientId   the sender client id.
+     * @param isResponse whether the response record should be retrieved.
+     * @return the result of the processor
+     * @throws Exception if an error occurs while communicating with database.
+     */
+    public static <R> R streamByQueryId(String queryId, ClientId clientId, Boolean isResponse,
+            Function<Stream<MessageRecord>, R> processor)
+            throws Exception {
+        log.trace(GET_BY_QUERY_ID_LOG_FORMAT, queryId, clientId, isResponse);
+
+        return doInTransaction(session -> {
+            final CriteriaQuery<MessageRecord> query = createRecordCriteria(session, queryId, clientId, isResponse);
+
+            try (Stream<MessageRecord> records = session.createQuery(query).setReadOnly(true)
+                    .setFetchSize(STREAM_FETCH_SIZE).stream()) {
+                return processor.apply(records.peek(session::detach));
+            }
+        });
+    }
+
     /**
      * Returns a log record for a given log record number.
      * @param number the log record number.
@@ -136,6 +163,10 @@ public final class LogRecordManager {
      * @throws Exception if an error occurs while communicating with database.
      */
     static void saveMessageRecord(MessageRecord messageRecord) throws Exception {
+        if (messageRecord.getQueryIdHash() == null && messageRecord.getQueryId() != null) {
+            messageRecord.setQueryIdHash(MessageRecord.hashQueryId(messageRecord.getQueryId()));
+        }
+
         doInTransaction(session -> {
             //the blob must be created within hibernate session
             final InputStream is = messageRecord.getAttachmentStream();
@@ -265,7 +296,7 @@ public final class LogRecordManager {
 
         query.select(m)
                 .where(cb.and(
-                        cb.equal(m.get("queryId"), queryId),
+                        queryIdMatches(cb, m, queryId),
                         cb.between(m.get("time"), startTime.getTime(), endTime.getTime())
                 ));
         return session.createQuery(query).setMaxResults(1).uniqueResult();
@@ -292,9 +323,8 @@ public final class LogRecordManager {
         final Root<MessageRecord> m = query.from(MessageRecord.class);
 
         Predicate pred = cb.and(
-                cb.equal(m.get("queryId"), queryId),
+                queryIdMatches(cb, m, queryId),
                 cb.equal(m.get("memberClass"), clientId.getMemberClass()),
-                cb.equal(m.get("memberCode"), clientId.getMemberCode()),
                 cb.equal(m.get("memberCode"), clientId.getMemberCode()));
 
         final String subsystemCode = clientId.getSubsystemCode();
@@ -311,6 +341,24 @@ public final class LogRecordManager {
         return query.select(m).where(pred);
     }
 
+    /**
+     * The query id hash is compared first, it is the leading column of the lookup index. Records logged before
+     * the hash was introduced have no hash, they are matched by the query id alone until they are cleaned up.
+     */
+    private static Predicate queryIdMatches(CriteriaBuilder cb, Root<MessageRecord> m, String queryId) {
+        return cb.and(
+                cb.or(cb.equal(m.get("queryIdHash"), hashQueryId(queryId)), cb.isNull(m.get("queryIdHash"))),
+                cb.equal(m.get("queryId"), queryId));
+    }
+
+    private static String hashQueryId(String queryId) {
+        try {
+            return MessageRecord.hashQueryId(queryId);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to hash query id", e);
+        }
+    }
+
     private static int getConfiguredBatchSize(Session session) {
         if (configuredBatchSize == 0) {
             configuredBatchSize = HibernateUtil.getConfiguredBatchSize(session, DEFAULT_BATCH_SIZE);
@@ -27,6 +27,7 @@ package ee.ria.xroad.proxy.messagelog;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ExpectedCodedException;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
+import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.message.SoapMessageImpl;
 import ee.ria.xroad.common.messagelog.AbstractLogManager;
 import ee.ria.xroad.common.messagelog.AbstractLogRecord;
@@ -62,9 +63,12 @@ import java.io.FileFilter;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.ErrorCodes.X_MLOG_TIMESTAMPER_FAILED;
 import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransaction;
@@ -399,6 +403,83 @@ public class MessageLogTest extends AbstractMessageLogTest {
         assertNull(findByQueryId("foo", "02-04-2014 12:34:56.100", "02-04-2014 12:34:59.100"));
     }
 
+    /**
+     * Get messages by query id and client id.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void findByQueryIdAndClient() throws Exception {
+        log.trace("findByQueryIdAndClient()");
+
+        log("02-04-2014 12:34:56.100", createMessage("message1"));
+        log("02-04-2014 12:34:57.100", createMessage("message1"));
+        log("02-04-2014 12:34:58.100", createMessage("message2"));
+
+        ClientId client = ClientId.create("EE", "BUSINESS", "consumer");
+
+        List<MessageRecord> records = LogRecordManager.streamByQueryId("message1", client, false,
+                stream -> stream.collect(Collectors.toList()));
+
+        assertEquals(2, records.size());
+
+        for (MessageRecord record : records) {
+            assertMessageRecord(record, "message1");
+            assertEquals(MessageRecord.hashQueryId("message1"), record.getQueryIdHash());
+        }
+
+        assertTrue(LogRecordManager.getByQueryId("message1", ClientId.create("EE", "BUSINESS", "other"), null,
+                List::isEmpty));
+        assertNotNull(LogRecordManager.getByQueryIdUnique("message2", client, false, Function.identity()));
+    }
+
+    /**
+     * Get messages logged before the query id hash was stored.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void findByQueryIdWithoutHash() throws Exception {
+        log.trace("findByQueryIdWithoutHash()");
+
+        log("02-04-2014 12:34:56.100", createMessage("message1"));
+        log("02-04-2014 12:34:57.100", createMessage("message2"));
+
+        doInTransaction(session -> session.createQuery("update MessageRecord set queryIdHash = null")
+                .executeUpdate());
+
+        ClientId client = ClientId.create("EE", "BUSINESS", "consumer");
+
+        LogRecord message1 = findByQueryId("message1", "02-04-2014 12:34:50.100", "02-04-2014 12:34:59.100");
+        assertMessageRecord(message1, "message1");
+
+        assertEquals(1, (int) LogRecordManager.getByQueryId("message2", client, false, List::size));
+        assertTrue(LogRecordManager.getByQueryId("message3", client, false, List::isEmpty));
+    }
+
+    /**
+     * Get compressed message by query id.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void findCompressedMessageByQueryId() throws Exception {
+        log.trace("findCompressedMessageByQueryId()");
+
+        System.setProperty(MessageLogProperties.MESSAGE_COMPRESSION_ENABLED, "true");
+
+        try {
+            SoapMessageImpl message = createMessage("compressed");
+            log("02-04-2014 12:34:56.100", message);
+
+            LogRecord logRecord = findByQueryId("compressed", "02-04-2014 12:34:50.100", "02-04-2014 12:34:59.100");
+            assertMessageRecord(logRecord, "compressed");
+
+            MessageRecord messageRecord = (MessageRecord) logRecord;
+            assertNotNull(messageRecord.getCompressedMessage());
+            assertEquals(message.getXml(), messageRecord.getMessage());
+        } finally {
+            System.clearProperty(MessageLogProperties.MESSAGE_COMPRESSION_ENABLED);
+        }
+    }
+
     /**
      * Wants to time-stamp, but no TSP urls configured.
      * @throws Exception in case of any unexpected errors
@@ -25,11 +25,13 @@
 package ee.ria.xroad.proxy.serverproxy;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
 import ee.ria.xroad.common.conf.serverconf.ServerConfDatabaseCtx;
 import ee.ria.xroad.common.conf.serverconf.dao.ServiceDescriptionDAOImpl;
 import ee.ria.xroad.common.conf.serverconf.model.DescriptionType;
 import ee.ria.xroad.common.conf.serverconf.model.ServiceDescriptionType;
+import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.message.JaxbUtils;
 import ee.ria.xroad.common.message.MultipartSoapMessageEncoder;
@@ -50,6 +52,8 @@ import ee.ria.xroad.proxy.protocol.ProxyMessage;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
@@ -57,7 +61,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
-import org.w3c.dom.Node;
+import org.apache.http.util.EntityUtils;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
@@ -67,7 +71,6 @@ import org.xml.sax.ext.LexicalHandler;
 import javax.servlet.http.HttpServletRequest;
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
@@ -84,9 +87,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -113,6 +116,12 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
 
     private HttpClientCreator wsdlHttpClientCreator = new HttpClientCreator();
 
+    private static final WsdlCache WSDL_CACHE = new WsdlCache(SystemProperties.getWsdlCacheSize(),
+            SystemProperties.getWsdlCachePeriod());
+
+    private static final MethodListCache METHOD_LIST_CACHE = new MethodListCache(
+            SystemProperties.getMethodListCacheSize(), SystemProperties.getServerConfCachePeriod());
+
     private static final SAXTransformerFactory TRANSFORMER_FACTORY = createSaxTransformerFactory();
 
     private static SAXTransformerFactory createSaxTransformerFactory() {
@@ -215,29 +224,25 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
     private void handleListMethods(SoapMessageImpl request) throws Exception {
         log.trace("handleListMethods()");
 
-        MethodListType methodList = OBJECT_FACTORY.createMethodListType();
-        methodList.getService().addAll(
-                ServerConf.getServicesByDescriptionType(
-                        request.getService().getClientId(), DescriptionType.WSDL));
+        ClientId provider = request.getService().getClientId();
+        byte[] body = getMethodListCache().get(DescriptionType.WSDL, LIST_METHODS, provider, null,
+                () -> marshal(OBJECT_FACTORY.createListMethodsResponse(createMethodList(
+                        ServerConf.getServicesByDescriptionType(provider, DescriptionType.WSDL)))));
 
-        SoapMessageImpl result = createMethodListResponse(request,
-                OBJECT_FACTORY.createListMethodsResponse(methodList));
-        responseEncoder.soap(result, new HashMap<>());
+        writeMethodListResponse(request, body);
     }
 
     private void handleAllowedMethods(SoapMessageImpl request)
             throws Exception {
         log.trace("handleAllowedMethods()");
 
-        MethodListType methodList = OBJECT_FACTORY.createMethodListType();
-        methodList.getService().addAll(
-                ServerConf.getAllowedServicesByDescriptionType(
-                        request.getService().getClientId(),
-                        request.getClient(), DescriptionType.WSDL));
-
-        SoapMessageImpl result = createMethodListResponse(request,
-                OBJECT_FACTORY.createAllowedMethodsResponse(methodList));
-        responseEncoder.soap(result, new HashMap<>());
+        ClientId provider = request.getService().getClientId();
+        ClientId client = request.getClient();
+        byte[] body = getMethodListCache().get(DescriptionType.WSDL, ALLOWED_METHODS, provider, client,
+                () -> marshal(OBJECT_FACTORY.createAllowedMethodsResponse(createMethodList(
+                        ServerConf.getAllowedServicesByDescriptionType(provider, client, DescriptionType.WSDL)))));
+
+        writeMethodListResponse(request, body);
     }
 
     private void handleGetWsdl(SoapMessageImpl request) throws Exception {
@@ -255,16 +260,15 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
         }
 
         ServiceId serviceId = requestData.toServiceId(request.getService().getClientId());
-        String url = getWsdlUrl(serviceId);
-        if (url == null) {
+        ServiceDescriptionType description = getWsdlDescription(serviceId);
+        if (description == null || description.getUrl() == null) {
             throw new CodedException(X_UNKNOWN_SERVICE,
                     "Could not find wsdl URL for service %s",
                     requestData.toServiceId(
                             request.getService().getClientId()));
         }
 
-        log.info("Downloading WSDL from URL: {}", url);
-        try (InputStream in = modifyWsdl(getWsdl(url, serviceId))) {
+        try (InputStream in = new ByteArrayInputStream(getModifiedWsdl(description, serviceId))) {
             Map<String, String> additionalHeaders = new HashMap<>();
             additionalHeaders.put("Content-Transfer-Encoding", "binary");
             additionalHeaders.put("Content-ID", "<wsdl=" + UUID.randomUUID().toString() + "@x-road.eu>");
@@ -275,36 +279,174 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
 
     // ------------------------------------------------------------------------
 
-    private String getWsdlUrl(ServiceId service) throws Exception {
+    private ServiceDescriptionType getWsdlDescription(ServiceId service) throws Exception {
         ServiceDescriptionType wsdl = ServerConfDatabaseCtx.doInTransaction(
                 session -> new ServiceDescriptionDAOImpl().getServiceDescription(session, service));
         if (wsdl != null && wsdl.getType() != DescriptionType.WSDL) {
             throw new CodedException(X_INVALID_SERVICE_TYPE,
                     "Service is a REST service and does not have a WSDL");
         }
-        return wsdl != null ? wsdl.getUrl() : null;
+        return wsdl;
+    }
+
+    /**
+     * Returns the rewritten WSDL of the service description. The WSDL is served from the cache while it
+     * is fresh, a stale WSDL is revalidated with a conditional request and only downloaded and rewritten
+     * again if the provider reports that it has changed.
+     */
+    private byte[] getModifiedWsdl(ServiceDescriptionType description, ServiceId serviceId) throws Exception {
+        WsdlCache cache = getWsdlCache();
+        ClientId provider = serviceId.getClientId();
+        String url = description.getUrl();
+        long now = System.currentTimeMillis();
+
+        WsdlCache.Entry cached = cache.get(provider, url, description.getRefreshedDate());
+        if (cached != null && cache.isFresh(cached, now)) {
+            log.debug("Using cached WSDL for URL: {}", url);
+            return cached.getWsdl();
+        }
+
+        HttpGet get = new HttpGet(new URI(url));
+        if (cached != null) {
+            if (cached.getEtag() != null) {
+                get.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                get.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+            }
+        }
+
+        log.info("Downloading WSDL from URL: {}", url);
+        HttpResponse response = executeWsdlRequest(get, serviceId);
+        StatusLine statusLine = response.getStatusLine();
+
+        if (cached != null && statusLine.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            log.debug("WSDL at URL {} not modified", url);
+            cache.put(provider, url, cached.revalidated(now));
+            return cached.getWsdl();
+        }
+
+        if (HttpStatus.SC_OK != statusLine.getStatusCode()) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            cache.invalidate(provider, url);
+            throw new RuntimeException("Received HTTP error: "
+                    + statusLine.getStatusCode() + " - " + statusLine.getReasonPhrase());
+        }
+
+        byte[] wsdl;
+        try (InputStream in = response.getEntity().getContent()) {
+            wsdl = modifyWsdl(in);
+        }
+
+        WsdlCache.Entry entry = new WsdlCache.Entry(wsdl, getHeaderValue(response, HttpHeaders.ETAG),
+                getHeaderValue(response, HttpHeaders.LAST_MODIFIED), description.getRefreshedDate(), now);
+        if (entry.hasValidators() || cache.isFresh(entry, System.currentTimeMillis())) {
+            cache.put(provider, url, entry);
+        }
+
+        return wsdl;
+    }
+
+    private static String getHeaderValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    protected WsdlCache getWsdlCache() {
+        return WSDL_CACHE;
+    }
+
+    protected MethodListCache getMethodListCache() {
+        return METHOD_LIST_CACHE;
+    }
+
+    private static MethodListType createMethodList(List<ServiceId> services) {
+        MethodListType methodList = OBJECT_FACTORY.createMethodListType();
+        methodList.getService().addAll(services);
+        return methodList;
+    }
+
+    /**
+     * Writes the method list response. The response is the request envelope (including the header)
+     * with the body contents replaced by the method list, so the serialized method list is spliced
+     * into the request XML instead of building the response from a SOAP object. If the body element
+     * can not be located unambiguously in the request, the response is built the usual way.
+     */
+    private void writeMethodListResponse(SoapMessageImpl request, byte[] body) throws Exception {
+        String xml = StandardCharsets.UTF_8.name().equalsIgnoreCase(request.getCharset()) ? request.getXml() : null;
+        String bodyTag = request.getSoap().getSOAPBody().getTagName();
+
+        int bodyStart = xml != null ? findStartTagEnd(xml, bodyTag) : -1;
+        int bodyEnd = bodyStart >= 0 ? xml.lastIndexOf("</" + bodyTag) : -1;
+
+        if (bodyStart < 0 || bodyEnd < bodyStart || bodyEnd != xml.indexOf("</" + bodyTag)) {
+            // simple encoder writes the message bytes as is
+            responseEncoder.soap(createMethodListResponse(request, body), new HashMap<>());
+            return;
+        }
+
+        responseOut.write(xml.substring(0, bodyStart).getBytes(StandardCharsets.UTF_8));
+        responseOut.write(body);
+        responseOut.write(xml.substring(bodyEnd).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the index following the only start tag with the given name, or -1 if the tag is not found,
+     * is not unique or is an empty-element tag.
+     */
+    private static int findStartTagEnd(String xml, String tagName) {
+        String prefix = "<" + tagName;
+        int start = xml.indexOf(prefix);
+
+        if (start < 0 || start != xml.lastIndexOf(prefix)) {
+            return -1;
+        }
+
+        int pos = start + prefix.length();
+        if (pos >= xml.length() || !(Character.isWhitespace(xml.charAt(pos)) || xml.charAt(pos) == '>')) {
+            return -1;
+        }
+
+        char quote = 0;
+        for (; pos < xml.length(); pos++) {
+            char c = xml.charAt(pos);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return xml.charAt(pos - 1) == '/' ? -1 : pos + 1;
+            }
+        }
+
+        return -1;
     }
 
     private static SoapMessageImpl createMethodListResponse(
-            SoapMessageImpl requestMessage,
-            final JAXBElement<MethodListType> methodList) throws Exception {
+            SoapMessageImpl requestMessage, final byte[] methodList) throws Exception {
         SoapMessageImpl responseMessage = SoapUtils.toResponse(requestMessage,
                 new SOAPCallback() {
                     @Override
                     public void call(SOAPMessage soap) throws Exception {
                         soap.getSOAPBody().removeContents();
-                        marshal(methodList, soap.getSOAPBody());
+                        soap.getSOAPBody().addDocument(
+                                XmlUtils.parseDocument(new ByteArrayInputStream(methodList)));
                     }
                 });
 
         return responseMessage;
     }
 
-    private static void marshal(Object object, Node out) throws Exception {
+    private static byte[] marshal(Object object) throws Exception {
         Marshaller marshaller = JAXB_CTX.createMarshaller();
         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
         marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        marshaller.setProperty(Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
         marshaller.marshal(object, out);
+        return out.toByteArray();
     }
 
     private static JAXBContext initJaxbCtx() {
@@ -335,12 +477,12 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
     }
 
     /**
-     * reads a WSDL from input stream, modifies it and returns input stream to the result
+     * reads a WSDL from input stream, modifies it and returns the result
      *
      * @param wsdl
      * @return
      */
-    private InputStream modifyWsdl(InputStream wsdl) {
+    private byte[] modifyWsdl(InputStream wsdl) {
         try {
             TransformerHandler serializer = TRANSFORMER_FACTORY.newTransformerHandler();
             StringWriter writer = new StringWriter();
@@ -361,8 +503,7 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
             String resultString = writer.toString();
             log.debug("result of WSDL cleanup: {}", resultString);
 
-            // offer InputStream into processed String
-            return new ByteArrayInputStream(resultString.getBytes(StandardCharsets.UTF_8));
+            return resultString.getBytes(StandardCharsets.UTF_8);
         } catch (IOException | SAXException | TransformerConfigurationException e) {
             throw new RuntimeException(e);
         }
@@ -372,8 +513,8 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
         return OverwriteAttributeFilter.createOverwriteSoapAddressFilter(WSDL_ENDPOINT_ADDRESS);
     }
 
-    private InputStream getWsdl(String url, ServiceId serviceId)
-            throws HttpClientCreator.HttpClientCreatorException, URISyntaxException, IOException {
+    private HttpResponse executeWsdlRequest(HttpGet request, ServiceId serviceId)
+            throws HttpClientCreator.HttpClientCreatorException, IOException {
 
         HttpClient client = wsdlHttpClientCreator.getHttpClient();
 
@@ -382,15 +523,6 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
         // ServerMessageProcessor uses the same method to pass the ServiceId to CustomSSLSocketFactory
         httpContext.setAttribute(ServiceId.class.getName(), serviceId);
 
-        HttpResponse response = client.execute(new HttpGet(new URI(url)), httpContext);
-
-        StatusLine statusLine = response.getStatusLine();
-
-        if (HttpStatus.SC_OK != statusLine.getStatusCode()) {
-            throw new RuntimeException("Received HTTP error: "
-                    + statusLine.getStatusCode() + " - " + statusLine.getReasonPhrase());
-        }
-
-        return response.getEntity().getContent();
+        return client.execute(request, httpContext);
     }
 }
@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.conf.serverconf.model.DescriptionType;
+import ee.ria.xroad.common.identifier.ClientId;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Value;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of serialized listMethods and allowedMethods responses. The responses are keyed by the
+ * description type, the method, the service provider and (for allowedMethods) the client.
+ * Entries expire after the server configuration cache period, same as the cached access rights the
+ * security server uses to authorize requests. Changes made to the services or access rights of a client
+ * are therefore reflected in the responses only after the cached entry expires.
+ */
+class MethodListCache {
+
+    private final Cache<Key, byte[]> cache;
+
+    /**
+     * Creates a new cache.
+     * @param maxSize maximum number of cached responses
+     * @param periodSeconds number of seconds a response is cached
+     */
+    MethodListCache(long maxSize, int periodSeconds) {
+        this(maxSize, periodSeconds, Ticker.systemTicker());
+    }
+
+    MethodListCache(long maxSize, int periodSeconds, Ticker ticker) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(periodSeconds, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Returns the cached response or creates it using the loader.
+     * @param type description type of the listed services
+     * @param method metaservice method (listMethods or allowedMethods)
+     * @param provider service provider
+     * @param client client, or null if the response does not depend on the client
+     * @param loader creates the serialized response
+     * @return the serialized response
+     * @throws Exception if the loader fails
+     */
+    byte[] get(DescriptionType type, String method, ClientId provider, ClientId client,
+            Callable<byte[]> loader) throws Exception {
+        try {
+            return cache.get(new Key(type, method, provider, client), loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Value
+    private static class Key {
+        DescriptionType type;
+        String method;
+        ClientId provider;
+        ClientId client;
+    }
+}
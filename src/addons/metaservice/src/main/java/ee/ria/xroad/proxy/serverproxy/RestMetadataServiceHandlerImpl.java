@@ -25,8 +25,10 @@
 package ee.ria.xroad.proxy.serverproxy;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
 import ee.ria.xroad.common.conf.serverconf.model.DescriptionType;
+import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.message.RestRequest;
 import ee.ria.xroad.common.message.RestResponse;
@@ -93,6 +95,9 @@ public class RestMetadataServiceHandlerImpl implements RestServiceHandler {
         MAPPER = mapper;
     }
 
+    private static final MethodListCache METHOD_LIST_CACHE = new MethodListCache(
+            SystemProperties.getMethodListCacheSize(), SystemProperties.getServerConfCachePeriod());
+
     private HttpClientCreator httpClientCreator = new HttpClientCreator();
 
     private RestResponse restResponse;
@@ -156,28 +161,31 @@ public class RestMetadataServiceHandlerImpl implements RestServiceHandler {
         opMonitoringData.setServiceType(DescriptionType.REST.name());
     }
 
-    private void handleListMethods(ProxyMessage requestProxyMessage) throws IOException {
+    private void handleListMethods(ProxyMessage requestProxyMessage) throws Exception {
         restResponse.getHeaders().add(new BasicHeader(MimeUtils.HEADER_CONTENT_TYPE, MimeTypes.JSON));
-        MethodListType methodList = OBJECT_FACTORY.createMethodListType();
-        methodList.getService().addAll(ServerConf.getServicesByDescriptionType(
-                requestProxyMessage.getRest().getServiceId().getClientId(), DescriptionType.REST));
-        methodList.getService().addAll(ServerConf.getServicesByDescriptionType(
-                requestProxyMessage.getRest().getServiceId().getClientId(), DescriptionType.OPENAPI3));
-        MAPPER.writeValue(restResponseBody, methodList);
+        ClientId provider = requestProxyMessage.getRest().getServiceId().getClientId();
+        restResponseBody.write(METHOD_LIST_CACHE.get(DescriptionType.REST, LIST_METHODS, provider, null, () -> {
+            MethodListType methodList = OBJECT_FACTORY.createMethodListType();
+            methodList.getService().addAll(ServerConf.getServicesByDescriptionType(
+                    provider, DescriptionType.REST));
+            methodList.getService().addAll(ServerConf.getServicesByDescriptionType(
+                    provider, DescriptionType.OPENAPI3));
+            return MAPPER.writeValueAsBytes(methodList);
+        }));
     }
 
-    private void handleAllowedMethods(ProxyMessage requestProxyMessage) throws IOException {
+    private void handleAllowedMethods(ProxyMessage requestProxyMessage) throws Exception {
         restResponse.getHeaders().add(new BasicHeader(MimeUtils.HEADER_CONTENT_TYPE, MimeTypes.JSON));
-        MethodListType methodList = OBJECT_FACTORY.createMethodListType();
-        methodList.getService().addAll(ServerConf.getAllowedServicesByDescriptionType(
-                requestProxyMessage.getRest().getServiceId().getClientId(),
-                requestProxyMessage.getRest().getClientId(),
-                DescriptionType.REST));
-        methodList.getService().addAll(ServerConf.getAllowedServicesByDescriptionType(
-                requestProxyMessage.getRest().getServiceId().getClientId(),
-                requestProxyMessage.getRest().getClientId(),
-                DescriptionType.OPENAPI3));
-        MAPPER.writeValue(restResponseBody, methodList);
+        ClientId provider = requestProxyMessage.getRest().getServiceId().getClientId();
+        ClientId client = requestProxyMessage.getRest().getClientId();
+        restResponseBody.write(METHOD_LIST_CACHE.get(DescriptionType.REST, ALLOWED_METHODS, provider, client, () -> {
+            MethodListType methodList = OBJECT_FACTORY.createMethodListType();
+            methodList.getService().addAll(ServerConf.getAllowedServicesByDescriptionType(
+                    provider, client, DescriptionType.REST));
+            methodList.getService().addAll(ServerConf.getAllowedServicesByDescriptionType(
+                    provider, client, DescriptionType.OPENAPI3));
+            return MAPPER.writeValueAsBytes(methodList);
+        }));
     }
 
     private void handleGetOpenApi(ProxyMessage requestProxyMessage) throws IOException,
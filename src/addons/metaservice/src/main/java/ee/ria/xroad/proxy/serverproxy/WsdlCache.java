@@ -0,0 +1,120 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.identifier.ClientId;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of rewritten service WSDLs keyed by the service provider and the service description URL.
+ * The total size of the cached WSDLs is bounded, least recently used WSDLs are evicted first.
+ * A cached WSDL is served without contacting the provider for the configured period, after which it
+ * needs to be revalidated. An entry is discarded when the service description has been refreshed.
+ */
+class WsdlCache {
+
+    private final Cache<Key, Entry> cache;
+    private final long periodMillis;
+
+    /**
+     * Creates a new cache.
+     * @param maxSize maximum total size of the cached WSDLs in bytes
+     * @param periodSeconds number of seconds an entry is fresh after it was (re)validated
+     */
+    WsdlCache(long maxSize, int periodSeconds) {
+        // a single segment keeps the eviction strictly least recently used, WSDL requests are infrequent
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maxSize)
+                .weigher((Key k, Entry e) -> e.getWsdl().length)
+                .build();
+        this.periodMillis = TimeUnit.SECONDS.toMillis(periodSeconds);
+    }
+
+    /**
+     * Returns the cached entry for the service description. An entry cached before the last refresh
+     * of the service description is discarded.
+     * @param provider service provider
+     * @param url service description URL
+     * @param refreshedDate refresh date of the service description
+     * @return the cached entry or null
+     */
+    Entry get(ClientId provider, String url, Date refreshedDate) {
+        Key key = new Key(provider, url);
+        Entry entry = cache.getIfPresent(key);
+
+        if (entry != null && !Objects.equals(entry.getRefreshedDate(), refreshedDate)) {
+            cache.invalidate(key);
+            return null;
+        }
+
+        return entry;
+    }
+
+    void put(ClientId provider, String url, Entry entry) {
+        cache.put(new Key(provider, url), entry);
+    }
+
+    void invalidate(ClientId provider, String url) {
+        cache.invalidate(new Key(provider, url));
+    }
+
+    boolean isFresh(Entry entry, long now) {
+        return now - entry.getValidatedAt() < periodMillis;
+    }
+
+    @Value
+    private static class Key {
+        ClientId provider;
+        String url;
+    }
+
+    /**
+     * Rewritten WSDL together with the validators needed for a conditional request.
+     */
+    @Value
+    static class Entry {
+        byte[] wsdl;
+        String etag;
+        String lastModified;
+        Date refreshedDate;
+        long validatedAt;
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        Entry revalidated(long now) {
+            return new Entry(wsdl, etag, lastModified, refreshedDate, now);
+        }
+    }
+}
@@ -51,6 +51,7 @@ import ee.ria.xroad.proxy.util.MetaserviceTestUtil;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.google.common.base.Ticker;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -94,9 +95,15 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static ee.ria.xroad.common.ErrorCodes.X_INVALID_SERVICE_TYPE;
@@ -117,6 +124,7 @@ import static ee.ria.xroad.proxy.util.MetaserviceTestUtil.parseEndpointUrlsFromW
 import static ee.ria.xroad.proxy.util.MetaserviceTestUtil.parseOperationNamesFromWSDLDefinition;
 import static ee.ria.xroad.proxy.util.MetaserviceTestUtil.verifyAndGetSingleBodyElementOfType;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertThat;
@@ -138,6 +146,9 @@ public class MetadataServiceHandlerTest {
     private static final String EXPECTED_WSDL_QUERY_PATH = "/wsdlMock";
 
     private static final int WSDL_SERVER_PORT = 9858;
+
+    // the mock server may add a suffix to the entity tag when it compresses the response
+    private static final String ETAG_V1 = "\"v1(--gzip)?\"";
     // the uri from which the WSDL can be found by the meta service
     private static final String MOCK_SERVER_WSDL_URL =
             "http://localhost:" + WSDL_SERVER_PORT + EXPECTED_WSDL_QUERY_PATH;
@@ -298,7 +309,7 @@ public class MetadataServiceHandlerTest {
             }
         });
 
-        MetadataServiceHandlerImpl handlerToTest = new MetadataServiceHandlerImpl();
+        MetadataServiceHandlerImpl handlerToTest = new TestMetadataServiceHandlerImpl();
 
         InputStream soapContentInputStream = new TestSoapBuilder()
                 .withClient(DEFAULT_CLIENT)
@@ -362,7 +373,7 @@ public class MetadataServiceHandlerTest {
             }
         });
 
-        MetadataServiceHandlerImpl handlerToTest = new MetadataServiceHandlerImpl();
+        MetadataServiceHandlerImpl handlerToTest = new TestMetadataServiceHandlerImpl();
 
         InputStream soapContentInputStream = new TestSoapBuilder()
                 .withClient(DEFAULT_CLIENT)
@@ -400,6 +411,82 @@ public class MetadataServiceHandlerTest {
     }
 
 
+    @Test
+    public void shouldReflectAccessRightChangesWhenCachedResponseExpires() throws Exception {
+
+        // setup
+        final ServiceId getNumber = ServiceId.create(DEFAULT_CLIENT, "getNumber");
+        final ServiceId helloThere = ServiceId.create(DEFAULT_CLIENT, "helloThere");
+        final ServiceId serviceId = ServiceId.create(DEFAULT_CLIENT, ALLOWED_METHODS);
+        final int cachePeriod = 60;
+
+        final AtomicReference<List<ServiceId>> allowedServices =
+                new AtomicReference<>(Collections.singletonList(getNumber));
+        final AtomicInteger queries = new AtomicInteger();
+
+        ServerConf.reload(new TestSuiteServerConf() {
+            @Override
+            public List<ServiceId> getAllowedServicesByDescriptionType(ClientId serviceProvider, ClientId client,
+                                                                       DescriptionType descriptionType) {
+                queries.incrementAndGet();
+                return allowedServices.get();
+            }
+        });
+
+        FakeTicker ticker = new FakeTicker();
+        MethodListCache methodListCache = new MethodListCache(100, cachePeriod, ticker);
+
+        // execution & verification
+        assertThat("Wrong services", handleAllowedMethods(serviceId, methodListCache), contains(getNumber));
+        assertThat("Wrong services", handleAllowedMethods(serviceId, methodListCache), contains(getNumber));
+        assertThat("Allowed services should have been queried once", queries.get(), is(1));
+
+        // the client is granted access to another service
+        allowedServices.set(Arrays.asList(getNumber, helloThere));
+
+        ticker.advance(cachePeriod - 1, TimeUnit.SECONDS);
+        assertThat("Response should be served from the cache", handleAllowedMethods(serviceId, methodListCache),
+                contains(getNumber));
+
+        ticker.advance(2, TimeUnit.SECONDS);
+        assertThat("Expired response should reflect the changed access rights",
+                handleAllowedMethods(serviceId, methodListCache), containsInAnyOrder(getNumber, helloThere));
+        assertThat("Allowed services should have been queried again", queries.get(), is(2));
+
+        // the access right is removed again
+        allowedServices.set(Collections.singletonList(helloThere));
+
+        ticker.advance(cachePeriod + 1, TimeUnit.SECONDS);
+        assertThat("Expired response should reflect the changed access rights",
+                handleAllowedMethods(serviceId, methodListCache), contains(helloThere));
+    }
+
+    private List<ServiceId> handleAllowedMethods(ServiceId serviceId, MethodListCache methodListCache)
+            throws Exception {
+        TestMetadataServiceHandlerImpl handlerToTest = new TestMetadataServiceHandlerImpl();
+        handlerToTest.setTestMethodListCache(methodListCache);
+
+        InputStream soapContentInputStream = new TestSoapBuilder()
+                .withClient(DEFAULT_CLIENT)
+                .withService(serviceId)
+                .withModifiedBody(
+                        soapBody -> soapBody.addChildElement(ALLOWED_METHODS_REQUEST).addChildElement(REQUEST))
+                .buildAsInputStream();
+
+        when(mockProxyMessage.getSoapContent()).thenReturn(soapContentInputStream);
+
+        handlerToTest.canHandle(serviceId, mockProxyMessage);
+        handlerToTest.startHandling(mockRequest, mockProxyMessage,
+                httpClientMock, mock(OpMonitoringData.class));
+
+        final SOAPMessage message = messageFactory.createMessage(null, handlerToTest.getResponseContent());
+        final SoapHeader xrHeader = unmarshaller.unmarshal(message.getSOAPHeader(), SoapHeader.class).getValue();
+
+        assertThat("Response service does not match", xrHeader.getService(), is(serviceId));
+
+        return verifyAndGetSingleBodyElementOfType(message.getSOAPBody(), MethodListType.class).getService();
+    }
+
     @Test
     public void shouldThrowWhenMissingServiceCodeInWsdlRequestBody() throws Exception {
 
@@ -501,6 +588,10 @@ public class MetadataServiceHandlerTest {
 
     private static class TestMetadataServiceHandlerImpl extends MetadataServiceHandlerImpl {
         private OverwriteAttributeFilter filter;
+        // the tests use different filters for the same URL, do not share the cached WSDLs
+        private WsdlCache wsdlCache = new WsdlCache(Long.MAX_VALUE, 0);
+        // the tests use different access rights for the same clients, do not share the cached method lists
+        private MethodListCache methodListCache = new MethodListCache(Long.MAX_VALUE, 0);
 
         @Override
         protected OverwriteAttributeFilter getModifyWsdlFilter() {
@@ -510,6 +601,37 @@ public class MetadataServiceHandlerTest {
         public void setTestFilter(OverwriteAttributeFilter testFilter) {
             this.filter = testFilter;
         }
+
+        @Override
+        protected WsdlCache getWsdlCache() {
+            return wsdlCache;
+        }
+
+        public void setTestWsdlCache(WsdlCache testWsdlCache) {
+            this.wsdlCache = testWsdlCache;
+        }
+
+        @Override
+        protected MethodListCache getMethodListCache() {
+            return methodListCache;
+        }
+
+        public void setTestMethodListCache(MethodListCache testMethodListCache) {
+            this.methodListCache = testMethodListCache;
+        }
+    }
+
+    static class FakeTicker extends Ticker {
+        private long ticks = 0;
+
+        @Override
+        public long read() {
+            return ticks;
+        }
+
+        void advance(long time, TimeUnit unit) {
+            ticks += unit.toNanos(time);
+        }
     }
 
     @Test
@@ -585,6 +707,65 @@ public class MetadataServiceHandlerTest {
                 containsInAnyOrder(expectedEndpointUrls.toArray()));
     }
 
+    @Test
+    public void shouldRevalidateCachedWsdl() throws Exception {
+
+        final ServiceId serviceId = ServiceId.create(DEFAULT_CLIENT, GET_WSDL);
+        final WsdlCache cache = new WsdlCache(Long.MAX_VALUE, 0);
+        TestMetadataServiceHandlerImpl handlerToTest = prepareTestConstructsForWsdl(serviceId);
+        mockServer.stubFor(WireMock.get(urlPathEqualTo(EXPECTED_WSDL_QUERY_PATH))
+                .willReturn(aResponse().withBodyFile("wsdl.wsdl").withHeader("ETag", "\"v1\"")));
+        mockServer.stubFor(WireMock.get(urlPathEqualTo(EXPECTED_WSDL_QUERY_PATH))
+                .withHeader("If-None-Match", matching(ETAG_V1))
+                .willReturn(aResponse().withStatus(HttpServletResponse.SC_NOT_MODIFIED)));
+        handlerToTest.setTestFilter(OverwriteAttributeFilter.createOverwriteSoapAddressFilter("expected-location"));
+        handlerToTest.setTestWsdlCache(cache);
+
+        handlerToTest.startHandling(mockRequest, mockProxyMessage,
+                httpClientMock, mock(OpMonitoringData.class));
+        String firstWsdl = parseWsdlResponse(handlerToTest.getResponseContent(),
+                handlerToTest.getResponseContentType()).getContentAsString();
+
+        TestMetadataServiceHandlerImpl secondHandler = prepareWsdlHandler(serviceId);
+        secondHandler.setTestFilter(OverwriteAttributeFilter.createOverwriteSoapAddressFilter("not-used"));
+        secondHandler.setTestWsdlCache(cache);
+
+        secondHandler.startHandling(mockRequest, mockProxyMessage,
+                httpClientMock, mock(OpMonitoringData.class));
+        TestMimeContentHandler handler = parseWsdlResponse(secondHandler.getResponseContent(),
+                secondHandler.getResponseContentType());
+
+        mockServer.verify(2, getRequestedFor(urlPathEqualTo(EXPECTED_WSDL_QUERY_PATH)));
+        mockServer.verify(1, getRequestedFor(urlPathEqualTo(EXPECTED_WSDL_QUERY_PATH))
+                .withHeader("If-None-Match", matching(ETAG_V1)));
+        assertThat("Expected the cached WSDL", handler.getContentAsString(), is(firstWsdl));
+        assertThat(handler.getEndpointUrls(), containsInAnyOrder("expected-location"));
+    }
+
+    @Test
+    public void shouldServeFreshWsdlFromCache() throws Exception {
+
+        final ServiceId serviceId = ServiceId.create(DEFAULT_CLIENT, GET_WSDL);
+        final WsdlCache cache = new WsdlCache(Long.MAX_VALUE, 60);
+        TestMetadataServiceHandlerImpl handlerToTest = prepareTestConstructsForWsdl(serviceId);
+        handlerToTest.setTestFilter(OverwriteAttributeFilter.createOverwriteSoapAddressFilter("expected-location"));
+        handlerToTest.setTestWsdlCache(cache);
+
+        handlerToTest.startHandling(mockRequest, mockProxyMessage,
+                httpClientMock, mock(OpMonitoringData.class));
+
+        TestMetadataServiceHandlerImpl secondHandler = prepareWsdlHandler(serviceId);
+        secondHandler.setTestWsdlCache(cache);
+
+        secondHandler.startHandling(mockRequest, mockProxyMessage,
+                httpClientMock, mock(OpMonitoringData.class));
+        TestMimeContentHandler handler = parseWsdlResponse(secondHandler.getResponseContent(),
+                secondHandler.getResponseContentType());
+
+        mockServer.verify(1, getRequestedFor(urlPathEqualTo(EXPECTED_WSDL_QUERY_PATH)));
+        assertThat(handler.getEndpointUrls(), containsInAnyOrder("expected-location"));
+    }
+
     @Test
     public void shouldThrowInvalidServiceTypeExWhenGetWsdl() throws Exception {
 
@@ -606,6 +787,25 @@ public class MetadataServiceHandlerTest {
             Exception {
         final ServiceId requestingWsdlForService = ServiceId.create(DEFAULT_CLIENT, "someServiceWithWsdl122");
 
+        setUpDatabase(requestingWsdlForService, isRest);
+
+
+        mockServer.stubFor(WireMock.any(urlPathEqualTo(EXPECTED_WSDL_QUERY_PATH))
+                .willReturn(aResponse().withBodyFile("wsdl.wsdl")));
+        mockServer.start();
+
+
+        when(mockResponse.getOutputStream()).thenReturn(mockServletOutputStream);
+
+        return prepareWsdlHandler(serviceId);
+    }
+
+    /**
+     * Prepare a TestMetadataServiceHandlerImpl for a get WSDL request
+     */
+    private TestMetadataServiceHandlerImpl prepareWsdlHandler(ServiceId serviceId) throws Exception {
+        final ServiceId requestingWsdlForService = ServiceId.create(DEFAULT_CLIENT, "someServiceWithWsdl122");
+
         TestMetadataServiceHandlerImpl handlerToTest = new TestMetadataServiceHandlerImpl();
 
         WsdlRequestData wsdlRequestData = new WsdlRequestData();
@@ -620,17 +820,6 @@ public class MetadataServiceHandlerTest {
 
         when(mockProxyMessage.getSoapContent()).thenReturn(soapContentInputStream);
 
-        setUpDatabase(requestingWsdlForService, isRest);
-
-
-        mockServer.stubFor(WireMock.any(urlPathEqualTo(EXPECTED_WSDL_QUERY_PATH))
-                .willReturn(aResponse().withBodyFile("wsdl.wsdl")));
-        mockServer.start();
-
-
-        when(mockResponse.getOutputStream()).thenReturn(mockServletOutputStream);
-
-
         handlerToTest.canHandle(serviceId, mockProxyMessage);
 
         return handlerToTest;
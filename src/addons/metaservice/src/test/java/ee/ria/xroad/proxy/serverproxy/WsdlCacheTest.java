@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.identifier.ClientId;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link WsdlCache}
+ */
+public class WsdlCacheTest {
+
+    private static final ClientId PROVIDER = ClientId.create("EE", "GOV", "1234", "SUB");
+    private static final String URL = "http://localhost/wsdl";
+    private static final int PERIOD_SECONDS = 10;
+    private static final long PERIOD_MILLIS = 10_000;
+    private static final int WSDL_SIZE = 100;
+
+    @Test
+    public void shouldDiscardEntryWhenDescriptionRefreshed() {
+        WsdlCache cache = new WsdlCache(Long.MAX_VALUE, PERIOD_SECONDS);
+        Date refreshed = new Date(1000);
+        cache.put(PROVIDER, URL, entry(refreshed, 0));
+
+        assertNotNull(cache.get(PROVIDER, URL, new Date(1000)));
+        assertNull(cache.get(PROVIDER, URL, new Date(2000)));
+        assertNull(cache.get(PROVIDER, URL, refreshed));
+    }
+
+    @Test
+    public void shouldKeepEntriesPerProvider() {
+        WsdlCache cache = new WsdlCache(Long.MAX_VALUE, PERIOD_SECONDS);
+        cache.put(PROVIDER, URL, entry(null, 0));
+
+        assertNotNull(cache.get(PROVIDER, URL, null));
+        assertNull(cache.get(ClientId.create("EE", "GOV", "1234"), URL, null));
+    }
+
+    @Test
+    public void shouldEvictWhenSizeExceeded() {
+        WsdlCache cache = new WsdlCache(WSDL_SIZE, PERIOD_SECONDS);
+        cache.put(PROVIDER, URL, entry(null, 0));
+        cache.put(PROVIDER, URL + "2", entry(null, 0));
+
+        assertNull(cache.get(PROVIDER, URL, null));
+        assertNotNull(cache.get(PROVIDER, URL + "2", null));
+    }
+
+    @Test
+    public void shouldExpireFreshness() {
+        WsdlCache cache = new WsdlCache(Long.MAX_VALUE, PERIOD_SECONDS);
+        WsdlCache.Entry entry = entry(null, 0);
+
+        assertTrue(cache.isFresh(entry, PERIOD_MILLIS - 1));
+        assertFalse(cache.isFresh(entry, PERIOD_MILLIS));
+        assertTrue(cache.isFresh(entry.revalidated(PERIOD_MILLIS), PERIOD_MILLIS));
+    }
+
+    private static WsdlCache.Entry entry(Date refreshedDate, long validatedAt) {
+        return new WsdlCache.Entry(new byte[WSDL_SIZE], "\"etag\"", null, refreshedDate, validatedAt);
+    }
+}
@@ -24,6 +24,7 @@
  */
 package ee.ria.xroad.proxymonitor;
 
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.proxy.addon.AddOn;
 import ee.ria.xroad.proxymonitor.util.MonitorClient;
 import ee.ria.xroad.proxymonitor.util.ProxyMonitorAgent;
@@ -32,6 +33,8 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+
 /**
  *  ProxyMonitor initialization
  */
@@ -45,8 +48,12 @@ public class ProxyMonitor implements AddOn {
 
     @Override
     public void init(final ActorSystem system) {
-        monitorClient = new MonitorClient(
-                system.actorSelection(getMonitorAddress() + "/user/MetricsProviderActor"));
+        final int refreshInterval = SystemProperties.getEnvMonitorMetricsSnapshotInterval();
+        final MonitorClient client = new MonitorClient(
+                system.actorSelection(getMonitorAddress() + "/user/MetricsProviderActor"), refreshInterval);
+        monitorClient = client;
+        system.scheduler().scheduleWithFixedDelay(Duration.ZERO, Duration.ofSeconds(refreshInterval),
+                client::refresh, system.dispatcher());
         system.actorOf(Props.create(ProxyMonitorAgent.class), "ProxyMonitorAgent");
     }
 
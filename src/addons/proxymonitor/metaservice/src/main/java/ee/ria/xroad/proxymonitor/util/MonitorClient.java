@@ -26,56 +26,138 @@ package ee.ria.xroad.proxymonitor.util;
 
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.monitor.common.SystemMetricsRequest;
 import ee.ria.xroad.monitor.common.SystemMetricsResponse;
+import ee.ria.xroad.monitor.common.dto.MetricDto;
+import ee.ria.xroad.monitor.common.dto.MetricSetDto;
 import ee.ria.xroad.proxymonitor.message.MetricSetType;
 
 import akka.actor.ActorSelection;
 import akka.pattern.Patterns;
-import akka.util.Timeout;
 import lombok.extern.slf4j.Slf4j;
-import scala.concurrent.Await;
-import scala.concurrent.Future;
-import scala.concurrent.duration.Duration;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Created by hyoty on 25.9.2015.
+ * Serves monitoring metrics from snapshots that are periodically refreshed from the metrics provider.
+ * The request path only filters the latest snapshot and never waits for the metrics provider.
  */
 @Slf4j
 public final class MonitorClient {
 
-    public static final int TIMEOUT_AWAIT = 10;
     public static final int TIMEOUT_REQUEST = 5;
 
     private final ActorSelection metricsProvider;
+    private final long maxSnapshotAgeMillis;
+
+    private final SnapshotHolder ownerSnapshot = new SnapshotHolder(true);
+    private final SnapshotHolder limitedSnapshot = new SnapshotHolder(false);
+
+    private volatile boolean failureState = false;
 
     public MonitorClient(ActorSelection metricsProvider) {
+        this(metricsProvider, SystemProperties.getEnvMonitorMetricsSnapshotInterval());
+    }
+
+    /**
+     * @param metricsProvider actor providing the metrics
+     * @param refreshIntervalSeconds interval at which {@link #refresh()} is called
+     */
+    public MonitorClient(ActorSelection metricsProvider, int refreshIntervalSeconds) {
         this.metricsProvider = metricsProvider;
+        // a snapshot is served until two refreshes in a row have failed
+        this.maxSnapshotAgeMillis = TimeUnit.SECONDS.toMillis(2L * refreshIntervalSeconds + TIMEOUT_REQUEST);
+    }
+
+    /**
+     * Asks the metrics provider for fresh snapshots without waiting for the replies. A snapshot is not
+     * requested again while the previous request for it is still pending.
+     */
+    public void refresh() {
+        ownerSnapshot.refresh();
+        limitedSnapshot.refresh();
     }
 
     /**
      * Get monitoring metrics
      */
     public MetricSetType getMetrics(List<String> metricNames, boolean isOwner) {
-        try {
-            final Future<Object> response = Patterns.ask(metricsProvider,
-                    new SystemMetricsRequest(metricNames, isOwner),
-                    Timeout.apply(TIMEOUT_REQUEST, TimeUnit.SECONDS));
-            Object obj = Await.result(response, Duration.apply(TIMEOUT_AWAIT, TimeUnit.SECONDS));
-            if (obj instanceof SystemMetricsResponse) {
-                final SystemMetricsResponse result = (SystemMetricsResponse) obj;
-                return MetricTypes.of(result.getMetrics());
-            } else {
-                throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, "Unexpected response");
-            }
-        } catch (Exception e) {
-            log.warn("Unable to read metrics", e);
+        final Snapshot snapshot = (isOwner ? ownerSnapshot : limitedSnapshot).current;
+
+        if (snapshot == null || System.currentTimeMillis() - snapshot.created > maxSnapshotAgeMillis) {
             throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, "Unable to read metrics");
         }
+
+        return MetricTypes.of(filter(snapshot.metrics, metricNames));
     }
 
+    // The metrics provider matches the requested names against the top level metrics only
+    private static MetricSetDto filter(MetricSetDto metrics, List<String> metricNames) {
+        if (metricNames == null || metricNames.isEmpty()) {
+            return metrics;
+        }
+
+        final MetricSetDto.Builder builder = new MetricSetDto.Builder(metrics.getName());
+
+        for (MetricDto metric : metrics.getMetrics()) {
+            if (metricNames.contains(metric.getName())) {
+                builder.withMetric(metric);
+            }
+        }
 
+        return builder.build();
+    }
+
+    private void onRefreshFailure(Throwable cause) {
+        if (!failureState) {
+            // avoid logging on every refresh while the metrics provider is unavailable
+            log.warn("Unable to read metrics", cause);
+            failureState = true;
+        }
+    }
+
+    private static final class Snapshot {
+        private final MetricSetDto metrics;
+        private final long created = System.currentTimeMillis();
+
+        private Snapshot(MetricSetDto metrics) {
+            this.metrics = metrics;
+        }
+    }
+
+    private final class SnapshotHolder {
+        private final boolean isOwner;
+        private final AtomicBoolean pending = new AtomicBoolean();
+
+        private volatile Snapshot current;
+
+        private SnapshotHolder(boolean isOwner) {
+            this.isOwner = isOwner;
+        }
+
+        private void refresh() {
+            if (!pending.compareAndSet(false, true)) {
+                return;
+            }
+
+            Patterns.ask(metricsProvider, new SystemMetricsRequest(null, isOwner),
+                    Duration.ofSeconds(TIMEOUT_REQUEST)).whenComplete((response, error) -> {
+                        try {
+                            if (response instanceof SystemMetricsResponse) {
+                                current = new Snapshot(((SystemMetricsResponse) response).getMetrics());
+                                failureState = false;
+                            } else {
+                                onRefreshFailure(error != null ? error
+                                        : new IllegalStateException("Unexpected response " + response));
+                            }
+                        } finally {
+                            pending.set(false);
+                        }
+                    });
+        }
+    }
 }
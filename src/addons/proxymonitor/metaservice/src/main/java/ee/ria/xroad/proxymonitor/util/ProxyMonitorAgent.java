@@ -25,13 +25,20 @@
 package ee.ria.xroad.proxymonitor.util;
 
 import ee.ria.xroad.common.util.SystemMetrics;
+import ee.ria.xroad.monitor.common.LatencyStats;
 import ee.ria.xroad.monitor.common.StatsRequest;
 import ee.ria.xroad.monitor.common.StatsResponse;
+import ee.ria.xroad.proxy.util.LatencyHistogram;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.TlsHandshakeStats;
 
 import akka.actor.UntypedAbstractActor;
 import com.sun.management.UnixOperatingSystemMXBean;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Proxy monitoring agent
  */
@@ -58,7 +65,10 @@ public class ProxyMonitorAgent extends UntypedAbstractActor {
                     stats.getFreePhysicalMemorySize(),
                     stats.getTotalPhysicalMemorySize(),
                     stats.getFreeSwapSpaceSize(),
-                    stats.getTotalSwapSpaceSize());
+                    stats.getTotalSwapSpaceSize(),
+                    TlsHandshakeStats.getFullHandshakeCount(),
+                    TlsHandshakeStats.getResumedHandshakeCount(),
+                    getMessageStageLatencies());
             failureState = false;
             sender().tell(response, self());
         } catch (InternalError ignored) {
@@ -71,4 +81,25 @@ public class ProxyMonitorAgent extends UntypedAbstractActor {
             }
         }
     }
+
+    // The stage histograms are reset on every request, so the statistics cover the measurement interval of the
+    // environmental monitor
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static Map<String, LatencyStats> getMessageStageLatencies() {
+        Map<String, LatencyStats> latencies = new HashMap<>();
+
+        for (Map.Entry<String, LatencyHistogram.Snapshot> e : MessageStageStats.snapshotAndReset().entrySet()) {
+            LatencyHistogram.Snapshot snapshot = e.getValue();
+
+            latencies.put(e.getKey(), new LatencyStats(
+                    snapshot.getCount(),
+                    snapshot.getMean(),
+                    snapshot.getValueAtPercentile(50),
+                    snapshot.getValueAtPercentile(90),
+                    snapshot.getValueAtPercentile(99),
+                    snapshot.getMax()));
+        }
+
+        return latencies;
+    }
 }
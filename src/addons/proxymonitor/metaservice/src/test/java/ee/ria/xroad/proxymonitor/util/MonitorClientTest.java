@@ -0,0 +1,210 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxymonitor.util;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.monitor.common.SystemMetricsRequest;
+import ee.ria.xroad.monitor.common.SystemMetricsResponse;
+import ee.ria.xroad.monitor.common.dto.MetricSetDto;
+import ee.ria.xroad.proxymonitor.message.MetricSetType;
+import ee.ria.xroad.proxymonitor.message.MetricType;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedAbstractActor;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that {@link MonitorClient} serves metrics without waiting for a slow metrics provider.
+ */
+public class MonitorClientTest {
+
+    private static final long PROVIDER_DELAY_MILLIS = 500;
+    private static final int THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 500;
+
+    private static final AtomicInteger PROVIDER_REQUESTS = new AtomicInteger();
+
+    private ActorSystem actorSystem;
+    private MonitorClient client;
+
+    /**
+     * Metrics provider that takes a long time to collect the metrics. Owners get one extra metric.
+     */
+    public static class SlowMetricsProvider extends UntypedAbstractActor {
+        @Override
+        public void onReceive(Object o) throws Exception {
+            if (o instanceof SystemMetricsRequest) {
+                PROVIDER_REQUESTS.incrementAndGet();
+                Thread.sleep(PROVIDER_DELAY_MILLIS);
+
+                final MetricSetDto.Builder builder = new MetricSetDto.Builder("systemMetrics")
+                        .withSimpleMetric("OperatingSystem", "Linux")
+                        .withSimpleMetric("OpenFileDescriptorCount", 42L);
+                if (((SystemMetricsRequest) o).isClientOwner()) {
+                    builder.withMetric(new MetricSetDto.Builder("Packages")
+                            .withSimpleMetric("xroad-proxy", "6.23.0")
+                            .build());
+                }
+                getSender().tell(new SystemMetricsResponse(builder.build()), getSelf());
+            } else {
+                unhandled(o);
+            }
+        }
+    }
+
+    /**
+     * Before test handler
+     */
+    @Before
+    public void init() {
+        PROVIDER_REQUESTS.set(0);
+        actorSystem = ActorSystem.create("MonitorClientTest", ConfigFactory.parseString("akka.actor.provider = local")
+                .withFallback(ConfigFactory.load()));
+        final ActorRef provider = actorSystem.actorOf(Props.create(SlowMetricsProvider.class));
+        client = new MonitorClient(actorSystem.actorSelection(provider.path()), 1);
+    }
+
+    /**
+     * Shut down actor system
+     */
+    @After
+    public void tearDown() throws Exception {
+        Await.ready(actorSystem.terminate(), Duration.Inf());
+    }
+
+    @Test(expected = CodedException.class)
+    public void shouldFailBeforeFirstSnapshot() {
+        client.getMetrics(null, true);
+    }
+
+    @Test
+    public void shouldFilterSnapshotByMetricName() throws Exception {
+        awaitSnapshots();
+
+        assertEquals(Arrays.asList("OperatingSystem", "OpenFileDescriptorCount", "Packages"),
+                names(client.getMetrics(null, true)));
+        assertEquals(Arrays.asList("OperatingSystem", "OpenFileDescriptorCount"),
+                names(client.getMetrics(Collections.emptyList(), false)));
+        assertEquals(Collections.singletonList("Packages"),
+                names(client.getMetrics(Arrays.asList("Packages", "Unknown"), true)));
+        assertEquals(Collections.emptyList(),
+                names(client.getMetrics(Collections.singletonList("Packages"), false)));
+    }
+
+    @Test
+    public void shouldServeConcurrentRequestsWithoutWaitingForProvider() throws Exception {
+        awaitSnapshots();
+
+        // keep the provider busy for the whole test
+        final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
+        refresher.scheduleWithFixedDelay(client::refresh, 0, 10, TimeUnit.MILLISECONDS);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Callable<Long>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final boolean isOwner = i % 2 == 0;
+                tasks.add(() -> hammer(isOwner));
+            }
+
+            final long start = System.nanoTime();
+            long slowest = 0;
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                slowest = Math.max(slowest, result.get());
+            }
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue("Request took " + slowest + " ms", slowest < PROVIDER_DELAY_MILLIS);
+            // at most one pending request per snapshot, however many clients are asking
+            assertTrue("Provider was asked " + PROVIDER_REQUESTS.get() + " times in " + elapsedMillis + " ms",
+                    PROVIDER_REQUESTS.get() <= 2 * (elapsedMillis / PROVIDER_DELAY_MILLIS + 3) + 2);
+        } finally {
+            refresher.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    // returns the duration of the slowest request in milliseconds
+    private long hammer(boolean isOwner) {
+        final List<String> requested = Arrays.asList("OperatingSystem", "Packages");
+        final List<String> expected = isOwner ? requested : Collections.singletonList("OperatingSystem");
+        long slowest = 0;
+
+        for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+            final long start = System.nanoTime();
+            final MetricSetType metrics = client.getMetrics(requested, isOwner);
+            slowest = Math.max(slowest, System.nanoTime() - start);
+
+            assertEquals(expected, names(metrics));
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(slowest);
+    }
+
+    private void awaitSnapshots() throws InterruptedException {
+        client.refresh();
+
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(MonitorClient.TIMEOUT_REQUEST);
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                client.getMetrics(null, true);
+                client.getMetrics(null, false);
+                return;
+            } catch (CodedException e) {
+                Thread.sleep(50);
+            }
+        }
+
+        fail("Metrics snapshots were not refreshed");
+    }
+
+    private static List<String> names(MetricSetType metrics) {
+        return metrics.getMetrics().stream().map(MetricType::getName).collect(Collectors.toList());
+    }
+}
@@ -27,14 +27,18 @@ package ee.ria.xroad.common.asic;
 import ee.ria.xroad.common.signature.SignatureData;
 import ee.ria.xroad.common.util.MimeTypes;
 
-import lombok.Getter;
+import org.apache.commons.io.IOUtils;
 
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 import static ee.ria.xroad.common.ErrorCodes.translateException;
@@ -51,9 +55,7 @@ import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_TS_HASH_CHAIN;
 import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_TS_HASH_CHAIN_RESULT;
 import static ee.ria.xroad.common.asic.AsicContainerEntries.MIMETYPE;
 import static ee.ria.xroad.common.util.CryptoUtils.SHA512_ID;
-import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
-import static ee.ria.xroad.common.util.CryptoUtils.getAlgorithmIdentifier;
 import static ee.ria.xroad.common.util.CryptoUtils.getDigestAlgorithmURI;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -65,9 +67,12 @@ public class AsicContainer {
 
     /** Holds the entries in the container. */
     private final Map<String, String> entries = new HashMap<>();
+    /** Entries left in the backing ZIP file, mapped to their names in the file. */
+    private final Map<String, String> fileEntries = new HashMap<>();
     private final InputStream attachment;
-    @Getter
-    private final byte[] attachmentDigest;
+    private final Path file;
+    private final String attachmentFileEntry;
+    private byte[] attachmentDigest;
 
     AsicContainer(Map<String, String> entries) throws Exception {
         this(entries, null);
@@ -77,6 +82,22 @@ public class AsicContainer {
         this.entries.putAll(entries);
         this.attachment = null;
         this.attachmentDigest = attachmentDigest;
+        this.file = null;
+        this.attachmentFileEntry = null;
+        verifyContents();
+    }
+
+    /**
+     * Creates a container backed by a ZIP file. The message and attachment entries are not
+     * loaded into memory, they are streamed from the file when needed.
+     */
+    AsicContainer(Path file, Map<String, String> entries, Map<String, String> fileEntries,
+            String attachmentFileEntry) throws Exception {
+        this.entries.putAll(entries);
+        this.fileEntries.putAll(fileEntries);
+        this.attachment = null;
+        this.file = file;
+        this.attachmentFileEntry = attachmentFileEntry;
         verifyContents();
     }
 
@@ -109,6 +130,8 @@ public class AsicContainer {
         put(ENTRY_SIG_HASH_CHAIN, signature.getHashChain());
         this.attachment = attachment;
         this.attachmentDigest = null;
+        this.file = null;
+        this.attachmentFileEntry = null;
 
         if (timestamp != null) {
             if (isNotBlank(timestamp.getHashChainResult())) { // batch ts
@@ -187,7 +210,8 @@ public class AsicContainer {
      * @return true if the given file is an entry in this container, false otherwise
      */
     public boolean hasEntry(String fileName) {
-        return entries.containsKey(AsicHelper.stripSlash(fileName));
+        String name = AsicHelper.stripSlash(fileName);
+        return entries.containsKey(name) || fileEntries.containsKey(name);
     }
 
     /**
@@ -196,11 +220,37 @@ public class AsicContainer {
      * @return input stream containing the data for the entry with the given filename
      */
     public InputStream getEntry(String fileName) {
-        String data = get(AsicHelper.stripSlash(fileName));
+        String name = AsicHelper.stripSlash(fileName);
+        if (fileEntries.containsKey(name)) {
+            try {
+                return openFileEntry(fileEntries.get(name));
+            } catch (Exception e) {
+                throw translateException(e);
+            }
+        }
+
+        String data = get(name);
         return data != null ? new ByteArrayInputStream(
                 data.getBytes(StandardCharsets.UTF_8)) : null;
     }
 
+    /**
+     * Gets the digest of the first attachment of a container that was read. The digest of a
+     * container backed by a file is calculated when first requested.
+     * @return digest of the attachment or null if the container has no attachment
+     */
+    public synchronized byte[] getAttachmentDigest() {
+        if (attachmentDigest == null && attachmentFileEntry != null) {
+            try (InputStream is = openFileEntry(attachmentFileEntry)) {
+                attachmentDigest = AsicHelper.digestAttachment(is);
+            } catch (Exception e) {
+                throw translateException(e);
+            }
+        }
+
+        return attachmentDigest;
+    }
+
     /**
      * Gets the string contents of the entry with the given filename.
      * @param fileName the file for which to get the string contents
@@ -220,6 +270,18 @@ public class AsicContainer {
         return AsicHelper.read(is);
     }
 
+    /**
+     * Create a ASiC container from the given file. Only the small entries (signature,
+     * hash chains, manifests and time-stamp) are read into memory, the message and
+     * attachment are streamed from the file when needed.
+     * @param file the container ZIP file
+     * @return the ASiC container that was read from the file
+     * @throws Exception if errors occurred when reading ZIP entries from the file
+     */
+    public static AsicContainer read(Path file) throws Exception {
+        return AsicHelper.read(file);
+    }
+
     /**
      * Write this container to the given output stream in ZIP format.
      * @param out the stream for writing container
@@ -261,8 +323,7 @@ public class AsicContainer {
         b.setSigReference(ENTRY_TIMESTAMP, "vnd.etsi.timestamp-token");
 
         String algoId = SHA512_ID;
-        byte[] digest = calculateDigest(getAlgorithmIdentifier(algoId),
-                tsHashChainResult.getBytes(StandardCharsets.UTF_8));
+        byte[] digest = AsicHelper.digest(algoId, tsHashChainResult);
         b.addDataObjectReference(ENTRY_TS_HASH_CHAIN_RESULT,
                 MimeTypes.TEXT_XML, getDigestAlgorithmURI(algoId),
                 encodeBase64(digest));
@@ -272,7 +333,10 @@ public class AsicContainer {
 
     private void verifyContents() throws Exception {
         AsicHelper.verifyMimeType(get(ENTRY_MIMETYPE));
-        AsicHelper.verifyMessage(get(ENTRY_MESSAGE));
+        // entries left in the file are known to be non-empty
+        if (!fileEntries.containsKey(ENTRY_MESSAGE)) {
+            AsicHelper.verifyMessage(get(ENTRY_MESSAGE));
+        }
         AsicHelper.verifySignature(get(ENTRY_SIGNATURE),
                 get(ENTRY_SIG_HASH_CHAIN_RESULT), get(ENTRY_SIG_HASH_CHAIN));
 
@@ -287,7 +351,34 @@ public class AsicContainer {
             case ENTRY_TIMESTAMP:
                 return getTimestampValueBase64();
             default:
-                return entries.get(entryName);
+                return fileEntries.containsKey(entryName) ? readFileEntry(entryName) : entries.get(entryName);
+        }
+    }
+
+    private String readFileEntry(String entryName) {
+        try (InputStream is = openFileEntry(fileEntries.get(entryName))) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw translateException(e);
+        }
+    }
+
+    private InputStream openFileEntry(String zipEntryName) throws IOException {
+        ZipFile zip = new ZipFile(file.toFile());
+        try {
+            return new FilterInputStream(zip.getInputStream(zip.getEntry(zipEntryName))) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zip.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
         }
     }
 
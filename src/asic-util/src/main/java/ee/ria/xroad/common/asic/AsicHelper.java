@@ -29,15 +29,24 @@ import ee.ria.xroad.common.signature.Signature;
 import ee.ria.xroad.common.util.CryptoUtils;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.bouncycastle.operator.DigestCalculator;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -94,10 +103,7 @@ final class AsicHelper {
 
                     break;
                 } else if (matches(ENTRY_ATTACHMENT + "1", zipEntry.getName())) {
-                    final DigestCalculator digest =
-                            CryptoUtils.createDigestCalculator(CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID);
-                    IOUtils.copy(zip, digest.getOutputStream());
-                    attachmentDigest = digest.getDigest();
+                    attachmentDigest = digestAttachment(zip);
                     break;
                 }
             }
@@ -106,6 +112,66 @@ final class AsicHelper {
         return new AsicContainer(entries, attachmentDigest);
     }
 
+    static AsicContainer read(Path file) throws Exception {
+        Map<String, String> entries = new HashMap<>();
+        Map<String, String> fileEntries = new HashMap<>();
+        String attachmentEntry = null;
+
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                String name = zipEntry.getName();
+
+                // The message and attachment can be arbitrarily large, leave them in the file
+                if (ENTRY_MESSAGE.equalsIgnoreCase(name)) {
+                    if (zipEntry.getSize() != 0) {
+                        fileEntries.put(ENTRY_MESSAGE, name);
+                    }
+                } else if (matches(ENTRY_ATTACHMENT + "1", name)) {
+                    attachmentEntry = name;
+                } else if (isExpectedEntry(name)) {
+                    try (InputStream is = zip.getInputStream(zipEntry)) {
+                        entries.put(name, ENTRY_TIMESTAMP.equalsIgnoreCase(name)
+                                ? encodeBase64(IOUtils.toByteArray(is)) : IOUtils.toString(is, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        } catch (ZipException e) {
+            // Not a valid ZIP file, report it the same way as the stream based reader does
+            try (InputStream is = Files.newInputStream(file)) {
+                return read(is);
+            }
+        }
+
+        return new AsicContainer(file, entries, fileEntries, attachmentEntry);
+    }
+
+    private static boolean isExpectedEntry(String name) {
+        for (Object expectedEntry : AsicContainerEntries.getALL_ENTRIES()) {
+            if (matches(expectedEntry, name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    static byte[] digestAttachment(InputStream is) throws Exception {
+        DigestCalculator digest = CryptoUtils.createDigestCalculator(CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID);
+        IOUtils.copy(is, digest.getOutputStream());
+
+        return digest.getDigest();
+    }
+
+    static byte[] digest(String algoId, String data) throws Exception {
+        DigestCalculator digest = CryptoUtils.createDigestCalculator(algoId);
+        writeString(digest.getOutputStream(), data);
+
+        return digest.getDigest();
+    }
+
     static void write(AsicContainer asic, ZipOutputStream zip) throws Exception {
         zip.setComment("mimetype=" + MIMETYPE);
 
@@ -223,7 +289,18 @@ final class AsicHelper {
     }
 
     private static void addEntry(ZipOutputStream zip, String name, String data) throws IOException {
-        addEntry(zip, name, data.getBytes(StandardCharsets.UTF_8));
+        zip.putNextEntry(new ZipEntry(name));
+        writeString(zip, data);
+    }
+
+    /**
+     * Encodes the string in chunks directly into the stream, avoiding a byte array copy of
+     * the whole (possibly large) string.
+     */
+    private static void writeString(OutputStream out, String data) throws IOException {
+        Writer writer = new OutputStreamWriter(new CloseShieldOutputStream(out), StandardCharsets.UTF_8);
+        writer.write(data);
+        writer.flush();
     }
 
     private static void addEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
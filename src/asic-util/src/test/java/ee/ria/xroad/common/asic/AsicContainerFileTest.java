@@ -0,0 +1,125 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.asic;
+
+import ee.ria.xroad.common.signature.SignatureData;
+import ee.ria.xroad.common.util.CryptoUtils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_MESSAGE;
+import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_SIGNATURE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for writing ASiC containers and reading them back from a file.
+ */
+public class AsicContainerFileTest {
+
+    private static final int MESSAGE_REPEAT = 100_000;
+    private static final int ATTACHMENT_SIZE = 1 << 20;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    /**
+     * Test that a container backed by a file gives the same entries as one read from a stream.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void readFileMatchesReadStream() throws Exception {
+        Path file = Paths.get("src/test/resources/valid-signed-message.asice");
+
+        AsicContainer fromStream;
+        try (InputStream in = Files.newInputStream(file)) {
+            fromStream = AsicContainer.read(in);
+        }
+        AsicContainer fromFile = AsicContainer.read(file);
+
+        assertEquals(fromStream.getMessage(), fromFile.getMessage());
+        assertEquals(fromStream.getSignature().getSignatureXml(), fromFile.getSignature().getSignatureXml());
+        assertEquals(fromStream.getManifest(), fromFile.getManifest());
+        assertTrue(fromFile.hasEntry("/" + ENTRY_MESSAGE));
+        assertTrue(fromFile.hasEntry(ENTRY_SIGNATURE));
+
+        try (InputStream message = fromFile.getEntry("/" + ENTRY_MESSAGE)) {
+            assertEquals(fromStream.getMessage(), IOUtils.toString(message, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Test that a written container with a large message and attachment can be read back from a file.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void writeAndReadLargeContainer() throws Exception {
+        AsicContainer template = AsicContainer.read(Paths.get("src/test/resources/valid-signed-message.asice"));
+
+        StringBuilder sb = new StringBuilder("<message>");
+        for (int i = 0; i < MESSAGE_REPEAT; i++) {
+            sb.append("õäöü");
+        }
+        String message = sb.append("</message>").toString();
+
+        byte[] attachment = new byte[ATTACHMENT_SIZE];
+        for (int i = 0; i < attachment.length; i++) {
+            attachment[i] = (byte) i;
+        }
+
+        AsicContainer container = new AsicContainer(message,
+                new SignatureData(template.getSignature().getSignatureXml(), null, null), null,
+                new ByteArrayInputStream(attachment));
+
+        Path file = tempDir.newFile("container.asice").toPath();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            container.write(out);
+        }
+
+        AsicContainer read = AsicContainer.read(file);
+
+        assertEquals(message, read.getMessage());
+        assertNotNull(read.getManifest());
+        assertFalse(read.hasEntry("/" + AsicContainerEntries.ENTRY_ATTACHMENT + "1"));
+        assertArrayEquals(AsicHelper.digestAttachment(new ByteArrayInputStream(attachment)),
+                read.getAttachmentDigest());
+        assertArrayEquals(CryptoUtils.calculateDigest(CryptoUtils.SHA512_ID,
+                message.getBytes(StandardCharsets.UTF_8)), AsicHelper.digest(CryptoUtils.SHA512_ID, message));
+    }
+}
@@ -33,6 +33,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
 import java.io.FileInputStream;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -90,4 +91,15 @@ public class AsicContainerTest {
             AsicContainer.read(in);
         }
     }
+
+    /**
+     * Test to ensure ASiC container loading from a file gives the same result.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void testReadFile() throws Exception {
+        thrown.expectError(errorCode);
+
+        AsicContainer.read(Paths.get("src/test/resources/" + containerFile));
+    }
 }
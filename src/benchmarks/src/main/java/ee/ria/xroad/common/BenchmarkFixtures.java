@@ -0,0 +1,165 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common;
+
+import ee.ria.xroad.common.message.RestRequest;
+import ee.ria.xroad.common.message.SaxSoapParserImpl;
+import ee.ria.xroad.common.message.SoapMessageImpl;
+import ee.ria.xroad.common.util.MimeTypes;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.joda.time.DateTime;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Self-contained fixtures for the benchmarks. Certificates and keys come from the common test certificates,
+ * OCSP responses and messages are generated, so that no network or installed security server is needed.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String XROAD_INSTANCE = "EE";
+    public static final String MEMBER_CLASS = "BUSINESS";
+    public static final String CLIENT_CODE = "consumer";
+    public static final String SERVICE_MEMBER_CODE = "producer";
+    public static final String SERVICE_CODE = "getState";
+
+    private static final String SOAP_HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\"\n"
+            + "        xmlns:xroad=\"http://x-road.eu/xsd/xroad.xsd\"\n"
+            + "        xmlns:id=\"http://x-road.eu/xsd/identifiers\">\n"
+            + "    <SOAP-ENV:Header>\n"
+            + "        <xroad:client id:objectType=\"MEMBER\">\n"
+            + "            <id:xRoadInstance>" + XROAD_INSTANCE + "</id:xRoadInstance>\n"
+            + "            <id:memberClass>" + MEMBER_CLASS + "</id:memberClass>\n"
+            + "            <id:memberCode>" + CLIENT_CODE + "</id:memberCode>\n"
+            + "        </xroad:client>\n"
+            + "        <xroad:service id:objectType=\"SERVICE\">\n"
+            + "            <id:xRoadInstance>" + XROAD_INSTANCE + "</id:xRoadInstance>\n"
+            + "            <id:memberClass>" + MEMBER_CLASS + "</id:memberClass>\n"
+            + "            <id:memberCode>" + SERVICE_MEMBER_CODE + "</id:memberCode>\n"
+            + "            <id:serviceCode>" + SERVICE_CODE + "</id:serviceCode>\n"
+            + "        </xroad:service>\n"
+            + "        <xroad:userId>EE:PIN:abc4567</xroad:userId>\n"
+            + "        <xroad:id>411d6755661409fed365ad8135f8210be07613da</xroad:id>\n"
+            + "        <xroad:protocolVersion>4.0</xroad:protocolVersion>\n"
+            + "    </SOAP-ENV:Header>\n"
+            + "    <SOAP-ENV:Body>\n"
+            + "        <ns1:" + SERVICE_CODE + " xmlns:ns1=\"http://producer.x-road.eu\">\n";
+
+    private static final String SOAP_FOOTER = "        </ns1:" + SERVICE_CODE + ">\n"
+            + "    </SOAP-ENV:Body>\n"
+            + "</SOAP-ENV:Envelope>\n";
+
+    static {
+        TestSecurityUtil.initSecurity();
+    }
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @param bodyElements number of elements in the request body
+     * @return bytes of a SOAP request with the given number of body elements
+     */
+    public static byte[] soapRequest(int bodyElements) {
+        StringBuilder sb = new StringBuilder(SOAP_HEADER);
+
+        for (int i = 0; i < bodyElements; i++) {
+            sb.append("            <item id=\"").append(i).append("\">")
+                    .append("<name>Item ").append(i).append("</name>")
+                    .append("<value>").append(i * i).append("</value>")
+                    .append("</item>\n");
+        }
+
+        return sb.append(SOAP_FOOTER).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param bodyElements number of elements in the request body
+     * @return parsed SOAP request with the given number of body elements
+     */
+    public static SoapMessageImpl soapMessage(int bodyElements) {
+        return (SoapMessageImpl) new SaxSoapParserImpl().parse(MimeTypes.TEXT_XML_UTF8,
+                new ByteArrayInputStream(soapRequest(bodyElements)));
+    }
+
+    /**
+     * @return a REST request without body
+     */
+    public static RestRequest restRequest() {
+        List<Header> headers = Arrays.asList(
+                new BasicHeader("x-road-client", XROAD_INSTANCE + "/" + MEMBER_CLASS + "/" + CLIENT_CODE),
+                new BasicHeader("Content-Type", "application/json"),
+                new BasicHeader("Accept", "application/json"));
+
+        return new RestRequest("POST", "/r1/" + XROAD_INSTANCE + "/" + MEMBER_CLASS + "/" + SERVICE_MEMBER_CODE
+                + "/subsystem/" + SERVICE_CODE + "/api/items", "page=1", headers, "0123456789abcdef");
+    }
+
+    /**
+     * @param size body size in bytes
+     * @return pseudo-random REST body content of the given size
+     */
+    public static byte[] restBody(int size) {
+        byte[] body = new byte[size];
+        new Random(size).nextBytes(body);
+
+        return body;
+    }
+
+    /**
+     * @return the certificate of the signing member
+     */
+    public static X509Certificate signerCert() {
+        return TestCertUtil.getConsumer().certChain[0];
+    }
+
+    /**
+     * @return the private key of the signing member
+     */
+    public static PrivateKey signerKey() {
+        return TestCertUtil.getConsumer().key;
+    }
+
+    /**
+     * @return a good OCSP response for the signing member certificate
+     * @throws Exception in case of any errors
+     */
+    public static OCSPResp signerOcspResponse() throws Exception {
+        return OcspTestUtils.createOCSPResponse(signerCert(), TestCertUtil.getCaCert(),
+                TestCertUtil.getOcspSigner().certChain[0], TestCertUtil.getOcspSigner().key,
+                CertificateStatus.GOOD, new DateTime().plusDays(1).toDate(), null);
+    }
+}
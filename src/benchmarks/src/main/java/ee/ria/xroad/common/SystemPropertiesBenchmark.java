@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the system properties used when processing every message from several threads at once.
+ * Compares reading the parsed snapshot with looking up and parsing the system properties on every call, as the
+ * getters did before the snapshot.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class SystemPropertiesBenchmark {
+
+    private static final String CLIENTPROXY_HTTPCLIENT_TIMEOUT =
+            SystemProperties.PREFIX + "proxy.client-httpclient-timeout";
+
+    /**
+     * Sets the properties like the system properties loader does when the proxy starts.
+     */
+    @Setup
+    public void setUp() {
+        System.setProperty(SystemProperties.PROXY_SSL_SUPPORT, "true");
+        System.setProperty(SystemProperties.ANTIDOS_ENABLED, "true");
+        System.setProperty(SystemProperties.PROXY_CLIENT_TIMEOUT, "30000");
+        System.setProperty(CLIENTPROXY_HTTPCLIENT_TIMEOUT, "0");
+        System.setProperty(SystemProperties.SERVER_CONF_CACHE_PERIOD, "60");
+
+        SystemProperties.reload();
+    }
+
+    /**
+     * @param blackhole consumes the property values
+     */
+    @Benchmark
+    public void snapshot(Blackhole blackhole) {
+        blackhole.consume(SystemProperties.isSslEnabled());
+        blackhole.consume(SystemProperties.isAntiDosEnabled());
+        blackhole.consume(SystemProperties.getClientProxyTimeout());
+        blackhole.consume(SystemProperties.getClientProxyHttpClientTimeout());
+        blackhole.consume(SystemProperties.getServerConfCachePeriod());
+    }
+
+    /**
+     * @param blackhole consumes the property values
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        blackhole.consume("true".equalsIgnoreCase(System.getProperty(SystemProperties.PROXY_SSL_SUPPORT, "true")));
+        blackhole.consume("true".equalsIgnoreCase(System.getProperty(SystemProperties.ANTIDOS_ENABLED, "true")));
+        blackhole.consume(Integer.parseInt(System.getProperty(SystemProperties.PROXY_CLIENT_TIMEOUT, "30000")));
+        blackhole.consume(Integer.parseInt(System.getProperty(CLIENTPROXY_HTTPCLIENT_TIMEOUT, "0")));
+        blackhole.consume(Integer.parseInt(System.getProperty(SystemProperties.SERVER_CONF_CACHE_PERIOD, "60")));
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.serverconf;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.conf.serverconf.model.AccessRightType;
+import ee.ria.xroad.common.conf.serverconf.model.ClientType;
+import ee.ria.xroad.common.conf.serverconf.model.DescriptionType;
+import ee.ria.xroad.common.conf.serverconf.model.EndpointType;
+import ee.ria.xroad.common.conf.serverconf.model.ServerConfType;
+import ee.ria.xroad.common.conf.serverconf.model.ServiceDescriptionType;
+import ee.ria.xroad.common.conf.serverconf.model.ServiceType;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.conf.serverconf.ServerConfDatabaseCtx.doInTransaction;
+
+/**
+ * Measures the access right checks done for every request, against an in-memory server configuration database
+ * with the given number of clients. Compares the plain database backed implementation with the caching one.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerConfImplBenchmark {
+
+    private static final String XROAD_INSTANCE = "EE";
+    private static final String MEMBER_CLASS = "BUSINESS";
+    private static final String SERVICE_CODE = "getState";
+    private static final String REST_SERVICE_CODE = "items";
+    private static final int SERVICES_PER_CLIENT = 10;
+    private static final int SERVICE_TIMEOUT = 60;
+
+    @Param({"10", "100"})
+    public int clients;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private ServerConfProvider serverConf;
+    private ClientId consumer;
+    private ServiceId service;
+    private ServiceId restService;
+
+    /**
+     * Fills the database and creates the server conf implementation.
+     * @throws Exception in case of any errors
+     */
+    @Setup
+    public void setUp() throws Exception {
+        System.setProperty(SystemProperties.DATABASE_PROPERTIES, "src/main/resources/serverconf-benchmark.properties");
+
+        consumer = ClientId.create(XROAD_INSTANCE, MEMBER_CLASS, "consumer");
+
+        doInTransaction(session -> {
+            session.save(createConf(session));
+            return null;
+        });
+
+        ClientId provider = providerId(clients - 1);
+        service = ServiceId.create(provider, SERVICE_CODE + (SERVICES_PER_CLIENT - 1));
+        restService = ServiceId.create(provider, REST_SERVICE_CODE);
+
+        serverConf = cached ? new CachingServerConfImpl() : new ServerConfImpl();
+    }
+
+    /**
+     * Closes the database session factory.
+     */
+    @TearDown
+    public void tearDown() {
+        ServerConfDatabaseCtx.get().closeSessionFactory();
+    }
+
+    /**
+     * @return whether the SOAP service query is allowed
+     */
+    @Benchmark
+    public boolean isQueryAllowed() {
+        return serverConf.isQueryAllowed(consumer, service, null, null);
+    }
+
+    /**
+     * @return whether the REST service query is allowed
+     */
+    @Benchmark
+    public boolean isRestQueryAllowed() {
+        return serverConf.isQueryAllowed(consumer, restService, "GET", "/api/items/1");
+    }
+
+    private ServerConfType createConf(Session session) {
+        ServerConfType conf = new ServerConfType();
+        conf.setServerCode("benchmark");
+
+        for (int i = 0; i < clients; i++) {
+            ClientType client = new ClientType();
+            client.setConf(conf);
+            client.setIdentifier(providerId(i));
+            client.setClientStatus(ClientType.STATUS_REGISTERED);
+            client.setIsAuthentication("NOSSL");
+            conf.getClient().add(client);
+
+            if (i == 0) {
+                conf.setOwner(client);
+            }
+
+            ServiceDescriptionType wsdl = createServiceDescription(client, DescriptionType.WSDL);
+
+            for (int j = 0; j < SERVICES_PER_CLIENT; j++) {
+                createService(wsdl, SERVICE_CODE + j);
+
+                EndpointType endpoint = new EndpointType(SERVICE_CODE + j, EndpointType.ANY_METHOD,
+                        EndpointType.ANY_PATH, false);
+                session.persist(endpoint);
+                client.getEndpoint().add(endpoint);
+                client.getAcl().add(createAccessRight(endpoint));
+            }
+
+            ServiceDescriptionType rest = createServiceDescription(client, DescriptionType.REST);
+            createService(rest, REST_SERVICE_CODE);
+
+            EndpointType restEndpoint = new EndpointType(REST_SERVICE_CODE, "GET", "/api/**", false);
+            session.persist(restEndpoint);
+            client.getEndpoint().add(restEndpoint);
+            client.getAcl().add(createAccessRight(restEndpoint));
+        }
+
+        return conf;
+    }
+
+    private static ClientId providerId(int idx) {
+        return ClientId.create(XROAD_INSTANCE, MEMBER_CLASS, "producer" + idx, "subsystem");
+    }
+
+    private static ServiceDescriptionType createServiceDescription(ClientType client, DescriptionType type) {
+        ServiceDescriptionType serviceDescription = new ServiceDescriptionType();
+        serviceDescription.setClient(client);
+        serviceDescription.setUrl("http://localhost/" + type);
+        serviceDescription.setType(type);
+        client.getServiceDescription().add(serviceDescription);
+
+        return serviceDescription;
+    }
+
+    private static void createService(ServiceDescriptionType serviceDescription, String serviceCode) {
+        ServiceType service = new ServiceType();
+        service.setServiceDescription(serviceDescription);
+        service.setServiceCode(serviceCode);
+        service.setUrl("http://localhost/" + serviceCode);
+        service.setTimeout(SERVICE_TIMEOUT);
+        serviceDescription.getService().add(service);
+    }
+
+    private AccessRightType createAccessRight(EndpointType endpoint) {
+        AccessRightType accessRight = new AccessRightType();
+        accessRight.setEndpoint(endpoint);
+        accessRight.setSubjectId(consumer);
+        accessRight.setRightsGiven(new Date());
+
+        return accessRight;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.identifier;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.BenchmarkFixtures.MEMBER_CLASS;
+import static ee.ria.xroad.common.BenchmarkFixtures.SERVICE_CODE;
+import static ee.ria.xroad.common.BenchmarkFixtures.XROAD_INSTANCE;
+
+/**
+ * Measures looking up values from a hash map keyed by client or service identifiers, like the caches of the
+ * global and server configuration do. The keys are equal to but not the same instances as the map keys, so every
+ * lookup compares the identifiers field by field. The reflective benchmark computes the hash code and compares
+ * the identifiers by reflection like XRoadId did before the hash code was cached.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XRoadIdBenchmark {
+
+    private static final String[] EXCLUDED_FIELDS = {"id"};
+
+    @Param({"client", "service"})
+    public String type;
+
+    @Param({"1000"})
+    public int identifiers;
+
+    private final Map<XRoadId, Integer> map = new HashMap<>();
+
+    private String[] memberCodes;
+    private String[] subsystemCodes;
+    private XRoadId[] mapKeys;
+    private XRoadId[] lookupKeys;
+    private int index;
+
+    /**
+     * Fills the map and creates the lookup keys.
+     */
+    @Setup
+    public void setUp() {
+        memberCodes = new String[identifiers];
+        subsystemCodes = new String[identifiers];
+        mapKeys = new XRoadId[identifiers];
+        lookupKeys = new XRoadId[identifiers];
+
+        for (int i = 0; i < identifiers; i++) {
+            memberCodes[i] = "member" + i / 10;
+            subsystemCodes[i] = "subsystem" + i % 10;
+            mapKeys[i] = createId(i);
+            lookupKeys[i] = createId(i);
+            map.put(mapKeys[i], i);
+        }
+    }
+
+    /**
+     * Looks up the value with a key whose hash code has been computed before.
+     * @return the value
+     */
+    @Benchmark
+    public Integer lookup() {
+        return map.get(lookupKeys[nextIndex()]);
+    }
+
+    /**
+     * Creates the key and looks up the value, the hash code of the key is computed on every lookup.
+     * @return the value
+     */
+    @Benchmark
+    public Integer createAndLookup() {
+        return map.get(createId(nextIndex()));
+    }
+
+    /**
+     * Computes the hash code and compares the key by reflection, the cost of the lookup before the hash code
+     * was cached.
+     * @return whether the identifiers are equal
+     */
+    @Benchmark
+    public boolean reflective() {
+        int i = nextIndex();
+
+        return HashCodeBuilder.reflectionHashCode(lookupKeys[i], EXCLUDED_FIELDS)
+                == HashCodeBuilder.reflectionHashCode(mapKeys[i], EXCLUDED_FIELDS)
+                && EqualsBuilder.reflectionEquals(lookupKeys[i], mapKeys[i], EXCLUDED_FIELDS);
+    }
+
+    private int nextIndex() {
+        int i = index;
+        index = i + 1 == identifiers ? 0 : i + 1;
+
+        return i;
+    }
+
+    private XRoadId createId(int i) {
+        ClientId client = ClientId.create(XROAD_INSTANCE, MEMBER_CLASS, memberCodes[i], subsystemCodes[i]);
+
+        return "client".equals(type) ? client : ServiceId.create(client, SERVICE_CODE, "v1");
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.proxy.signedmessage.SigningKey;
+
+import java.security.PrivateKey;
+import java.security.Signature;
+
+/**
+ * Signing key that signs with a private key in memory instead of the signer.
+ */
+public class BenchmarkSigningKey implements SigningKey {
+
+    private final PrivateKey key;
+
+    /**
+     * @param key the private key
+     */
+    public BenchmarkSigningKey(PrivateKey key) {
+        this.key = key;
+    }
+
+    @Override
+    public SignatureData calculateSignature(SigningRequest request, String digestAlgoId) throws Exception {
+        SignatureCtx ctx = new SignatureCtx(
+                CryptoUtils.getSignatureAlgorithmId(digestAlgoId, CryptoUtils.CKM_RSA_PKCS_NAME));
+        ctx.add(request);
+
+        Signature signature = Signature.getInstance(ctx.getSignatureAlgorithmId());
+        signature.initSign(key);
+        signature.update(ctx.getDataToBeSigned());
+
+        return ctx.createSignatureData(ctx.createSignatureXml(signature.sign()), 0);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import ee.ria.xroad.common.BenchmarkFixtures;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.MessageFileNames;
+
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a message signature, including the RSA signing operation.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBuilderBenchmark {
+
+    @Param({"1", "5"})
+    public int attachments;
+
+    private final List<MessagePart> parts = new ArrayList<>();
+
+    private X509Certificate signingCert;
+    private List<OCSPResp> ocspResponses;
+    private BenchmarkSigningKey signingKey;
+
+    /**
+     * Prepares the message parts, certificate and OCSP response.
+     * @throws Exception in case of any errors
+     */
+    @Setup
+    public void setUp() throws Exception {
+        byte[] message = BenchmarkFixtures.soapRequest(10);
+
+        parts.add(new MessagePart(MessageFileNames.MESSAGE, CryptoUtils.SHA512_ID,
+                CryptoUtils.calculateDigest(CryptoUtils.SHA512_ID, message), message));
+
+        for (int i = 1; i < attachments; i++) {
+            parts.add(new MessagePart(MessageFileNames.attachment(i), CryptoUtils.SHA512_ID,
+                    CryptoUtils.calculateDigest(CryptoUtils.SHA512_ID, BenchmarkFixtures.restBody(1024 * i)), null));
+        }
+
+        signingCert = BenchmarkFixtures.signerCert();
+        ocspResponses = Collections.singletonList(BenchmarkFixtures.signerOcspResponse());
+        signingKey = new BenchmarkSigningKey(BenchmarkFixtures.signerKey());
+    }
+
+    /**
+     * @return the signature
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public SignatureData build() throws Exception {
+        SignatureBuilder builder = new SignatureBuilder();
+        parts.forEach(builder::addPart);
+        builder.setSigningCert(signingCert);
+        builder.addOcspResponses(ocspResponses);
+
+        return builder.build(signingKey, CryptoUtils.SHA512_ID);
+    }
+}
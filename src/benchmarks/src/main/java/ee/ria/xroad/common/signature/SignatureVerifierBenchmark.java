@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+import ee.ria.xroad.common.conf.globalconf.TestGlobalConfImpl;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.MessageFileNames;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing and verifying a message signature, including the certificate chain and OCSP response checks.
+ * Uses the signed test message and global configuration of the unit tests, verified at the date the test data
+ * is valid.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureVerifierBenchmark {
+
+    private static final ClientId SIGNER_ID = ClientId.create("EE", "BUSINESS", "consumer");
+
+    private byte[] signatureXml;
+    private List<MessagePart> parts;
+    private Date validationDate;
+
+    /**
+     * Loads the test signature and sets up global conf.
+     * @throws Exception in case of any errors
+     */
+    @Setup
+    public void setUp() throws Exception {
+        TestSecurityUtil.initSecurity();
+
+        System.setProperty(SystemProperties.CONFIGURATION_PATH, "../common-util/src/test/resources/globalconf_good_v2");
+        System.setProperty(SystemProperties.CONFIGURATION_ANCHOR_FILE,
+                "../common-util/src/test/resources/configuration-anchor1.xml");
+
+        GlobalConf.reload(new TestGlobalConfImpl(false) {
+            @Override
+            public X509Certificate getCaCert(String instanceIdentifier, X509Certificate memberCert) {
+                return TestCertUtil.getCaCert();
+            }
+        });
+
+        signatureXml = Files.readAllBytes(Paths.get("../common-test/src/test/signatures/sign-0.xml"));
+
+        byte[] message = Files.readAllBytes(Paths.get("../common-test/src/test/signatures/message-0.xml"));
+        parts = Collections.singletonList(new MessagePart(MessageFileNames.MESSAGE, CryptoUtils.SHA512_ID,
+                CryptoUtils.calculateDigest(CryptoUtils.SHA512_ID, message), message));
+
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2014, Calendar.OCTOBER, 30);
+        validationDate = cal.getTime();
+    }
+
+    /**
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public void verify() throws Exception {
+        SignatureVerifier verifier = new SignatureVerifier(new Signature(new ByteArrayInputStream(signatureXml)));
+        verifier.addParts(parts);
+        verifier.verify(SIGNER_ID, validationDate);
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.messagelog.LogRecord;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static ee.ria.xroad.common.BenchmarkFixtures.MEMBER_CLASS;
+import static ee.ria.xroad.common.BenchmarkFixtures.XROAD_INSTANCE;
+import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransaction;
+
+/**
+ * Measures looking up message log records by query id, by the sending client as done by the ASiC container
+ * requests and by time range, against an in-memory message log database with the given number of records.
+ * Records logged before the query id hash was stored have no hash, and are looked up by the query id alone.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogRecordManagerBenchmark {
+
+    private static final int CLIENTS = 10;
+    private static final int RECORDS_PER_TRANSACTION = 1000;
+
+    @Param({"1000", "100000"})
+    public int records;
+
+    @Param({"true", "false"})
+    public boolean hashed;
+
+    private ClientId[] clients;
+    private int next;
+
+    /**
+     * Fills the database with the request records of the clients.
+     * @throws Exception in case of any errors
+     */
+    @Setup
+    public void setUp() throws Exception {
+        System.setProperty(SystemProperties.DATABASE_PROPERTIES,
+                "src/main/resources/messagelog-benchmark.properties");
+
+        clients = new ClientId[CLIENTS];
+
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = ClientId.create(XROAD_INSTANCE, MEMBER_CLASS, "consumer" + i);
+        }
+
+        for (int first = 0; first < records; first += RECORDS_PER_TRANSACTION) {
+            List<MessageRecord> batch = new ArrayList<>();
+
+            for (int i = first; i < Math.min(first + RECORDS_PER_TRANSACTION, records); i++) {
+                MessageRecord record = new MessageRecord(queryId(i), "<message/>", "<signature/>", false, client(i),
+                        null);
+                record.setTime((long) i);
+
+                if (hashed) {
+                    record.setQueryIdHash(MessageRecord.hashQueryId(record.getQueryId()));
+                }
+
+                batch.add(record);
+            }
+
+            doInTransaction(session -> {
+                batch.forEach(session::save);
+
+                return null;
+            });
+        }
+
+        // Same columns as the index of the message log database, HSQLDB has no partial indexes
+        doInTransaction(session -> session.createNativeQuery("CREATE INDEX IX_QUERYID_LOGRECORD ON LOGRECORD "
+                + "(QUERYIDHASH, MEMBERCLASS, MEMBERCODE, SUBSYSTEMCODE, TIME)").executeUpdate());
+    }
+
+    /**
+     * Closes the database session factory.
+     */
+    @TearDown
+    public void tearDown() {
+        MessageLogDatabaseCtx.get().closeSessionFactory();
+    }
+
+    /**
+     * @return the record of the query
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public MessageRecord getByQueryIdAndClient() throws Exception {
+        int i = nextRecord();
+
+        return LogRecordManager.getByQueryIdUnique(queryId(i), client(i), false, Function.identity());
+    }
+
+    /**
+     * @return the record of the query
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public LogRecord getByQueryIdAndTime() throws Exception {
+        int i = nextRecord();
+
+        return LogRecordManager.getByQueryId(queryId(i), new Date(i), new Date(i + 1));
+    }
+
+    private int nextRecord() {
+        next = (next + 1) % records;
+
+        return next;
+    }
+
+    private ClientId client(int record) {
+        return clients[record % CLIENTS];
+    }
+
+    private static String queryId(int record) {
+        return "query-" + record;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.BenchmarkFixtures;
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.BenchmarkFixtures.CLIENT_CODE;
+import static ee.ria.xroad.common.BenchmarkFixtures.MEMBER_CLASS;
+import static ee.ria.xroad.common.BenchmarkFixtures.XROAD_INSTANCE;
+import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransaction;
+
+/**
+ * Measures inserting message log records into an in-memory message log database, with the message text stored
+ * as is or compressed like the log manager does when message compression is enabled. The secondary results
+ * messageBytes and storedBytes count the size of the message text before and after compression, their ratio is
+ * the compression ratio.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageRecordBenchmark {
+
+    private static final String SIGNATURE = "<signature/>";
+
+    @Param({"10", "100"})
+    public int bodyElements;
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private ClientId clientId;
+    private String message;
+    private int messageSize;
+    private long queryId;
+
+    /**
+     * Sizes of the logged message texts.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MessageSizes {
+
+        public long messageBytes;
+        public long storedBytes;
+
+        /**
+         * Resets the counters before every iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            messageBytes = 0;
+            storedBytes = 0;
+        }
+    }
+
+    /**
+     * Creates the message and the database.
+     * @throws Exception in case of any errors
+     */
+    @Setup
+    public void setUp() throws Exception {
+        System.setProperty(SystemProperties.DATABASE_PROPERTIES,
+                "src/main/resources/messagelog-benchmark.properties");
+
+        clientId = ClientId.create(XROAD_INSTANCE, MEMBER_CLASS, CLIENT_CODE);
+
+        byte[] request = BenchmarkFixtures.soapRequest(bodyElements);
+        message = new String(request, StandardCharsets.UTF_8);
+        messageSize = request.length;
+    }
+
+    /**
+     * Removes the inserted records, so that the size of the database does not grow from one iteration to the next.
+     * @throws Exception in case of any errors
+     */
+    @TearDown(Level.Iteration)
+    public void deleteRecords() throws Exception {
+        doInTransaction(session -> session.createQuery("delete from MessageRecord").executeUpdate());
+    }
+
+    /**
+     * Closes the database session factory.
+     */
+    @TearDown
+    public void tearDown() {
+        MessageLogDatabaseCtx.get().closeSessionFactory();
+    }
+
+    /**
+     * @param sizes counts the message sizes
+     * @return the inserted record
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public MessageRecord insert(MessageSizes sizes) throws Exception {
+        MessageRecord record = new MessageRecord(Long.toString(queryId++), message, SIGNATURE, false, clientId,
+                null);
+
+        if (compressed) {
+            record.compressMessage();
+        }
+
+        LogRecordManager.saveMessageRecord(record);
+
+        sizes.messageBytes += messageSize;
+        sizes.storedBytes += compressed ? record.getCompressedMessage().length : messageSize;
+
+        return record;
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.protocol;
+
+import ee.ria.xroad.common.BenchmarkFixtures;
+import ee.ria.xroad.common.message.RestRequest;
+import ee.ria.xroad.common.message.SoapFault;
+import ee.ria.xroad.common.message.SoapMessageImpl;
+import ee.ria.xroad.common.signature.BenchmarkSigningKey;
+import ee.ria.xroad.common.signature.MessagePart;
+import ee.ria.xroad.common.signature.SignatureBuilder;
+import ee.ria.xroad.common.signature.SignatureData;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.MessageFileNames;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding the multipart messages exchanged between security servers, for both SOAP and
+ * REST messages. The signature is computed once in the setup, so only the codec itself is measured.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProxyMessageCodecBenchmark {
+
+    private static final String HASH_ALGO_ID = CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID;
+
+    @Param({"1024", "1048576"})
+    public int restBodySize;
+
+    private SoapMessageImpl soapMessage;
+    private RestRequest restRequest;
+    private byte[] restBody;
+    private OCSPResp ocspResponse;
+    private SignatureData signature;
+
+    private byte[] encodedSoap;
+    private String soapContentType;
+    private byte[] encodedRest;
+    private String restContentType;
+
+    /**
+     * Prepares the messages, a signature and the encoded messages for the decoding benchmarks.
+     * @throws Exception in case of any errors
+     */
+    @Setup
+    public void setUp() throws Exception {
+        soapMessage = BenchmarkFixtures.soapMessage(10);
+        restRequest = BenchmarkFixtures.restRequest();
+        restBody = BenchmarkFixtures.restBody(restBodySize);
+        ocspResponse = BenchmarkFixtures.signerOcspResponse();
+
+        SignatureBuilder builder = new SignatureBuilder();
+        builder.addPart(new MessagePart(MessageFileNames.MESSAGE, HASH_ALGO_ID,
+                CryptoUtils.calculateDigest(HASH_ALGO_ID, soapMessage.getBytes()), soapMessage.getBytes()));
+        builder.setSigningCert(BenchmarkFixtures.signerCert());
+        signature = builder.build(new BenchmarkSigningKey(BenchmarkFixtures.signerKey()), CryptoUtils.SHA512_ID);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        soapContentType = encodeSoap(out);
+        encodedSoap = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        restContentType = encodeRest(out);
+        encodedRest = out.toByteArray();
+    }
+
+    /**
+     * @return the content type of the encoded message
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public String encodeSoap() throws Exception {
+        return encodeSoap(new NullOutputStream());
+    }
+
+    /**
+     * @return the content type of the encoded message
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public String encodeRest() throws Exception {
+        return encodeRest(new NullOutputStream());
+    }
+
+    /**
+     * @return the consumer that received the decoded message
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public DrainingConsumer decodeSoap() throws Exception {
+        DrainingConsumer consumer = new DrainingConsumer();
+        new ProxyMessageDecoder(consumer, soapContentType, false, HASH_ALGO_ID)
+                .parse(new ByteArrayInputStream(encodedSoap));
+
+        return consumer;
+    }
+
+    /**
+     * @return the consumer that received the decoded message
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public DrainingConsumer decodeRest() throws Exception {
+        DrainingConsumer consumer = new DrainingConsumer();
+        new ProxyMessageDecoder(consumer, restContentType, false, HASH_ALGO_ID)
+                .parse(new ByteArrayInputStream(encodedRest));
+
+        return consumer;
+    }
+
+    private String encodeSoap(OutputStream out) throws Exception {
+        ProxyMessageEncoder encoder = new ProxyMessageEncoder(out, HASH_ALGO_ID);
+        encoder.ocspResponse(ocspResponse);
+        encoder.soap(soapMessage, new HashMap<>());
+        encoder.signature(signature);
+        encoder.close();
+
+        return encoder.getContentType();
+    }
+
+    private String encodeRest(OutputStream out) throws Exception {
+        ProxyMessageEncoder encoder = new ProxyMessageEncoder(out, HASH_ALGO_ID);
+        encoder.ocspResponse(ocspResponse);
+        encoder.restRequest(restRequest);
+        encoder.restBody(new ByteArrayInputStream(restBody));
+        encoder.signature(signature);
+        encoder.close();
+
+        return encoder.getContentType();
+    }
+
+    /**
+     * Consumes the decoded message, reading the streamed parts to the end.
+     */
+    public static class DrainingConsumer implements ProxyMessageConsumer {
+
+        private long bytesRead;
+
+        @Override
+        public void soap(SoapMessageImpl message, Map<String, String> additionalHeaders) {
+            bytesRead += message.getBytes().length;
+        }
+
+        @Override
+        public void rest(RestRequest message) {
+            bytesRead += message.getMessageBytes().length;
+        }
+
+        @Override
+        public void restBody(InputStream content) throws Exception {
+            bytesRead += IOUtils.copyLarge(content, new NullOutputStream());
+        }
+
+        @Override
+        public void attachment(String contentType, InputStream content, Map<String, String> additionalHeaders)
+                throws Exception {
+            bytesRead += IOUtils.copyLarge(content, new NullOutputStream());
+        }
+
+        @Override
+        public void ocspResponse(OCSPResp resp) {
+            // Nothing to do.
+        }
+
+        @Override
+        public void signature(SignatureData signatureData) {
+            // Nothing to do.
+        }
+
+        @Override
+        public void fault(SoapFault fault) {
+            // Nothing to do.
+        }
+
+        /**
+         * @return the number of message bytes read
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+    }
+}
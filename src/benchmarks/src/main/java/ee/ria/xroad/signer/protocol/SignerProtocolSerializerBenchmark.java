@@ -0,0 +1,222 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol;
+
+import ee.ria.xroad.common.BenchmarkFixtures;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.protocol.dto.CertRequestInfo;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenStatusInfo;
+import ee.ria.xroad.signer.protocol.message.ListTokensResponse;
+import ee.ria.xroad.signer.protocol.message.Sign;
+import ee.ria.xroad.signer.protocol.message.SignResponse;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.BenchmarkFixtures.CLIENT_CODE;
+import static ee.ria.xroad.common.BenchmarkFixtures.MEMBER_CLASS;
+import static ee.ria.xroad.common.BenchmarkFixtures.XROAD_INSTANCE;
+
+/**
+ * Measures the round trip (encoding and decoding) of the signer protocol messages with
+ * {@link SignerProtocolSerializer} and with the Java serialization that Akka used for them before. The secondary
+ * results messages and messageBytes count the round trips and the size of the encoded messages, their ratio is
+ * the size of one encoded message.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignerProtocolSerializerBenchmark {
+
+    private static final String SIGNATURE_ALGORITHM_ID = "SHA256withRSA";
+
+    @Param({"signer", "java"})
+    public String serializer;
+
+    @Param({"1", "5"})
+    public int tokens;
+
+    private final SignerProtocolSerializer signerProtocolSerializer = new SignerProtocolSerializer();
+
+    private ListTokensResponse listTokensResponse;
+    private Sign sign;
+    private SignResponse signResponse;
+
+    /**
+     * Sizes of the encoded messages.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MessageSizes {
+
+        public long messages;
+        public long messageBytes;
+
+        /**
+         * Resets the counters before every iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            messages = 0;
+            messageBytes = 0;
+        }
+    }
+
+    /**
+     * Creates the messages, a software token like list of tokens with a signing and an authentication key and
+     * their certificates, and a SHA-256 digest and an RSA 2048 signature of it.
+     * @throws Exception in case of any errors
+     */
+    @Setup
+    public void setUp() throws Exception {
+        byte[] cert = BenchmarkFixtures.signerCert().getEncoded();
+
+        List<TokenInfo> tokenInfos = new ArrayList<>();
+
+        for (int i = 0; i < tokens; i++) {
+            tokenInfos.add(createToken(Integer.toString(i), cert));
+        }
+
+        listTokensResponse = new ListTokensResponse(tokenInfos);
+
+        Random random = new Random(0);
+        byte[] digest = new byte[32];
+        byte[] signature = new byte[256];
+        random.nextBytes(digest);
+        random.nextBytes(signature);
+
+        sign = new Sign("0123456789ABCDEF0123456789ABCDEF01234567", SIGNATURE_ALGORITHM_ID, digest);
+        signResponse = new SignResponse(signature);
+    }
+
+    /**
+     * @param sizes counts the message sizes
+     * @return the decoded message
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public Object listTokensResponse(MessageSizes sizes) throws Exception {
+        return roundTrip(listTokensResponse, sizes);
+    }
+
+    /**
+     * @param sizes counts the message sizes
+     * @return the decoded message
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public Object sign(MessageSizes sizes) throws Exception {
+        return roundTrip(sign, sizes);
+    }
+
+    /**
+     * @param sizes counts the message sizes
+     * @return the decoded message
+     * @throws Exception in case of any errors
+     */
+    @Benchmark
+    public Object signResponse(MessageSizes sizes) throws Exception {
+        return roundTrip(signResponse, sizes);
+    }
+
+    private Object roundTrip(Object message, MessageSizes sizes) throws Exception {
+        byte[] bytes;
+        Object decoded;
+
+        if ("signer".equals(serializer)) {
+            bytes = signerProtocolSerializer.toBinary(message);
+            decoded = signerProtocolSerializer.fromBinary(bytes, signerProtocolSerializer.manifest(message));
+        } else {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(message);
+            }
+
+            bytes = out.toByteArray();
+
+            try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                decoded = objectIn.readObject();
+            }
+        }
+
+        sizes.messages++;
+        sizes.messageBytes += bytes.length;
+
+        return decoded;
+    }
+
+    private static TokenInfo createToken(String id, byte[] cert) {
+        ClientId member = ClientId.create(XROAD_INSTANCE, MEMBER_CLASS, CLIENT_CODE);
+
+        KeyInfo signKey = new KeyInfo(true, KeyUsageInfo.SIGNING, "sign key " + id, "s" + id, "sign" + id, null,
+                Collections.singletonList(new CertificateInfo(member, true, true,
+                        CertificateInfo.STATUS_REGISTERED, "sc" + id, cert, null)),
+                Collections.singletonList(new CertRequestInfo("r" + id, member, "C=EE, O=" + CLIENT_CODE)),
+                null);
+        KeyInfo authKey = new KeyInfo(true, KeyUsageInfo.AUTHENTICATION, "auth key " + id, "a" + id, "auth" + id,
+                null, Collections.singletonList(new CertificateInfo(null, true, true,
+                        CertificateInfo.STATUS_REGISTERED, "ac" + id, cert, null)),
+                Collections.emptyList(), null);
+
+        Map<String, String> tokenInfo = new LinkedHashMap<>();
+        tokenInfo.put("Manufacturer ID", "X-Road");
+
+        return new TokenInfo(TokenInfo.SOFTWARE_MODULE_TYPE, "Token " + id, id, false, true, true, null,
+                "token" + id, 0, TokenStatusInfo.OK, Arrays.asList(signKey, authKey), tokenInfo);
+    }
+}
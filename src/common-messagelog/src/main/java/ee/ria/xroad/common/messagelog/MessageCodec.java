@@ -0,0 +1,158 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compressed storage format of the logged messages. The first byte of the encoded message identifies the codec
+ * used for the rest of the bytes, so that records written with different codecs can be read side by side.
+ */
+public final class MessageCodec {
+
+    /** Raw deflate. */
+    public static final byte DEFLATE = 1;
+
+    /** Raw deflate with a preset dictionary of the X-Road SOAP message header. */
+    public static final byte DEFLATE_SOAP_DICTIONARY = 2;
+
+    /**
+     * Strings that occur in (nearly) every logged SOAP message. Deflate favors matches near the end of the
+     * dictionary, so the most common strings are last. Must never be changed, a new codec needs to be added
+     * for a different dictionary.
+     */
+    private static final byte[] SOAP_DICTIONARY = ("<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+            + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\""
+            + "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"<soapenv:Header>"
+            + "</soapenv:Header><soapenv:Body></soapenv:Body></soapenv:Envelope>"
+            + "<xroad:requestHash algorithmId=\"http://www.w3.org/2001/04/xmlenc#sha512\"></xroad:requestHash>"
+            + "<xroad:userId></xroad:userId><xroad:issue></xroad:issue>"
+            + "<?xml version=\"1.0\" encoding=\"UTF-8\"?><SOAP-ENV:Envelope "
+            + "xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+            + "xmlns:xroad=\"http://x-road.eu/xsd/xroad.xsd\" xmlns:id=\"http://x-road.eu/xsd/identifiers\" "
+            + "xmlns:repr=\"http://x-road.eu/xsd/representation.xsd\"><SOAP-ENV:Header>"
+            + "<xroad:client id:objectType=\"SUBSYSTEM\"><id:xRoadInstance></id:xRoadInstance>"
+            + "<id:memberClass></id:memberClass><id:memberCode></id:memberCode><id:subsystemCode></id:subsystemCode>"
+            + "</xroad:client><xroad:service id:objectType=\"SERVICE\"><id:xRoadInstance></id:xRoadInstance>"
+            + "<id:memberClass></id:memberClass><id:memberCode></id:memberCode><id:subsystemCode></id:subsystemCode>"
+            + "<id:serviceCode></id:serviceCode><id:serviceVersion></id:serviceVersion></xroad:service>"
+            + "<xroad:id></xroad:id><xroad:protocolVersion>4.0</xroad:protocolVersion></SOAP-ENV:Header>"
+            + "<SOAP-ENV:Body></SOAP-ENV:Body></SOAP-ENV:Envelope>").getBytes(StandardCharsets.UTF_8);
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Compresses the message.
+     * @param message the message
+     * @return the encoded message, starting with the codec identifier
+     * @throws IOException if compression fails
+     */
+    public static byte[] encode(String message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(DEFLATE_SOAP_DICTIONARY);
+
+        Deflater deflater = createDeflater(DEFLATE_SOAP_DICTIONARY);
+
+        try (Writer writer = new OutputStreamWriter(new DeflaterOutputStream(out, deflater),
+                StandardCharsets.UTF_8)) {
+            writer.write(message);
+        } finally {
+            deflater.end();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses the message.
+     * @param encoded the encoded message
+     * @return the message
+     * @throws IOException if the message can not be decompressed
+     */
+    public static String decode(byte[] encoded) throws IOException {
+        try (InputStream in = decodeStream(encoded)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns a stream that decompresses the message while it is read. The stream needs to be closed.
+     * @param encoded the encoded message
+     * @return UTF-8 encoded message stream
+     * @throws IOException if the codec is not supported
+     */
+    public static InputStream decodeStream(byte[] encoded) throws IOException {
+        if (encoded.length == 0) {
+            throw new IOException("Encoded message is empty");
+        }
+
+        Inflater inflater = createInflater(encoded[0]);
+
+        return new InflaterInputStream(new ByteArrayInputStream(encoded, 1, encoded.length - 1), inflater) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+    }
+
+    private static Deflater createDeflater(byte codec) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+        if (codec == DEFLATE_SOAP_DICTIONARY) {
+            deflater.setDictionary(SOAP_DICTIONARY);
+        }
+
+        return deflater;
+    }
+
+    private static Inflater createInflater(byte codec) throws IOException {
+        if (codec != DEFLATE && codec != DEFLATE_SOAP_DICTIONARY) {
+            throw new IOException("Unsupported message codec: " + codec);
+        }
+
+        Inflater inflater = new Inflater(true);
+
+        if (codec == DEFLATE_SOAP_DICTIONARY) {
+            inflater.setDictionary(SOAP_DICTIONARY);
+        }
+
+        return inflater;
+    }
+}
@@ -121,6 +121,9 @@ public final class MessageLogProperties {
     /** is truncating body in logging allowed **/
     private static final String REST_TRUNCATED_BODY_ALLOWED = PREFIX + "truncated-body-allowed";
 
+    /** is the logged message stored compressed in the database **/
+    public static final String MESSAGE_COMPRESSION_ENABLED = PREFIX + "message-compression";
+
     public static final int NUM_COMPONENTS = 4;
     public static final int FIRST_COMPONENT = 0;
     public static final int SECOND_COMPONENT = 1;
@@ -294,6 +297,13 @@ public final class MessageLogProperties {
         return Boolean.getBoolean(REST_TRUNCATED_BODY_ALLOWED);
     }
 
+    /**
+     * @return whether the logged messages are stored compressed, 'false' by default
+     */
+    public static boolean isMessageCompressionEnabled() {
+        return Boolean.getBoolean(MESSAGE_COMPRESSION_ENABLED);
+    }
+
     public static int getCleanTransactionBatchSize() {
         return Integer.getInteger(CLEAN_TRANSACTION_BATCH, DEFAULT_CLEAN_TRANSACTION_BATCH_SIZE);
     }
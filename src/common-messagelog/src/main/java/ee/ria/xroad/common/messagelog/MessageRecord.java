@@ -39,7 +39,9 @@ import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.sql.Blob;
 
 import static ee.ria.xroad.common.util.CryptoUtils.MD5_ID;
@@ -49,8 +51,8 @@ import static ee.ria.xroad.common.util.CryptoUtils.hexDigest;
  * A message log record.
  */
 @Slf4j
-@ToString(callSuper = true, exclude = {"attachment"})
-@EqualsAndHashCode(callSuper = true, exclude = {"attachment"})
+@ToString(callSuper = true, exclude = {"attachment", "compressedMessage", "decompressedMessage"})
+@EqualsAndHashCode(callSuper = true, exclude = {"attachment", "compressedMessage", "decompressedMessage"})
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class MessageRecord extends AbstractLogRecord {
 
@@ -58,10 +60,18 @@ public class MessageRecord extends AbstractLogRecord {
     @Setter
     private String queryId;
 
+    /** MD5 hex digest of the query id, see {@link #hashQueryId(String)}. */
     @Getter
     @Setter
+    private String queryIdHash;
+
     private String message;
 
+    @Getter
+    private byte[] compressedMessage;
+
+    private transient String decompressedMessage;
+
     @Getter
     @Setter
     private String signature;
@@ -153,7 +163,7 @@ public class MessageRecord extends AbstractLogRecord {
 
     @Override
     public Object[] getLinkingInfoFields() {
-        return new Object[] {getId(), getTime(), queryId, message, signature,
+        return new Object[] {getId(), getTime(), queryId, getMessage(), signature,
                 memberClass, memberCode, subsystemCode};
     }
 
@@ -174,10 +184,51 @@ public class MessageRecord extends AbstractLogRecord {
                     timestampHashChain);
         }
 
-        return new AsicContainer(message, signatureData, timestamp,
+        return new AsicContainer(getMessage(), signatureData, timestamp,
                 (attachment != null) ? attachment.getBinaryStream() : null);
     }
 
+    /**
+     * Returns the message, decompressing it on first access if it is stored compressed.
+     * @return the message
+     */
+    public String getMessage() {
+        if (message != null || compressedMessage == null) {
+            return message;
+        }
+
+        if (decompressedMessage == null) {
+            try {
+                decompressedMessage = MessageCodec.decode(compressedMessage);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to decompress message of log record " + getId(), e);
+            }
+        }
+
+        return decompressedMessage;
+    }
+
+    /**
+     * @param message the message
+     */
+    public void setMessage(String message) {
+        this.message = message;
+        this.compressedMessage = null;
+        this.decompressedMessage = null;
+    }
+
+    /**
+     * Replaces the stored message with its compressed form, see {@link MessageCodec}.
+     * @throws IOException if compression fails
+     */
+    public void compressMessage() throws IOException {
+        if (message != null) {
+            compressedMessage = MessageCodec.encode(message);
+            decompressedMessage = message;
+            message = null;
+        }
+    }
+
     public void setAttachmentStream(InputStream stream, long size) {
         this.attachmentStream = stream;
         this.attachmentStreamSize = size;
@@ -0,0 +1,108 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests to verify the message log compression codec.
+ */
+public class MessageCodecTest {
+
+    private static final String MESSAGE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+            + "xmlns:id=\"http://x-road.eu/xsd/identifiers\" xmlns:xroad=\"http://x-road.eu/xsd/xroad.xsd\">"
+            + "<SOAP-ENV:Header><xroad:client id:objectType=\"SUBSYSTEM\"><id:xRoadInstance>EE</id:xRoadInstance>"
+            + "<id:memberClass>BUSINESS</id:memberClass><id:memberCode>consumer</id:memberCode>"
+            + "<id:subsystemCode>sub</id:subsystemCode></xroad:client>"
+            + "<xroad:service id:objectType=\"SERVICE\"><id:xRoadInstance>EE</id:xRoadInstance>"
+            + "<id:memberClass>BUSINESS</id:memberClass><id:memberCode>producer</id:memberCode>"
+            + "<id:subsystemCode>sub</id:subsystemCode><id:serviceCode>getState</id:serviceCode>"
+            + "<id:serviceVersion>v1</id:serviceVersion></xroad:service>"
+            + "<xroad:id>1234567890</xroad:id><xroad:protocolVersion>4.0</xroad:protocolVersion>"
+            + "</SOAP-ENV:Header><SOAP-ENV:Body><ns1:getState xmlns:ns1=\"http://producer.x-road.eu\">"
+            + "<ns1:name>õäöü</ns1:name></ns1:getState></SOAP-ENV:Body></SOAP-ENV:Envelope>";
+
+    /**
+     * Test to ensure the encoded message decodes to the original message.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void encodeAndDecode() throws Exception {
+        byte[] encoded = MessageCodec.encode(MESSAGE);
+
+        assertEquals(MessageCodec.DEFLATE_SOAP_DICTIONARY, encoded[0]);
+        assertEquals(MESSAGE, MessageCodec.decode(encoded));
+        assertEquals("", MessageCodec.decode(MessageCodec.encode("")));
+    }
+
+    /**
+     * Test to ensure messages encoded without the dictionary can be decoded.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void decodePlainDeflate() throws Exception {
+        byte[] encoded = deflate(MESSAGE);
+
+        assertEquals(MESSAGE, MessageCodec.decode(encoded));
+        assertTrue(MessageCodec.encode(MESSAGE).length < encoded.length);
+    }
+
+    /**
+     * Test to ensure unknown codecs are rejected.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test(expected = IOException.class)
+    public void shouldNotDecodeUnknownCodec() throws Exception {
+        byte[] encoded = MessageCodec.encode(MESSAGE);
+        encoded[0] = 0;
+
+        MessageCodec.decode(encoded);
+    }
+
+    private static byte[] deflate(String message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MessageCodec.DEFLATE);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+        try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+            deflaterOut.write(message.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            deflater.end();
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -180,6 +180,24 @@ public final class SystemProperties {
 
     public static final String SERVER_CONF_ACL_CACHE_SIZE = PREFIX + "proxy.server-conf-acl-cache-size";
 
+    /** Property name of the maximum total size of rewritten WSDLs cached by the getWsdl metaservice, in bytes */
+    public static final String WSDL_CACHE_SIZE = PREFIX + "proxy.wsdl-cache-size";
+
+    /** Property name of the number of seconds a cached WSDL is served without revalidating it */
+    public static final String WSDL_CACHE_PERIOD = PREFIX + "proxy.wsdl-cache-period";
+
+    /** Property name of the number of listMethods and allowedMethods responses cached by the metaservices */
+    public static final String METHOD_LIST_CACHE_SIZE = PREFIX + "proxy.method-list-cache-size";
+
+    /** Property name of the number of TLS sessions cached for the connections between security servers */
+    public static final String PROXY_XROAD_TLS_SESSION_CACHE_SIZE = PREFIX + "proxy.xroad-tls-session-cache-size";
+
+    /** Property name of the lifetime of the cached TLS sessions between security servers, in seconds */
+    public static final String PROXY_XROAD_TLS_SESSION_TIMEOUT = PREFIX + "proxy.xroad-tls-session-timeout";
+
+    /** Property name of the switch for recording the processing time of the message processing stages */
+    public static final String PROXY_MESSAGE_STAGE_STATS_ENABLED = PREFIX + "proxy.message-stage-stats-enabled";
+
 
     /** Property name of the idle time that connections to the ServerProxy Connector are allowed, in milliseconds */
     private static final String SERVERPROXY_CONNECTOR_MAX_IDLE_TIME =
@@ -370,6 +388,19 @@ public final class SystemProperties {
 
     private static final String DEFAULT_SIGNER_OCSP_RETRY_DELAY = "60";
 
+    public static final String SIGNER_OCSP_FETCH_THREADS =
+            PREFIX + "signer.ocsp-fetch-threads";
+
+    private static final String DEFAULT_SIGNER_OCSP_FETCH_THREADS = "4";
+
+    public static final String SIGNER_OCSP_RESPONDER_MAX_CONCURRENT_REQUESTS =
+            PREFIX + "signer.ocsp-responder-max-concurrent-requests";
+
+    private static final String DEFAULT_SIGNER_OCSP_RESPONDER_MAX_CONCURRENT_REQUESTS = "2";
+
+    public static final String SIGNER_SOFT_TOKEN_SIGNING_THREADS =
+            PREFIX + "signer.soft-token-signing-threads";
+
     public static final String SIGNER_MODULE_MANAGER_UPDATE_INTERVAL =
             PREFIX + "signer.module-manager-update-interval";
 
@@ -397,6 +428,10 @@ public final class SystemProperties {
     public static final String ANTIDOS_MAX_HEAP_USAGE =
             PREFIX + "anti-dos.max-heap-usage";
 
+    /** Property name of the interval at which system resource usage is sampled */
+    public static final String ANTIDOS_RESOURCE_SAMPLE_INTERVAL =
+            PREFIX + "anti-dos.resource-sample-interval";
+
     // Configuration client ---------------------------------------------------
 
     public static final String CONFIGURATION_CLIENT_PORT =
@@ -412,6 +447,10 @@ public final class SystemProperties {
     public static final String CONFIGURATION_CLIENT_ALLOWED_FEDERATIONS =
             PREFIX + "configuration-client.allowed-federations";
 
+    /** Property name of the number of content parts the configuration client downloads in parallel */
+    public static final String CONFIGURATION_CLIENT_DOWNLOAD_THREADS =
+            PREFIX + "configuration-client.download-threads";
+
     /**
      * A constant to describe the X-Road instances this security server federates with.
      * {@link #CUSTOM} means a list of named, comma-separated X-Road instances to allow.
@@ -544,6 +583,10 @@ public final class SystemProperties {
     public static final String CONFIGURATION_PROXY_ADDRESS =
             PREFIX + "configuration-proxy.address";
 
+    /** Property name of the number of confproxy instances that generate their configuration concurrently. */
+    public static final String CONFIGURATION_PROXY_GENERATION_THREADS =
+            PREFIX + "configuration-proxy.generation-threads";
+
     // Environmental Monitoring  -------------------------- //
 
     /** Property name of environmental monitor port. */
@@ -566,10 +609,18 @@ public final class SystemProperties {
     public static final String ENV_MONITOR_EXEC_LISTING_SENSOR_INTERVAL =
             PREFIX + "env-monitor.exec-listing-sensor-interval";
 
+    /** Property name of reading process, package and OS data directly from /proc instead of external commands. */
+    public static final String ENV_MONITOR_EXEC_LISTING_SENSOR_NATIVE =
+            PREFIX + "env-monitor.exec-listing-sensor-native";
+
     /** Property name of certificate info sensor refresh interval. */
     public static final String ENV_MONITOR_CERTIFICATE_INFO_SENSOR_INTERVAL =
             PREFIX + "env-monitor.certificate-info-sensor-interval";
 
+    /** Property name of the interval at which the proxy refreshes its snapshot of environmental monitoring data. */
+    public static final String ENV_MONITOR_METRICS_SNAPSHOT_INTERVAL =
+            PREFIX + "env-monitor.metrics-snapshot-interval";
+
     public static final String ONE_DAY_AS_SECONDS = String.valueOf(24 * 60 * 60);
 
     // Cluster node configuration ------------------------------------------ //
@@ -646,6 +697,16 @@ public final class SystemProperties {
 
     private static final String DEFAULT_CONNECTOR_HOST = "0.0.0.0";
 
+    private static volatile Snapshot snapshot = new Snapshot();
+
+    /**
+     * Re-reads the properties that are parsed only once (the ones used when processing every message) from the
+     * system properties. Needs to be called when such a property is changed after the properties have been loaded.
+     */
+    public static void reload() {
+        snapshot = new Snapshot();
+    }
+
     /**
      * @return path to the directory where configuration files are located, '/etc/xroad/' by default.
      */
@@ -809,14 +870,14 @@ public final class SystemProperties {
      * @return the client proxy connect timeout in milliseconds, '30000' by default.
      */
     public static int getClientProxyTimeout() {
-        return Integer.parseInt(System.getProperty(PROXY_CLIENT_TIMEOUT, DEFAULT_CLIENTPROXY_TIMEOUT));
+        return snapshot.clientProxyTimeout;
     }
 
     /**
      * @return the HTTP port on which the server proxy listens for messages, '5500' by default.
      */
     public static int getServerProxyPort() {
-        return Integer.parseInt(System.getProperty(PROXY_SERVER_PORT, Integer.toString(PortNumbers.PROXY_PORT)));
+        return snapshot.serverProxyPort;
     }
 
     /**
@@ -874,7 +935,7 @@ public final class SystemProperties {
      * @return whether OCSP-response retrieval loop should be activated
      */
     public static boolean isOcspResponseRetrievalActive() {
-        return "true".equalsIgnoreCase(System.getProperty(OCSP_RESPONSE_RETRIEVAL_ACTIVE, "true"));
+        return snapshot.ocspResponseRetrievalActive;
     }
 
     /**
@@ -885,6 +946,32 @@ public final class SystemProperties {
                 DEFAULT_SIGNER_OCSP_RETRY_DELAY));
     }
 
+    /**
+     * @return the number of threads the signer uses for fetching OCSP responses, 4 by default
+     */
+    public static int getOcspFetchThreads() {
+        return Integer.parseInt(System.getProperty(SIGNER_OCSP_FETCH_THREADS,
+                DEFAULT_SIGNER_OCSP_FETCH_THREADS));
+    }
+
+    /**
+     * @return the maximum number of concurrent requests the signer sends to a single OCSP responder, 2 by default
+     */
+    public static int getOcspResponderMaxConcurrentRequests() {
+        return Integer.parseInt(System.getProperty(SIGNER_OCSP_RESPONDER_MAX_CONCURRENT_REQUESTS,
+                DEFAULT_SIGNER_OCSP_RESPONDER_MAX_CONCURRENT_REQUESTS));
+    }
+
+    /**
+     * @return the number of threads a software token uses for signing, the number of available processors
+     * by default
+     */
+    public static int getSoftTokenSigningThreads() {
+        String threads = System.getProperty(SIGNER_SOFT_TOKEN_SIGNING_THREADS);
+
+        return threads != null ? Integer.parseInt(threads) : Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * @return the module manager update interval in seconds that should be set for signer, 60 by default
      */
@@ -922,6 +1009,13 @@ public final class SystemProperties {
         return System.getProperty(CONFIGURATION_CLIENT_ALLOWED_FEDERATIONS, AllowedFederationMode.NONE.name());
     }
 
+    /**
+     * @return the number of global configuration content parts that are downloaded in parallel, '4' by default.
+     */
+    public static int getConfigurationClientDownloadThreads() {
+        return Integer.parseInt(System.getProperty(CONFIGURATION_CLIENT_DOWNLOAD_THREADS, "4"));
+    }
+
     /**
      * @return the HTTP port on which the server proxy OCSP responder is listening, '5577' by default.
      */
@@ -955,7 +1049,7 @@ public final class SystemProperties {
      * @return whether SSL should be used between client and server proxies, 'true' by default.
      */
     public static boolean isSslEnabled() {
-        return "true".equalsIgnoreCase(System.getProperty(PROXY_SSL_SUPPORT, "true"));
+        return snapshot.sslEnabled;
     }
 
     /**
@@ -1103,6 +1197,14 @@ public final class SystemProperties {
         return System.getProperty(CONFIGURATION_PROXY_ADDRESS, DEFAULT_CONNECTOR_HOST);
     }
 
+    /**
+     * @return the number of configuration proxy instances that download and generate
+     * global configuration concurrently, '4' by default.
+     */
+    public static int getConfigurationProxyGenerationThreads() {
+        return Integer.parseInt(System.getProperty(CONFIGURATION_PROXY_GENERATION_THREADS, "4"));
+    }
+
     /**
      * @return the interval in seconds at which proxy monitor agent collects monitoring data, '60' by default.
      */
@@ -1153,6 +1255,14 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(ENV_MONITOR_EXEC_LISTING_SENSOR_INTERVAL, "60"));
     }
 
+    /**
+     * @return whether the exec listing sensor reads its data directly from /proc and the package database
+     * instead of running external commands, 'true' by default.
+     */
+    public static boolean isEnvMonitorExecListingSensorNative() {
+        return Boolean.parseBoolean(System.getProperty(ENV_MONITOR_EXEC_LISTING_SENSOR_NATIVE, "true"));
+    }
+
     /**
      * @return exec listing sensor interval in seconds, 1 day by default.
      */
@@ -1160,6 +1270,14 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(ENV_MONITOR_CERTIFICATE_INFO_SENSOR_INTERVAL, ONE_DAY_AS_SECONDS));
     }
 
+    /**
+     * @return interval in seconds at which the proxy refreshes the metrics served by the monitoring metaservice,
+     * '5' by default.
+     */
+    public static int getEnvMonitorMetricsSnapshotInterval() {
+        return Integer.parseInt(System.getProperty(ENV_MONITOR_METRICS_SNAPSHOT_INTERVAL, "5"));
+    }
+
 
     /**
      * @return path to the file containing network statistics,
@@ -1215,11 +1333,20 @@ public final class SystemProperties {
         return Double.parseDouble(System.getProperty(ANTIDOS_MAX_HEAP_USAGE, "1.1"));
     }
 
+    /**
+     * @return the interval in milliseconds at which Anti-Dos samples the system
+     * resource usage, '100' by default. Connections processed within the interval
+     * are checked against the latest sample.
+     */
+    public static long getAntiDosResourceSampleInterval() {
+        return Long.parseLong(System.getProperty(ANTIDOS_RESOURCE_SAMPLE_INTERVAL, "100"));
+    }
+
     /**
      * @return whether Anti-Dos should be used, 'true' by default.
      */
     public static boolean isAntiDosEnabled() {
-        return "true".equalsIgnoreCase(System.getProperty(ANTIDOS_ENABLED, "true"));
+        return snapshot.antiDosEnabled;
     }
 
     /**
@@ -1284,7 +1411,7 @@ public final class SystemProperties {
      * @return the update interval in seconds at which server conf in cached, '60' by default
      */
     public static int getServerConfCachePeriod() {
-        return Integer.parseInt(System.getProperty(SERVER_CONF_CACHE_PERIOD, "60"));
+        return snapshot.serverConfCachePeriod;
     }
 
     /**
@@ -1330,9 +1457,7 @@ public final class SystemProperties {
      * @return the connection maximum idle time that should be set for client proxy apache HttpClient
      */
     public static int getClientProxyHttpClientTimeout() {
-        return Integer.parseInt(System.getProperty(CLIENTPROXY_HTTPCLIENT_TIMEOUT,
-                DEFAULT_CLIENTPROXY_HTTPCLIENT_TIMEOUT));
-
+        return snapshot.clientProxyHttpClientTimeout;
     }
 
     /**
@@ -1516,6 +1641,55 @@ public final class SystemProperties {
         return Long.getLong(SERVER_CONF_ACL_CACHE_SIZE, 100_000);
     }
 
+    /**
+     * @return maximum total size of rewritten WSDLs kept in memory in bytes, 10485760 by default.
+     * 0 disables the cache.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static long getWsdlCacheSize() {
+        return Long.getLong(WSDL_CACHE_SIZE, 10 * 1024 * 1024);
+    }
+
+    /**
+     * @return number of seconds a cached WSDL is served without revalidating it with the provider, 60 by default.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getWsdlCachePeriod() {
+        return Integer.getInteger(WSDL_CACHE_PERIOD, 60);
+    }
+
+    /**
+     * @return maximum number of listMethods and allowedMethods responses kept in memory, 1000 by default.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getMethodListCacheSize() {
+        return Integer.getInteger(METHOD_LIST_CACHE_SIZE, 1000);
+    }
+
+    /**
+     * @return maximum number of TLS sessions cached for the connections between security servers, separately for
+     * the client proxy and the server proxy ends, 20480 by default.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getXroadTLSSessionCacheSize() {
+        return Integer.getInteger(PROXY_XROAD_TLS_SESSION_CACHE_SIZE, 20480);
+    }
+
+    /**
+     * @return lifetime of the cached TLS sessions between security servers in seconds, 600 by default.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getXroadTLSSessionTimeout() {
+        return Integer.getInteger(PROXY_XROAD_TLS_SESSION_TIMEOUT, 600);
+    }
+
+    /**
+     * @return whether the processing times of the message processing stages are recorded, 'false' by default.
+     */
+    public static boolean isProxyMessageStageStatsEnabled() {
+        return Boolean.parseBoolean(System.getProperty(PROXY_MESSAGE_STAGE_STATS_ENABLED, "false"));
+    }
+
 
     /**
      * @return whether GET request can be used for getWsdl metaservice, 'false' by default.
@@ -1529,4 +1703,32 @@ public final class SystemProperties {
             throw new IllegalArgumentException("Illegal minimum global configuration version in system parameters");
         }
     }
+
+    /**
+     * Parsed values of the properties that are read when processing every message. Taken when the class is
+     * initialized and replaced as a whole on {@link #reload()}.
+     */
+    private static final class Snapshot {
+        private final boolean sslEnabled;
+        private final boolean antiDosEnabled;
+        private final boolean ocspResponseRetrievalActive;
+        private final int clientProxyTimeout;
+        private final int clientProxyHttpClientTimeout;
+        private final int serverProxyPort;
+        private final int serverConfCachePeriod;
+
+        private Snapshot() {
+            sslEnabled = "true".equalsIgnoreCase(System.getProperty(PROXY_SSL_SUPPORT, "true"));
+            antiDosEnabled = "true".equalsIgnoreCase(System.getProperty(ANTIDOS_ENABLED, "true"));
+            ocspResponseRetrievalActive = "true".equalsIgnoreCase(
+                    System.getProperty(OCSP_RESPONSE_RETRIEVAL_ACTIVE, "true"));
+            clientProxyTimeout = Integer.parseInt(System.getProperty(PROXY_CLIENT_TIMEOUT,
+                    DEFAULT_CLIENTPROXY_TIMEOUT));
+            clientProxyHttpClientTimeout = Integer.parseInt(System.getProperty(CLIENTPROXY_HTTPCLIENT_TIMEOUT,
+                    DEFAULT_CLIENTPROXY_HTTPCLIENT_TIMEOUT));
+            serverProxyPort = Integer.parseInt(System.getProperty(PROXY_SERVER_PORT,
+                    Integer.toString(PortNumbers.PROXY_PORT)));
+            serverConfCachePeriod = Integer.parseInt(System.getProperty(SERVER_CONF_CACHE_PERIOD, "60"));
+        }
+    }
 }
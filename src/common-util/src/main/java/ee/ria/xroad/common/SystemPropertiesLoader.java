@@ -297,6 +297,8 @@ public class SystemPropertiesLoader {
             }
         });
 
+        SystemProperties.reload();
+
         log.debug("Loaded properties:\n{}", loadedProperties);
     }
 
@@ -31,7 +31,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
@@ -47,34 +46,6 @@ public interface ConfigurationDirectory {
     // Logger specified here because annotation does not work in interface.
     Logger LOG = LoggerFactory.getLogger(ConfigurationDirectory.class);
 
-    /**
-     * Saves the file to disk along with corresponding expiration date file.
-     *
-     * @param fileName the name of the file to save
-     * @param content the content of the file
-     * @param expirationDate the file expiration date
-     * @throws Exception if an error occurs
-     */
-    static void save(Path fileName, byte[] content, ConfigurationPartMetadata expirationDate) throws Exception {
-        if (fileName == null) {
-            return;
-        }
-
-        Path parent = fileName.getParent();
-
-        if (parent != null) {
-            Files.createDirectories(parent);
-        }
-
-        LOG.info("Saving content to file {}", fileName);
-
-        // Save the content to disk.
-        AtomicSave.execute(fileName.toString(), "conf", content, StandardCopyOption.ATOMIC_MOVE);
-
-        // Save the content metadata date to disk.
-        saveMetadata(fileName, expirationDate);
-    }
-
     /**
      * Saves the expiration date for the given file.
      *
@@ -24,6 +24,8 @@
  */
 package ee.ria.xroad.common.identifier;
 
+import java.util.Objects;
+
 /**
  * Base class for group IDs.
  */
@@ -50,6 +52,17 @@ public abstract class AbstractGroupId extends XRoadId {
         return groupCode;
     }
 
+    @Override
+    protected boolean equalsFields(XRoadId obj) {
+        AbstractGroupId other = (AbstractGroupId) obj;
+        return Objects.equals(groupCode, other.groupCode);
+    }
+
+    @Override
+    protected int hashCodeFields() {
+        return Objects.hashCode(groupCode);
+    }
+
     @Override
     public String[] getFieldsForStringFormat() {
         return new String[] {groupCode};
@@ -26,6 +26,8 @@ package ee.ria.xroad.common.identifier;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import java.util.Objects;
+
 import static ee.ria.xroad.common.identifier.XRoadObjectType.MEMBER;
 import static ee.ria.xroad.common.identifier.XRoadObjectType.SUBSYSTEM;
 
@@ -114,6 +116,19 @@ public final class ClientId extends XRoadId {
                 && getMemberCode().equals(other.getMemberCode());
     }
 
+    @Override
+    protected boolean equalsFields(XRoadId obj) {
+        ClientId other = (ClientId) obj;
+        return Objects.equals(memberClass, other.memberClass)
+                && Objects.equals(memberCode, other.memberCode)
+                && Objects.equals(subsystemCode, other.subsystemCode);
+    }
+
+    @Override
+    protected int hashCodeFields() {
+        return Objects.hash(memberClass, memberCode, subsystemCode);
+    }
+
     @Override
     public String[] getFieldsForStringFormat() {
         return new String[] {memberClass, memberCode, subsystemCode};
@@ -26,6 +26,8 @@ package ee.ria.xroad.common.identifier;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import java.util.Objects;
+
 /**
  * Security category ID.
  */
@@ -52,6 +54,17 @@ public final class SecurityCategoryId extends XRoadId {
         return securityCategory;
     }
 
+    @Override
+    protected boolean equalsFields(XRoadId obj) {
+        SecurityCategoryId other = (SecurityCategoryId) obj;
+        return Objects.equals(securityCategory, other.securityCategory);
+    }
+
+    @Override
+    protected int hashCodeFields() {
+        return Objects.hashCode(securityCategory);
+    }
+
     @Override
     public String[] getFieldsForStringFormat() {
         return new String[] {securityCategory};
@@ -26,6 +26,8 @@ package ee.ria.xroad.common.identifier;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import java.util.Objects;
+
 /**
  * Security server ID.
  */
@@ -81,6 +83,19 @@ public final class SecurityServerId extends XRoadId {
         return ClientId.create(getXRoadInstance(), memberClass, memberCode);
     }
 
+    @Override
+    protected boolean equalsFields(XRoadId obj) {
+        SecurityServerId other = (SecurityServerId) obj;
+        return Objects.equals(memberClass, other.memberClass)
+                && Objects.equals(memberCode, other.memberCode)
+                && Objects.equals(serverCode, other.serverCode);
+    }
+
+    @Override
+    protected int hashCodeFields() {
+        return Objects.hash(memberClass, memberCode, serverCode);
+    }
+
     @Override
     public String[] getFieldsForStringFormat() {
         return new String[] {memberClass, memberCode, serverCode};
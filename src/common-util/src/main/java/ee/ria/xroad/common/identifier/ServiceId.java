@@ -28,6 +28,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import java.util.Objects;
+
 /**
  * Service ID.
  */
@@ -113,6 +115,21 @@ public class ServiceId extends XRoadId {
                 memberClass, memberCode, subsystemCode);
     }
 
+    @Override
+    protected boolean equalsFields(XRoadId obj) {
+        ServiceId other = (ServiceId) obj;
+        return Objects.equals(memberClass, other.memberClass)
+                && Objects.equals(memberCode, other.memberCode)
+                && Objects.equals(serviceVersion, other.serviceVersion)
+                && Objects.equals(subsystemCode, other.subsystemCode)
+                && Objects.equals(serviceCode, other.serviceCode);
+    }
+
+    @Override
+    protected int hashCodeFields() {
+        return Objects.hash(memberClass, memberCode, serviceVersion, subsystemCode, serviceCode);
+    }
+
     @Override
     public String[] getFieldsForStringFormat() {
         return new String[] {
@@ -25,13 +25,12 @@
 package ee.ria.xroad.common.identifier;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import org.apache.commons.lang.builder.EqualsBuilder;
-import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 
 /**
@@ -45,6 +44,8 @@ public abstract class XRoadId implements Serializable {
 
     private Long id; // used for references in database
 
+    private transient int hash; // cached hash code, identifiers are immutable
+
     XRoadId() {
         this(null, null);
     }
@@ -75,18 +76,49 @@ public abstract class XRoadId implements Serializable {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
         // exclude 'id' field, because it is not part of identifier
         // and all identifiers are unique
-        return EqualsBuilder.reflectionEquals(this, obj, new String[] {"id"});
+        XRoadId other = (XRoadId) obj;
+        return hashCode() == other.hashCode()
+                && type == other.type
+                && Objects.equals(xRoadInstance, other.xRoadInstance)
+                && equalsFields(other);
     }
 
     @Override
     public int hashCode() {
-        // exclude 'id' field, because it is not part of identifier
-        // and all identifiers are unique
-        return HashCodeBuilder.reflectionHashCode(this, new String[] {"id"});
+        int h = hash;
+        if (h == 0) {
+            // exclude 'id' field, because it is not part of identifier
+            // and all identifiers are unique
+            h = Objects.hash(type, xRoadInstance, hashCodeFields());
+            hash = h;
+        }
+
+        return h;
     }
 
+    /**
+     * Compares the fields declared by the identifier subclass.
+     * @param other identifier of the same class as this one
+     * @return true if the subclass fields are equal
+     */
+    protected abstract boolean equalsFields(XRoadId other);
+
+    /**
+     * Returns the hash code of the fields declared by the identifier subclass.
+     * @return int
+     */
+    protected abstract int hashCodeFields();
+
     @Override
     public String toString() {
         return type + ":" + toShortString();
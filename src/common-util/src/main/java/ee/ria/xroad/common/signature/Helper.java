@@ -26,6 +26,7 @@ package ee.ria.xroad.common.signature;
 
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.util.CompiledXPath;
 import ee.ria.xroad.common.util.XmlUtils;
 
 import org.apache.xml.security.algorithms.MessageDigestAlgorithm;
@@ -38,13 +39,14 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import javax.xml.namespace.NamespaceContext;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.util.CryptoUtils.DEFAULT_DIGEST_ALGORITHM_URI;
 import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
@@ -139,6 +141,15 @@ final class Helper {
     static final String COMPLETE_REVOCATION_REFS_ID = "complete-revocation-refs";
     static final String COMPLETE_CERTIFICATE_REFS_ID = "complete-certificate-refs";
 
+    // the fixed paths below are evaluated on every signature verification, so they are compiled only once
+    private static final CompiledXPath OCSP_REFS_XPATH = xadesXPath(QUALIFYING_PROPS_TAG, UNSIGNED_PROPS_TAG,
+            UNSIGNED_SIGNATURE_PROPS_TAG, COMPLETE_REVOCATION_REFS_TAG, OCSP_REFS_TAG, OCSP_REF_TAG);
+    private static final CompiledXPath ENCAPSULATED_OCSP_VALUES_XPATH = xadesXPath(QUALIFYING_PROPS_TAG,
+            UNSIGNED_PROPS_TAG, UNSIGNED_SIGNATURE_PROPS_TAG, REVOCATION_VALUES_TAG, OCSP_VALUES_TAG,
+            ENCAPSULATED_OCSP_VALUE_TAG);
+    private static final CompiledXPath CERTIFICATE_REFS_XPATH = xadesXPath(QUALIFYING_PROPS_TAG, UNSIGNED_PROPS_TAG,
+            UNSIGNED_SIGNATURE_PROPS_TAG, COMPLETE_CERTIFICATE_REFS_TAG, CERT_REFS_TAG, CERT_TAG);
+
     private Helper() {
     }
 
@@ -151,10 +162,7 @@ final class Helper {
     }
 
     static Document createDocument() throws Exception {
-        DocumentBuilderFactory documentBuilderFactory = XmlUtils.createDocumentBuilderFactory();
-        documentBuilderFactory.setNamespaceAware(true);
-
-        Document document = documentBuilderFactory.newDocumentBuilder().newDocument();
+        Document document = XmlUtils.newDocument();
 
         // create the root element for XAdES signatures.
         Element root = document.createElementNS(NS_ASIC, ASIC_TAG);
@@ -237,21 +245,7 @@ final class Helper {
         // ------- xades:OCSPRefs
         // -------- xades:OCSPRef
 
-        StringBuilder xpath = new StringBuilder();
-        xpath.append(PREFIX_XADES);
-        xpath.append(QUALIFYING_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(UNSIGNED_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(UNSIGNED_SIGNATURE_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(COMPLETE_REVOCATION_REFS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(OCSP_REFS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(OCSP_REF_TAG);
-
-        return XmlUtils.getElementsXPathNS(objectContainer, xpath.toString(), getNamespaceCtx());
+        return XmlUtils.getElementsXPathNS(objectContainer, OCSP_REFS_XPATH);
     }
 
     /**
@@ -269,21 +263,7 @@ final class Helper {
         // ------- xades:OCSPValues
         // -------- xades:EncapsulatedOCSPValue
 
-        StringBuilder xpath = new StringBuilder();
-        xpath.append(PREFIX_XADES);
-        xpath.append(QUALIFYING_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(UNSIGNED_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(UNSIGNED_SIGNATURE_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(REVOCATION_VALUES_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(OCSP_VALUES_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(ENCAPSULATED_OCSP_VALUE_TAG);
-
-        return XmlUtils.getElementsXPathNS(objectContainer, xpath.toString(), getNamespaceCtx());
+        return XmlUtils.getElementsXPathNS(objectContainer, ENCAPSULATED_OCSP_VALUES_XPATH);
     }
 
     /**
@@ -301,21 +281,7 @@ final class Helper {
         // ------- xades:CertRefs
         // -------- xades:Cert
 
-        StringBuilder xpath = new StringBuilder();
-        xpath.append(PREFIX_XADES);
-        xpath.append(QUALIFYING_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(UNSIGNED_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(UNSIGNED_SIGNATURE_PROPS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(COMPLETE_CERTIFICATE_REFS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(CERT_REFS_TAG).append("/");
-        xpath.append(PREFIX_XADES);
-        xpath.append(CERT_TAG);
-
-        return XmlUtils.getElementsXPathNS(objectContainer, xpath.toString(), getNamespaceCtx());
+        return XmlUtils.getElementsXPathNS(objectContainer, CERTIFICATE_REFS_XPATH);
     }
 
     /***
@@ -347,6 +313,11 @@ final class Helper {
         return new CodedException(ErrorCodes.X_MALFORMED_SIGNATURE, "Could not find element \"%s\"", elementTag);
     }
 
+    private static CompiledXPath xadesXPath(String... tags) {
+        return new CompiledXPath(Arrays.stream(tags).map(tag -> PREFIX_XADES + tag).collect(Collectors.joining("/")),
+                getNamespaceCtx());
+    }
+
     private static NamespaceContext getNamespaceCtx() {
         return new NamespaceContext() {
             @Override
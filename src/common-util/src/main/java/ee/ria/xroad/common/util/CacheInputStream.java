@@ -24,19 +24,26 @@
  */
 package ee.ria.xroad.common.util;
 
+import org.apache.commons.io.IOUtils;
+
 import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Cache contents as an input stream
  */
 public final class CacheInputStream extends FilterInputStream {
+    private final SeekableByteChannel channel;
     private final long size;
 
     CacheInputStream(SeekableByteChannel ch) throws IOException {
         super(Channels.newInputStream(ch.position(0)));
+        channel = ch;
         size = ch.size();
     }
 
@@ -44,6 +51,33 @@ public final class CacheInputStream extends FilterInputStream {
         return size;
     }
 
+    /**
+     * Copies the remaining cached contents to the given output stream. When the cache is file based,
+     * the contents are transferred by the file channel instead of through an intermediate heap buffer.
+     * The output stream is not closed.
+     *
+     * @param out the output stream
+     * @return number of bytes copied
+     * @throws IOException if I/O errors occurred
+     */
+    public long copyTo(OutputStream out) throws IOException {
+        if (!(channel instanceof FileChannel)) {
+            return IOUtils.copyLarge(this, out);
+        }
+
+        final FileChannel fileChannel = (FileChannel) channel;
+        final WritableByteChannel target = Channels.newChannel(out);
+        final long start = fileChannel.position();
+
+        long position = start;
+        while (position < size) {
+            position += fileChannel.transferTo(position, size - position, target);
+        }
+        fileChannel.position(position);
+
+        return position - start;
+    }
+
     @Override
     public void close() {
         //NOP
@@ -100,6 +100,13 @@ public final class CertHashBasedOcspResponderClient {
             log.error("Invalid HTTP response ({}) from responder: {}", connection.getResponseCode(),
                     connection.getResponseMessage());
 
+            // read the error body, so that the connection can be kept alive and reused
+            try (InputStream es = connection.getErrorStream()) {
+                if (es != null) {
+                    IOUtils.skip(es, Long.MAX_VALUE);
+                }
+            }
+
             throw new IOException(connection.getResponseMessage());
         }
 
@@ -124,6 +131,8 @@ public final class CertHashBasedOcspResponderClient {
 
         try (InputStream is = connection.getInputStream()) {
             parser.parse(is);
+            // read to the end, so that the connection can be kept alive and reused
+            IOUtils.skip(is, Long.MAX_VALUE);
         } catch (MimeException e) {
             throw new OCSPException("Error parsing response", e);
         }
@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import org.w3c.dom.Node;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathVariableResolver;
+
+/**
+ * XPath expression that is compiled once per thread and reused for every evaluation.
+ * Compiled expressions are not thread-safe, so each thread gets its own copy on first use.
+ * The expression can refer to variables, whose values are given at evaluation time.
+ */
+public final class CompiledXPath {
+
+    private final String expression;
+    private final NamespaceContext nsCtx;
+
+    private final ThreadLocal<Object[]> variables = new ThreadLocal<>();
+    private final ThreadLocal<XPathExpression> compiled = ThreadLocal.withInitial(this::compile);
+
+    /**
+     * Creates a compiled XPath expression.
+     * @param expression the xpath expression
+     * @param nsCtx the namespace context (can be null)
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public CompiledXPath(String expression, NamespaceContext nsCtx) {
+        this.expression = expression;
+        this.nsCtx = nsCtx;
+
+        // fail early on invalid expressions
+        compiled.get();
+    }
+
+    /**
+     * @return the xpath expression
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Evaluates the expression.
+     * @param item the context item
+     * @param returnType the expected return type, see {@link javax.xml.xpath.XPathConstants}
+     * @param variableValues alternating variable names and values referred to in the expression
+     * @return result of the evaluation
+     * @throws XPathExpressionException if the evaluation fails
+     */
+    public Object evaluate(Node item, QName returnType, Object... variableValues) throws XPathExpressionException {
+        variables.set(variableValues);
+        try {
+            return compiled.get().evaluate(item, returnType);
+        } finally {
+            variables.remove();
+        }
+    }
+
+    private XPathExpression compile() {
+        XPath xpath = XmlUtils.newXPath();
+
+        if (nsCtx != null) {
+            xpath.setNamespaceContext(nsCtx);
+        }
+
+        xpath.setXPathVariableResolver(variableResolver());
+
+        try {
+            return xpath.compile(expression);
+        } catch (XPathExpressionException e) {
+            throw new IllegalArgumentException("Invalid xpath expression " + expression, e);
+        }
+    }
+
+    private XPathVariableResolver variableResolver() {
+        return name -> {
+            Object[] values = variables.get();
+
+            if (values != null) {
+                for (int i = 0; i + 1 < values.length; i += 2) {
+                    if (name.getLocalPart().equals(values[i])) {
+                        return values[i + 1];
+                    }
+                }
+            }
+
+            return null;
+        };
+    }
+}
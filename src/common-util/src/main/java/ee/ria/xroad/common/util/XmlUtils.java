@@ -37,6 +37,7 @@ import org.xml.sax.helpers.XMLReaderFactory;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
@@ -72,6 +73,17 @@ public final class XmlUtils {
     private static final String ELEMENT_NOT_FOUND_WARNING = "Element not found with getElementXPathNS {}";
     private static final int DEFAULT_INDENT = 4;
 
+    // Factory lookups are expensive and neither the factories nor the builders are thread-safe,
+    // so each thread keeps its own instances. Builders are reset before every use.
+    private static final ThreadLocal<DocumentBuilder> NS_AWARE_DOCUMENT_BUILDER =
+            ThreadLocal.withInitial(() -> createDocumentBuilder(true));
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER =
+            ThreadLocal.withInitial(() -> createDocumentBuilder(false));
+    private static final ThreadLocal<XPathFactory> XPATH_FACTORY = ThreadLocal.withInitial(XPathFactory::newInstance);
+
+    private static final String ID_VARIABLE = "id";
+    private static final CompiledXPath ELEMENT_BY_ID = new CompiledXPath("//*[@Id = $" + ID_VARIABLE + "]", null);
+
     private XmlUtils() {
     }
 
@@ -103,14 +115,18 @@ public final class XmlUtils {
      * @throws Exception if an error occurs
      */
     public static Document parseDocument(InputStream documentXml, boolean namespaceAware) throws Exception {
-        DocumentBuilderFactory dbf = createDocumentBuilderFactory();
-
-        dbf.setNamespaceAware(namespaceAware);
-        dbf.setIgnoringComments(true);
+        DocumentBuilder builder = namespaceAware ? NS_AWARE_DOCUMENT_BUILDER.get() : DOCUMENT_BUILDER.get();
+        builder.reset();
 
-        dbf.setValidating(false);
+        return builder.parse(documentXml);
+    }
 
-        return dbf.newDocumentBuilder().parse(documentXml);
+    /**
+     * Creates a new empty namespace aware document.
+     * @return the created document
+     */
+    public static Document newDocument() {
+        return NS_AWARE_DOCUMENT_BUILDER.get().newDocument();
     }
 
     /**
@@ -151,8 +167,7 @@ public final class XmlUtils {
      */
     public static Element getElementXPathNS(Element parent, String xpathExpr, NamespaceContext nsCtx) {
         try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xpath = factory.newXPath();
+            XPath xpath = newXPath();
 
             if (nsCtx != null) {
                 xpath.setNamespaceContext(nsCtx);
@@ -175,8 +190,7 @@ public final class XmlUtils {
      */
     public static NodeList getElementsXPathNS(Element parent, String xpathExpr, NamespaceContext nsCtx) {
         try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xpath = factory.newXPath();
+            XPath xpath = newXPath();
 
             if (nsCtx != null) {
                 xpath.setNamespaceContext(nsCtx);
@@ -190,6 +204,22 @@ public final class XmlUtils {
         }
     }
 
+    /**
+     * Returns a list of elements matching the given precompiled xpath expression.
+     * @param parent the parent element from which to search
+     * @param xpath the compiled xpath expression
+     * @return the elements or null if the xpath expression cannot be evaluated
+     */
+    public static NodeList getElementsXPathNS(Element parent, CompiledXPath xpath) {
+        try {
+            return (NodeList) xpath.evaluate(parent, XPathConstants.NODESET);
+        } catch (XPathExpressionException e) {
+            log.warn(ELEMENT_NOT_FOUND_WARNING, e);
+
+            return null;
+        }
+    }
+
     /**
      * Returns the element that has an ID attribute matching the input.
      * The search is performed using XPath evaluation.
@@ -203,10 +233,7 @@ public final class XmlUtils {
         }
 
         try {
-            XPathFactory factory = XPathFactory.newInstance();
-            XPath xpath = factory.newXPath();
-
-            return (Element) xpath.evaluate("//*[@Id = '" + id + "']", doc, XPathConstants.NODE);
+            return (Element) ELEMENT_BY_ID.evaluate(doc, XPathConstants.NODE, ID_VARIABLE, id);
         } catch (XPathExpressionException e) {
             log.warn(ELEMENT_NOT_FOUND_WARNING, e);
 
@@ -298,6 +325,29 @@ public final class XmlUtils {
         return dbf;
     }
 
+    /**
+     * Returns a new XPath object created by the XPath factory of the current thread.
+     * @return XPath
+     */
+    static XPath newXPath() {
+        return XPATH_FACTORY.get().newXPath();
+    }
+
+    private static DocumentBuilder createDocumentBuilder(boolean namespaceAware) {
+        DocumentBuilderFactory dbf = createDocumentBuilderFactory();
+
+        dbf.setNamespaceAware(namespaceAware);
+        dbf.setIgnoringComments(true);
+
+        dbf.setValidating(false);
+
+        try {
+            return dbf.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Unable to create document builder", e);
+        }
+    }
+
     /**
      * Creates XMLReader and sets the features of the reader
      * @return
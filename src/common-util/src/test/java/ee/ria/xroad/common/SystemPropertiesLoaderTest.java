@@ -46,6 +46,7 @@ import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -123,6 +124,26 @@ public class SystemPropertiesLoaderTest {
         assertEquals("baz=xyz", p.get("jvm.arg-1"));
     }
 
+    /**
+     * Test to ensure the properties parsed only once are updated when properties are loaded.
+     */
+    @Test
+    public void loadPropertiesReloadsParsedProperties() {
+        try {
+            SystemPropertiesLoader.create().withoutOverrides()
+                    .with("src/test/resources/system-properties-proxy.ini", "proxy").load();
+
+            assertFalse(SystemProperties.isSslEnabled());
+            assertEquals(5599, SystemProperties.getServerProxyPort());
+        } finally {
+            System.clearProperty(SystemProperties.PROXY_SSL_SUPPORT);
+            System.clearProperty(SystemProperties.PROXY_SERVER_PORT);
+            SystemProperties.reload();
+        }
+
+        assertTrue(SystemProperties.isSslEnabled());
+    }
+
     @Test
     public void listFilePathsBasedOnGlob() throws IOException {
         String testGlob = "*.ini";
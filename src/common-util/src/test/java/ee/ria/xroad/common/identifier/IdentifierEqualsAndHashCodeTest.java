@@ -257,6 +257,19 @@ public class IdentifierEqualsAndHashCodeTest {
         assertNotEquals(first.hashCode(), second.hashCode());
     }
 
+    /**
+     * Test case with identifiers of different types.
+     */
+    @Test
+    public void shouldNotEqualOtherIdentifierTypes() {
+        XRoadId first = provider.provideVariant1();
+        XRoadId second = first instanceof CentralServiceId
+                ? ServiceId.create("EE", "BUSINESS", "member", null, "a")
+                : CentralServiceId.create(first.getXRoadInstance(), "a");
+        assertFalse(first.equals(second));
+        assertFalse(second.equals(first));
+    }
+
     /**
      * Test case to ensure equality after serialization.
      * @throws Exception in case of any unexpected errors
@@ -264,6 +277,7 @@ public class IdentifierEqualsAndHashCodeTest {
     @Test
     public void shouldSerializeAndDeserialize() throws Exception {
         XRoadId inputId = provider.provideVariant1();
+        int inputHashCode = inputId.hashCode();
 
         PipedInputStream pin = new PipedInputStream();
         PipedOutputStream pos = new PipedOutputStream(pin);
@@ -276,5 +290,6 @@ public class IdentifierEqualsAndHashCodeTest {
         Object outputId = oin.readObject();
         assertNotNull(outputId);
         assertEquals(inputId, outputId);
+        assertEquals(inputHashCode, outputId.hashCode());
     }
 }
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link CachingStream} and {@link CacheInputStream}
+ */
+public class CachingStreamTest {
+
+    private static final int BODY_SIZE = 3 * 1024 * 1024 + 17;
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private String originalTempFilesPath;
+
+    @Before
+    public void setUp() {
+        originalTempFilesPath = System.getProperty(SystemProperties.TEMP_FILES_PATH);
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempDir.getRoot().getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        if (originalTempFilesPath == null) {
+            System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+        } else {
+            System.setProperty(SystemProperties.TEMP_FILES_PATH, originalTempFilesPath);
+        }
+    }
+
+    @Test
+    public void shouldCopyCachedContents() throws Exception {
+        final byte[] body = new byte[BODY_SIZE];
+        new Random(1).nextBytes(body);
+
+        final CachingStream cache = new CachingStream();
+        try {
+            cache.write(body);
+            cache.close();
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final CacheInputStream in = cache.getCachedContents();
+            assertEquals(BODY_SIZE, in.size());
+            assertEquals(BODY_SIZE, in.copyTo(out));
+            assertArrayEquals(body, out.toByteArray());
+            assertEquals(-1, in.read());
+        } finally {
+            cache.consume();
+        }
+    }
+
+    @Test
+    public void shouldCopyRemainingContents() throws Exception {
+        final CachingStream cache = new CachingStream();
+        try {
+            cache.write(new byte[] {1, 2, 3, 4, 5});
+            cache.close();
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final CacheInputStream in = cache.getCachedContents();
+            assertEquals(1, in.read());
+            assertEquals(4, in.copyTo(out));
+            assertArrayEquals(new byte[] {2, 3, 4, 5}, out.toByteArray());
+        } finally {
+            cache.consume();
+        }
+    }
+}
@@ -45,7 +45,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * Unit tests for {@link XmlUtils}
@@ -104,6 +106,36 @@ public class XmlUtilsTest {
         reader.parse(new InputSource(getXXEFileInjectionDocument()));
     }
 
+    @Test
+    public void parseDocumentShouldRejectDoctypeAndReuseParser() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                XmlUtils.parseDocument(getXXEFileInjectionDocument());
+                Assert.fail("Document with DOCTYPE declaration should not be parsed");
+            } catch (SAXParseException e) {
+                // Parsing was secure
+            }
+
+            Document document = XmlUtils.parseDocument("<a:test xmlns:a=\"urn:test\"><!-- c --></a:test>");
+            assertEquals("urn:test", document.getDocumentElement().getNamespaceURI());
+            assertEquals(0, document.getDocumentElement().getChildNodes().getLength());
+
+            document = XmlUtils.parseDocument(new ByteArrayInputStream("<a:test xmlns:a=\"urn:test\"/>".getBytes()),
+                    false);
+            assertNull(document.getDocumentElement().getNamespaceURI());
+        }
+    }
+
+    @Test
+    public void getElementById() throws Exception {
+        Document document = XmlUtils.parseDocument("<root><a Id=\"first\"/><b><c Id=\"it's\"/></b></root>");
+
+        assertEquals("a", XmlUtils.getElementById(document, "first").getTagName());
+        assertEquals("a", XmlUtils.getElementById(document, "#first").getTagName());
+        assertEquals("c", XmlUtils.getElementById(document, "it's").getTagName());
+        assertNull(XmlUtils.getElementById(document, "missing"));
+    }
+
     private InputStream getXXEFileInjectionDocument() {
         return new ByteArrayInputStream(String.format("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"
                         + "<!DOCTYPE test ["
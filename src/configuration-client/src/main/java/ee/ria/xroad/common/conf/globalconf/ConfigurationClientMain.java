@@ -46,6 +46,7 @@ import org.quartz.JobListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalTime;
 import java.util.concurrent.CountDownLatch;
@@ -171,7 +172,13 @@ public final class ConfigurationClientMain {
             }
 
             @Override
-            void persistContent(byte[] content, Path destination, ConfigurationFile file) throws Exception {
+            Path createTempFile(Path destination) throws Exception {
+                // downloaded content is discarded, so keep it out of the configuration directory
+                return Files.createTempFile("conf", null);
+            }
+
+            @Override
+            void persistContent(Path content, Path destination, ConfigurationFile file) throws Exception {
                 // empty cause we don't want to persist files to disk
             }
 
@@ -396,7 +403,7 @@ public final class ConfigurationClientMain {
             this.exitCodeWhenInvalid = exitCodeWhenInvalid;
         }
 
-        void tryMarkValid(String contentId) {
+        synchronized void tryMarkValid(String contentId) {
             log.trace("tryMarkValid({})", contentId);
 
             if (valid.get()) {
@@ -423,7 +430,7 @@ public final class ConfigurationClientMain {
         }
 
         @Override
-        void tryMarkValid(String contentId) {
+        synchronized void tryMarkValid(String contentId) {
             if (StringUtils.equals(contentId, CONTENT_ID_PRIVATE_PARAMETERS)) {
                 privateParametersIncluded.set(true);
             }
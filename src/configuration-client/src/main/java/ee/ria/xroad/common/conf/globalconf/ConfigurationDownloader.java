@@ -25,21 +25,30 @@
 package ee.ria.xroad.common.conf.globalconf;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.DefaultFilepaths;
+import ee.ria.xroad.common.SystemProperties;
 
 import lombok.Getter;
 import lombok.SneakyThrows;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.bouncycastle.operator.DigestCalculator;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -49,6 +58,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static ee.ria.xroad.common.ErrorCodes.X_IO_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_MALFORMED_GLOBALCONF;
@@ -56,6 +70,8 @@ import static ee.ria.xroad.common.util.CryptoUtils.createDigestCalculator;
 import static ee.ria.xroad.common.util.CryptoUtils.decodeBase64;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
 import static ee.ria.xroad.common.util.CryptoUtils.getAlgorithmId;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
  * Downloads configuration directory from a configuration location defined
@@ -67,12 +83,20 @@ import static ee.ria.xroad.common.util.CryptoUtils.getAlgorithmId;
  * then traversed to find the first location where configuration * can be
  * downloaded. The successful location is remembered and used first next time
  * the configuration is downloaded.
+ *
+ * Content parts of a configuration directory are downloaded in parallel. Each
+ * part is streamed to a temporary file next to its destination while its hash
+ * is calculated, and the file is moved in place once the hash is verified.
+ * Hashes of the local files are cached, so unchanged files are not read again
+ * when checking whether a content part is up to date.
  */
 @Slf4j
 class ConfigurationDownloader {
 
     public static final int READ_TIMEOUT = 30000;
 
+    private static final int COPY_BUFFER_SIZE = 65536;
+
     protected final FileNameProvider fileNameProvider;
     protected final String[] instanceIdentifiers;
     private final int version;
@@ -82,7 +106,10 @@ class ConfigurationDownloader {
 
     @Getter
     protected final Map<String, Set<ConfigurationSource>> additionalSources =
-            new HashMap<>();
+            new ConcurrentHashMap<>();
+
+    private final Map<Path, LocalFileHash> localFileHashes =
+            new ConcurrentHashMap<>();
 
     ConfigurationDownloader(FileNameProvider fileNameProvider, int version,
             String... instanceIdentifiers) {
@@ -166,11 +193,59 @@ class ConfigurationDownloader {
         Configuration configuration =
                 getParser().parse(location, contentIdentifiers);
 
-        configuration.eachFile(this::handle);
+        handleFiles(configuration);
 
         return configuration;
     }
 
+    private void handleFiles(Configuration configuration) throws Exception {
+        int threads = SystemProperties.getConfigurationClientDownloadThreads();
+
+        if (threads <= 1 || configuration.getFiles().size() <= 1) {
+            configuration.eachFile(this::handle);
+
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(threads, configuration.getFiles().size()));
+
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+
+            configuration.eachFile((location, file) ->
+                    tasks.add(executor.submit(() -> handle(location, file))));
+
+            awaitAll(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Waits for all the tasks, so that no content part is still being
+    // written when the next location is tried, and rethrows the first failure.
+    private static void awaitAll(List<Future<?>> tasks) throws Exception {
+        Throwable failure = null;
+
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        if (failure != null) {
+            throw (Exception) failure;
+        }
+    }
+
     @SneakyThrows
     void handle(ConfigurationLocation location, ConfigurationFile file) {
         log.trace("handle({})", file);
@@ -180,12 +255,18 @@ class ConfigurationDownloader {
 
         Path contentFileName = getFileName(file);
         if (shouldDownload(file, contentFileName)) {
-            byte[] content = downloadContent(location, file);
+            Path tempFile = createTempFile(contentFileName);
 
-            verifyContent(content, file);
-            handleContent(content, file);
+            try {
+                byte[] hash = downloadContent(location, file, tempFile);
+
+                verifyContent(hash, file);
+                handleContent(tempFile, file);
 
-            persistContent(content, contentFileName, file);
+                persistContent(tempFile, contentFileName, file);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
         } else {
             log.trace("{} is up to date", file.getContentLocation());
 
@@ -201,8 +282,8 @@ class ConfigurationDownloader {
 
         if (Files.exists(file)) {
             String contentHash = configurationFile.getHash();
-            String existingHash = encodeBase64(hash(file,
-                    configurationFile.getHashAlgorithmId()));
+            String existingHash = getLocalHash(file,
+                    configurationFile.getHashAlgorithmId());
             if (!StringUtils.equals(existingHash, contentHash)) {
                 log.trace("Downloading {} because file has changed ({} != {})",
                         new Object[] {configurationFile.getContentLocation(),
@@ -218,24 +299,71 @@ class ConfigurationDownloader {
         return true;
     }
 
+    /**
+     * Returns the base64 encoded hash of the local file. The hash is
+     * calculated only if the file has been modified since it was last hashed
+     * or saved by this downloader.
+     */
+    String getLocalHash(Path file, String algoId) throws Exception {
+        BasicFileAttributes attributes =
+                Files.readAttributes(file, BasicFileAttributes.class);
+
+        LocalFileHash cached = localFileHashes.get(file);
+
+        if (cached != null && cached.matches(attributes, algoId)) {
+            return cached.getHash();
+        }
+
+        String hash = encodeBase64(hash(file, algoId));
+
+        localFileHashes.put(file, LocalFileHash.of(attributes, algoId, hash));
+
+        return hash;
+    }
+
+    Path createTempFile(Path destination) throws Exception {
+        Path parent = destination.toAbsolutePath().getParent();
+
+        Files.createDirectories(parent);
+
+        return DefaultFilepaths.createTempFile(parent, "conf", null);
+    }
+
+    /**
+     * Streams the content to the given file and returns the hash of the
+     * content calculated while writing it.
+     */
     byte[] downloadContent(ConfigurationLocation location,
+            ConfigurationFile file, Path target) throws Exception {
+        DigestCalculator dc = createDigestCalculator(
+                getAlgorithmId(file.getHashAlgorithmId()));
+
+        try (InputStream in = getContent(location, file);
+                FileChannel channel = FileChannel.open(target, WRITE,
+                        TRUNCATE_EXISTING)) {
+            OutputStream out = new TeeOutputStream(
+                    Channels.newOutputStream(channel), dc.getOutputStream());
+
+            IOUtils.copy(in, out, COPY_BUFFER_SIZE);
+
+            channel.force(true);
+        }
+
+        return dc.getDigest();
+    }
+
+    InputStream getContent(ConfigurationLocation location,
             ConfigurationFile file) throws Exception {
         URLConnection connection = getDownloadURLConnection(getDownloadURL(location, file));
         log.info("Downloading content from {}", connection.getURL());
-        try (InputStream in = connection.getInputStream()) {
-            return IOUtils.toByteArray(in);
-        }
-    }
 
-    void verifyContent(byte[] content, ConfigurationFile file)
-            throws Exception {
-        String algoId = getAlgorithmId(file.getHashAlgorithmId());
-        log.trace("verifyContent({}, {})", file.getHash(), algoId);
+        return connection.getInputStream();
+    }
 
-        DigestCalculator dc = createDigestCalculator(algoId);
-        dc.getOutputStream().write(content);
+    void verifyContent(byte[] hash, ConfigurationFile file) {
+        log.trace("verifyContent({}, {})", file.getHash(),
+                file.getHashAlgorithmId());
 
-        byte[] hash = dc.getDigest();
         if (!Arrays.equals(hash, decodeBase64(file.getHash()))) {
             log.trace("Content {} hash {} does not match expected hash {}",
                     new Object[] {
@@ -245,17 +373,17 @@ class ConfigurationDownloader {
         }
     }
 
-    void handleContent(byte[] content, ConfigurationFile file)
+    void handleContent(Path content, ConfigurationFile file)
             throws Exception {
         switch (file.getContentIdentifier()) {
             case ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS:
                 PrivateParametersV2 privateParameters = new PrivateParametersV2();
-                privateParameters.load(content);
+                privateParameters.load(Files.readAllBytes(content));
                 handlePrivateParameters(privateParameters, file);
                 break;
             case ConfigurationConstants.CONTENT_ID_SHARED_PARAMETERS:
                 SharedParametersV2 sharedParameters = new SharedParametersV2();
-                sharedParameters.load(content);
+                sharedParameters.load(Files.readAllBytes(content));
                 handleSharedParameters(sharedParameters, file);
                 break;
             default: // do nothing
@@ -294,11 +422,17 @@ class ConfigurationDownloader {
                 file);
     }
 
-    void persistContent(byte[] content, Path destination,
+    void persistContent(Path content, Path destination,
             ConfigurationFile file) throws Exception {
         log.info("Saving {} to {}", file, destination);
 
-        ConfigurationDirectory.save(destination, content, file.getMetadata());
+        Files.move(content, destination, StandardCopyOption.ATOMIC_MOVE);
+
+        localFileHashes.put(destination, LocalFileHash.of(
+                Files.readAttributes(destination, BasicFileAttributes.class),
+                file.getHashAlgorithmId(), file.getHash()));
+
+        ConfigurationDirectory.saveMetadata(destination, file.getMetadata());
     }
 
     void updateExpirationDate(Path destination, ConfigurationFile file)
@@ -334,9 +468,7 @@ class ConfigurationDownloader {
         return connection;
     }
 
-    // ------------------------------------------------------------------------
-
-    static byte[] hash(Path file, String algoId) throws Exception {
+    byte[] hash(Path file, String algoId) throws Exception {
         DigestCalculator dc = createDigestCalculator(getAlgorithmId(algoId));
 
         try (InputStream in = Files.newInputStream(file)) {
@@ -344,4 +476,20 @@ class ConfigurationDownloader {
             return dc.getDigest();
         }
     }
+
+    // ------------------------------------------------------------------------
+
+    @Value(staticConstructor = "of")
+    private static class LocalFileHash {
+        private final BasicFileAttributes attributes;
+        private final String algoId;
+        private final String hash;
+
+        boolean matches(BasicFileAttributes current, String currentAlgoId) {
+            return current.size() == attributes.size()
+                    && current.lastModifiedTime().equals(attributes.lastModifiedTime())
+                    && Objects.equals(current.fileKey(), attributes.fileKey())
+                    && StringUtils.equals(currentAlgoId, algoId);
+        }
+    }
 }
@@ -29,7 +29,6 @@ import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.TestCertUtil;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 import java.io.FileInputStream;
@@ -187,8 +186,15 @@ public class ConfigurationClientTest {
             }
 
             @Override
-            void persistContent(byte[] content, Path destination, ConfigurationFile file) throws Exception {
-                receivedParts.add(file.getContentIdentifier());
+            Path createTempFile(Path destination) throws Exception {
+                return Files.createTempFile("conf", null);
+            }
+
+            @Override
+            void persistContent(Path content, Path destination, ConfigurationFile file) throws Exception {
+                synchronized (receivedParts) {
+                    receivedParts.add(file.getContentIdentifier());
+                }
             }
 
             @Override
@@ -196,11 +202,9 @@ public class ConfigurationClientTest {
             }
 
             @Override
-            byte[] downloadContent(ConfigurationLocation location, ConfigurationFile file) throws Exception {
-                try (InputStream in = Files.newInputStream(
-                        Paths.get(confPath, file.getInstanceIdentifier(), file.getContentLocation()))) {
-                    return IOUtils.toByteArray(in);
-                }
+            InputStream getContent(ConfigurationLocation location, ConfigurationFile file) throws Exception {
+                return Files.newInputStream(
+                        Paths.get(confPath, file.getInstanceIdentifier(), file.getContentLocation()));
             }
         };
 
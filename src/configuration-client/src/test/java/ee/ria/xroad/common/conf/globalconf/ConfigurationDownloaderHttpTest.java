@@ -0,0 +1,379 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ee.ria.xroad.common.util.CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.DEFAULT_DIGEST_ALGORITHM_URI;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
+import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_IDENTIFIER;
+import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_LOCATION;
+import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_TRANSFER_ENCODING;
+import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_TYPE;
+import static ee.ria.xroad.common.util.MimeUtils.HEADER_HASH_ALGORITHM_ID;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests downloading a generated multi-megabyte configuration from an embedded
+ * HTTP server.
+ */
+public class ConfigurationDownloaderHttpTest {
+
+    private static final String INSTANCE = "EE";
+    private static final List<String> PARTS = Arrays.asList("FOO", "BAR", "BAZ");
+    private static final int PART_SIZE = 4 * 1024 * 1024;
+    private static final int LATCH_TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(1);
+
+    private final Map<String, byte[]> servedContent = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> publishedContent = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final Map<Path, AtomicInteger> hashCounts = new ConcurrentHashMap<>();
+
+    private CountDownLatch allRequestsReceived;
+    private final AtomicBoolean requestsOverlapped = new AtomicBoolean(true);
+
+    private Server server;
+    private Path confPath;
+    private ConfigurationSource source;
+
+    /**
+     * Generates the configuration and starts the embedded HTTP server.
+     * @throws Exception in case of any errors
+     */
+    @Before
+    public void setUp() throws Exception {
+        PARTS.forEach(this::publish);
+
+        server = new Server(0);
+        server.setHandler(new ContentHandler());
+        server.start();
+
+        int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+
+        confPath = folder.newFolder("conf").toPath();
+        source = new TestConfigurationSource("http://127.0.0.1:" + port + "/internalconf");
+    }
+
+    /**
+     * Stops the embedded HTTP server.
+     * @throws Exception in case of any errors
+     */
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    /**
+     * Downloads all the content parts and stores them with their metadata.
+     * @throws Exception in case of any errors
+     */
+    @Test
+    public void downloadGeneratedConfiguration() throws Exception {
+        DownloadResult result = getDownloader().download(source);
+
+        assertTrue(result.getExceptions().toString(), result.isSuccess());
+
+        for (String part : PARTS) {
+            assertArrayEquals(publishedContent.get(part), Files.readAllBytes(getLocalFile(part)));
+            assertTrue(Files.exists(getMetadataFile(part)));
+            assertEquals(1, getRequestCount(part));
+        }
+
+        assertEquals(expectedFileNames(), listFileNames());
+    }
+
+    /**
+     * The content parts are requested at the same time rather than one after another.
+     * @throws Exception in case of any errors
+     */
+    @Test
+    public void downloadContentPartsInParallel() throws Exception {
+        allRequestsReceived = new CountDownLatch(PARTS.size());
+
+        DownloadResult result = getDownloader().download(source);
+
+        assertTrue(result.getExceptions().toString(), result.isSuccess());
+        assertTrue(requestsOverlapped.get());
+    }
+
+    /**
+     * Up-to-date content parts are not downloaded again, neither by the same
+     * downloader nor by a new one that has to hash the local files. Unchanged
+     * local files are hashed at most once per downloader.
+     * @throws Exception in case of any errors
+     */
+    @Test
+    public void skipUnchangedContentParts() throws Exception {
+        ConfigurationDownloader downloader = getDownloader();
+
+        downloader.download(source);
+        publish("BAR");
+
+        assertTrue(downloader.download(source).isSuccess());
+
+        for (String part : PARTS) {
+            assertEquals(0, getHashCount(part));
+        }
+
+        ConfigurationDownloader freshDownloader = getDownloader();
+
+        assertTrue(freshDownloader.download(source).isSuccess());
+        assertTrue(freshDownloader.download(source).isSuccess());
+
+        for (String part : PARTS) {
+            assertEquals(1, getHashCount(part));
+        }
+
+        assertEquals(1, getRequestCount("FOO"));
+        assertEquals(2, getRequestCount("BAR"));
+        assertEquals(1, getRequestCount("BAZ"));
+
+        assertArrayEquals(publishedContent.get("BAR"), Files.readAllBytes(getLocalFile("BAR")));
+    }
+
+    /**
+     * Content that does not match its hash does not replace the local file.
+     * @throws Exception in case of any errors
+     */
+    @Test
+    public void rejectContentWithInvalidHash() throws Exception {
+        ConfigurationDownloader downloader = getDownloader();
+
+        downloader.download(source);
+
+        byte[] original = publishedContent.get("BAZ");
+
+        publish("BAZ");
+        servedContent.put(getContentLocation("BAZ"), generateContent());
+
+        DownloadResult result = downloader.download(source);
+
+        assertFalse(result.isSuccess());
+        assertArrayEquals(original, Files.readAllBytes(getLocalFile("BAZ")));
+        assertEquals(expectedFileNames(), listFileNames());
+    }
+
+    // ------------------------------------------------------------------------
+
+    private ConfigurationDownloader getDownloader() {
+        return new ConfigurationDownloader(new FileNameProviderImpl(confPath.toString()),
+                SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION) {
+            @Override
+            ConfigurationParser getParser() {
+                return new ConfigurationParser() {
+                    @Override
+                    public Configuration parse(ConfigurationLocation location, String... contentIdentifiers) {
+                        return getConfiguration(location);
+                    }
+                };
+            }
+
+            @Override
+            byte[] hash(Path file, String algoId) throws Exception {
+                hashCounts.computeIfAbsent(file, f -> new AtomicInteger()).incrementAndGet();
+
+                return super.hash(file, algoId);
+            }
+        };
+    }
+
+    private Configuration getConfiguration(ConfigurationLocation location) {
+        Configuration configuration = new Configuration(location);
+        DateTime expirationDate = new DateTime().plusHours(1);
+
+        for (String part : PARTS) {
+            Map<String, String> headers = new HashMap<>();
+            headers.put(HEADER_CONTENT_TYPE, "application/octet-stream");
+            headers.put(HEADER_CONTENT_TRANSFER_ENCODING, "base64");
+            headers.put(HEADER_CONTENT_IDENTIFIER, part + "; instance=\"" + INSTANCE + "\"");
+            headers.put(HEADER_CONTENT_LOCATION, getContentLocation(part));
+            headers.put(HEADER_HASH_ALGORITHM_ID, DEFAULT_DIGEST_ALGORITHM_URI);
+
+            configuration.getFiles().add(ConfigurationFile.of(headers, expirationDate, getHash(part)));
+        }
+
+        return configuration;
+    }
+
+    private void publish(String part) {
+        byte[] content = generateContent();
+
+        publishedContent.put(part, content);
+        servedContent.put(getContentLocation(part), content);
+    }
+
+    private byte[] generateContent() {
+        byte[] content = new byte[PART_SIZE];
+        random.nextBytes(content);
+
+        return content;
+    }
+
+    private String getHash(String part) {
+        try {
+            return encodeBase64(calculateDigest(DEFAULT_DIGEST_ALGORITHM_ID, publishedContent.get(part)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String getContentLocation(String part) {
+        return "/" + INSTANCE + "/" + part.toLowerCase() + ".bin";
+    }
+
+    private int getRequestCount(String part) {
+        AtomicInteger count = requestCounts.get(getContentLocation(part));
+
+        return count == null ? 0 : count.get();
+    }
+
+    private int getHashCount(String part) {
+        AtomicInteger count = hashCounts.get(getLocalFile(part));
+
+        return count == null ? 0 : count.get();
+    }
+
+    private Path getLocalFile(String part) {
+        return Paths.get(confPath.toString(), INSTANCE, part.toLowerCase() + ".bin");
+    }
+
+    private Path getMetadataFile(String part) {
+        return Paths.get(getLocalFile(part) + ConfigurationDirectory.METADATA_SUFFIX);
+    }
+
+    private List<String> expectedFileNames() {
+        List<String> result = new ArrayList<>();
+
+        for (String part : PARTS) {
+            result.add(getLocalFile(part).getFileName().toString());
+            result.add(getMetadataFile(part).getFileName().toString());
+        }
+
+        return result.stream().sorted().collect(Collectors.toList());
+    }
+
+    private List<String> listFileNames() throws IOException {
+        try (Stream<Path> files = Files.list(confPath.resolve(INSTANCE))) {
+            return files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private class ContentHandler extends AbstractHandler {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request,
+                HttpServletResponse response) throws IOException {
+            requestCounts.computeIfAbsent(target, t -> new AtomicInteger()).incrementAndGet();
+
+            if (allRequestsReceived != null) {
+                allRequestsReceived.countDown();
+
+                try {
+                    if (!allRequestsReceived.await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        requestsOverlapped.set(false);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            byte[] content = servedContent.get(target);
+
+            if (content == null) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            } else {
+                response.setContentType("application/octet-stream");
+                response.setContentLength(content.length);
+                response.getOutputStream().write(content);
+            }
+
+            baseRequest.setHandled(true);
+        }
+    }
+
+    private static class TestConfigurationSource implements ConfigurationSource {
+        private final List<ConfigurationLocation> locations;
+
+        TestConfigurationSource(String downloadUrl) {
+            locations = Arrays.asList(new ConfigurationLocation(this, downloadUrl, new ArrayList<>()));
+        }
+
+        @Override
+        public String getInstanceIdentifier() {
+            return INSTANCE;
+        }
+
+        @Override
+        public List<ConfigurationLocation> getLocations() {
+            return locations;
+        }
+
+        @Override
+        public boolean hasChanged() {
+            return false;
+        }
+    }
+}
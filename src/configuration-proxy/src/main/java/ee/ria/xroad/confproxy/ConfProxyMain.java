@@ -24,6 +24,7 @@
  */
 package ee.ria.xroad.confproxy;
 
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.SystemPropertiesLoader;
 import ee.ria.xroad.confproxy.util.ConfProxyHelper;
 import ee.ria.xroad.signer.protocol.SignerClient;
@@ -36,7 +37,11 @@ import scala.concurrent.duration.Duration;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.SystemProperties.CONF_FILE_CONFPROXY;
 
@@ -91,7 +96,8 @@ public final class ConfProxyMain {
     }
 
     /**
-     * Executes all configuration proxy instances in sequence.
+     * Executes all configuration proxy instances, running up to the configured
+     * number of instances concurrently.
      * @param args program arguments
      * @throws Exception if not able to get list of available instances
      */
@@ -106,15 +112,39 @@ public final class ConfProxyMain {
             log.debug("Instances from available instances: {}", instances);
         }
 
-        for (String instance: instances) {
-            try {
-                ConfProxy proxy = new ConfProxy(instance);
-                log.info("ConfProxy executing for instance {}", instance);
-                proxy.execute();
-            } catch (Exception ex) {
-                log.error("Error when executing configuration-proxy '{}'",
-                        instance, ex);
-            }
+        if (instances.isEmpty()) {
+            return;
+        }
+
+        int threads = Math.min(SystemProperties.getConfigurationProxyGenerationThreads(), instances.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+
+        try {
+            List<Callable<Void>> tasks = instances.stream()
+                    .map(instance -> (Callable<Void>) () -> {
+                        executeInstance(instance);
+                        return null;
+                    })
+                    .collect(Collectors.toList());
+
+            executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Executes the given configuration proxy instance.
+     * @param instance name of the configuration proxy instance
+     */
+    private static void executeInstance(final String instance) {
+        try {
+            ConfProxy proxy = new ConfProxy(instance);
+            log.info("ConfProxy executing for instance {}", instance);
+            proxy.execute();
+        } catch (Exception ex) {
+            log.error("Error when executing configuration-proxy '{}'",
+                    instance, ex);
         }
     }
 
@@ -180,8 +180,7 @@ public final class ConfProxyHelper {
             }
             long diffSeconds = TimeUnit.MILLISECONDS
                 .toSeconds((current.getTime() - old.getTime()));
-            long timeToKeep = Math.min(MAX_CONFIGURATION_LIFETIME_SECONDS,
-                conf.getValidityIntervalSeconds());
+            long timeToKeep = getGenerationLifetimeSeconds(conf);
             if (diffSeconds > timeToKeep) {
                 Path oldPath =
                     Paths.get(conf.getConfigurationTargetPath(), genTime);
@@ -195,6 +194,17 @@ public final class ConfProxyHelper {
         }
     }
 
+    /**
+     * Gets the time in seconds a generated global configuration is kept
+     * in the configuration target path before it is purged.
+     * @param conf the configuration proxy instance configuration
+     * @return lifetime of a generated global configuration in seconds
+     */
+    static long getGenerationLifetimeSeconds(final ConfProxyProperties conf) {
+        return Math.min(MAX_CONFIGURATION_LIFETIME_SECONDS,
+            conf.getValidityIntervalSeconds());
+    }
+
     /**
      * Gets the list of subdirectory names in the given directory path.
      * @param dir path to the directory
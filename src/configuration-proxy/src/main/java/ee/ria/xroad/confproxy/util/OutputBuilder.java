@@ -26,6 +26,7 @@ package ee.ria.xroad.confproxy.util;
 
 import ee.ria.xroad.common.conf.globalconf.ConfigurationDirectory;
 import ee.ria.xroad.common.conf.globalconf.ConfigurationPartMetadata;
+import ee.ria.xroad.common.util.AtomicSave;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.HashCalculator;
 import ee.ria.xroad.common.util.MimeTypes;
@@ -39,22 +40,31 @@ import ee.ria.xroad.signer.protocol.message.SignResponse;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.bouncycastle.operator.DigestCalculator;
 import org.eclipse.jetty.util.MultiPartWriter;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
-import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+import static ee.ria.xroad.common.util.CryptoUtils.createDigestCalculator;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_IDENTIFIER;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_LOCATION;
@@ -72,17 +82,28 @@ import static ee.ria.xroad.common.util.MimeUtils.randomBoundary;
 /**
  * Utility class that encapsulates the process of signing the downloaded
  * global configuration and moving it to the target location.
+ *
+ * The directory content is streamed to a temporary file and hashed as it is
+ * written. If the downloaded global configuration, the signing parameters and
+ * the verification certificate are the same as in the previous run, and the
+ * previously generated directory is still fresh, it is reused instead of being
+ * copied and signed again.
  */
 @Slf4j
 public class OutputBuilder {
 
     public static final String SIGNED_DIRECTORY_NAME = "conf";
 
+    private static final String SOURCE_DIGEST = "source-digest";
+    private static final String GENERATION = "generation";
+
     private final ConfigurationDirectory confDir;
     private final ConfProxyProperties conf;
     private final int version;
 
     private Path tempConfPath;
+    private Path tempDataPath;
+    private Path statePath;
     private HashCalculator hashCalculator;
     private String timestamp;
     private Path tempDirPath;
@@ -91,6 +112,10 @@ public class OutputBuilder {
     private String envelopeBoundary;
     private String envelopeHeader;
 
+    private String sourceDigest;
+    private final Map<String, String> fileHashes = new HashMap<>();
+    private boolean generated;
+
     /**
      * Constructs an output builder for the given global configuration directory
      * and configuration proxy instance configuration.
@@ -109,22 +134,39 @@ public class OutputBuilder {
 
     /**
      * Generates a signed directory MIME for the global configuration and
-     * writes the directory contents to a temporary location.
+     * writes the directory contents to a temporary location. Nothing is
+     * generated if the previously generated directory can be reused.
+     * @return true if a new signed directory was generated
      * @throws Exception if errors occur when reading global configuration files
      */
-    public final void buildSignedDirectory() throws Exception {
-        try (ByteArrayOutputStream mimeContent = new ByteArrayOutputStream()) {
-            build(mimeContent);
+    public final boolean buildSignedDirectory() throws Exception {
+        sourceDigest = calculateSourceDigest();
+
+        if (isPreviousGenerationReusable()) {
+            log.info("Global configuration V{} of '{}' has not changed, reusing the previously signed directory",
+                    version, conf.getInstance());
 
-            log.debug("Generated directory content:\n{}\n", mimeContent.toString());
+            return false;
+        }
+
+        DigestCalculator dc = createDigestCalculator(conf.getSignatureDigestAlgorithmId());
+
+        try {
+            try (OutputStream out = new TeeOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempDataPath)), dc.getOutputStream())) {
+                build(out);
+            }
 
-            byte[] contentBytes = mimeContent.toByteArray();
-            mimeContent.reset();
-            sign(contentBytes, mimeContent);
-            Files.write(tempConfPath, mimeContent.toByteArray());
+            log.debug("Generated directory content to '{}'", tempDataPath);
 
-            log.debug("Written signed directory to '{}'", tempConfPath);
+            sign(dc.getDigest());
+        } finally {
+            Files.deleteIfExists(tempDataPath);
         }
+
+        generated = true;
+
+        return true;
     }
 
     /**
@@ -133,6 +175,12 @@ public class OutputBuilder {
      * @throws Exception in case of unsuccessful file operations
      */
     public final void moveAndCleanup() throws Exception {
+        if (!generated) {
+            FileUtils.deleteDirectory(tempDirPath.toFile());
+
+            return;
+        }
+
         String path = conf.getConfigurationTargetPath();
         Path targetPath = Paths.get(path, timestamp);
         Path targetConf = Paths.get(path, String.format("%s-v%d", SIGNED_DIRECTORY_NAME, version));
@@ -146,6 +194,8 @@ public class OutputBuilder {
 
         Files.move(tempConfPath, targetConf, StandardCopyOption.ATOMIC_MOVE);
         FileUtils.deleteDirectory(tempDirPath.toFile());
+
+        saveState();
     }
 
     /**
@@ -159,6 +209,8 @@ public class OutputBuilder {
         hashCalculator = new HashCalculator(hashAlgURI);
         timestamp = Long.toString(new Date().getTime());
         tempConfPath = Paths.get(tempDir, String.format("%s-v%d", SIGNED_DIRECTORY_NAME, version));
+        tempDataPath = Paths.get(tempDir, String.format("%s-v%d.data", SIGNED_DIRECTORY_NAME, version));
+        statePath = Paths.get(tempDir, String.format("%s-v%d.state", SIGNED_DIRECTORY_NAME, version));
         tempDirPath = Paths.get(tempDir, timestamp);
 
         log.debug("Creating directories {}", tempDirPath);
@@ -175,12 +227,104 @@ public class OutputBuilder {
                 MultiPartWriter.MULTIPART_MIXED) + "\n\n";
     }
 
+    /**
+     * Calculates the digest of everything the signed directory is generated
+     * from: the downloaded configuration files, the signing parameters and the
+     * verification certificate, whose hash is written to the signature part.
+     * The expiration date is not included, it is checked separately. The file
+     * hashes are kept, so they need not be calculated again when generating.
+     * @return the source digest (base64)
+     * @throws Exception if reading global configuration files fails
+     */
+    private String calculateSourceDigest() throws Exception {
+        StringBuilder source = new StringBuilder();
+
+        source.append(version).append('\n')
+                .append(hashCalculator.getAlgoURI()).append('\n')
+                .append(conf.getSignatureDigestAlgorithmId()).append('\n')
+                .append(conf.getActiveSigningKey()).append('\n')
+                .append(conf.getValidityIntervalSeconds()).append('\n')
+                .append(getVerificationCertHash(conf.getCertPath(conf.getActiveSigningKey()))).append('\n');
+
+        confDir.eachFile((metadata, inputStream) -> {
+            String hash = hashCalculator.calculateFromStream(inputStream);
+
+            fileHashes.put(getFileKey(metadata), hash);
+
+            source.append(metadata.getContentIdentifier()).append('\n')
+                    .append(metadata.getInstanceIdentifier()).append('\n')
+                    .append(metadata.getContentLocation()).append('\n')
+                    .append(hash).append('\n');
+        });
+
+        return hashCalculator.calculateFromString(source.toString());
+    }
+
+    private static String getFileKey(final ConfigurationPartMetadata metadata) {
+        return metadata.getInstanceIdentifier() + "/" + metadata.getContentLocation();
+    }
+
+    /**
+     * The previously generated directory is reused if it was generated from
+     * the same source and is younger than half of its lifetime, so it is
+     * neither purged nor too close to expiring before it is replaced.
+     * @return true if the previously generated directory can be reused
+     * @throws Exception if reading the state of the previous run fails
+     */
+    private boolean isPreviousGenerationReusable() throws Exception {
+        if (!Files.exists(statePath)) {
+            return false;
+        }
+
+        Properties state = new Properties();
+
+        try (InputStream in = Files.newInputStream(statePath)) {
+            state.load(in);
+        }
+
+        String generation = state.getProperty(GENERATION);
+
+        if (!sourceDigest.equals(state.getProperty(SOURCE_DIGEST)) || generation == null) {
+            return false;
+        }
+
+        String path = conf.getConfigurationTargetPath();
+
+        if (!Files.isDirectory(Paths.get(path, generation))
+                || !Files.exists(Paths.get(path, String.format("%s-v%d", SIGNED_DIRECTORY_NAME, version)))) {
+            return false;
+        }
+
+        long ageSeconds;
+
+        try {
+            ageSeconds = TimeUnit.MILLISECONDS.toSeconds(new Date().getTime() - Long.parseLong(generation));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        return ageSeconds >= 0 && ageSeconds < ConfProxyHelper.getGenerationLifetimeSeconds(conf) / 2;
+    }
+
+    /**
+     * Remembers the source digest and the generation of the signed directory
+     * that was moved to the target location.
+     * @throws Exception if the state could not be saved
+     */
+    private void saveState() throws Exception {
+        Properties state = new Properties();
+        state.setProperty(SOURCE_DIGEST, sourceDigest);
+        state.setProperty(GENERATION, timestamp);
+
+        AtomicSave.execute(statePath.toString(), "state", out -> state.store(out, null));
+    }
+
     /**
      * Generates global configuration directory content MIME.
      * @param mimeContent output stream to write to
      * @throws Exception if reading global configuration files fails
      */
-    private void build(final ByteArrayOutputStream mimeContent) throws Exception {
+    private void build(final OutputStream mimeContent) throws Exception {
         try (MultipartEncoder encoder = new MultipartEncoder(mimeContent, dataBoundary)) {
             DateTime expireDate = new DateTime().plusSeconds(conf.getValidityIntervalSeconds());
             encoder.startPart(null, new String[] {
@@ -191,36 +335,44 @@ public class OutputBuilder {
             String instance = conf.getInstance();
 
             confDir.eachFile((metadata, inputStream) -> {
+                String hash = fileHashes.get(getFileKey(metadata));
+
                 try (FileOutputStream fos = createFileOutputStream(tempDirPath, metadata)) {
-                    TeeInputStream tis = new TeeInputStream(inputStream, fos);
-                    appendFileContent(encoder, instance, metadata, tis);
+                    if (hash != null) {
+                        IOUtils.copy(inputStream, fos);
+                    } else {
+                        hash = hashCalculator.calculateFromStream(new TeeInputStream(inputStream, fos));
+                    }
                 }
+
+                appendFileContent(encoder, instance, metadata, hash);
             });
         }
     }
 
     /**
-     * Signs the global configuration directory content.
-     * @param contentBytes configuration directory content bytes
-     * @param mimeContent output stream to write to
+     * Signs the global configuration directory content and writes the signed
+     * directory to a temporary location.
+     * @param digest digest of the configuration directory content
      * @throws Exception if errors are encountered while writing
      * the signed directory content to a temporary location
      */
-    private void sign(final byte[] contentBytes, final ByteArrayOutputStream mimeContent) throws Exception {
+    private void sign(final byte[] digest) throws Exception {
         String keyId = conf.getActiveSigningKey();
         String digestAlgorithmId = conf.getSignatureDigestAlgorithmId();
         String signAlgoId = getSignatureAlgorithmId(keyId, digestAlgorithmId);
-        byte[] digest = calculateDigest(digestAlgorithmId, contentBytes);
 
         log.debug("Signing directory with signing key '{}' and signing algorithm '{}'", keyId, signAlgoId);
 
         String signature = getSignature(keyId, signAlgoId, digest);
 
-        mimeContent.write(envelopeHeader.getBytes());
+        try (OutputStream mimeContent = new BufferedOutputStream(Files.newOutputStream(tempConfPath));
+                MultipartEncoder encoder = new MultipartEncoder(mimeContent, envelopeBoundary);
+                InputStream contentStream = Files.newInputStream(tempDataPath)) {
+            mimeContent.write(envelopeHeader.getBytes(StandardCharsets.ISO_8859_1));
 
-        try (MultipartEncoder encoder = new MultipartEncoder(mimeContent, envelopeBoundary)) {
             encoder.startPart(mpMixedContentType(dataBoundary));
-            encoder.write(contentBytes);
+            encoder.write(contentStream);
             String algURI = CryptoUtils.getSignatureAlgorithmURI(signAlgoId);
             String hashURI = hashCalculator.getAlgoURI();
             Path verificationCertPath = conf.getCertPath(keyId);
@@ -233,10 +385,6 @@ public class OutputBuilder {
             encoder.write(signature.getBytes());
         }
 
-        log.debug("Generated signed directory:\n{}\n", mimeContent.toString());
-
-        Files.write(tempConfPath, mimeContent.toByteArray());
-
         log.debug("Written signed directory to '{}'", tempConfPath);
     }
 
@@ -277,11 +425,11 @@ public class OutputBuilder {
      * @param encoder generates the configuration directory mime from the given file content
      * @param instance configuration proxy instance name
      * @param metadata describes the configuration file
-     * @param inputStream contents of the configuration file to compute the hash
+     * @param hash hash of the configuration file content
      * @throws Exception if the configuration file content could not be appended
      */
     private void appendFileContent(final MultipartEncoder encoder, final String instance,
-            final ConfigurationPartMetadata metadata, final InputStream inputStream) throws Exception {
+            final ConfigurationPartMetadata metadata, final String hash) throws Exception {
         try {
             Path contentLocation = Paths.get(instance, timestamp, metadata.getInstanceIdentifier(),
                     metadata.getContentLocation());
@@ -297,7 +445,7 @@ public class OutputBuilder {
                         HEADER_HASH_ALGORITHM_ID + ": " + hashCalculator.getAlgoURI()
                     });
 
-            encoder.write(hashCalculator.calculateFromStream(inputStream).getBytes());
+            encoder.write(hash.getBytes());
         } catch (Exception e) {
             log.error("Failed to append '{}' content to directory data", metadata.getContentFileName());
 
@@ -305,7 +453,14 @@ public class OutputBuilder {
         }
     }
 
-    private static String getSignatureAlgorithmId(String keyId, String digestAlgoId) throws Exception {
+    /**
+     * Gets the signature algorithm of the signing key from the signer.
+     * @param keyId id of the key used for signing
+     * @param digestAlgoId id of the digest algorithm used for signing
+     * @return the signature algorithm id
+     * @throws Exception if the signing mechanism of the key could not be determined
+     */
+    String getSignatureAlgorithmId(String keyId, String digestAlgoId) throws Exception {
         GetSignMechanismResponse signMechanismResponse = SignerClient.execute(new GetSignMechanism(keyId));
 
         return CryptoUtils.getSignatureAlgorithmId(digestAlgoId, signMechanismResponse.getSignMechanismName());
@@ -319,7 +474,7 @@ public class OutputBuilder {
      * @return the configuration directory signature string (base64)
      * @throws Exception if cryptographic operations fail
      */
-    private String getSignature(final String keyId, final String signatureAlgorithmId, final byte[] digest)
+    String getSignature(final String keyId, final String signatureAlgorithmId, final byte[] digest)
             throws Exception {
         SignResponse response = SignerClient.execute(new Sign(keyId, signatureAlgorithmId, digest));
 
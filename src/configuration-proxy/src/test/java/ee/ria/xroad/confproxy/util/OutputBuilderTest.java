@@ -0,0 +1,322 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.confproxy.util;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.conf.globalconf.Configuration;
+import ee.ria.xroad.common.conf.globalconf.ConfigurationFile;
+import ee.ria.xroad.common.conf.globalconf.ConfigurationLocation;
+import ee.ria.xroad.common.conf.globalconf.ConfigurationParser;
+import ee.ria.xroad.common.conf.globalconf.ConfigurationPartMetadata;
+import ee.ria.xroad.common.conf.globalconf.ConfigurationSource;
+import ee.ria.xroad.common.conf.globalconf.FileConsumer;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.HashCalculator;
+import ee.ria.xroad.confproxy.ConfProxyProperties;
+
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.asn1.x509.DigestInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ee.ria.xroad.common.SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION;
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS;
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_SHARED_PARAMETERS;
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.FILE_NAME_PRIVATE_PARAMETERS;
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.FILE_NAME_SHARED_PARAMETERS;
+import static ee.ria.xroad.common.util.CryptoUtils.CKM_RSA_PKCS_NAME;
+import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
+import static ee.ria.xroad.common.util.CryptoUtils.getAlgorithmIdentifier;
+import static ee.ria.xroad.common.util.CryptoUtils.getDigestAlgorithmId;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests that the output builder reuses the previously signed directory only if it was generated from the same
+ * source and is still fresh.
+ */
+public class OutputBuilderTest {
+
+    private static final String INSTANCE = "PROXY1";
+    private static final String INSTANCE_IDENTIFIER = "EE";
+    private static final String KEY_ID = "42AD4C9CB6C934DB0E2B62785137BBD099FEEF56";
+    private static final int VALIDITY_INTERVAL_SECONDS = 600;
+
+    @Rule
+    public final TemporaryFolder tempDir = new TemporaryFolder();
+
+    // contents of the downloaded configuration files by content identifier
+    private final Map<String, String> files = new LinkedHashMap<>();
+
+    private ConfProxyProperties conf;
+    private PrivateKey signingKey;
+
+    /**
+     * Creates a configuration proxy instance for signing two downloaded configuration files.
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty(SystemProperties.CONFIGURATION_PROXY_CONF_PATH, tempDir.newFolder("conf").getPath());
+        System.setProperty(SystemProperties.CONFIGURATION_PROXY_GENERATED_CONF_PATH,
+                tempDir.newFolder("public").getPath());
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempDir.newFolder("tmp").getPath());
+
+        files.put(CONTENT_ID_PRIVATE_PARAMETERS, "private parameters");
+        files.put(CONTENT_ID_SHARED_PARAMETERS, "shared parameters");
+
+        createConf(VALIDITY_INTERVAL_SECONDS);
+    }
+
+    /**
+     * Clears the configuration proxy paths.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(SystemProperties.CONFIGURATION_PROXY_CONF_PATH);
+        System.clearProperty(SystemProperties.CONFIGURATION_PROXY_GENERATED_CONF_PATH);
+        System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+    }
+
+    /**
+     * Test that the signed directory is reused if nothing has changed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reuseUnchangedSource() throws Exception {
+        assertTrue(generate());
+
+        byte[] signedDirectory = Files.readAllBytes(getSignedDirectoryPath());
+
+        assertFalse(generate());
+        assertArrayEquals(signedDirectory, Files.readAllBytes(getSignedDirectoryPath()));
+        assertEquals(1, getGenerations().size());
+    }
+
+    /**
+     * Test that the signed directory is generated again if a downloaded file has changed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void regenerateChangedFile() throws Exception {
+        assertTrue(generate());
+
+        files.put(CONTENT_ID_SHARED_PARAMETERS, "changed shared parameters");
+
+        assertTrue(generate());
+        assertEquals(2, getGenerations().size());
+
+        verifySignedDirectory(TestCertUtil.getConsumer().certChain[0]);
+    }
+
+    /**
+     * Test that the signed directory is generated again if the certificate of the signing key has changed, since
+     * the signed directory refers to the certificate by its hash.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void regenerateChangedVerificationCert() throws Exception {
+        assertTrue(generate());
+
+        X509Certificate cert = TestCertUtil.getProducer().certChain[0];
+        conf.saveCert(KEY_ID, cert.getEncoded());
+        signingKey = TestCertUtil.getProducer().key;
+
+        assertTrue(generate());
+
+        verifySignedDirectory(cert);
+    }
+
+    /**
+     * Test that the signed directory is generated again if the previous generation has been removed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void regenerateMissingGeneration() throws Exception {
+        assertTrue(generate());
+
+        for (String generation : getGenerations()) {
+            FileUtils.deleteDirectory(Paths.get(conf.getConfigurationTargetPath(), generation).toFile());
+        }
+
+        assertTrue(generate());
+        assertEquals(1, getGenerations().size());
+    }
+
+    /**
+     * Test that the signed directory is generated again once the previous generation is older than half of its
+     * lifetime.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void regenerateExpiredGeneration() throws Exception {
+        createConf(2);
+
+        assertTrue(generate());
+
+        Thread.sleep(1100);
+
+        assertTrue(generate());
+        assertEquals(2, getGenerations().size());
+    }
+
+    /**
+     * Test that the reused signed directory still parses and its signature verifies.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void verifyReusedSignedDirectory() throws Exception {
+        assertTrue(generate());
+        assertFalse(generate());
+
+        verifySignedDirectory(TestCertUtil.getConsumer().certChain[0]);
+    }
+
+    private void createConf(int validityIntervalSeconds) throws Exception {
+        Path confPath = Paths.get(SystemProperties.getConfigurationProxyConfPath(), INSTANCE);
+        Files.createDirectories(confPath);
+        Files.write(confPath.resolve(ConfProxyProperties.CONF_INI), Collections.singletonList(
+                ConfProxyProperties.VALIDITY_INTERVAL_SECONDS + "=" + validityIntervalSeconds));
+
+        conf = new ConfProxyProperties(INSTANCE);
+        conf.setActiveSigningKey(KEY_ID);
+        conf.saveCert(KEY_ID, TestCertUtil.getConsumer().certChain[0].getEncoded());
+
+        signingKey = TestCertUtil.getConsumer().key;
+    }
+
+    private boolean generate() throws Exception {
+        // generations are named after their creation time in milliseconds
+        Thread.sleep(2);
+
+        OutputBuilder output = new TestOutputBuilder();
+        boolean generated = output.buildSignedDirectory();
+        output.moveAndCleanup();
+
+        return generated;
+    }
+
+    private void eachFile(FileConsumer consumer) throws Exception {
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            ConfigurationPartMetadata metadata = new ConfigurationPartMetadata();
+            metadata.setContentIdentifier(file.getKey());
+            metadata.setInstanceIdentifier(INSTANCE_IDENTIFIER);
+            metadata.setContentLocation(CONTENT_ID_PRIVATE_PARAMETERS.equals(file.getKey())
+                    ? FILE_NAME_PRIVATE_PARAMETERS : FILE_NAME_SHARED_PARAMETERS);
+
+            try (InputStream in = new ByteArrayInputStream(file.getValue().getBytes())) {
+                consumer.consume(metadata, in);
+            }
+        }
+    }
+
+    private Path getSignedDirectoryPath() {
+        return Paths.get(conf.getConfigurationTargetPath(),
+                String.format("%s-v%d", OutputBuilder.SIGNED_DIRECTORY_NAME, CURRENT_GLOBAL_CONFIGURATION_VERSION));
+    }
+
+    private Set<String> getGenerations() throws Exception {
+        try (Stream<Path> paths = Files.list(Paths.get(conf.getConfigurationTargetPath()))) {
+            return paths.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private void verifySignedDirectory(X509Certificate verificationCert) throws Exception {
+        ConfigurationParser parser = new ConfigurationParser() {
+            @Override
+            protected InputStream getInputStream() throws Exception {
+                return Files.newInputStream(getSignedDirectoryPath());
+            }
+        };
+
+        ConfigurationLocation location = new ConfigurationLocation(mock(ConfigurationSource.class),
+                "http://localhost", Collections.singletonList(verificationCert.getEncoded()));
+
+        // fails if the signature cannot be verified with the certificate
+        Configuration configuration = parser.parse(location);
+
+        HashCalculator hashCalculator = new HashCalculator(conf.getHashAlgorithmURI());
+        Set<String> expectedHashes = new HashSet<>();
+
+        for (String content : files.values()) {
+            expectedHashes.add(hashCalculator.calculateFromString(content));
+        }
+
+        List<ConfigurationFile> signedFiles = configuration.getFiles();
+
+        assertEquals(expectedHashes, signedFiles.stream().map(ConfigurationFile::getHash).collect(Collectors.toSet()));
+    }
+
+    private class TestOutputBuilder extends OutputBuilder {
+
+        TestOutputBuilder() throws Exception {
+            super(OutputBuilderTest.this::eachFile, conf, CURRENT_GLOBAL_CONFIGURATION_VERSION);
+        }
+
+        @Override
+        String getSignatureAlgorithmId(String keyId, String digestAlgoId) throws Exception {
+            return CryptoUtils.getSignatureAlgorithmId(digestAlgoId, CKM_RSA_PKCS_NAME);
+        }
+
+        @Override
+        String getSignature(String keyId, String signatureAlgorithmId, byte[] digest) throws Exception {
+            // the digest is signed as is, like the signer does
+            byte[] digestInfo = new DigestInfo(getAlgorithmIdentifier(getDigestAlgorithmId(signatureAlgorithmId)),
+                    digest).getEncoded();
+
+            Signature signature = Signature.getInstance("NONEwithRSA");
+            signature.initSign(signingKey);
+            signature.update(digestInfo);
+
+            return encodeBase64(signature.sign());
+        }
+    }
+}
@@ -28,9 +28,11 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 import java.io.Serializable;
+import java.util.Map;
 
 /**
- * System statistics response
+ * System statistics response, including the TLS handshake counts and the message processing stage latencies of
+ * the proxy
  *
  * @see com.sun.management.UnixOperatingSystemMXBean
  */
@@ -45,4 +47,7 @@ public final class StatsResponse implements Serializable {
     private final long totalPhysicalMemorySize;
     private final long freeSwapSpaceSize;
     private final long totalSwapSpaceSize;
+    private final long tlsFullHandshakeCount;
+    private final long tlsResumedHandshakeCount;
+    private final Map<String, LatencyStats> messageStageLatencies;
 }
@@ -37,6 +37,9 @@ public final class SystemMetricNames {
     public static final String FREE_PHYSICAL_MEMORY = "FreePhysicalMemory";
     public static final String TOTAL_PHYSICAL_MEMORY = "TotalPhysicalMemory";
     public static final String SYSTEM_CPU_LOAD = "SystemCpuLoad";
+    public static final String TLS_FULL_HANDSHAKES = "TlsFullHandshakes";
+    public static final String TLS_RESUMED_HANDSHAKES = "TlsResumedHandshakes";
+    public static final String MESSAGE_STAGE_LATENCY = "MessageStageLatency";
     public static final String DISK_SPACE_TOTAL = "DiskSpaceTotal";
     public static final String DISK_SPACE_FREE = "DiskSpaceFree";
     public static final String PROCESSES = "Processes";
@@ -46,6 +49,11 @@ public final class SystemMetricNames {
     public static final String PACKAGES = "Packages";
     public static final String PACKAGE_STRINGS = "PackagesDump";
     public static final String OS_INFO = "OperatingSystem";
+    public static final String LOAD_AVERAGE_ONE_MINUTE = "LoadAverageOneMinute";
+    public static final String LOAD_AVERAGE_FIVE_MINUTES = "LoadAverageFiveMinutes";
+    public static final String LOAD_AVERAGE_FIFTEEN_MINUTES = "LoadAverageFifteenMinutes";
+    public static final String NETWORK_BYTES_RECEIVED = "NetworkBytesReceived";
+    public static final String NETWORK_BYTES_TRANSMITTED = "NetworkBytesTransmitted";
     public static final String CERTIFICATES = "Certificates";
     public static final String CERTIFICATES_STRINGS = "CertificatesDump";
 
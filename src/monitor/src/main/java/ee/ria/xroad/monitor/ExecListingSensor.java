@@ -30,27 +30,38 @@ import ee.ria.xroad.monitor.executablelister.OsInfoLister;
 import ee.ria.xroad.monitor.executablelister.PackageLister;
 import ee.ria.xroad.monitor.executablelister.ProcessLister;
 import ee.ria.xroad.monitor.executablelister.XroadProcessLister;
+import ee.ria.xroad.monitor.procfs.CachingPackageCollector;
+import ee.ria.xroad.monitor.procfs.ProcFsProcessCollector;
+import ee.ria.xroad.monitor.procfs.ProcFsSystemCollector;
 
 import com.codahale.metrics.Metric;
 import lombok.extern.slf4j.Slf4j;
 import scala.concurrent.duration.Duration;
 import scala.concurrent.duration.FiniteDuration;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Sensor which collects data by running external commands and
+ * Sensor which collects process, package and operating system data. By default the data is read directly from
+ * /proc and the package database, otherwise it is collected by running external commands and
  * parsing output from those.
  */
 @Slf4j
 public class ExecListingSensor extends AbstractSensor {
 
     private MetricRegistryHolder registryHolder;
+
+    // The collectors reuse their buffers and caches between measurements
+    private final ProcFsProcessCollector processCollector = new ProcFsProcessCollector();
+    private final ProcFsSystemCollector systemCollector = new ProcFsSystemCollector();
+    private final CachingPackageCollector packageCollector = new CachingPackageCollector();
+
     /**
      * Constructor
      */
-    public <T extends Metric> ExecListingSensor() {
+    public <T extends Metric> ExecListingSensor() throws IOException {
         log.info("Creating sensor, measurement interval: {}", getInterval());
         updateMetrics();
         scheduleSingleMeasurement(getInterval(), new ProcessMeasure());
@@ -77,9 +88,55 @@ public class ExecListingSensor extends AbstractSensor {
 
     }
 
-    private void updateMetrics() {
+    private void updateMetrics() throws IOException {
         registryHolder = MetricRegistryHolder.getInstance();
 
+        if (SystemProperties.isEnvMonitorExecListingSensorNative()) {
+            updateMetricsFromProcFs();
+        } else {
+            updateMetricsFromCommands();
+        }
+    }
+
+    private void updateMetricsFromProcFs() throws IOException {
+        ProcFsProcessCollector.Processes processes = processCollector.collect();
+
+        createOrUpdateMetricPair(
+                SystemMetricNames.PROCESSES,
+                SystemMetricNames.PROCESS_STRINGS,
+                processes.getAllProcesses()
+        );
+
+        createOrUpdateMetricPair(
+                SystemMetricNames.XROAD_PROCESSES,
+                SystemMetricNames.XROAD_PROCESS_STRINGS,
+                processes.getXroadProcesses()
+        );
+
+        createOrUpdateMetricPair(
+                SystemMetricNames.PACKAGES,
+                SystemMetricNames.PACKAGE_STRINGS,
+                packageCollector.list()
+        );
+
+        registryHolder.getOrCreateSimpleSensor(SystemMetricNames.OS_INFO).update(systemCollector.readOsInfo());
+
+        ProcFsSystemCollector.LoadAverage loadAverage = systemCollector.readLoadAverage();
+        registryHolder.getOrCreateSimpleSensor(SystemMetricNames.LOAD_AVERAGE_ONE_MINUTE)
+                .update(loadAverage.getOneMinute());
+        registryHolder.getOrCreateSimpleSensor(SystemMetricNames.LOAD_AVERAGE_FIVE_MINUTES)
+                .update(loadAverage.getFiveMinutes());
+        registryHolder.getOrCreateSimpleSensor(SystemMetricNames.LOAD_AVERAGE_FIFTEEN_MINUTES)
+                .update(loadAverage.getFifteenMinutes());
+
+        ProcFsSystemCollector.NetworkTraffic traffic = systemCollector.readNetworkTraffic();
+        registryHolder.getOrCreateSimpleSensor(SystemMetricNames.NETWORK_BYTES_RECEIVED)
+                .update(traffic.getBytesReceived());
+        registryHolder.getOrCreateSimpleSensor(SystemMetricNames.NETWORK_BYTES_TRANSMITTED)
+                .update(traffic.getBytesTransmitted());
+    }
+
+    private void updateMetricsFromCommands() {
         createOrUpdateMetricPair(
                 SystemMetricNames.PROCESSES,
                 SystemMetricNames.PROCESS_STRINGS,
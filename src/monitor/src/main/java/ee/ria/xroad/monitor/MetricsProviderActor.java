@@ -114,7 +114,7 @@ public class MetricsProviderActor extends UntypedAbstractActor {
         if (o instanceof SystemMetricsRequest) {
 
             final SystemMetricsRequest req = (SystemMetricsRequest) o;
-            log.info("Received SystemMetricsRequest: " + req);
+            log.debug("Received SystemMetricsRequest: " + req);
 
             if (req.getMetricNames() != null && req.getMetricNames().size() > 0) {
                 log.info("Specified metrics requested: " + req.getMetricNames());
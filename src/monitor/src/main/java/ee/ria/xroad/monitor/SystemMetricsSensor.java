@@ -24,6 +24,7 @@
  */
 package ee.ria.xroad.monitor;
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.monitor.common.LatencyStats;
 import ee.ria.xroad.monitor.common.StatsRequest;
 import ee.ria.xroad.monitor.common.StatsResponse;
 import ee.ria.xroad.monitor.common.SystemMetricNames;
@@ -36,6 +37,7 @@ import lombok.extern.slf4j.Slf4j;
 import scala.concurrent.duration.Duration;
 import scala.concurrent.duration.FiniteDuration;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -106,6 +108,32 @@ public class SystemMetricsSensor extends AbstractSensor {
         registryHolder
                 .getOrCreateSimpleSensor(SystemMetricNames.TOTAL_PHYSICAL_MEMORY)
                 .update(stats.getTotalPhysicalMemorySize());
+        registryHolder
+                .getOrCreateSimpleSensor(SystemMetricNames.TLS_FULL_HANDSHAKES)
+                .update(stats.getTlsFullHandshakeCount());
+        registryHolder
+                .getOrCreateSimpleSensor(SystemMetricNames.TLS_RESUMED_HANDSHAKES)
+                .update(stats.getTlsResumedHandshakeCount());
+
+        if (stats.getMessageStageLatencies() != null) {
+            for (Map.Entry<String, LatencyStats> e : stats.getMessageStageLatencies().entrySet()) {
+                updateMessageStageLatency(registryHolder, e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Update the latency metrics of a message processing stage, e.g. MessageStageLatency.ClientProxy.Signing.P99
+     */
+    private void updateMessageStageLatency(MetricRegistryHolder registryHolder, String stage, LatencyStats latency) {
+        String prefix = SystemMetricNames.MESSAGE_STAGE_LATENCY + "." + stage + ".";
+
+        registryHolder.getOrCreateSimpleSensor(prefix + "Count").update(latency.getCount());
+        registryHolder.getOrCreateSimpleSensor(prefix + "Mean").update(latency.getMean());
+        registryHolder.getOrCreateSimpleSensor(prefix + "Median").update(latency.getMedian());
+        registryHolder.getOrCreateSimpleSensor(prefix + "P90").update(latency.getPercentile90());
+        registryHolder.getOrCreateSimpleSensor(prefix + "P99").update(latency.getPercentile99());
+        registryHolder.getOrCreateSimpleSensor(prefix + "Max").update(latency.getMax());
     }
 
     @Override
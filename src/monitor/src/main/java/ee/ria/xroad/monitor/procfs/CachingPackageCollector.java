@@ -0,0 +1,159 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor.procfs;
+
+import ee.ria.xroad.monitor.JmxStringifiedData;
+import ee.ria.xroad.monitor.executablelister.PackageInfo;
+import ee.ria.xroad.monitor.executablelister.PackageLister;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Collects the list of installed packages and caches it until the package database changes.
+ * On Debian based systems the dpkg status database is parsed directly. The RPM database is not a text file, so
+ * on Red Hat based systems the command based {@link PackageLister} is run, but only when the database has been
+ * modified since the previous listing.
+ */
+@Slf4j
+public class CachingPackageCollector {
+
+    private static final String PACKAGE = "Package:";
+    private static final String VERSION = "Version:";
+    private static final String STATUS = "Status:";
+    private static final String NOT_INSTALLED = "not-installed";
+
+    private final Path dpkgStatusFile;
+    private final Path rpmDatabaseDir;
+    private final Path redhatReleaseFile;
+    private final Supplier<JmxStringifiedData<PackageInfo>> rpmLister;
+
+    private FileTime cachedModified;
+    private JmxStringifiedData<PackageInfo> cached;
+
+    /**
+     * Creates a collector for the package database of the host.
+     */
+    public CachingPackageCollector() {
+        this(Paths.get("/var/lib/dpkg/status"), Paths.get("/var/lib/rpm"), Paths.get("/etc/redhat-release"),
+                () -> new PackageLister().list());
+    }
+
+    CachingPackageCollector(Path dpkgStatusFile, Path rpmDatabaseDir, Path redhatReleaseFile,
+            Supplier<JmxStringifiedData<PackageInfo>> rpmLister) {
+        this.dpkgStatusFile = dpkgStatusFile;
+        this.rpmDatabaseDir = rpmDatabaseDir;
+        this.redhatReleaseFile = redhatReleaseFile;
+        this.rpmLister = rpmLister;
+    }
+
+    /**
+     * Lists the installed packages, reusing the previous listing if the package database has not changed.
+     * @return the installed packages
+     * @throws IOException if the package database can not be read
+     */
+    public JmxStringifiedData<PackageInfo> list() throws IOException {
+        boolean rpm = Files.exists(redhatReleaseFile);
+        FileTime modified = rpm ? lastModifiedInDirectory(rpmDatabaseDir) : Files.getLastModifiedTime(dpkgStatusFile);
+
+        if (cached == null || !modified.equals(cachedModified)) {
+            log.debug("Package database modified at {}, refreshing package list", modified);
+
+            cached = rpm ? rpmLister.get() : parseDpkgStatus();
+            cachedModified = modified;
+        }
+
+        return cached;
+    }
+
+    private JmxStringifiedData<PackageInfo> parseDpkgStatus() throws IOException {
+        ArrayList<PackageInfo> packages = new ArrayList<>();
+        ArrayList<String> jmxRepresentation = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(dpkgStatusFile, StandardCharsets.UTF_8)) {
+            String name = null;
+            String version = null;
+            String status = null;
+            String line;
+
+            do {
+                line = reader.readLine();
+
+                if (line == null || line.isEmpty()) {
+                    // End of a package stanza
+                    if (name != null && version != null && (status == null || !status.endsWith(NOT_INSTALLED))) {
+                        PackageInfo info = new PackageInfo();
+                        info.setName(name);
+                        info.setVersion(version);
+                        packages.add(info);
+                        jmxRepresentation.add(name + "/" + version);
+                    }
+
+                    name = null;
+                    version = null;
+                    status = null;
+                } else if (line.startsWith(PACKAGE)) {
+                    name = line.substring(PACKAGE.length()).trim();
+                } else if (line.startsWith(VERSION)) {
+                    version = line.substring(VERSION.length()).trim();
+                } else if (line.startsWith(STATUS)) {
+                    status = line.substring(STATUS.length()).trim();
+                }
+            } while (line != null);
+        }
+
+        JmxStringifiedData<PackageInfo> data = new JmxStringifiedData<>();
+        data.setDtoData(packages);
+        data.setJmxStringData(jmxRepresentation);
+
+        return data;
+    }
+
+    private static FileTime lastModifiedInDirectory(Path dir) throws IOException {
+        FileTime latest = Files.getLastModifiedTime(dir);
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                FileTime modified = Files.getLastModifiedTime(entry);
+
+                if (modified.compareTo(latest) > 0) {
+                    latest = modified;
+                }
+            }
+        }
+
+        return latest;
+    }
+}
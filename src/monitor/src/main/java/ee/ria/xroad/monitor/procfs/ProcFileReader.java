@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor.procfs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads files of the proc file system into a buffer that is reused between
+ * reads. The files in /proc report a size of zero, so they are always read
+ * until the end of file. Not thread-safe, each collector owns its reader.
+ */
+final class ProcFileReader {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * Reads the whole file into the buffer.
+     * @param file the file to read
+     * @return the number of bytes read, available through {@link #bytes()}
+     * @throws IOException if reading fails (for example when the process the
+     * file belongs to has exited)
+     */
+    int read(Path file) throws IOException {
+        buffer.clear();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+            }
+        }
+
+        return buffer.position();
+    }
+
+    /**
+     * @return the backing array of the buffer, valid up to the length
+     * returned by the last {@link #read(Path)}
+     */
+    byte[] bytes() {
+        return buffer.array();
+    }
+
+    /**
+     * Reads the whole file as an UTF-8 string.
+     * @param file the file to read
+     * @return the contents of the file
+     * @throws IOException if reading fails
+     */
+    String readString(Path file) throws IOException {
+        int length = read(file);
+
+        return new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,439 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor.procfs;
+
+import ee.ria.xroad.monitor.JmxStringifiedData;
+import ee.ria.xroad.monitor.executablelister.ProcessInfo;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects the process listings by reading /proc/[pid]/stat, /proc/[pid]/status and /proc/[pid]/cmdline
+ * directly, instead of running ps. Both the listing of all processes and the listing of X-Road processes are
+ * produced in one pass over /proc, in the same format as the respective command based listers.
+ * Not thread-safe, the file buffers are reused between collections.
+ */
+@Slf4j
+public class ProcFsProcessCollector {
+
+    /** The clock tick rate (USER_HZ) the kernel uses for the times in /proc, fixed at 100 on Linux. */
+    static final int CLOCK_TICKS_PER_SECOND = 100;
+
+    private static final String XROAD_USER = "xroad";
+    private static final String XROAD_COMMAND = "java";
+
+    private static final int STAT_FIELD_UTIME = 10;
+    private static final int STAT_FIELD_STIME = 11;
+    private static final int STAT_FIELD_STARTTIME = 18;
+    private static final int STAT_FIELD_COUNT = STAT_FIELD_STARTTIME + 1;
+
+    private static final int DECIMAL_RADIX = 10;
+
+    private static final byte[] STATUS_UID = "Uid:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STATUS_VM_RSS = "VmRSS:".getBytes(StandardCharsets.US_ASCII);
+
+    private static final DateTimeFormatter TIME_OF_DAY = DateTimeFormatter.ofPattern("HH:mm", Locale.ENGLISH);
+    private static final DateTimeFormatter DAY_OF_YEAR = DateTimeFormatter.ofPattern("MMMdd", Locale.ENGLISH);
+    private static final DateTimeFormatter YEAR = DateTimeFormatter.ofPattern("yyyy", Locale.ENGLISH);
+
+    private static final String HEADER = formatLine("USER", "%CPU", "START", "%MEM", "PID", "COMMAND");
+
+    private final Path procRoot;
+    private final Path passwdFile;
+    private final ProcFileReader reader = new ProcFileReader();
+    private final long[] statFields = new long[STAT_FIELD_COUNT];
+    private final long[] uidFields = new long[2];
+    private final long[] rssField = new long[1];
+
+    private FileTime passwdModified;
+    private Map<Long, String> userNames = Collections.emptyMap();
+
+    /**
+     * Process listings produced by one collection.
+     */
+    @Value
+    public static class Processes {
+        JmxStringifiedData<ProcessInfo> allProcesses;
+        JmxStringifiedData<ProcessInfo> xroadProcesses;
+    }
+
+    /**
+     * Creates a collector reading the proc file system of the host.
+     */
+    public ProcFsProcessCollector() {
+        this(Paths.get("/proc"), Paths.get("/etc/passwd"));
+    }
+
+    ProcFsProcessCollector(Path procRoot, Path passwdFile) {
+        this.procRoot = procRoot;
+        this.passwdFile = passwdFile;
+    }
+
+    /**
+     * Lists the running processes.
+     * @return the listings of all processes and of the X-Road processes
+     * @throws IOException if the system wide files in /proc can not be read
+     */
+    public Processes collect() throws IOException {
+        refreshUserNames();
+
+        double uptimeSeconds = parseFirstDouble(reader.readString(procRoot.resolve("uptime")));
+        long bootTime = findValue(reader.readString(procRoot.resolve("stat")), "btime");
+        long memTotalKb = findValue(reader.readString(procRoot.resolve("meminfo")), "MemTotal:");
+        Long xroadUid = findUid(XROAD_USER);
+        LocalDateTime now = LocalDateTime.now();
+
+        JmxStringifiedData<ProcessInfo> all = newListing();
+        JmxStringifiedData<ProcessInfo> xroad = newListing();
+
+        for (long pid : listPids()) {
+            Path dir = procRoot.resolve(Long.toString(pid));
+
+            try {
+                String comm = readStat(dir);
+                readStatus(dir);
+
+                // The effective user id
+                long uid = uidFields[1];
+                String user = userNames.getOrDefault(uid, Long.toString(uid));
+                double elapsed = uptimeSeconds - (double) statFields[STAT_FIELD_STARTTIME] / CLOCK_TICKS_PER_SECOND;
+                double cpuSeconds = (double) (statFields[STAT_FIELD_UTIME] + statFields[STAT_FIELD_STIME])
+                        / CLOCK_TICKS_PER_SECOND;
+
+                ProcessInfo info = new ProcessInfo();
+                info.setUserId(user);
+                info.setCpuLoad(formatPercentage(elapsed > 0 ? cpuSeconds * 100 / elapsed : 0));
+                info.setStartTime(formatStartTime(now,
+                        bootTime + statFields[STAT_FIELD_STARTTIME] / CLOCK_TICKS_PER_SECOND));
+                info.setMemUsed(formatPercentage(memTotalKb > 0 ? rssField[0] * 100.0 / memTotalKb : 0));
+                info.setProcessId(Long.toString(pid));
+                info.setCommand(comm);
+
+                add(all, info);
+
+                if (xroadUid != null && xroadUid == uid && comm.contains(XROAD_COMMAND)) {
+                    ProcessInfo xroadInfo = new ProcessInfo();
+                    xroadInfo.setUserId(info.getUserId());
+                    xroadInfo.setCpuLoad(info.getCpuLoad());
+                    xroadInfo.setStartTime(info.getStartTime());
+                    xroadInfo.setMemUsed(info.getMemUsed());
+                    xroadInfo.setProcessId(info.getProcessId());
+                    xroadInfo.setCommand(readCommandLine(dir, comm));
+
+                    add(xroad, xroadInfo);
+                }
+            } catch (IOException | RuntimeException e) {
+                // The process has exited while it was being read
+                log.trace("Skipping process {}: {}", pid, e.getMessage());
+            }
+        }
+
+        return new Processes(all, xroad);
+    }
+
+    private List<Long> listPids() throws IOException {
+        List<Long> pids = new ArrayList<>();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(procRoot)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+
+                if (!name.isEmpty() && name.chars().allMatch(Character::isDigit)) {
+                    pids.add(Long.parseLong(name));
+                }
+            }
+        }
+
+        Collections.sort(pids);
+
+        return pids;
+    }
+
+    /**
+     * Parses /proc/[pid]/stat into {@link #statFields}, the fields following the state field.
+     * @return the command name
+     */
+    private String readStat(Path dir) throws IOException {
+        int length = reader.read(dir.resolve("stat"));
+        byte[] bytes = reader.bytes();
+
+        // The command name is in parentheses and may contain spaces and parentheses itself
+        int open = indexOf(bytes, 0, length, (byte) '(');
+        int close = lastIndexOf(bytes, length, (byte) ')');
+
+        if (open < 0 || close < open) {
+            throw new IllegalStateException("Unexpected stat format");
+        }
+
+        String comm = new String(bytes, open + 1, close - open - 1, StandardCharsets.UTF_8);
+
+        // Skip the state field
+        int position = indexOf(bytes, close + 2, length, (byte) ' ');
+        parseLongs(bytes, position, length, statFields);
+
+        return comm;
+    }
+
+    /**
+     * Parses the real and effective user ids of /proc/[pid]/status into {@link #uidFields} and the resident set
+     * size (kB) into {@link #rssField}. Kernel threads do not have a resident set size.
+     */
+    private void readStatus(Path dir) throws IOException {
+        int length = reader.read(dir.resolve("status"));
+        byte[] bytes = reader.bytes();
+
+        parseLongs(bytes, findLine(bytes, length, STATUS_UID), length, uidFields);
+
+        int rss = findLine(bytes, length, STATUS_VM_RSS);
+        rssField[0] = 0;
+
+        if (rss >= 0) {
+            parseLongs(bytes, rss, length, rssField);
+        }
+    }
+
+    private String readCommandLine(Path dir, String comm) throws IOException {
+        int length = reader.read(dir.resolve("cmdline"));
+        byte[] bytes = reader.bytes();
+
+        while (length > 0 && bytes[length - 1] == 0) {
+            length--;
+        }
+
+        if (length == 0) {
+            return "[" + comm + "]";
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == 0) {
+                bytes[i] = ' ';
+            }
+        }
+
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void refreshUserNames() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(passwdFile);
+
+            if (modified.equals(passwdModified)) {
+                return;
+            }
+
+            Map<Long, String> names = new HashMap<>();
+
+            for (String line : Files.readAllLines(passwdFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(":");
+
+                if (fields.length > 2) {
+                    try {
+                        names.putIfAbsent(Long.parseLong(fields[2]), fields[0]);
+                    } catch (NumberFormatException e) {
+                        log.trace("Ignoring passwd entry {}", fields[0]);
+                    }
+                }
+            }
+
+            userNames = names;
+            passwdModified = modified;
+        } catch (IOException e) {
+            log.warn("Could not read user names from {}", passwdFile, e);
+        }
+    }
+
+    private Long findUid(String userName) {
+        return userNames.entrySet().stream()
+                .filter(e -> userName.equals(e.getValue()))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static JmxStringifiedData<ProcessInfo> newListing() {
+        JmxStringifiedData<ProcessInfo> data = new JmxStringifiedData<>();
+        data.setDtoData(new ArrayList<>());
+        data.setJmxStringData(new ArrayList<>());
+        data.getJmxStringData().add(HEADER);
+
+        return data;
+    }
+
+    private static void add(JmxStringifiedData<ProcessInfo> data, ProcessInfo info) {
+        data.getDtoData().add(info);
+        data.getJmxStringData().add(formatLine(info.getUserId(), info.getCpuLoad(), info.getStartTime(),
+                info.getMemUsed(), info.getProcessId(), info.getCommand()));
+    }
+
+    private static String formatLine(String user, String cpu, String start, String mem, String pid,
+            String command) {
+        return String.format(Locale.ROOT, "%-8s %5s %8s %4s %5s %s", user, cpu, start, mem, pid, command);
+    }
+
+    private static String formatPercentage(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    /**
+     * Formats the start time like ps does: the time of day for processes started today, the month and day for
+     * processes started this year and the year otherwise.
+     */
+    static String formatStartTime(LocalDateTime now, long startEpochSecond) {
+        LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochSecond(startEpochSecond),
+                ZoneId.systemDefault());
+
+        if (start.toLocalDate().equals(now.toLocalDate())) {
+            return TIME_OF_DAY.format(start);
+        } else if (start.getYear() == now.getYear()) {
+            return DAY_OF_YEAR.format(start);
+        }
+
+        return YEAR.format(start);
+    }
+
+    private static double parseFirstDouble(String contents) {
+        return Double.parseDouble(contents.trim().split("\\s+")[0]);
+    }
+
+    private static long findValue(String contents, String key) {
+        for (String line : contents.split("\n")) {
+            if (line.startsWith(key)) {
+                return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]);
+            }
+        }
+
+        throw new IllegalStateException(key + " not found");
+    }
+
+    private static int findLine(byte[] bytes, int length, byte[] key) {
+        int lineStart = 0;
+
+        while (lineStart < length) {
+            if (startsWith(bytes, lineStart, length, key)) {
+                return lineStart + key.length;
+            }
+
+            int newline = indexOf(bytes, lineStart, length, (byte) '\n');
+
+            if (newline < 0) {
+                break;
+            }
+
+            lineStart = newline + 1;
+        }
+
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int length, byte[] prefix) {
+        if (from + prefix.length > length) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int length, byte value) {
+        for (int i = Math.max(0, from); i < length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] bytes, int length, byte value) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Parses whitespace separated (possibly negative) integers starting at the given position until the target
+     * array is full or a line ends.
+     */
+    private static void parseLongs(byte[] bytes, int from, int length, long[] target) {
+        if (from < 0) {
+            throw new IllegalStateException("Field not found");
+        }
+
+        int position = from;
+
+        for (int field = 0; field < target.length; field++) {
+            while (position < length && (bytes[position] == ' ' || bytes[position] == '\t')) {
+                position++;
+            }
+
+            if (position >= length || bytes[position] == '\n') {
+                throw new IllegalStateException("Too few fields");
+            }
+
+            boolean negative = bytes[position] == '-';
+
+            if (negative) {
+                position++;
+            }
+
+            long value = 0;
+
+            while (position < length && bytes[position] >= '0' && bytes[position] <= '9') {
+                value = value * DECIMAL_RADIX + (bytes[position] - '0');
+                position++;
+            }
+
+            target[field] = negative ? -value : value;
+        }
+    }
+}
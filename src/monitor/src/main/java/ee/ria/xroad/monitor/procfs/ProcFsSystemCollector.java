@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor.procfs;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Collects host level information from /proc/version, /proc/loadavg and /proc/net/dev.
+ * Not thread-safe, the file buffer is reused between collections.
+ */
+public class ProcFsSystemCollector {
+
+    private static final String LOOPBACK_INTERFACE = "lo";
+    private static final int NET_DEV_HEADER_LINES = 2;
+    private static final int NET_DEV_BYTES_RECEIVED = 0;
+    private static final int NET_DEV_BYTES_TRANSMITTED = 8;
+
+    private final Path procRoot;
+    private final ProcFileReader reader = new ProcFileReader();
+
+    /**
+     * Load averages over 1, 5 and 15 minutes.
+     */
+    @Value
+    public static class LoadAverage {
+        double oneMinute;
+        double fiveMinutes;
+        double fifteenMinutes;
+    }
+
+    /**
+     * Bytes received and transmitted over all interfaces except the loopback interface.
+     */
+    @Value
+    public static class NetworkTraffic {
+        long bytesReceived;
+        long bytesTransmitted;
+    }
+
+    /**
+     * Creates a collector reading the proc file system of the host.
+     */
+    public ProcFsSystemCollector() {
+        this(Paths.get("/proc"));
+    }
+
+    ProcFsSystemCollector(Path procRoot) {
+        this.procRoot = procRoot;
+    }
+
+    /**
+     * @return the operating system information, as in /proc/version
+     * @throws IOException if reading fails
+     */
+    public String readOsInfo() throws IOException {
+        return reader.readString(procRoot.resolve("version")).trim();
+    }
+
+    /**
+     * @return the current load averages
+     * @throws IOException if reading fails
+     */
+    public LoadAverage readLoadAverage() throws IOException {
+        String[] fields = reader.readString(procRoot.resolve("loadavg")).trim().split("\\s+");
+
+        return new LoadAverage(Double.parseDouble(fields[0]), Double.parseDouble(fields[1]),
+                Double.parseDouble(fields[2]));
+    }
+
+    /**
+     * @return the network traffic counters since boot
+     * @throws IOException if reading fails
+     */
+    public NetworkTraffic readNetworkTraffic() throws IOException {
+        String[] lines = reader.readString(procRoot.resolve("net/dev")).split("\n");
+        long received = 0;
+        long transmitted = 0;
+
+        for (int i = NET_DEV_HEADER_LINES; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+
+            if (colon < 0 || LOOPBACK_INTERFACE.equals(lines[i].substring(0, colon).trim())) {
+                continue;
+            }
+
+            String[] counters = lines[i].substring(colon + 1).trim().split("\\s+");
+            received += Long.parseLong(counters[NET_DEV_BYTES_RECEIVED]);
+            transmitted += Long.parseLong(counters[NET_DEV_BYTES_TRANSMITTED]);
+        }
+
+        return new NetworkTraffic(received, transmitted);
+    }
+}
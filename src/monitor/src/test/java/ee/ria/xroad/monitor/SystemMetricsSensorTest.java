@@ -25,6 +25,7 @@
 package ee.ria.xroad.monitor;
 
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.monitor.common.LatencyStats;
 import ee.ria.xroad.monitor.common.StatsRequest;
 import ee.ria.xroad.monitor.common.StatsResponse;
 import ee.ria.xroad.monitor.common.SystemMetricNames;
@@ -42,6 +43,7 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -71,7 +73,7 @@ public class SystemMetricsSensorTest {
         final ActorRef sensor = TestActorRef.create(actorSystem, Props.create(SystemMetricsSensor.class,
                 agent.getRef().path().toString()));
         agent.expectMsgClass(StatsRequest.class);
-        sensor.tell(new StatsResponse(0, 0, 1.0, 0, 0, 0, 0, 0), agent.getRef());
+        sensor.tell(new StatsResponse(0, 0, 1.0, 0, 0, 0, 0, 0, 0, 0, Collections.emptyMap()), agent.getRef());
 
         for (Map.Entry<String, Histogram> e : registry.getHistograms().entrySet()) {
             if (SystemMetricNames.SYSTEM_CPU_LOAD.equalsIgnoreCase(e.getKey())) {
@@ -83,5 +85,25 @@ public class SystemMetricsSensorTest {
 
     }
 
+    @Test
+    public void testMessageStageLatencies() {
+        final MetricRegistry registry = new MetricRegistry();
+        MetricRegistryHolder.getInstance().setMetrics(registry);
+
+        final TestKit agent = new TestKit(actorSystem);
+        final ActorRef sensor = TestActorRef.create(actorSystem, Props.create(SystemMetricsSensor.class,
+                agent.getRef().path().toString()));
+        agent.expectMsgClass(StatsRequest.class);
+        sensor.tell(new StatsResponse(0, 0, 1.0, 0, 0, 0, 0, 0, 0, 0,
+                Collections.singletonMap("ClientProxy.Signing", new LatencyStats(10, 200, 150, 300, 900, 1000))),
+                agent.getRef());
+
+        final String prefix = SystemMetricNames.MESSAGE_STAGE_LATENCY + ".ClientProxy.Signing.";
+        Assert.assertEquals(10L, registry.getGauges().get(prefix + "Count").getValue());
+        Assert.assertEquals(150L, registry.getGauges().get(prefix + "Median").getValue());
+        Assert.assertEquals(900L, registry.getGauges().get(prefix + "P99").getValue());
+        Assert.assertEquals(1000L, registry.getGauges().get(prefix + "Max").getValue());
+    }
+
 }
 
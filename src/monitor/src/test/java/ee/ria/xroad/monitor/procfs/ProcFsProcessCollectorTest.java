@@ -0,0 +1,186 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor.procfs;
+
+import ee.ria.xroad.monitor.JmxStringifiedData;
+import ee.ria.xroad.monitor.executablelister.PackageInfo;
+import ee.ria.xroad.monitor.executablelister.ProcessInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading process, system and package information from files in the proc file system format.
+ */
+public class ProcFsProcessCollectorTest {
+
+    private static final long BOOT_TIME = 1500000000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path proc;
+    private Path passwd;
+
+    /**
+     * Creates a fake proc file system with a kernel thread, a shell and an X-Road java process.
+     */
+    @Before
+    public void setup() throws IOException {
+        proc = folder.newFolder("proc").toPath();
+        passwd = folder.newFile("passwd").toPath();
+
+        write(passwd, "root:x:0:0:root:/root:/bin/bash\nxroad:x:999:999::/var/lib/xroad:/bin/sh\n");
+        write(proc.resolve("uptime"), "1000.00 3000.00\n");
+        write(proc.resolve("stat"), "cpu  1 2 3 4 5 6 7 8 0 0\nbtime " + BOOT_TIME + "\nprocesses 100\n");
+        write(proc.resolve("meminfo"), "MemTotal:        1000000 kB\nMemFree:          500000 kB\n");
+        write(proc.resolve("version"), "Linux version 4.15.0-generic (buildd@lgw01) #1 SMP\n");
+        write(proc.resolve("loadavg"), "0.50 0.25 0.10 1/100 12345\n");
+        Files.createDirectories(proc.resolve("net"));
+        write(proc.resolve("net/dev"),
+                "Inter-|   Receive                                                |  Transmit\n"
+                + " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop"
+                + " fifo colls carrier compressed\n"
+                + "    lo:  500 5 0 0 0 0 0 0  500 5 0 0 0 0 0 0\n"
+                + "  eth0: 1000 10 0 0 0 0 0 0 2000 20 0 0 0 0 0 0\n"
+                + "  eth1:  100 1 0 0 0 0 0 0  200 2 0 0 0 0 0 0\n");
+
+        // Started at 0 s, 2000 ticks (20 s) of cpu time over 1000 s of uptime
+        writeProcess(2, "kthreadd", 0, "1000 1000 0", "", 2000, 0, "");
+        // Started at 500 s with a command name containing spaces and parentheses
+        writeProcess(10, "my (shell) x", 0, "1000 1000 0", "VmRSS:\t   20000 kB\n", 5000, 50000, "sh\0-c\0x\0");
+        writeProcess(200, "java", 999, "1000 1000 0", "VmRSS:\t  100000 kB\n", 10000, 0,
+                "java\0-Xmx50m\0ee.ria.xroad.proxy.ProxyMain\0");
+        // Not a process directory
+        Files.createDirectories(proc.resolve("sys"));
+    }
+
+    @Test
+    public void listsAllAndXroadProcesses() throws IOException {
+        ProcFsProcessCollector.Processes processes = new ProcFsProcessCollector(proc, passwd).collect();
+
+        assertEquals(3, processes.getAllProcesses().getDtoData().size());
+        assertEquals(4, processes.getAllProcesses().getJmxStringData().size()); // header row included
+        assertTrue(processes.getAllProcesses().getJmxStringData().get(0).startsWith("USER"));
+
+        ProcessInfo kernelThread = processes.getAllProcesses().getDtoData().get(0);
+        assertEquals("2", kernelThread.getProcessId());
+        assertEquals("root", kernelThread.getUserId());
+        assertEquals("2.0", kernelThread.getCpuLoad());
+        assertEquals("0.0", kernelThread.getMemUsed());
+        assertEquals("kthreadd", kernelThread.getCommand());
+
+        ProcessInfo shell = processes.getAllProcesses().getDtoData().get(1);
+        assertEquals("10", shell.getProcessId());
+        assertEquals("my (shell) x", shell.getCommand());
+        assertEquals("2.0", shell.getMemUsed());
+        assertEquals("10.0", shell.getCpuLoad());
+
+        assertEquals(1, processes.getXroadProcesses().getDtoData().size());
+        ProcessInfo xroad = processes.getXroadProcesses().getDtoData().get(0);
+        assertEquals("200", xroad.getProcessId());
+        assertEquals("xroad", xroad.getUserId());
+        assertEquals("10.0", xroad.getMemUsed());
+        assertEquals("java -Xmx50m ee.ria.xroad.proxy.ProxyMain", xroad.getCommand());
+    }
+
+    @Test
+    public void readsSystemInformation() throws IOException {
+        ProcFsSystemCollector collector = new ProcFsSystemCollector(proc);
+
+        assertEquals("Linux version 4.15.0-generic (buildd@lgw01) #1 SMP", collector.readOsInfo());
+        assertEquals(0.5, collector.readLoadAverage().getOneMinute(), 0.0);
+        assertEquals(0.1, collector.readLoadAverage().getFifteenMinutes(), 0.0);
+        assertEquals(1100, collector.readNetworkTraffic().getBytesReceived());
+        assertEquals(2200, collector.readNetworkTraffic().getBytesTransmitted());
+    }
+
+    @Test
+    public void cachesPackagesUntilDatabaseChanges() throws IOException {
+        Path status = folder.newFile("status").toPath();
+        write(status, "Package: xroad-proxy\nStatus: install ok installed\nVersion: 6.24.0-1\n\n"
+                + "Package: removed\nStatus: deinstall ok not-installed\nVersion: 1.0\n\n"
+                + "Package: openssl\nStatus: install ok installed\nPriority: optional\nVersion: 1.1.1-1\n");
+
+        Supplier<JmxStringifiedData<PackageInfo>> rpmLister = () -> {
+            throw new AssertionError("rpm should not be used");
+        };
+        CachingPackageCollector collector = new CachingPackageCollector(status, proc.resolve("rpm"),
+                proc.resolve("redhat-release"), rpmLister);
+
+        assertEquals(2, collector.list().getDtoData().size());
+        assertEquals("xroad-proxy/6.24.0-1", collector.list().getJmxStringData().get(0));
+        assertEquals("1.1.1-1", collector.list().getDtoData().get(1).getVersion());
+        assertTrue(collector.list() == collector.list());
+    }
+
+    @Test
+    public void formatsStartTimeInEnglish() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+
+        try {
+            LocalDateTime now = LocalDateTime.of(2020, 10, 19, 12, 0);
+
+            assertEquals("08:30", ProcFsProcessCollector.formatStartTime(now, epochSecond(2020, 10, 19, 8, 30)));
+            assertEquals("Mar05", ProcFsProcessCollector.formatStartTime(now, epochSecond(2020, 3, 5, 8, 30)));
+            assertEquals("2019", ProcFsProcessCollector.formatStartTime(now, epochSecond(2019, 12, 31, 8, 30)));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    private static long epochSecond(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private void writeProcess(int pid, String comm, int uid, String uidRest, String rss, long utime,
+            long starttime, String cmdline) throws IOException {
+        Path dir = Files.createDirectories(proc.resolve(Integer.toString(pid)));
+        write(dir.resolve("stat"), pid + " (" + comm + ") S 1 1 1 0 -1 4194560 100 0 0 0 " + utime
+                + " 0 0 0 20 0 1 0 " + starttime + " 1000000 100 18446744073709551615\n");
+        write(dir.resolve("status"), "Name:\t" + comm + "\nUid:\t" + uid + "\t" + uid + "\t" + uidRest + "\n"
+                + rss + "Threads:\t1\n");
+        write(dir.resolve("cmdline"), cmdline);
+    }
+
+    private static void write(Path file, String contents) throws IOException {
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
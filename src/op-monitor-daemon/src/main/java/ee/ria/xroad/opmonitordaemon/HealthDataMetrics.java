@@ -28,29 +28,21 @@ import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringSystemProperties;
 
-import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
-import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.SlidingTimeWindowReservoir;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
 
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getLastRequestTimestampGaugeName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestCounterName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestDurationName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestSizeName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getResponseSizeName;
-import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getServiceTypeName;
-
 /**
  * Health data metrics forwarded over JMX. Also, these metrics are used when
  * health data is requested using the getSecurityServerHealthData SOAP request.
+ * The metrics of each service are aggregated by a {@link ServiceHealthMetrics}
+ * instance, records can be processed concurrently.
  */
 @Slf4j
 final class HealthDataMetrics {
@@ -65,39 +57,39 @@ final class HealthDataMetrics {
     static final String MONITORING_STARTUP_TIMESTAMP =
             "monitoringStartupTimestamp";
 
-    // The timestamps of last successful and unsuccessful requests are stored
-    // for each service that is handled for, and are provided when the
-    // respective gauge is queried.
-    private static Map<String, Long> requestTimestamps = new HashMap<>();
+    /** The registry of health data. */
+    @Getter
+    private final MetricRegistry registry;
 
-    // Stores the service types of the services
-    private static Map<String, String> serviceTypes = new HashMap<>();
+    // The health metrics of each service that has been handled for.
+    private final ConcurrentMap<ServiceId, ServiceHealthMetrics> services =
+            new ConcurrentHashMap<>();
 
-    private HealthDataMetrics() {
+    /**
+     * Creates the health data metrics backed by the given registry.
+     * @param registry the metric registry of the operational monitoring daemon
+     */
+    HealthDataMetrics(MetricRegistry registry) {
+        this.registry = registry;
     }
 
     /**
      * Register the metrics of health data known at startup.
-     * @param registry                 the metric registry of the operational monitoring daemon
      * @param startupTimestampProvider a Supplier instance whose get() method
      *                                 is called when the startup timestamp gauge is queried for data
      */
-    static void registerInitialMetrics(MetricRegistry registry,
-            Supplier<Long> startupTimestampProvider) {
-        registerMonitoringStartupTimestampGauge(registry,
-                startupTimestampProvider);
-        registerHealthStatisticsPeriodSecondsGauge(registry);
+    void registerInitialMetrics(Supplier<Long> startupTimestampProvider) {
+        registerMonitoringStartupTimestampGauge(startupTimestampProvider);
+        registerHealthStatisticsPeriodSecondsGauge();
     }
 
     /**
      * Pick the required health data from all the records and update the
      * metrics registry. If necessary, new metrics are registered.
-     * @param registry the metric registry of the operational monitoring daemon
-     * @param records  a list of operational data records that will be
-     *                 analyzed for health metrics
+     * @param records a list of operational data records that will be
+     *                analyzed for health metrics
      */
-    static void processRecords(MetricRegistry registry,
-            List<OperationalDataRecord> records) {
+    void processRecords(List<OperationalDataRecord> records) {
         for (OperationalDataRecord rec : records) {
             if (!rec.getSecurityServerType().equals(
                     OpMonitoringData.SecurityServerType.PRODUCER)) {
@@ -113,100 +105,17 @@ final class HealthDataMetrics {
                 continue;
             }
 
-            registerOrUpdateGauges(registry, serviceId, rec);
-            registerOrUpdateCounters(registry, serviceId, rec);
-
-            if (rec.getSucceeded()) {
-                // Statistics of request duration and the sizes of the request
-                // and response are computed over the successful requests only.
-                registerOrUpdateHistograms(registry, serviceId, rec);
-            }
-        }
-    }
-
-    private static void registerOrUpdateGauges(MetricRegistry registry,
-            ServiceId serviceId, OperationalDataRecord rec) {
-        // last request timestamp
-        String expectedGaugeName = getLastRequestTimestampGaugeName(serviceId,
-                rec.getSucceeded());
-        requestTimestamps.put(expectedGaugeName, rec.getResponseOutTs());
-        Gauge gauge = HealthDataMetricsUtil.findGauge(registry,
-                expectedGaugeName);
-        if (gauge == null) {
-            registry.register(expectedGaugeName,
-                    (Gauge<Long>) () -> requestTimestamps.get(
-                            expectedGaugeName));
-        }
-
-        // service type
-        String serviceTypeGaugeName = getServiceTypeName(serviceId);
-        serviceTypes.put(serviceTypeGaugeName, rec.getServiceType());
-        Gauge serviceTypeGauge = HealthDataMetricsUtil.findGauge(registry,
-                serviceTypeGaugeName);
-        if (serviceTypeGauge == null) {
-            registry.register(serviceTypeGaugeName,
-                    (Gauge<String>) () -> serviceTypes.get(serviceTypeGaugeName));
-        }
-    }
-
-    private static void registerOrUpdateCounters(MetricRegistry registry,
-            ServiceId serviceId, OperationalDataRecord rec) {
-        String expectedCounterName = getRequestCounterName(serviceId,
-                rec.getSucceeded());
-        Counter counter = HealthDataMetricsUtil.findCounter(registry,
-                expectedCounterName);
-
-        if (counter == null) {
-            // Register and increment a new counter.
-            counter = new SlidingTimeWindowCounter(
-                    OP_MONITOR_HEALTH_STATS_PERIOD_SECONDS, TimeUnit.SECONDS);
-            registry.register(expectedCounterName, counter);
+            services.computeIfAbsent(serviceId, id -> new ServiceHealthMetrics(
+                    registry, id, OP_MONITOR_HEALTH_STATS_PERIOD_SECONDS))
+                    .update(rec);
         }
-
-        counter.inc();
-    }
-
-    private static void registerOrUpdateHistograms(MetricRegistry registry,
-            ServiceId serviceId, OperationalDataRecord rec) {
-        registerOrUpdateHistogram(registry, getRequestDurationName(serviceId), getRequestDuration(rec));
-
-        registerOrUpdateHistogram(registry, getRequestSizeName(serviceId), rec.getRequestSize());
-        registerOrUpdateHistogram(registry, getResponseSizeName(serviceId), rec.getResponseSize());
-    }
-
-    private static void registerOrUpdateHistogram(MetricRegistry registry, String histogramName, Long newValue) {
-
-        if (newValue == null) return;
-
-        Histogram histogram = HealthDataMetricsUtil.findHistogram(registry, histogramName);
-
-        if (histogram == null) {
-            // Add a histogram corresponding to the service and update it.
-            histogram = registry.register(histogramName,
-                    new Histogram(new SlidingTimeWindowReservoir(
-                            OP_MONITOR_HEALTH_STATS_PERIOD_SECONDS,
-                            TimeUnit.SECONDS)));
-        }
-
-        histogram.update(newValue);
-    }
-
-    /**
-     * @param record an operational data record
-     * @return the duration of the request (the difference between the
-     * response out timestamp and the request in timestamp of the request.
-     */
-    private static Long getRequestDuration(OperationalDataRecord record) {
-        return record.getResponseOutTs() - record.getRequestInTs();
     }
 
     /**
      * Registers the gauge that returns the period of gathering health
      * statistics.
-     * @param registry metric registry
      */
-    private static void registerHealthStatisticsPeriodSecondsGauge(
-            MetricRegistry registry) {
+    private void registerHealthStatisticsPeriodSecondsGauge() {
         registry.register(STATISTICS_PERIOD_SECONDS,
                 (Gauge<Integer>) () -> OP_MONITOR_HEALTH_STATS_PERIOD_SECONDS);
     }
@@ -214,11 +123,10 @@ final class HealthDataMetrics {
     /**
      * Registers the gauge that returns the timestamp of the moment when
      * the current instance of the operational monitoring daemon was started.
-     * @param registry                 metric registry
      * @param startupTimestampProvider startup timestamp provider
      */
-    private static void registerMonitoringStartupTimestampGauge(
-            MetricRegistry registry, Supplier<Long> startupTimestampProvider) {
+    private void registerMonitoringStartupTimestampGauge(
+            Supplier<Long> startupTimestampProvider) {
         registry.register(MONITORING_STARTUP_TIMESTAMP,
                 (Gauge<Long>) startupTimestampProvider::get);
     }
@@ -69,6 +69,7 @@ final class OpMonitorDaemon implements StartStop {
 
     private final MetricRegistry healthMetricRegistry = new MetricRegistry();
     private final JmxReporter reporter = JmxReporter.forRegistry(healthMetricRegistry).build();
+    private final HealthDataMetrics healthDataMetrics = new HealthDataMetrics(healthMetricRegistry);
 
     /**
      * Constructor. Creates the connector and request handlers.
@@ -144,10 +145,10 @@ final class OpMonitorDaemon implements StartStop {
     }
 
     private void createHandler() {
-        server.setHandler(new OpMonitorDaemonRequestHandler(healthMetricRegistry));
+        server.setHandler(new OpMonitorDaemonRequestHandler(healthDataMetrics));
     }
 
     private void registerHealthMetrics() {
-        HealthDataMetrics.registerInitialMetrics(healthMetricRegistry, this::getStartTimestamp);
+        healthDataMetrics.registerInitialMetrics(this::getStartTimestamp);
     }
 }
@@ -31,7 +31,6 @@ import ee.ria.xroad.common.util.JsonUtils;
 import ee.ria.xroad.common.util.MimeTypes;
 import ee.ria.xroad.common.util.MimeUtils;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.gson.Gson;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -60,10 +59,10 @@ class OpMonitorDaemonRequestHandler extends HandlerBase {
 
     private static final byte[] OK_RESPONSE_BYTES = getOkResponseBytes();
 
-    private final MetricRegistry healthMetricRegistry;
+    private final HealthDataMetrics healthDataMetrics;
 
-    OpMonitorDaemonRequestHandler(MetricRegistry healthMetricRegistry) {
-        this.healthMetricRegistry = healthMetricRegistry;
+    OpMonitorDaemonRequestHandler(HealthDataMetrics healthDataMetrics) {
+        this.healthDataMetrics = healthDataMetrics;
     }
 
     @Override
@@ -105,7 +104,7 @@ class OpMonitorDaemonRequestHandler extends HandlerBase {
             log.info("Received query request from {}", request.getRemoteAddr());
 
             new QueryRequestProcessor(request, response,
-                    healthMetricRegistry).process();
+                    healthDataMetrics.getRegistry()).process();
         } catch (Throwable t) { // We want to catch serious errors as well
             log.error("Error while handling query request", t);
 
@@ -134,7 +133,7 @@ class OpMonitorDaemonRequestHandler extends HandlerBase {
             log.info("Received store request from {}", request.getRemoteAddr());
 
             new StoreRequestProcessor(
-                    request, healthMetricRegistry).process();
+                    request, healthDataMetrics).process();
         } catch (Throwable t) { // We want to catch serious errors as well
             log.error("Error while handling data store request", t);
 
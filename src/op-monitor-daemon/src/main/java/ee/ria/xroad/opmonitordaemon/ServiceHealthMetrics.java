@@ -0,0 +1,192 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getLastRequestTimestampGaugeName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestCounterName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestDurationName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestSizeName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getResponseSizeName;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getServiceTypeName;
+
+/**
+ * Aggregates the health data of a single service. The metrics of the service
+ * are created once, together with their (escaped) names, and registered in
+ * the metric registry when they receive their first value, so processing a
+ * record does not involve any registry lookups or name formatting.
+ * All the metrics are thread-safe.
+ */
+final class ServiceHealthMetrics {
+
+    private final MetricRegistry registry;
+
+    // The names of the metrics that have already been registered.
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+
+    private final String lastSuccessfulRequestTimestampName;
+    private final String lastUnsuccessfulRequestTimestampName;
+    private final String serviceTypeName;
+    private final String successfulRequestCountName;
+    private final String unsuccessfulRequestCountName;
+    private final String requestDurationName;
+    private final String requestSizeName;
+    private final String responseSizeName;
+
+    private final LatestValueGauge<Long> lastSuccessfulRequestTimestamp =
+            new LatestValueGauge<>();
+    private final LatestValueGauge<Long> lastUnsuccessfulRequestTimestamp =
+            new LatestValueGauge<>();
+    private final LatestValueGauge<String> serviceType =
+            new LatestValueGauge<>();
+
+    private final Counter successfulRequestCount;
+    private final Counter unsuccessfulRequestCount;
+
+    private final Histogram requestDuration;
+    private final Histogram requestSize;
+    private final Histogram responseSize;
+
+    /**
+     * Creates the health metrics of a service.
+     * @param registry      the metric registry of the operational monitoring
+     *                      daemon
+     * @param serviceId     the service the metrics are gathered for
+     * @param periodSeconds the period of gathering health statistics
+     */
+    ServiceHealthMetrics(MetricRegistry registry, ServiceId serviceId,
+            int periodSeconds) {
+        this.registry = registry;
+
+        lastSuccessfulRequestTimestampName =
+                getLastRequestTimestampGaugeName(serviceId, true);
+        lastUnsuccessfulRequestTimestampName =
+                getLastRequestTimestampGaugeName(serviceId, false);
+        serviceTypeName = getServiceTypeName(serviceId);
+        successfulRequestCountName = getRequestCounterName(serviceId, true);
+        unsuccessfulRequestCountName = getRequestCounterName(serviceId, false);
+        requestDurationName = getRequestDurationName(serviceId);
+        requestSizeName = getRequestSizeName(serviceId);
+        responseSizeName = getResponseSizeName(serviceId);
+
+        successfulRequestCount =
+                new TimeBucketCounter(periodSeconds, TimeUnit.SECONDS);
+        unsuccessfulRequestCount =
+                new TimeBucketCounter(periodSeconds, TimeUnit.SECONDS);
+
+        requestDuration = new Histogram(
+                new TimeBucketReservoir(periodSeconds, TimeUnit.SECONDS));
+        requestSize = new Histogram(
+                new TimeBucketReservoir(periodSeconds, TimeUnit.SECONDS));
+        responseSize = new Histogram(
+                new TimeBucketReservoir(periodSeconds, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Updates the metrics of the service with the data of the given record.
+     * @param rec an operational data record of the service, handled in the
+     *            producer role
+     */
+    void update(OperationalDataRecord rec) {
+        boolean succeeded = rec.getSucceeded();
+
+        // last request timestamp
+        if (succeeded) {
+            lastSuccessfulRequestTimestamp.set(rec.getResponseOutTs());
+            register(lastSuccessfulRequestTimestampName,
+                    lastSuccessfulRequestTimestamp);
+        } else {
+            lastUnsuccessfulRequestTimestamp.set(rec.getResponseOutTs());
+            register(lastUnsuccessfulRequestTimestampName,
+                    lastUnsuccessfulRequestTimestamp);
+        }
+
+        // service type
+        serviceType.set(rec.getServiceType());
+        register(serviceTypeName, serviceType);
+
+        // request count
+        if (succeeded) {
+            successfulRequestCount.inc();
+            register(successfulRequestCountName, successfulRequestCount);
+        } else {
+            unsuccessfulRequestCount.inc();
+            register(unsuccessfulRequestCountName, unsuccessfulRequestCount);
+        }
+
+        if (succeeded) {
+            // Statistics of request duration and the sizes of the request
+            // and response are computed over the successful requests only.
+            updateHistogram(requestDurationName, requestDuration,
+                    rec.getResponseOutTs() - rec.getRequestInTs());
+            updateHistogram(requestSizeName, requestSize,
+                    rec.getRequestSize());
+            updateHistogram(responseSizeName, responseSize,
+                    rec.getResponseSize());
+        }
+    }
+
+    private void updateHistogram(String name, Histogram histogram,
+            Long newValue) {
+        if (newValue == null) return;
+
+        histogram.update(newValue);
+        register(name, histogram);
+    }
+
+    private void register(String name, Metric metric) {
+        if (registered.add(name)) {
+            registry.register(name, metric);
+        }
+    }
+
+    /**
+     * A gauge that reports the value that was set last.
+     * @param <T> the type of the value
+     */
+    private static final class LatestValueGauge<T> implements Gauge<T> {
+        private volatile T value;
+
+        void set(T newValue) {
+            value = newValue;
+        }
+
+        @Override
+        public T getValue() {
+            return value;
+        }
+    }
+}
@@ -26,7 +26,6 @@ package ee.ria.xroad.opmonitordaemon;
 
 import ee.ria.xroad.common.util.JsonUtils;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.gson.Gson;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -50,13 +49,13 @@ class StoreRequestProcessor {
     /** The servlet request. */
     private HttpServletRequest servletRequest;
 
-    /** The registry of health data. */
-    private MetricRegistry healthMetricRegistry;
+    /** The health data metrics. */
+    private HealthDataMetrics healthDataMetrics;
 
     StoreRequestProcessor(HttpServletRequest servletRequest,
-            MetricRegistry healthMetricRegistry) {
+            HealthDataMetrics healthDataMetrics) {
         this.servletRequest = servletRequest;
-        this.healthMetricRegistry = healthMetricRegistry;
+        this.healthDataMetrics = healthDataMetrics;
     }
 
     /**
@@ -77,7 +76,7 @@ class StoreRequestProcessor {
 
         OperationalDataRecordManager.storeRecords(records, getEpochSecond());
 
-        HealthDataMetrics.processRecords(healthMetricRegistry, records);
+        healthDataMetrics.processRecords(records);
     }
 
     // Get usable operational data to be stored. If no such data is found,
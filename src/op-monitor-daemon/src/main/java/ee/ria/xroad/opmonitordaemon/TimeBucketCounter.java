@@ -24,24 +24,26 @@
  */
 package ee.ria.xroad.opmonitordaemon;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Reservoir;
-import com.codahale.metrics.SlidingTimeWindowReservoir;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * A counter metric that uses the sliding time window reservoir internally to
- * support periodic and configurable resetting.
+ * A counter metric that only counts the increments made within a sliding
+ * window of time. The increments are striped over a ring of time buckets
+ * holding a {@link LongAdder} each, so incrementing is O(1) and reading the
+ * count is O(buckets).
  * This counter does not support manually decrementing the count (the dec()
  * methods raise a runtime exception).
  * We extend Counter instead of implementing the Metric and Counting
  * interfaces directly, in order to be able to register our metric objects with
  * the registry.
  */
-class SlidingTimeWindowCounter extends Counter {
+class TimeBucketCounter extends Counter {
 
-    private final Reservoir reservoir;
+    private final TimeBuckets<LongAdder> buckets;
 
     /**
      * Creates a counter with the given window of time.
@@ -49,28 +51,40 @@ class SlidingTimeWindowCounter extends Counter {
      * @param window     the window of time
      * @param windowUnit the unit of {@code window}
      */
-    SlidingTimeWindowCounter(long window, TimeUnit windowUnit) {
-        reservoir = new SlidingTimeWindowReservoir(window, windowUnit);
+    TimeBucketCounter(long window, TimeUnit windowUnit) {
+        this(window, windowUnit, Clock.defaultClock());
     }
 
     /**
-     * @return the snapshot size of the sliding time window reservoir.
+     * Creates a counter with the given window of time and clock.
+     *
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     * @param clock      the clock used for sliding the window
+     */
+    TimeBucketCounter(long window, TimeUnit windowUnit, Clock clock) {
+        buckets = new TimeBuckets<>(window, windowUnit, LongAdder::new, clock);
+    }
+
+    /**
+     * @return the number of increments made within the window.
      */
     @Override
     public long getCount() {
-        return reservoir.getSnapshot().size();
+        LongAdder total = new LongAdder();
+        buckets.forEach(bucket -> total.add(bucket.sum()));
+
+        return total.sum();
     }
 
     @Override
     public void inc() {
-        reservoir.update(1L);
+        inc(1L);
     }
 
     @Override
     public void inc(long n) {
-        for (int i = 0; i < n; ++i) {
-            inc();
-        }
+        buckets.current().add(n);
     }
 
     @Override
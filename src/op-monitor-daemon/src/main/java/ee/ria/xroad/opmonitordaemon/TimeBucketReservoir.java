@@ -0,0 +1,267 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * A reservoir that summarizes the values recorded within a sliding window of
+ * time without retaining the individual values.
+ * Every time bucket keeps the count, sum, sum of squares, minimum and maximum
+ * of its values, so the minimum, maximum, mean and standard deviation of the
+ * window are exact. Quantiles are estimated from per-bucket histograms with
+ * power-of-two sized value ranges, in the spirit of HDR histograms.
+ * Updating is O(1) and taking a snapshot is O(buckets).
+ */
+class TimeBucketReservoir implements Reservoir {
+
+    // One range for zero and one for each possible bit length of a
+    // non-negative long value.
+    private static final int NUM_RANGES = Long.SIZE;
+
+    // The relative position reported for a value range holding one value.
+    private static final double RANGE_MIDPOINT = 0.5;
+
+    private final TimeBuckets<Bucket> buckets;
+
+    /**
+     * Creates a reservoir with the given window of time.
+     *
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     */
+    TimeBucketReservoir(long window, TimeUnit windowUnit) {
+        this(window, windowUnit, Clock.defaultClock());
+    }
+
+    /**
+     * Creates a reservoir with the given window of time and clock.
+     *
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     * @param clock      the clock used for sliding the window
+     */
+    TimeBucketReservoir(long window, TimeUnit windowUnit, Clock clock) {
+        buckets = new TimeBuckets<>(window, windowUnit, Bucket::new, clock);
+    }
+
+    @Override
+    public int size() {
+        LongAdder total = new LongAdder();
+        buckets.forEach(bucket -> total.add(bucket.count.sum()));
+
+        return (int) Math.min(total.sum(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        buckets.current().update(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        WindowSnapshot snapshot = new WindowSnapshot();
+        buckets.forEach(snapshot::add);
+
+        return snapshot;
+    }
+
+    private static int rangeOf(long value) {
+        // Negative values are not expected (durations and sizes), they are
+        // counted in the lowest range and still reflected in min and mean.
+        return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    private static long rangeLowerBound(int range) {
+        return range == 0 ? 0 : 1L << (range - 1);
+    }
+
+    private static long rangeUpperBound(int range) {
+        return range == 0 ? 0 : (1L << (range - 1)) + ((1L << (range - 1)) - 1);
+    }
+
+    private static final class Bucket {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final DoubleAdder sumOfSquares = new DoubleAdder();
+        private final LongAccumulator min =
+                new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max =
+                new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final AtomicLongArray ranges = new AtomicLongArray(NUM_RANGES);
+
+        void update(long value) {
+            ranges.incrementAndGet(rangeOf(value));
+            sum.add(value);
+            sumOfSquares.add((double) value * value);
+            min.accumulate(value);
+            max.accumulate(value);
+            // The count is updated last so that a concurrent snapshot never
+            // sees more values than have been summed.
+            count.increment();
+        }
+    }
+
+    /**
+     * Immutable summary of the buckets within the window. The quantiles
+     * are interpolated linearly within the value range they fall into and
+     * clamped to the exact minimum and maximum.
+     */
+    private static final class WindowSnapshot extends Snapshot {
+        private final long[] rangeCounts = new long[NUM_RANGES];
+        private long count;
+        private double sum;
+        private double sumOfSquares;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        void add(Bucket bucket) {
+            long bucketCount = bucket.count.sum();
+
+            if (bucketCount == 0) {
+                return;
+            }
+
+            count += bucketCount;
+            sum += bucket.sum.sum();
+            sumOfSquares += bucket.sumOfSquares.sum();
+            min = Math.min(min, bucket.min.get());
+            max = Math.max(max, bucket.max.get());
+
+            for (int i = 0; i < NUM_RANGES; i++) {
+                rangeCounts[i] += bucket.ranges.get(i);
+            }
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(
+                        quantile + " is not in [0..1]");
+            }
+
+            if (count == 0) {
+                return 0.0;
+            }
+
+            long total = 0;
+
+            for (int i = 0; i < NUM_RANGES; i++) {
+                total += rangeCounts[i];
+            }
+
+            double rank = quantile * (total - 1);
+            long seen = 0;
+
+            for (int i = 0; i < NUM_RANGES; i++) {
+                if (rangeCounts[i] == 0) {
+                    continue;
+                }
+
+                if (rank < seen + rangeCounts[i]) {
+                    double position = rangeCounts[i] == 1 ? RANGE_MIDPOINT
+                            : (rank - seen) / (rangeCounts[i] - 1);
+                    double lower = Math.max(min, rangeLowerBound(i));
+                    double upper = Math.min(max, rangeUpperBound(i));
+
+                    return Math.max(lower, Math.min(upper,
+                            lower + position * (upper - lower)));
+                }
+
+                seen += rangeCounts[i];
+            }
+
+            return max;
+        }
+
+        /**
+         * The individual values are not retained, so the returned array
+         * contains the upper bound of every non-empty value range instead.
+         */
+        @Override
+        public long[] getValues() {
+            return IntStream.range(0, NUM_RANGES)
+                    .filter(i -> rangeCounts[i] > 0)
+                    .mapToLong(i -> Math.min(max, rangeUpperBound(i)))
+                    .toArray();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        @Override
+        public double getMean() {
+            return count == 0 ? 0.0 : sum / count;
+        }
+
+        @Override
+        public long getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        @Override
+        public double getStdDev() {
+            // The sample standard deviation, as in the uniform snapshot of
+            // the metrics library.
+            if (count <= 1) {
+                return 0.0;
+            }
+
+            double variance = (sumOfSquares - sum * sum / count) / (count - 1);
+
+            return Math.sqrt(Math.max(0.0, variance));
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                    output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
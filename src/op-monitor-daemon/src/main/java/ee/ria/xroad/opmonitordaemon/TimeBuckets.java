@@ -0,0 +1,124 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import com.codahale.metrics.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free ring of time buckets covering a sliding window of time.
+ * The window is split into at most {@link #MAX_BUCKETS} buckets (one bucket
+ * per second for windows up to that many seconds), so updating the current
+ * bucket is O(1) and reading the whole window is O(buckets) regardless of
+ * how many values have been recorded.
+ * A bucket is replaced by a fresh one (created by the given factory) when the
+ * ring wraps around to it, so the window slides in steps of one bucket.
+ * @param <T> the type of the bucket contents, which must be thread-safe
+ */
+final class TimeBuckets<T> {
+
+    static final int MAX_BUCKETS = 60;
+
+    private final Clock clock;
+    private final Supplier<T> factory;
+    private final long bucketNanos;
+    private final int numBuckets;
+    private final AtomicReferenceArray<Slot<T>> slots;
+
+    /**
+     * Creates a bucket ring with the given window of time.
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     * @param factory    creates the contents of a new bucket
+     * @param clock      the clock used for determining the current bucket
+     */
+    TimeBuckets(long window, TimeUnit windowUnit, Supplier<T> factory,
+            Clock clock) {
+        long windowNanos = Math.max(1L, windowUnit.toNanos(window));
+
+        this.clock = clock;
+        this.factory = factory;
+        this.numBuckets = (int) Math.max(1L,
+                Math.min(windowUnit.toSeconds(window), MAX_BUCKETS));
+        this.bucketNanos = (windowNanos + numBuckets - 1) / numBuckets;
+        this.slots = new AtomicReferenceArray<>(numBuckets);
+    }
+
+    /**
+     * @return the contents of the bucket the current moment belongs to
+     */
+    T current() {
+        long index = Math.floorDiv(clock.getTick(), bucketNanos);
+        int position = (int) Math.floorMod(index, (long) numBuckets);
+
+        while (true) {
+            Slot<T> slot = slots.get(position);
+
+            // A slot newer than the index can only be seen if this thread
+            // was delayed over a bucket boundary. Recording the value in the
+            // newer bucket is harmless, replacing it would lose data.
+            if (slot != null && slot.index >= index) {
+                return slot.value;
+            }
+
+            Slot<T> fresh = new Slot<>(index, factory.get());
+
+            if (slots.compareAndSet(position, slot, fresh)) {
+                return fresh.value;
+            }
+        }
+    }
+
+    /**
+     * Performs the given action on the contents of every bucket that is
+     * still within the window.
+     * @param action the action to perform
+     */
+    void forEach(Consumer<T> action) {
+        long index = Math.floorDiv(clock.getTick(), bucketNanos);
+
+        for (int i = 0; i < numBuckets; i++) {
+            Slot<T> slot = slots.get(i);
+
+            if (slot != null && slot.index > index - numBuckets) {
+                action.accept(slot.value);
+            }
+        }
+    }
+
+    private static final class Slot<T> {
+        private final long index;
+        private final T value;
+
+        Slot(long index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+}
@@ -26,21 +26,29 @@ package ee.ria.xroad.opmonitordaemon;
 
 import ee.ria.xroad.common.identifier.ServiceId;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Test;
 
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.findCounter;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.findGauge;
+import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.findHistogram;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getLastRequestTimestampGaugeName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestCounterName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestDurationName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getRequestSizeName;
 import static ee.ria.xroad.opmonitordaemon.HealthDataMetricsUtil.getServiceTypeName;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Tests against the utility methods in HealthDataMetricsUtil.
  */
 public class HealthDataMetricsUtilTest {
 
+    private final MetricRegistry registry = new MetricRegistry();
+
     @Test
     public void testConvertSimpleServiceId() {
         OperationalDataRecord rec = new OperationalDataRecord();
@@ -61,35 +69,26 @@ public class HealthDataMetricsUtilTest {
         String jmxKey = getLastRequestTimestampGaugeName(serviceId, true);
         assertEquals(jmxKey, "lastSuccessfulRequestTimestamp("
                 + serviceId.toShortString() + ")");
-
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertGaugeFound(jmxKey);
 
         jmxKey = getLastRequestTimestampGaugeName(serviceId, false);
         assertEquals(jmxKey, "lastUnsuccessfulRequestTimestamp("
                     + serviceId.toShortString() + ")");
-
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertGaugeFound(jmxKey);
 
         jmxKey = getRequestCounterName(serviceId, true);
         assertEquals(jmxKey, "successfulRequestCount("
                         + serviceId.toShortString() + ")");
-
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertSame(registry.counter(jmxKey), findCounter(registry, jmxKey));
 
         jmxKey = getRequestCounterName(serviceId, false);
         assertEquals(jmxKey, "unsuccessfulRequestCount("
                         + serviceId.toShortString() + ")");
-
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertSame(registry.counter(jmxKey), findCounter(registry, jmxKey));
 
         jmxKey = getServiceTypeName(serviceId);
         assertEquals(jmxKey, "serviceType(" + serviceId.toShortString() + ")");
-        regex = HealthDataMetricsUtil.formatMetricMatchRegexp(jmxKey);
-        assertTrue(jmxKey.matches(regex));
+        assertGaugeFound(jmxKey);
     }
 
     @Test
@@ -139,10 +138,7 @@ public class HealthDataMetricsUtilTest {
                 "lastSuccessfulRequestTimestamp(EE/BÖÖ/testmember"
                         + "/testservice_provider/&#91;&quot;Með_suð_í_"
                         + "eyrum&quot;&#93;/v012)");
-
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(
-                lastSuccessfulRequestTsKey);
-        assertTrue(lastSuccessfulRequestTsKey.matches(regex));
+        assertGaugeFound(lastSuccessfulRequestTsKey);
     }
 
     @Test
@@ -164,10 +160,8 @@ public class HealthDataMetricsUtilTest {
                 "requestDuration(EE/foo&#46;bar/testmember"
                         + "/testservice_provider"
                         + "/Закрой&#46;за&#46;мной&#46;дверь&#46;я&#46;ухожу)");
-
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(
-                requestDurationKey);
-        assertTrue(requestDurationKey.matches(regex));
+        assertSame(registry.histogram(requestDurationKey),
+                findHistogram(registry, requestDurationKey));
     }
 
     @Test
@@ -189,9 +183,28 @@ public class HealthDataMetricsUtilTest {
                 "requestDuration(EE&#32;TEST/foo&#92;bar"
                         + "/testmember&#44;&#32;simple/testservice_provider"
                         + "/a&#32;service&#32;with&#32;spaces)");
+        assertSame(registry.histogram(requestDurationKey),
+                findHistogram(registry, requestDurationKey));
+    }
+
+    @Test
+    public void testFindMetricByExactNameAndType() {
+        ServiceId serviceId = ServiceId.create("EE", "GOV", "testmember",
+                "testsub", "test.service");
+        String requestSizeKey = getRequestSizeName(serviceId);
+        registry.histogram(requestSizeKey);
+
+        assertNull(findCounter(registry, requestSizeKey));
+        assertNull(findGauge(registry, requestSizeKey));
+        assertNull(findHistogram(registry,
+                getRequestSizeName(ServiceId.create("EE", "GOV",
+                        "testmember", "testsub", "test-service"))));
+    }
+
+    private void assertGaugeFound(String name) {
+        Gauge<Long> gauge = () -> 0L;
+        registry.register(name, gauge);
 
-        String regex = HealthDataMetricsUtil.formatMetricMatchRegexp(
-                requestDurationKey);
-        assertTrue(requestDurationKey.matches(regex));
+        assertSame(gauge, findGauge(registry, name));
     }
 }
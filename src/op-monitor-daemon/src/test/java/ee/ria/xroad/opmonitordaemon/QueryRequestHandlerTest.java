@@ -213,8 +213,8 @@ public class QueryRequestHandlerTest {
 
     private final class TestMetricsRegistry extends MetricRegistry {
         TestMetricsRegistry() {
-            HealthDataMetrics.registerInitialMetrics(this,
-                    () -> TEST_TIMESTAMP);
+            HealthDataMetrics healthDataMetrics = new HealthDataMetrics(this);
+            healthDataMetrics.registerInitialMetrics(() -> TEST_TIMESTAMP);
 
             List<OperationalDataRecord> records = new ArrayList<>();
 
@@ -243,7 +243,7 @@ public class QueryRequestHandlerTest {
                 records.add(record);
             }
 
-            HealthDataMetrics.processRecords(this, records);
+            healthDataMetrics.processRecords(records);
         }
 
         private OperationalDataRecord createRecord(ServiceId serviceId,
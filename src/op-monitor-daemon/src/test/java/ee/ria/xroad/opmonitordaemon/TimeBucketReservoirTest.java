@@ -0,0 +1,132 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.opmonitordaemon;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the time bucket based counter and reservoir used for health data.
+ */
+public class TimeBucketReservoirTest {
+
+    private static final double DELTA = 0.0001;
+
+    private final TestClock clock = new TestClock();
+
+    @Test
+    public void countsIncrementsWithinWindow() {
+        TimeBucketCounter counter =
+                new TimeBucketCounter(10, TimeUnit.SECONDS, clock);
+
+        counter.inc();
+        counter.inc(4);
+        assertEquals(5, counter.getCount());
+
+        clock.advanceSeconds(5);
+        counter.inc(3);
+        assertEquals(8, counter.getCount());
+
+        clock.advanceSeconds(6);
+        assertEquals(3, counter.getCount());
+
+        clock.advanceSeconds(10);
+        assertEquals(0, counter.getCount());
+    }
+
+    @Test
+    public void summarizesValuesWithinWindow() {
+        TimeBucketReservoir reservoir =
+                new TimeBucketReservoir(10, TimeUnit.SECONDS, clock);
+
+        reservoir.update(10);
+        reservoir.update(20);
+        clock.advanceSeconds(3);
+        reservoir.update(30);
+        reservoir.update(40);
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(4, snapshot.size());
+        assertEquals(10, snapshot.getMin());
+        assertEquals(40, snapshot.getMax());
+        assertEquals(25.0, snapshot.getMean(), DELTA);
+        // Sample standard deviation of 10, 20, 30 and 40.
+        assertEquals(12.9099, snapshot.getStdDev(), DELTA);
+
+        clock.advanceSeconds(8);
+
+        snapshot = reservoir.getSnapshot();
+        assertEquals(2, reservoir.size());
+        assertEquals(30, snapshot.getMin());
+        assertEquals(40, snapshot.getMax());
+        assertEquals(35.0, snapshot.getMean(), DELTA);
+
+        clock.advanceSeconds(10);
+
+        snapshot = reservoir.getSnapshot();
+        assertEquals(0, snapshot.size());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0.0, snapshot.getMean(), DELTA);
+        assertEquals(0.0, snapshot.getStdDev(), DELTA);
+    }
+
+    @Test
+    public void estimatesQuantilesWithinValueRanges() {
+        TimeBucketReservoir reservoir =
+                new TimeBucketReservoir(10, TimeUnit.SECONDS, clock);
+
+        for (int i = 1; i <= 1000; i++) {
+            reservoir.update(i);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1.0, snapshot.getValue(0.0), DELTA);
+        assertEquals(1000.0, snapshot.getValue(1.0), DELTA);
+
+        // The median 500 falls into the range [256, 511].
+        double median = snapshot.getMedian();
+        assertTrue(median >= 256 && median <= 511);
+    }
+
+    private static final class TestClock extends Clock {
+        private long tick = TimeUnit.DAYS.toNanos(1);
+
+        void advanceSeconds(long seconds) {
+            tick += TimeUnit.SECONDS.toNanos(seconds);
+        }
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+    }
+}
@@ -45,6 +45,17 @@ public class PersistentApiKeyDAOImpl {
         return query.list();
     }
 
+    /**
+     * Finds the api key by the encoded key, using the index on the encoded key column
+     * @return the api key or null if not found
+     */
+    public PersistentApiKeyType findByEncodedKey(Session session, String encodedKey) {
+        Query query = session.createQuery("from " + PersistentApiKeyType.class.getName()
+                + " where encodedKey = :encodedKey");
+        query.setParameter("encodedKey", encodedKey);
+        return (PersistentApiKeyType) query.uniqueResult();
+    }
+
     public void insert(Session session, PersistentApiKeyType apiKeyType) {
         session.persist(apiKeyType);
     }
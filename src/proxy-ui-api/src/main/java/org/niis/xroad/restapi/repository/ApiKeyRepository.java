@@ -24,6 +24,8 @@
  */
 package org.niis.xroad.restapi.repository;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.niis.xroad.restapi.dao.PersistentApiKeyDAOImpl;
 import org.niis.xroad.restapi.domain.InvalidRoleNameException;
@@ -33,11 +35,14 @@ import org.niis.xroad.restapi.exceptions.ErrorDeviation;
 import org.niis.xroad.restapi.service.NotFoundException;
 import org.niis.xroad.restapi.util.PersistenceUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.AbstractMap;
 import java.util.Collection;
@@ -46,27 +51,43 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * API key repository which stores encoded keys in DB.
- * Uses simple caching, using ConcurrentHashMaps in memory.
+ * Keys used for authentication are cached by the encoded key in a bounded cache with a time-to-live,
+ * a revoked key is evicted from it. The key list uses simple caching, using ConcurrentHashMaps in memory.
  */
 @Slf4j
 @Repository
 @Transactional
 public class ApiKeyRepository {
 
-    // two caches
-    public static final String GET_KEY_CACHE = "apikey-by-keys";
     public static final String LIST_ALL_KEYS_CACHE = "all-apikeys";
 
     private final PasswordEncoder passwordEncoder;
     private final PersistenceUtils persistenceUtils;
 
+    // encoded key -> api key
+    private final Cache<String, PersistentApiKeyType> apiKeyCache;
+
+    /**
+     * constructor
+     * @param passwordEncoder
+     * @param persistenceUtils
+     * @param cacheMaxSize maximum number of api keys cached for authentication
+     * @param cacheTtl seconds a cached api key is used before it is read again from the DB
+     */
     @Autowired
-    public ApiKeyRepository(PasswordEncoder passwordEncoder, PersistenceUtils persistenceUtils) {
+    public ApiKeyRepository(PasswordEncoder passwordEncoder, PersistenceUtils persistenceUtils,
+            @Value("${apikey.cache.max-size}") long cacheMaxSize,
+            @Value("${apikey.cache.ttl}") long cacheTtl) {
         this.passwordEncoder = passwordEncoder;
         this.persistenceUtils = persistenceUtils;
+        this.apiKeyCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+                .build();
     }
 
     /**
@@ -81,7 +102,7 @@ public class ApiKeyRepository {
     /**
      * create api key with one role
      */
-    @CacheEvict(allEntries = true, cacheNames = { LIST_ALL_KEYS_CACHE, GET_KEY_CACHE })
+    @CacheEvict(allEntries = true, cacheNames = LIST_ALL_KEYS_CACHE)
     public Map.Entry<String, PersistentApiKeyType> create(String roleName) throws InvalidRoleNameException {
         return create(Collections.singletonList(roleName));
     }
@@ -91,7 +112,7 @@ public class ApiKeyRepository {
      * @return Map.Entry with key = plaintext key, value = PersistentApiKeyType
      * @throws InvalidRoleNameException if roleNames was empty or contained invalid roles
      */
-    @CacheEvict(allEntries = true, cacheNames = { LIST_ALL_KEYS_CACHE, GET_KEY_CACHE })
+    @CacheEvict(allEntries = true, cacheNames = LIST_ALL_KEYS_CACHE)
     public Map.Entry<String, PersistentApiKeyType> create(Collection<String> roleNames)
             throws InvalidRoleNameException {
         if (roleNames.isEmpty()) {
@@ -119,16 +140,34 @@ public class ApiKeyRepository {
      * @return
      * @throws ApiKeyNotFoundException if api key was not found
      */
-    @Cacheable(GET_KEY_CACHE)
     public PersistentApiKeyType get(String key) throws ApiKeyNotFoundException {
-        String encodedKey = passwordEncoder.encode(key);
-        List<PersistentApiKeyType> keys = new PersistentApiKeyDAOImpl().findAll(persistenceUtils.getCurrentSession());
-        for (PersistentApiKeyType apiKeyType : keys) {
-            if (apiKeyType.getEncodedKey().equals(encodedKey)) {
-                return apiKeyType;
+        String encodedKey = encode(key);
+        PersistentApiKeyType apiKeyType = apiKeyCache.getIfPresent(encodedKey);
+        if (apiKeyType == null) {
+            apiKeyType = new PersistentApiKeyDAOImpl().findByEncodedKey(persistenceUtils.getCurrentSession(),
+                    encodedKey);
+            if (apiKeyType == null) {
+                throw new ApiKeyNotFoundException("api key not found");
             }
+            apiKeyCache.put(encodedKey, apiKeyType);
+        }
+        return apiKeyType;
+    }
+
+    /**
+     * Evicts the key from the authentication cache now and once the transaction has completed,
+     * so that a concurrent get can not cache the key again before the removal is committed
+     */
+    private void evict(String encodedKey) {
+        apiKeyCache.invalidate(encodedKey);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    apiKeyCache.invalidate(encodedKey);
+                }
+            });
         }
-        throw new ApiKeyNotFoundException("api key not found");
     }
 
     /**
@@ -136,10 +175,11 @@ public class ApiKeyRepository {
      * @param key
      * @throws ApiKeyNotFoundException if api key was not found
      */
-    @CacheEvict(allEntries = true, cacheNames = { LIST_ALL_KEYS_CACHE, GET_KEY_CACHE })
+    @CacheEvict(allEntries = true, cacheNames = LIST_ALL_KEYS_CACHE)
     public void remove(String key) throws ApiKeyNotFoundException {
         PersistentApiKeyType apiKeyType = get(key);
         new PersistentApiKeyDAOImpl().delete(persistenceUtils.getCurrentSession(), apiKeyType);
+        evict(apiKeyType.getEncodedKey());
     }
 
     /**
@@ -147,7 +187,7 @@ public class ApiKeyRepository {
      * @param id
      * @throws ApiKeyNotFoundException if api key was not found
      */
-    @CacheEvict(allEntries = true, cacheNames = { LIST_ALL_KEYS_CACHE, GET_KEY_CACHE })
+    @CacheEvict(allEntries = true, cacheNames = LIST_ALL_KEYS_CACHE)
     public void removeById(long id) throws ApiKeyNotFoundException {
         PersistentApiKeyDAOImpl dao = new PersistentApiKeyDAOImpl();
         PersistentApiKeyType apiKeyType = dao.findById(persistenceUtils.getCurrentSession(), id);
@@ -155,6 +195,7 @@ public class ApiKeyRepository {
             throw new ApiKeyNotFoundException("api key with id " + id + " not found");
         }
         dao.delete(persistenceUtils.getCurrentSession(), apiKeyType);
+        evict(apiKeyType.getEncodedKey());
     }
 
     /**
@@ -24,6 +24,7 @@
  */
 package org.niis.xroad.restapi.service;
 
+import ee.ria.xroad.common.conf.globalconf.MemberInfo;
 import ee.ria.xroad.common.conf.serverconf.IsAuthentication;
 import ee.ria.xroad.common.conf.serverconf.model.CertificateType;
 import ee.ria.xroad.common.conf.serverconf.model.ClientType;
@@ -67,6 +68,9 @@ public class ClientService {
     private final ClientRepository clientRepository;
     private final GlobalConfFacade globalConfFacade;
 
+    // rebuilt when the global configuration members change
+    private volatile GlobalClientIndex globalClientIndex;
+
     /**
      * ClientService constructor
      * @param clientRepository
@@ -112,14 +116,22 @@ public class ClientService {
      * @return
      */
     public List<ClientType> getAllGlobalClients() {
-        return globalConfFacade.getMembers()
-                .stream()
-                .map(memberInfo -> {
-                    ClientType clientType = new ClientType();
-                    clientType.setIdentifier(memberInfo.getId());
-                    return clientType;
-                })
-                .collect(Collectors.toList());
+        return getGlobalClientIndex().getClients();
+    }
+
+    /**
+     * Return the search index of the global clients, building it if the global configuration members
+     * have changed since the index was built
+     * @return
+     */
+    private GlobalClientIndex getGlobalClientIndex() {
+        List<MemberInfo> members = globalConfFacade.getMembers();
+        GlobalClientIndex index = globalClientIndex;
+        if (index == null || !index.isBuiltFrom(members)) {
+            index = new GlobalClientIndex(members);
+            globalClientIndex = index;
+        }
+        return index;
     }
 
     /**
@@ -347,12 +359,7 @@ public class ClientService {
      */
     public List<ClientType> findGlobalClients(String name, String instance, String propertyClass, String memberCode,
             String subsystemCode, boolean showMembers) {
-        Predicate<ClientType> matchingSearchTerms = buildClientSearchPredicate(name, instance, propertyClass,
-                memberCode, subsystemCode);
-        return getAllGlobalClients().stream()
-                .filter(matchingSearchTerms)
-                .filter(clientType -> showMembers || clientType.getIdentifier().getSubsystemCode() != null)
-                .collect(Collectors.toList());
+        return getGlobalClientIndex().find(name, instance, propertyClass, memberCode, subsystemCode, showMembers);
     }
 
     /**
@@ -361,13 +368,12 @@ public class ClientService {
      * @return
      */
     public Optional<ClientType> findByClientId(ClientId clientId) {
-        List<ClientType> localClients = getAllLocalClients();
-        List<ClientType> globalClients = getAllGlobalClients();
-        List<ClientType> distinctClients = mergeClientListsDistinctively(globalClients, localClients);
-        return distinctClients.stream()
+        // local clients are favoured over global ones, like in findClients
+        Optional<ClientType> localClient = getAllLocalClients().stream()
                 .filter(clientType -> clientType.getIdentifier().toShortString().trim()
                         .equals(clientId.toShortString().trim()))
                 .findFirst();
+        return localClient.isPresent() ? localClient : getGlobalClientIndex().get(clientId);
     }
 
     /**
@@ -0,0 +1,218 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.restapi.service;
+
+import ee.ria.xroad.common.conf.globalconf.MemberInfo;
+import ee.ria.xroad.common.conf.serverconf.model.ClientType;
+import ee.ria.xroad.common.identifier.ClientId;
+
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable search index of the global clients, built from one version of the global configuration members.
+ * Clients are mapped exactly by their identifier. Member names, member codes and subsystem codes are split into
+ * lower case trigrams, the posting lists of which narrow down the clients checked for a case-insensitive
+ * substring (and thus prefix) match.
+ */
+final class GlobalClientIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int[] NO_CLIENTS = new int[0];
+
+    private final List<MemberInfo> members;
+    private final List<ClientType> clients;
+    private final Map<String, ClientType> clientsById;
+
+    private final String[] names;
+    private final String[] instances;
+    private final String[] memberClasses;
+    private final String[] memberCodes;
+    private final String[] subsystemCodes;
+
+    private final Map<String, int[]> nameGrams;
+    private final Map<String, int[]> memberCodeGrams;
+    private final Map<String, int[]> subsystemCodeGrams;
+
+    /**
+     * Builds the index
+     * @param members global configuration members
+     */
+    GlobalClientIndex(List<MemberInfo> members) {
+        this.members = new ArrayList<>(members);
+        int size = members.size();
+        this.clients = new ArrayList<>(size);
+        this.clientsById = new HashMap<>();
+        this.names = new String[size];
+        this.instances = new String[size];
+        this.memberClasses = new String[size];
+        this.memberCodes = new String[size];
+        this.subsystemCodes = new String[size];
+
+        Map<String, List<Integer>> nameGramLists = new HashMap<>();
+        Map<String, List<Integer>> memberCodeGramLists = new HashMap<>();
+        Map<String, List<Integer>> subsystemCodeGramLists = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            MemberInfo memberInfo = members.get(i);
+            ClientId id = memberInfo.getId();
+            ClientType clientType = new ClientType();
+            clientType.setIdentifier(id);
+            clients.add(clientType);
+            clientsById.put(id.toShortString().trim(), clientType);
+
+            names[i] = lowerCaseValue(memberInfo.getName());
+            instances[i] = lowerCaseValue(id.getXRoadInstance());
+            memberClasses[i] = lowerCaseValue(id.getMemberClass());
+            memberCodes[i] = lowerCaseValue(id.getMemberCode());
+            subsystemCodes[i] = lowerCaseValue(id.getSubsystemCode());
+
+            addGrams(nameGramLists, names[i], i);
+            addGrams(memberCodeGramLists, memberCodes[i], i);
+            addGrams(subsystemCodeGramLists, subsystemCodes[i], i);
+        }
+
+        this.nameGrams = toPostingLists(nameGramLists);
+        this.memberCodeGrams = toPostingLists(memberCodeGramLists);
+        this.subsystemCodeGrams = toPostingLists(subsystemCodeGramLists);
+    }
+
+    /**
+     * @return true if this index was built from the given members
+     */
+    boolean isBuiltFrom(List<MemberInfo> currentMembers) {
+        return members.equals(currentMembers);
+    }
+
+    /**
+     * @return all global clients
+     */
+    List<ClientType> getClients() {
+        return Collections.unmodifiableList(clients);
+    }
+
+    /**
+     * Find global client by exact client id
+     * @param clientId
+     * @return
+     */
+    Optional<ClientType> get(ClientId clientId) {
+        return Optional.ofNullable(clientsById.get(clientId.toShortString().trim()));
+    }
+
+    /**
+     * Find global clients matching all the given search terms. The terms are matched case-insensitively
+     * against any part of the respective field, empty terms match everything.
+     * @param name
+     * @param instance
+     * @param memberClass
+     * @param memberCode
+     * @param subsystemCode
+     * @param showMembers include members (without subsystemCode) in the results
+     * @return ClientType list
+     */
+    List<ClientType> find(String name, String instance, String memberClass, String memberCode,
+            String subsystemCode, boolean showMembers) {
+        String nameTerm = lowerCaseTerm(name);
+        String instanceTerm = lowerCaseTerm(instance);
+        String memberClassTerm = lowerCaseTerm(memberClass);
+        String memberCodeTerm = lowerCaseTerm(memberCode);
+        String subsystemCodeTerm = lowerCaseTerm(subsystemCode);
+
+        // the shortest posting list of any trigram of the terms contains all the matching clients
+        int[] candidates = null;
+        candidates = shorter(candidates, nameGrams, nameTerm);
+        candidates = shorter(candidates, memberCodeGrams, memberCodeTerm);
+        candidates = shorter(candidates, subsystemCodeGrams, subsystemCodeTerm);
+
+        List<ClientType> result = new ArrayList<>();
+        int count = candidates != null ? candidates.length : clients.size();
+        for (int c = 0; c < count; c++) {
+            int i = candidates != null ? candidates[c] : c;
+            if ((showMembers || subsystemCodes[i] != null)
+                    && matches(names[i], nameTerm)
+                    && matches(instances[i], instanceTerm)
+                    && matches(memberClasses[i], memberClassTerm)
+                    && matches(memberCodes[i], memberCodeTerm)
+                    && matches(subsystemCodes[i], subsystemCodeTerm)) {
+                result.add(clients.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(String value, String term) {
+        return term == null || (value != null && value.contains(term));
+    }
+
+    private static int[] shorter(int[] candidates, Map<String, int[]> grams, String term) {
+        if (term == null) {
+            return candidates;
+        }
+        int[] shortest = candidates;
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            int[] postings = grams.getOrDefault(term.substring(i, i + GRAM_LENGTH), NO_CLIENTS);
+            if (shortest == null || postings.length < shortest.length) {
+                shortest = postings;
+            }
+        }
+        return shortest;
+    }
+
+    private static void addGrams(Map<String, List<Integer>> gramLists, String value, int index) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            List<Integer> postings = gramLists.computeIfAbsent(value.substring(i, i + GRAM_LENGTH),
+                    gram -> new ArrayList<>());
+            // the same gram may occur several times in one value
+            if (postings.isEmpty() || postings.get(postings.size() - 1) != index) {
+                postings.add(index);
+            }
+        }
+    }
+
+    private static Map<String, int[]> toPostingLists(Map<String, List<Integer>> gramLists) {
+        Map<String, int[]> postingLists = new HashMap<>(gramLists.size() * 2);
+        gramLists.forEach((gram, postings) -> postingLists.put(gram,
+                postings.stream().mapToInt(Integer::intValue).toArray()));
+        return postingLists;
+    }
+
+    private static String lowerCaseValue(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+
+    private static String lowerCaseTerm(String term) {
+        return StringUtils.isEmpty(term) ? null : term.toLowerCase();
+    }
+}
@@ -3,6 +3,8 @@ CREATE TABLE apikey (
   encodedkey VARCHAR(255) NOT NULL
 );
 
+CREATE INDEX apikey_encodedkey_idx ON apikey (encodedkey);
+
 -- -- use same convention (bigserial id) as service_securitycategories
 CREATE TABLE apikey_roles
 (
@@ -46,6 +46,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
@@ -95,29 +96,60 @@ public class ApiKeyRepositoryCachingIntegrationTest {
                 apiKeyRepository.create(Role.XROAD_REGISTRATION_OFFICER.name());
         List<PersistentApiKeyType> listOfOne = Arrays.asList(keyEntry.getValue());
         when(query.list()).thenReturn(listOfOne);
+        when(query.uniqueResult()).thenReturn(keyEntry.getValue());
         // then get this key
         apiKeyRepository.get(keyEntry.getKey());
         apiKeyRepository.get(keyEntry.getKey());
-        verify(query, times(1)).list();
+        verify(query, times(1)).uniqueResult();
 
         // list uses a different cache
         apiKeyRepository.listAll();
         apiKeyRepository.listAll();
-        verify(query, times(2)).list();
+        verify(query, times(1)).list();
 
-        // create new key to force cache invalidation
+        // create new key to force list cache invalidation, cached keys are still used
         apiKeyRepository.create(Role.XROAD_REGISTRATION_OFFICER.name());
         apiKeyRepository.listAll();
         apiKeyRepository.listAll();
-        verify(query, times(3)).list();
+        verify(query, times(2)).list();
+        apiKeyRepository.get(keyEntry.getKey());
+        verify(query, times(1)).uniqueResult();
 
         // revoke a key to force cache invalidation
-        // (remove(key) itself already uses query.findAll)
+        // (remove(key) itself gets the key from cache)
         apiKeyRepository.remove(keyEntry.getKey());
-        verify(query, times(4)).list();
+        verify(query, times(1)).uniqueResult();
+        apiKeyRepository.listAll();
+        verify(query, times(3)).list();
         apiKeyRepository.get(keyEntry.getKey());
         apiKeyRepository.get(keyEntry.getKey());
-        verify(query, times(5)).list();
+        verify(query, times(2)).uniqueResult();
+    }
+
+    @Test
+    public void testRevokedKeyIsNotCached() throws Exception {
+        when(entityManager.unwrap(any())).thenReturn(session);
+        when(session.createQuery(anyString())).thenReturn(query);
+        doNothing().when(session).persist(any());
+        Map.Entry<String, PersistentApiKeyType> keyEntry =
+                apiKeyRepository.create(Role.XROAD_REGISTRATION_OFFICER.name());
+        Map.Entry<String, PersistentApiKeyType> otherKeyEntry =
+                apiKeyRepository.create(Role.XROAD_SECURITY_OFFICER.name());
+        when(query.uniqueResult()).thenReturn(keyEntry.getValue(), otherKeyEntry.getValue(), null);
+        apiKeyRepository.get(keyEntry.getKey());
+        apiKeyRepository.get(otherKeyEntry.getKey());
+        verify(query, times(2)).uniqueResult();
+
+        // revoking one key evicts only that key
+        apiKeyRepository.remove(keyEntry.getKey());
+        apiKeyRepository.get(otherKeyEntry.getKey());
+        verify(query, times(2)).uniqueResult();
+        try {
+            apiKeyRepository.get(keyEntry.getKey());
+            fail("should throw exception");
+        } catch (ApiKeyRepository.ApiKeyNotFoundException expected) {
+        }
+        verify(query, times(3)).uniqueResult();
     }
 
     @Test
@@ -130,10 +162,12 @@ public class ApiKeyRepositoryCachingIntegrationTest {
                 apiKeyRepository.create(Role.XROAD_REGISTRATION_OFFICER.name());
         List<PersistentApiKeyType> listOfOne = Arrays.asList(keyEntry.getValue());
         when(query.list()).thenReturn(listOfOne);
+        when(query.uniqueResult()).thenReturn(keyEntry.getValue());
         // then get this key
         apiKeyRepository.get(keyEntry.getKey());
         apiKeyRepository.get(keyEntry.getKey());
-        verify(query, times(1)).list();
+        verify(query, times(1)).uniqueResult();
+        verify(query, times(0)).list();
     }
 
 }
@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.restapi.service;
+
+import ee.ria.xroad.common.conf.globalconf.MemberInfo;
+import ee.ria.xroad.common.conf.serverconf.model.ClientType;
+import ee.ria.xroad.common.identifier.ClientId;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for GlobalClientIndex
+ */
+public class GlobalClientIndexTest {
+
+    private static final List<MemberInfo> MEMBERS = Arrays.asList(
+            member("FI", "GOV", "M1", null, "Government Agency"),
+            member("FI", "GOV", "M1", "SS1", "Government Agency"),
+            member("FI", "GOV", "M2", "DATASERVICE", "Tax Office"),
+            member("EE", "COM", "M1", "SS1", "Company"));
+
+    private final GlobalClientIndex index = new GlobalClientIndex(MEMBERS);
+
+    @Test
+    public void getByClientId() {
+        ClientId id = ClientId.create("FI", "GOV", "M2", "DATASERVICE");
+        assertEquals(id, index.get(id).get().getIdentifier());
+        assertFalse(index.get(ClientId.create("FI", "GOV", "M2")).isPresent());
+    }
+
+    @Test
+    public void findBySubstring() {
+        assertEquals(Arrays.asList("FI/GOV/M1/SS1", "FI/GOV/M2/DATASERVICE"),
+                find(null, "fi", null, null, null, false));
+        assertEquals(Arrays.asList("FI/GOV/M1", "FI/GOV/M1/SS1"), find("AGENCY", null, null, null, null, true));
+        assertEquals(Arrays.asList("FI/GOV/M2/DATASERVICE"), find("x off", null, null, null, "service", false));
+        assertEquals(Arrays.asList("FI/GOV/M1/SS1", "EE/COM/M1/SS1"), find(null, null, null, "m1", "ss", false));
+        assertTrue(find("Office", "EE", null, null, null, true).isEmpty());
+    }
+
+    @Test
+    public void findWithEmptyTerms() {
+        assertEquals(3, find("", "", "", "", "", false).size());
+        assertEquals(MEMBERS.size(), find(null, null, null, null, null, true).size());
+    }
+
+    @Test
+    public void isBuiltFrom() {
+        assertTrue(index.isBuiltFrom(Arrays.asList(MEMBERS.toArray(new MemberInfo[0]))));
+        assertFalse(index.isBuiltFrom(MEMBERS.subList(1, MEMBERS.size())));
+    }
+
+    private List<String> find(String name, String instance, String memberClass, String memberCode,
+            String subsystemCode, boolean showMembers) {
+        return index.find(name, instance, memberClass, memberCode, subsystemCode, showMembers).stream()
+                .map(ClientType::getIdentifier)
+                .map(id -> id.toShortString().trim())
+                .collect(Collectors.toList());
+    }
+
+    private static MemberInfo member(String instance, String memberClass, String memberCode, String subsystemCode,
+            String name) {
+        ClientId id = subsystemCode == null ? ClientId.create(instance, memberClass, memberCode)
+                : ClientId.create(instance, memberClass, memberCode, subsystemCode);
+        return new MemberInfo(id, name);
+    }
+}
@@ -58,4 +58,12 @@ class AntiDosConfiguration {
     double getMaxHeapUsage() {
         return SystemProperties.getAntiDosMaxHeapUsage();
     }
+
+    /**
+     * @return the interval in milliseconds at which the system resource usage
+     * is sampled
+     */
+    long getResourceSampleInterval() {
+        return SystemProperties.getAntiDosResourceSampleInterval();
+    }
 }
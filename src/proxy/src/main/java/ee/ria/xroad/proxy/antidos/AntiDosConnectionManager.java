@@ -30,6 +30,7 @@ import ee.ria.xroad.common.util.SystemMetrics;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -37,6 +38,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages the incoming connections and prevents system resource exhaustion.
@@ -47,24 +51,70 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     // Tiny wrapper class for active connections of a partner
     private class HostData {
         final Deque<T> connections = new LinkedBlockingDeque<>();
+
+        // Whether the partner is in the buffer of active partners
+        final AtomicBoolean active = new AtomicBoolean();
+    }
+
+    // Immutable snapshot of the known partners
+    private class PartnerTable {
+        // Known member IPs, used to determine if the table should be replaced when conf changed
+        final Set<String> knownAddresses;
+
+        // IP to HostData mapping
+        final Map<String, HostData> database;
+
+        // Time of the last check against the global configuration
+        volatile long checkedAt;
+
+        PartnerTable(Set<String> knownAddresses, Map<String, HostData> database, long checkedAt) {
+            this.knownAddresses = knownAddresses;
+            this.database = database;
+            this.checkedAt = checkedAt;
+        }
+
+        HostData get(String ip) {
+            HostData hostData = database.get(ip);
+
+            return hostData != null ? hostData : database.get(UNKNOWN_ORG_IP);
+        }
+    }
+
+    // Sampled system resource usage
+    private static final class ResourceSample {
+        final long freeFileDescriptorCount;
+        final double cpuLoad;
+        final double heapUsage;
+        final long sampledAt;
+
+        ResourceSample(long freeFileDescriptorCount, double cpuLoad, double heapUsage, long sampledAt) {
+            this.freeFileDescriptorCount = freeFileDescriptorCount;
+            this.cpuLoad = cpuLoad;
+            this.heapUsage = heapUsage;
+            this.sampledAt = sampledAt;
+        }
     }
 
     // The IP used for unknown members
     private static final String UNKNOWN_ORG_IP = "0.0.0.0";
 
+    // How often the known member IPs are compared with the global configuration
+    private static final long PARTNER_TABLE_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
     // Holds the configuration
     protected final AntiDosConfiguration configuration;
 
-    // IP to HostData mapping
-    protected Map<String, HostData> database = new HashMap<>();
-
     // Buffer of partners with waiting connections
     protected LinkedBlockingQueue<HostData> activePartners =
             new LinkedBlockingQueue<>();
 
-    // Holds a cache of previously known member IPs.
-    // Used to determine if should sync the database when conf changed.
-    private Set<String> previousKnownOrganizations = new HashSet<>();
+    // The current partner table, replaced only when the known member IPs change
+    private volatile PartnerTable partnerTable;
+
+    // Makes sure only one acceptor thread checks the global configuration at a time
+    private final ReentrantLock partnerTableLock = new ReentrantLock();
+
+    private volatile ResourceSample resourceSample;
 
     AntiDosConnectionManager(AntiDosConfiguration configuration) {
         if (configuration == null) {
@@ -72,8 +122,8 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         }
 
         this.configuration = configuration;
-        this.previousKnownOrganizations.add(UNKNOWN_ORG_IP);
-        this.database.put(UNKNOWN_ORG_IP, new HostData());
+        this.partnerTable = new PartnerTable(Collections.singleton(UNKNOWN_ORG_IP),
+                Collections.singletonMap(UNKNOWN_ORG_IP, new HostData()), 0);
     }
 
     void init() throws Exception {
@@ -86,7 +136,7 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
      * we have at least one free file handle.
      */
     boolean canAccept() {
-        long freeFileHandles = getFreeFileDescriptorCount();
+        long freeFileHandles = getResourceSample().freeFileDescriptorCount;
         log.trace("canAccept({})", freeFileHandles);
         return freeFileHandles > 0;
     }
@@ -94,20 +144,27 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     /**
      * Adds the connection into the partner's connection queue.
      */
-    synchronized void accept(T connection) {
+    void accept(T connection) {
         // We need to synchronize the database with the existing members.
-        syncDatabase();
+        PartnerTable table = partnerTable;
+        if (System.currentTimeMillis() - table.checkedAt >= PARTNER_TABLE_CHECK_INTERVAL
+                && partnerTableLock.tryLock()) {
+            try {
+                syncDatabase();
+                table = partnerTable;
+            } finally {
+                partnerTableLock.unlock();
+            }
+        }
 
         // Find the host data for the incoming connection and register
         // the new connection to this host data
-        HostData currentPartner = getHostData(connection.getHostAddress());
+        HostData currentPartner = table.get(connection.getHostAddress());
         currentPartner.connections.addFirst(connection);
 
         // If the host data is not for an active partner,
         // add it to the connection buffer as the newest partner.
-        if (!activePartners.contains(currentPartner)) {
-            activePartners.add(currentPartner);
-        }
+        activate(currentPartner);
     }
 
     /**
@@ -137,14 +194,23 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
 
         // Take the oldest connection.
         T sock = oldestPartner.connections.pollLast();
-        if (sock == null) {
-            return null;
-        }
 
         // If there are more connections left for this partner, add the partner
-        // back to the buffer as the first partner.
+        // back to the buffer as the newest partner.
         if (!oldestPartner.connections.isEmpty()) {
             activePartners.add(oldestPartner);
+        } else {
+            oldestPartner.active.set(false);
+
+            // A connection may have been added after the check above, while
+            // the partner was still marked active
+            if (!oldestPartner.connections.isEmpty()) {
+                activate(oldestPartner);
+            }
+        }
+
+        if (sock == null) {
+            return null;
         }
 
         // Processing a connection consumes file handles and other resources
@@ -180,35 +246,36 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         return SystemMetrics.getHeapUsage();
     }
 
-    private HostData getHostData(String ip) {
-        return database.containsKey(ip)
-                ? database.get(ip) : database.get(UNKNOWN_ORG_IP);
+    private void activate(HostData partner) {
+        if (partner.active.compareAndSet(false, true)) {
+            activePartners.add(partner);
+        }
     }
 
     private void syncDatabase() {
+        PartnerTable table = partnerTable;
         Set<String> knownAddresses = getAllAddresses();
+        long now = System.currentTimeMillis();
 
-        if (previousKnownOrganizations.equals(knownAddresses)) {
+        if (table.knownAddresses.equals(knownAddresses)) {
             // Nothing has changed, do not sync.
+            table.checkedAt = now;
             return;
         }
 
         Map<String, HostData> newDatabase = new HashMap<>();
 
-        // Retain existing members connections
-        database.keySet().stream()
-                .filter(knownAddresses::contains)
-                .forEach(existingAddress -> newDatabase.put(
-                        existingAddress, database.get(existingAddress)));
-
-        // Add new members
-        knownAddresses.stream()
-                .filter(knownAddress -> !database.containsKey(knownAddress))
-                .forEach(knownAddress ->
-                        registerHostData(newDatabase, knownAddress));
+        // Retain existing members connections, add new members
+        knownAddresses.forEach(knownAddress -> {
+            HostData existing = table.database.get(knownAddress);
+            if (existing != null) {
+                newDatabase.put(knownAddress, existing);
+            } else {
+                registerHostData(newDatabase, knownAddress);
+            }
+        });
 
-        previousKnownOrganizations = knownAddresses;
-        database = newDatabase;
+        partnerTable = new PartnerTable(knownAddresses, newDatabase, now);
     }
 
     private void registerHostData(
@@ -217,12 +284,25 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         newDatabase.put(knownAddress, new HostData());
     }
 
+    private ResourceSample getResourceSample() {
+        ResourceSample sample = resourceSample;
+        long now = System.currentTimeMillis();
+
+        if (sample == null || now - sample.sampledAt >= configuration.getResourceSampleInterval()) {
+            sample = new ResourceSample(getFreeFileDescriptorCount(), getCpuLoad(), getHeapUsage(), now);
+            resourceSample = sample;
+        }
+
+        return sample;
+    }
+
     private boolean hasSufficientResources() {
-        long freeFileDescriptorCount = getFreeFileDescriptorCount();
+        ResourceSample sample = getResourceSample();
+        long freeFileDescriptorCount = sample.freeFileDescriptorCount;
         int minFreeFileHandles = configuration.getMinFreeFileHandles();
-        double cpuLoad = getCpuLoad();
+        double cpuLoad = sample.cpuLoad;
         double maxCpuLoad = configuration.getMaxCpuLoad();
-        double heapUsage = getHeapUsage();
+        double heapUsage = sample.heapUsage;
         double maxHeapUsage = configuration.getMaxHeapUsage();
 
         log.trace("Resource usage when considering connection:\n"
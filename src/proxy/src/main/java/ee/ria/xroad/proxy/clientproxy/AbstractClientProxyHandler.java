@@ -35,6 +35,8 @@ import ee.ria.xroad.common.util.HandlerBase;
 import ee.ria.xroad.common.util.PerformanceLogger;
 import ee.ria.xroad.proxy.opmonitoring.OpMonitoring;
 import ee.ria.xroad.proxy.util.MessageProcessorBase;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.MessageStageStats.Stage;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -81,6 +83,7 @@ abstract class AbstractClientProxyHandler extends HandlerBase {
 
         boolean handled = false;
 
+        long handlingStart = MessageStageStats.start();
         long start = logPerformanceBegin(request);
         OpMonitoringData opMonitoringData = storeOpMonitoringData ? new OpMonitoringData(CLIENT, start) : null;
         MessageProcessorBase processor = null;
@@ -142,9 +145,12 @@ abstract class AbstractClientProxyHandler extends HandlerBase {
                 if (storeOpMonitoringData) {
                     updateOpMonitoringResponseOutTs(opMonitoringData);
 
+                    long opMonitoringStart = MessageStageStats.start();
                     OpMonitoring.store(opMonitoringData);
+                    MessageStageStats.CLIENT_PROXY.record(Stage.OP_MONITORING, opMonitoringStart);
                 }
 
+                MessageStageStats.CLIENT_PROXY.record(Stage.TOTAL, handlingStart);
                 logPerformanceEnd(start);
             }
         }
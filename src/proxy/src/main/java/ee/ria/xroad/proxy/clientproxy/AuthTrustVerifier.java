@@ -29,6 +29,7 @@ import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.cert.CertHelper;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.ServiceId;
+import ee.ria.xroad.common.ocsp.OcspCache;
 import ee.ria.xroad.common.util.CertUtils;
 import ee.ria.xroad.proxy.conf.KeyConf;
 
@@ -69,6 +70,8 @@ public final class AuthTrustVerifier {
 
     public static final String ID_PROVIDERNAME = "request.providerName";
 
+    private static final OcspCache PEER_OCSP_CACHE = new PeerOcspCache();
+
     private AuthTrustVerifier() {
     }
 
@@ -116,48 +119,89 @@ public final class AuthTrustVerifier {
     }
 
     /**
-     * Gets OCSP responses for each certificate in the chain. If the OCSP
-     * response is not locally available (cached), it will be retrieved
-     * from the internal OCSP responder that is located at the given address.
+     * Gets OCSP responses for each certificate in the chain. The responses
+     * are first looked up from the in-memory cache, then from the responses
+     * stored by the signer (one request for all the certificates) and
+     * finally retrieved from the internal OCSP responder that is located
+     * at the given address.
      */
     private static List<OCSPResp> getOcspResponses(
             List<X509Certificate> chain, String address) throws Exception {
-        List<X509Certificate> certs = new ArrayList<>();
-        List<OCSPResp> responses = new ArrayList<>();
+        String[] hashes = CertUtils.getCertHashes(chain);
+        OCSPResp[] responses = new OCSPResp[hashes.length];
 
-        // Check for locally available OCSP responses
-        for (X509Certificate cert : chain) {
-            OCSPResp response = null;
-            try {
-                // Do we have a cached OCSP response for that cert?
-                log.trace("get ocsp response from key conf");
-                response = KeyConf.getOcspResponse(cert);
-                log.trace("ocsp response from key conf: {}", response);
-            } catch (CodedException e) {
-                // Log it and continue; only thrown if the response could
-                // not be loaded from a file -- not important to us here.
-                log.warn("Cached OCSP response could not be found", e);
-            }
+        // Check for OCSP responses cached in memory
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < hashes.length; i++) {
+            responses[i] = PEER_OCSP_CACHE.get(hashes[i]);
 
-            if (response != null) {
-                responses.add(response);
-            } else {
-                // Did not find response locally, add the hash to be retrieved
-                // from server.
-                certs.add(cert);
+            if (responses[i] == null) {
+                missing.add(i);
             }
         }
 
+        // Check for locally available OCSP responses
+        if (!missing.isEmpty()) {
+            missing = getLocalOcspResponses(hashes, responses, missing);
+        }
+
         // Retrieve OCSP responses for those certs whose responses
         // are not locally available, from ServerProxy
-        if (!certs.isEmpty()) {
-            log.trace("number of certs that still need ocsp responses: {}", certs.size());
-            responses.addAll(getAndCacheOcspResponses(certs, address));
+        if (!missing.isEmpty()) {
+            log.trace("number of certs that still need ocsp responses: {}", missing.size());
+
+            List<X509Certificate> certs = new ArrayList<>(missing.size());
+            missing.forEach(i -> certs.add(chain.get(i)));
+
+            List<OCSPResp> receivedResponses = getAndCacheOcspResponses(certs, address);
+
+            for (int i = 0; i < missing.size(); i++) {
+                responses[missing.get(i)] = receivedResponses.get(i);
+                PEER_OCSP_CACHE.put(hashes[missing.get(i)], receivedResponses.get(i));
+            }
         } else {
             log.trace("all the certs have ocsp responses");
         }
 
-        return responses;
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Fills in the OCSP responses stored by the signer and returns the
+     * indexes of the certs that still have no response.
+     */
+    private static List<Integer> getLocalOcspResponses(String[] hashes,
+            OCSPResp[] responses, List<Integer> missing) throws Exception {
+        String[] missingHashes = new String[missing.size()];
+        for (int i = 0; i < missing.size(); i++) {
+            missingHashes[i] = hashes[missing.get(i)];
+        }
+
+        List<OCSPResp> localResponses;
+        try {
+            log.trace("get ocsp responses from key conf");
+            localResponses = KeyConf.getOcspResponses(missingHashes);
+        } catch (CodedException e) {
+            // Log it and continue; only thrown if the responses could
+            // not be loaded from a file -- not important to us here.
+            log.warn("Cached OCSP responses could not be found", e);
+
+            return missing;
+        }
+
+        List<Integer> stillMissing = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i++) {
+            OCSPResp response = localResponses.get(i);
+
+            if (response != null) {
+                responses[missing.get(i)] = response;
+                PEER_OCSP_CACHE.put(missingHashes[i], response);
+            } else {
+                stillMissing.add(missing.get(i));
+            }
+        }
+
+        return stillMissing;
     }
 
     /**
@@ -50,6 +50,8 @@ import ee.ria.xroad.proxy.messagelog.MessageLog;
 import ee.ria.xroad.proxy.protocol.ProxyMessage;
 import ee.ria.xroad.proxy.protocol.ProxyMessageDecoder;
 import ee.ria.xroad.proxy.protocol.ProxyMessageEncoder;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.MessageStageStats.Stage;
 
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -135,6 +137,9 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
     private ProxyMessageEncoder request;
     private String xRequestId;
 
+    /** Start time of parsing the request, set and read by the SOAP handler thread. */
+    private long requestParsingStart;
+
     /** Holds the response from server proxy. */
     private ProxyMessage response;
 
@@ -250,9 +255,11 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             httpSender.addHeader(HEADER_REQUEST_ID, xRequestId);
 
             try {
+                long start = MessageStageStats.start();
                 opMonitoringData.setRequestOutTs(getEpochMillisecond());
                 httpSender.doPost(getServiceAddress(addresses), reqIns, CHUNKED_LENGTH, outputContentType);
                 opMonitoringData.setResponseInTs(getEpochMillisecond());
+                MessageStageStats.CLIENT_PROXY.record(Stage.OUTBOUND_REQUEST, start);
             } catch (Exception e) {
                 // Failed to connect to server proxy
                 MonitorAgent.serverProxyFailed(createRequestMessageInfo());
@@ -274,18 +281,22 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
 
         ProxyMessageDecoder decoder = new ProxyMessageDecoder(response, httpSender.getResponseContentType(),
                 getHashAlgoId(httpSender));
+        long start = MessageStageStats.start();
         try {
             decoder.parse(httpSender.getResponseContent());
         } catch (CodedException ex) {
             throw ex.withPrefix(X_SERVICE_FAILED_X);
         }
+        MessageStageStats.CLIENT_PROXY.record(Stage.RESPONSE_PARSING, start);
 
         updateOpMonitoringDataByResponse(decoder);
 
         // Ensure we have the required parts.
         checkResponse();
 
+        start = MessageStageStats.start();
         decoder.verify(requestServiceId.getClientId(), response.getSignature());
+        MessageStageStats.CLIENT_PROXY.record(Stage.SIGNATURE_VERIFICATION, start);
     }
 
     private void updateOpMonitoringDataByResponse(ProxyMessageDecoder decoder) {
@@ -358,7 +369,9 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
     private void logResponseMessage() throws Exception {
         log.trace("logResponseMessage()");
 
+        long start = MessageStageStats.start();
         MessageLog.log(response.getSoap(), response.getSignature(), true, xRequestId);
+        MessageStageStats.CLIENT_PROXY.record(Stage.MESSAGE_LOGGING, start);
     }
 
     private void sendResponse() throws Exception {
@@ -445,6 +458,7 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
                     handler, new RequestSoapParserImpl());
             try {
                 originalSoapAction = validateSoapActionHeader(servletRequest.getHeader("SOAPAction"));
+                requestParsingStart = MessageStageStats.start();
                 soapMessageDecoder.parse(servletRequest.getInputStream());
             } catch (Exception ex) {
                 throw new ClientException(translateException(ex));
@@ -462,6 +476,8 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
 
         @Override
         public void soap(SoapMessage message, Map<String, String> headers) throws Exception {
+            MessageStageStats.CLIENT_PROXY.record(Stage.REQUEST_PARSING, requestParsingStart);
+
             if (log.isTraceEnabled()) {
                 log.trace("soap({})", message.getXml());
             }
@@ -514,7 +530,10 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             updateOpMonitoringData();
 
             try {
+                long start = MessageStageStats.start();
                 request.sign(KeyConf.getSigningCtx(requestSoap.getClient()));
+                MessageStageStats.CLIENT_PROXY.record(Stage.SIGNING, start);
+
                 logRequestMessage();
                 request.writeSignature();
             } catch (Exception ex) {
@@ -533,7 +552,9 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         private void logRequestMessage() throws Exception {
             log.trace("logRequestMessage()");
 
+            long start = MessageStageStats.start();
             MessageLog.log(requestSoap, request.getSignature(), true, xRequestId);
+            MessageStageStats.CLIENT_PROXY.record(Stage.MESSAGE_LOGGING, start);
         }
 
         @Override
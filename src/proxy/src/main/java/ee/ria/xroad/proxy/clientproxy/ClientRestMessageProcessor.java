@@ -35,6 +35,7 @@ import ee.ria.xroad.common.message.RestResponse;
 import ee.ria.xroad.common.monitoring.MessageInfo;
 import ee.ria.xroad.common.monitoring.MonitorAgent;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+import ee.ria.xroad.common.util.CacheInputStream;
 import ee.ria.xroad.common.util.CachingStream;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.HttpSender;
@@ -44,9 +45,10 @@ import ee.ria.xroad.proxy.messagelog.MessageLog;
 import ee.ria.xroad.proxy.protocol.ProxyMessage;
 import ee.ria.xroad.proxy.protocol.ProxyMessageDecoder;
 import ee.ria.xroad.proxy.protocol.ProxyMessageEncoder;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.MessageStageStats.Stage;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.http.Header;
 import org.apache.http.client.HttpClient;
@@ -111,6 +113,7 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
         updateOpMonitoringClientSecurityServerAddress();
 
         try {
+            long start = MessageStageStats.start();
             restRequest = new RestRequest(
                     servletRequest.getMethod(),
                     servletRequest.getRequestURI(),
@@ -118,6 +121,7 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
                     headers(servletRequest),
                     xRequestId
             );
+            MessageStageStats.CLIENT_PROXY.record(Stage.REQUEST_PARSING, start);
 
             senderId = restRequest.getClientId();
             requestServiceId = restRequest.getServiceId();
@@ -179,9 +183,11 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
 
         try {
             final String contentType = MimeUtils.mpMixedContentType("xtop" + RandomStringUtils.randomAlphabetic(30));
+            long start = MessageStageStats.start();
             opMonitoringData.setRequestOutTs(getEpochMillisecond());
             httpSender.doPost(getServiceAddress(addresses), new ProxyMessageEntity(contentType));
             opMonitoringData.setResponseInTs(getEpochMillisecond());
+            MessageStageStats.CLIENT_PROXY.record(Stage.OUTBOUND_REQUEST, start);
         } catch (Exception e) {
             MonitorAgent.serverProxyFailed(createRequestMessageInfo());
             throw e;
@@ -192,16 +198,20 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
         response = new ProxyMessage(httpSender.getResponseHeaders().get(HEADER_ORIGINAL_CONTENT_TYPE));
         ProxyMessageDecoder decoder = new ProxyMessageDecoder(response, httpSender.getResponseContentType(),
                 getHashAlgoId(httpSender));
+        long start = MessageStageStats.start();
         try {
             decoder.parse(httpSender.getResponseContent());
         } catch (CodedException ex) {
             throw ex.withPrefix(X_SERVICE_FAILED_X);
         }
+        MessageStageStats.CLIENT_PROXY.record(Stage.RESPONSE_PARSING, start);
         updateOpMonitoringDataByResponse(decoder);
         // Ensure we have the required parts.
         checkResponse();
         opMonitoringData.setRestResponseStatusCode(response.getRestResponse().getResponseCode());
+        start = MessageStageStats.start();
         decoder.verify(requestServiceId.getClientId(), response.getSignature());
+        MessageStageStats.CLIENT_PROXY.record(Stage.SIGNATURE_VERIFICATION, start);
     }
 
     @Override
@@ -257,10 +267,12 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
     }
 
     private void logResponseMessage() {
+        long start = MessageStageStats.start();
         MessageLog.log(restRequest,
                 response.getRestResponse(),
                 response.getSignature(),
                 response.getRestBody(), true, xRequestId);
+        MessageStageStats.CLIENT_PROXY.record(Stage.MESSAGE_LOGGING, start);
     }
 
     private void sendResponse() throws Exception {
@@ -278,7 +290,7 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
             servletResponse.addHeader(h.getName(), h.getValue());
         }
         if (response.hasRestBody()) {
-            IOUtils.copy(response.getRestBody(), servletResponse.getOutputStream());
+            response.getRestBody().copyTo(servletResponse.getOutputStream());
         }
     }
 
@@ -330,25 +342,28 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
                 enc.restRequest(restRequest);
 
                 //Optimize the case without request body (e.g. simple get requests)
-                //TBD: Optimize the case without body logging
                 try (InputStream in = servletRequest.getInputStream()) {
                     @SuppressWarnings("checkstyle:magicnumber")
                     byte[] buf = new byte[4096];
                     int count = in.read(buf);
-                    if (count >= 0) {
+                    if (count >= 0 && !MessageLog.isBodyLogged(restRequest.getServiceId(), true)) {
+                        // the body is not logged, so stream it straight to the server proxy
+                        enc.restBody(buf, count, in);
+                        sign(enc);
+                        logRequestMessage(enc, null);
+                    } else if (count >= 0) {
                         final CachingStream cache = new CachingStream();
                         try (TeeInputStream tee = new TeeInputStream(in, cache)) {
                             cache.write(buf, 0, count);
                             enc.restBody(buf, count, tee);
-                            enc.sign(KeyConf.getSigningCtx(senderId));
-                            MessageLog.log(restRequest, enc.getSignature(), cache.getCachedContents(), true,
-                                    xRequestId);
+                            sign(enc);
+                            logRequestMessage(enc, cache.getCachedContents());
                         } finally {
                             cache.consume();
                         }
                     } else {
-                        enc.sign(KeyConf.getSigningCtx(senderId));
-                        MessageLog.log(restRequest, enc.getSignature(), null, true, xRequestId);
+                        sign(enc);
+                        logRequestMessage(enc, null);
                     }
                 }
 
@@ -369,6 +384,18 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
         public boolean isStreaming() {
             return true;
         }
+
+        private void sign(ProxyMessageEncoder enc) throws Exception {
+            long start = MessageStageStats.start();
+            enc.sign(KeyConf.getSigningCtx(senderId));
+            MessageStageStats.CLIENT_PROXY.record(Stage.SIGNING, start);
+        }
+
+        private void logRequestMessage(ProxyMessageEncoder enc, CacheInputStream body) {
+            long start = MessageStageStats.start();
+            MessageLog.log(restRequest, enc.getSignature(), body, true, xRequestId);
+            MessageStageStats.CLIENT_PROXY.record(Stage.MESSAGE_LOGGING, start);
+        }
     }
 
     private List<Header> headers(HttpServletRequest req) {
@@ -29,6 +29,9 @@ import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.proxy.clientproxy.FastestSocketSelector.SocketInfo;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.MessageStageStats.Stage;
+import ee.ria.xroad.proxy.util.TlsHandshakeStats;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -240,7 +243,12 @@ class FastestConnectionSelectingSSLSocketFactory
     private void prepareAndVerify(SSLSocket sslSocket, URI selectedAddress,
             HttpContext context) throws IOException {
         prepareSocket(sslSocket);
+
+        long start = MessageStageStats.start();
         verify(context, sslSocket.getSession(), selectedAddress);
+        MessageStageStats.CLIENT_PROXY.record(Stage.TLS_VERIFICATION, start);
+
+        TlsHandshakeStats.clientHandshake(sslSocket.getSession());
     }
 
     private SSLSocket wrapToSSLSocket(Socket socket, int connectTimeout) throws IOException {
@@ -0,0 +1,70 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.clientproxy;
+
+import ee.ria.xroad.common.ocsp.OcspCache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.SingleResp;
+
+import java.util.Date;
+
+/**
+ * Holds the OCSP responses of the server proxy certificates in memory, so that verifying the TLS certificate of
+ * a known server proxy needs no requests to the signer or the server proxy. In addition to the freshness checked
+ * by {@link OcspCache}, a response is removed from the cache once its nextUpdate has passed.
+ */
+@Slf4j
+class PeerOcspCache extends OcspCache {
+
+    @Override
+    protected OCSPResp getResponse(Object key, Date atDate) {
+        OCSPResp cachedResponse = super.getResponse(key, atDate);
+
+        try {
+            if (cachedResponse != null && isAfterNextUpdate(cachedResponse, atDate)) {
+                log.trace("Cached OCSP response for certificate '{}' is past its nextUpdate", key);
+                cache.remove(key);
+
+                return null;
+            }
+        } catch (Exception e) {
+            log.error("Failed to check the nextUpdate of OCSP response", e);
+            cache.remove(key);
+
+            return null;
+        }
+
+        return cachedResponse;
+    }
+
+    private static boolean isAfterNextUpdate(OCSPResp response, Date atDate) throws Exception {
+        SingleResp singleResp = ((BasicOCSPResp) response.getResponseObject()).getResponses()[0];
+
+        return singleResp.getNextUpdate() != null && singleResp.getNextUpdate().before(atDate);
+    }
+}
@@ -200,6 +200,20 @@ public final class KeyConf {
         return getInstance().getOcspResponses(certs);
     }
 
+    /**
+     * @param certHashes hashes of the certificates
+     * @return OCSP responses for given certificate hashes, looked up with
+     * a single request. For OCSP responses that could not be found, the list
+     * contains null values
+     * @throws Exception in case of any errors
+     */
+    public static List<OCSPResp> getOcspResponses(String[] certHashes)
+            throws Exception {
+        LOG.trace("getOcspResponses({} hashes)", certHashes.length);
+
+        return getInstance().getOcspResponses(certHashes);
+    }
+
     /**
      * Updates the existing OCSP response or stores the OCSP response,
      * if it does not exist for the given certificate.
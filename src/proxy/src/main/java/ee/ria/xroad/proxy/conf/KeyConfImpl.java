@@ -134,9 +134,14 @@ class KeyConfImpl implements KeyConfProvider {
     @Override
     public List<OCSPResp> getOcspResponses(List<X509Certificate> certs)
             throws Exception {
+        return getOcspResponses(getCertHashes(certs));
+    }
+
+    @Override
+    public List<OCSPResp> getOcspResponses(String[] certHashes)
+            throws Exception {
         GetOcspResponsesResponse response =
-                SignerClient.execute(
-                        new GetOcspResponses(getCertHashes(certs)));
+                SignerClient.execute(new GetOcspResponses(certHashes));
 
         List<OCSPResp> ocspResponses = new ArrayList<>();
         for (String base64Encoded : response.getBase64EncodedResponses()) {
@@ -72,6 +72,14 @@ public interface KeyConfProvider {
     List<OCSPResp> getOcspResponses(List<X509Certificate> certs)
             throws Exception;
 
+    /**
+     * @return OCSP responses for given certificate hashes. For OCSP responses
+     * that could not be found, the list contains null values.
+     * @param certHashes hashes of the certificates
+     * @throws Exception in case of any errors
+     */
+    List<OCSPResp> getOcspResponses(String[] certHashes) throws Exception;
+
     /**
      * Updates the existing OCSP response or stores the OCSP response,
      * if it does not exist for the given certificate.
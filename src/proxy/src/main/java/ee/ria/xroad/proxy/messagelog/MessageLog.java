@@ -25,11 +25,14 @@
 package ee.ria.xroad.proxy.messagelog;
 
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.message.RestRequest;
 import ee.ria.xroad.common.message.RestResponse;
 import ee.ria.xroad.common.message.SoapMessageImpl;
 import ee.ria.xroad.common.messagelog.AbstractLogManager;
 import ee.ria.xroad.common.messagelog.FindByQueryId;
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
 import ee.ria.xroad.common.messagelog.RestLogMessage;
 import ee.ria.xroad.common.messagelog.SoapLogMessage;
@@ -47,7 +50,9 @@ import akka.util.Timeout;
 import lombok.extern.slf4j.Slf4j;
 import scala.concurrent.Await;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.LogRecord;
 
@@ -71,6 +76,8 @@ public final class MessageLog {
 
     private static ActorRef logManager;
 
+    private static volatile boolean bodyLoggingAvailable;
+
     private MessageLog() {
     }
 
@@ -88,6 +95,32 @@ public final class MessageLog {
 
         logManager = actorSystem.actorOf(Props.create(clazz, jobManager).withDispatcher(CONTROL_AWARE_DISPATCHER),
                 LOG_MANAGER);
+        bodyLoggingAvailable = !NullLogManager.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * Tells whether the body of a REST message exchanged with the given service would be saved to the message log.
+     * Mirrors the body logging rules of the message log add-on so that the proxy can stream bodies that would be
+     * discarded anyway without caching them first.
+     *
+     * @param service    the service the message is exchanged with
+     * @param clientSide whether the message is handled by the client proxy
+     * @return true if the message body needs to be passed to the message log
+     */
+    public static boolean isBodyLogged(ServiceId service, boolean clientSide) {
+        if (!bodyLoggingAvailable || MessageLogProperties.getMaxLoggableBodySize() <= 0) {
+            return false;
+        }
+
+        final ClientId producer = service.getClientId();
+        final Collection<ClientId> overrides = clientSide
+                ? MessageLogProperties.getMessageBodyLoggingRemoteProducerOverrides()
+                : MessageLogProperties.getMessageBodyLoggingLocalProducerOverrides();
+
+        final boolean overridden = overrides.stream().anyMatch(id -> id.memberEquals(producer)
+                && Objects.equals(id.getSubsystemCode(), producer.getSubsystemCode()));
+
+        return MessageLogProperties.isMessageBodyLoggingEnabled() != overridden;
     }
 
     /**
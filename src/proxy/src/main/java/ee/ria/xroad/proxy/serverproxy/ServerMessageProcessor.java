@@ -56,6 +56,8 @@ import ee.ria.xroad.proxy.protocol.ProxyMessage;
 import ee.ria.xroad.proxy.protocol.ProxyMessageDecoder;
 import ee.ria.xroad.proxy.protocol.ProxyMessageEncoder;
 import ee.ria.xroad.proxy.util.MessageProcessorBase;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.MessageStageStats.Stage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.ArrayUtils;
@@ -290,11 +292,13 @@ class ServerMessageProcessor extends MessageProcessorBase {
 
         decoder = new ProxyMessageDecoder(requestMessage, servletRequest.getContentType(), false,
                 getHashAlgoId(servletRequest));
+        long start = MessageStageStats.start();
         try {
             decoder.parse(servletRequest.getInputStream());
         } catch (CodedException e) {
             throw e.withPrefix(X_SERVICE_FAILED_X);
         }
+        MessageStageStats.SERVER_PROXY.record(Stage.REQUEST_PARSING, start);
 
         updateOpMonitoringDataByRequest();
 
@@ -341,6 +345,7 @@ class ServerMessageProcessor extends MessageProcessorBase {
                     "Cannot verify TLS certificate, corresponding OCSP response is missing");
         }
 
+        long start = MessageStageStats.start();
         String instanceIdentifier = requestMessage.getSoap().getClient().getXRoadInstance();
 
         X509Certificate trustAnchor = GlobalConf.getCaCert(instanceIdentifier,
@@ -357,6 +362,7 @@ class ServerMessageProcessor extends MessageProcessorBase {
         } catch (Exception e) {
             throw new CodedException(X_SSL_AUTH_FAILED, e);
         }
+        MessageStageStats.SERVER_PROXY.record(Stage.TLS_VERIFICATION, start);
     }
 
     private void verifySecurityServer() throws Exception {
@@ -423,20 +429,26 @@ class ServerMessageProcessor extends MessageProcessorBase {
     private void verifySignature() throws Exception {
         log.trace("verifySignature()");
 
+        long start = MessageStageStats.start();
         decoder.verify(requestMessage.getSoap().getClient(), requestMessage.getSignature());
+        MessageStageStats.SERVER_PROXY.record(Stage.SIGNATURE_VERIFICATION, start);
     }
 
     private void logRequestMessage() throws Exception {
         log.trace("logRequestMessage()");
 
+        long start = MessageStageStats.start();
         MessageLog.log(requestMessage.getSoap(), requestMessage.getSignature(), false, xRequestId);
+        MessageStageStats.SERVER_PROXY.record(Stage.MESSAGE_LOGGING, start);
     }
 
     private void logResponseMessage() throws Exception {
         if (responseSoap != null && encoder != null) {
             log.trace("logResponseMessage()");
 
+            long start = MessageStageStats.start();
             MessageLog.log(responseSoap, encoder.getSignature(), false, xRequestId);
+            MessageStageStats.SERVER_PROXY.record(Stage.MESSAGE_LOGGING, start);
         }
     }
 
@@ -453,9 +465,11 @@ class ServerMessageProcessor extends MessageProcessorBase {
 
         log.info("Sending request to {}", uri);
         try (InputStream in = requestMessage.getSoapContent()) {
+            long start = MessageStageStats.start();
             opMonitoringData.setRequestOutTs(getEpochMillisecond());
             httpSender.doPost(uri, in, CHUNKED_LENGTH, servletRequest.getHeader(HEADER_ORIGINAL_CONTENT_TYPE));
             opMonitoringData.setResponseInTs(getEpochMillisecond());
+            MessageStageStats.SERVER_PROXY.record(Stage.OUTBOUND_REQUEST, start);
         } catch (Exception ex) {
             if (ex instanceof CodedException) {
                 opMonitoringData.setResponseInTs(getEpochMillisecond());
@@ -473,6 +487,7 @@ class ServerMessageProcessor extends MessageProcessorBase {
         // Preserve the original content type of the service response
         servletResponse.addHeader(HEADER_ORIGINAL_CONTENT_TYPE, handler.getResponseContentType());
 
+        long start = MessageStageStats.start();
         try (SoapMessageHandler messageHandler = new SoapMessageHandler()) {
             SoapMessageDecoder soapMessageDecoder = new SoapMessageDecoder(handler.getResponseContentType(),
                     messageHandler, new ResponseSoapParserImpl());
@@ -480,6 +495,7 @@ class ServerMessageProcessor extends MessageProcessorBase {
         } catch (Exception ex) {
             throw translateException(ex).withPrefix(X_SERVICE_FAILED_X);
         }
+        MessageStageStats.SERVER_PROXY.record(Stage.RESPONSE_PARSING, start);
 
         // If we received a fault from the service, we just send it back
         // to the client.
@@ -508,7 +524,9 @@ class ServerMessageProcessor extends MessageProcessorBase {
     private void sign() throws Exception {
         log.trace("sign({})", requestServiceId.getClientId());
 
+        long start = MessageStageStats.start();
         encoder.sign(responseSigningCtx);
+        MessageStageStats.SERVER_PROXY.record(Stage.SIGNING, start);
     }
 
     private void writeSignature() throws Exception {
@@ -36,6 +36,8 @@ import ee.ria.xroad.common.util.PerformanceLogger;
 import ee.ria.xroad.proxy.ProxyMain;
 import ee.ria.xroad.proxy.opmonitoring.OpMonitoring;
 import ee.ria.xroad.proxy.util.MessageProcessorBase;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.MessageStageStats.Stage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
@@ -75,6 +77,7 @@ class ServerProxyHandler extends HandlerBase {
     @Override
     public void handle(String target, Request baseRequest, final HttpServletRequest request,
             final HttpServletResponse response) throws IOException, ServletException {
+        long handlingStart = MessageStageStats.start();
         OpMonitoringData opMonitoringData = new OpMonitoringData(PRODUCER, getEpochMillisecond());
 
         long start = PerformanceLogger.log(log, "Received request from " + request.getRemoteAddr());
@@ -116,8 +119,12 @@ class ServerProxyHandler extends HandlerBase {
             baseRequest.setHandled(true);
 
             opMonitoringData.setResponseOutTs(getEpochMillisecond(), false);
+
+            long opMonitoringStart = MessageStageStats.start();
             OpMonitoring.store(opMonitoringData);
+            MessageStageStats.SERVER_PROXY.record(Stage.OP_MONITORING, opMonitoringStart);
 
+            MessageStageStats.SERVER_PROXY.record(Stage.TOTAL, handlingStart);
             PerformanceLogger.log(log, start, "Request handled");
         }
     }
@@ -52,6 +52,8 @@ import ee.ria.xroad.proxy.protocol.ProxyMessage;
 import ee.ria.xroad.proxy.protocol.ProxyMessageDecoder;
 import ee.ria.xroad.proxy.protocol.ProxyMessageEncoder;
 import ee.ria.xroad.proxy.util.MessageProcessorBase;
+import ee.ria.xroad.proxy.util.MessageStageStats;
+import ee.ria.xroad.proxy.util.MessageStageStats.Stage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.input.TeeInputStream;
@@ -273,11 +275,13 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
 
         decoder = new ProxyMessageDecoder(requestMessage, servletRequest.getContentType(), false,
                 getHashAlgoId(servletRequest));
+        long start = MessageStageStats.start();
         try {
             decoder.parse(servletRequest.getInputStream());
         } catch (CodedException e) {
             throw e.withPrefix(X_SERVICE_FAILED_X);
         }
+        MessageStageStats.SERVER_PROXY.record(Stage.REQUEST_PARSING, start);
 
         updateOpMonitoringDataByRequest();
 
@@ -318,6 +322,7 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
                     "Cannot verify TLS certificate, corresponding OCSP response is missing");
         }
 
+        long start = MessageStageStats.start();
         String instanceIdentifier = requestMessage.getRest().getClientId().getXRoadInstance();
         X509Certificate trustAnchor = GlobalConf.getCaCert(instanceIdentifier,
                 clientSslCerts[clientSslCerts.length - 1]);
@@ -333,6 +338,7 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
         } catch (Exception e) {
             throw new CodedException(X_SSL_AUTH_FAILED, e);
         }
+        MessageStageStats.SERVER_PROXY.record(Stage.TLS_VERIFICATION, start);
     }
 
     private void verifyAccess() {
@@ -368,24 +374,32 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
     private void verifySignature() throws Exception {
         log.trace("verifySignature()");
 
+        long start = MessageStageStats.start();
         decoder.verify(requestMessage.getRest().getClientId(), requestMessage.getSignature());
+        MessageStageStats.SERVER_PROXY.record(Stage.SIGNATURE_VERIFICATION, start);
     }
 
     private void logRequestMessage() {
         log.trace("logRequestMessage()");
+        long start = MessageStageStats.start();
         MessageLog.log(requestMessage.getRest(), requestMessage.getSignature(), requestMessage.getRestBody(),
                 false, xRequestId);
+        MessageStageStats.SERVER_PROXY.record(Stage.MESSAGE_LOGGING, start);
     }
 
     private void logResponseMessage() {
         log.trace("log response message");
+        long start = MessageStageStats.start();
         MessageLog.log(requestMessage.getRest(), restResponse, encoder.getSignature(),
                 restResponseBody == null ? null : restResponseBody.getCachedContents(), false, xRequestId);
+        MessageStageStats.SERVER_PROXY.record(Stage.MESSAGE_LOGGING, start);
     }
 
     private void sign() throws Exception {
         log.trace("sign({})", requestServiceId.getClientId());
+        long start = MessageStageStats.start();
         encoder.sign(responseSigningCtx);
+        MessageStageStats.SERVER_PROXY.record(Stage.SIGNING, start);
     }
 
     private void writeSignature() throws Exception {
@@ -553,9 +567,11 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
 
             final HttpContext ctx = new BasicHttpContext();
             ctx.setAttribute(ServiceId.class.getName(), requestProxyMessage.getRest().getServiceId());
+            final long start = MessageStageStats.start();
             monitoringData.setRequestOutTs(getEpochMillisecond());
             final HttpResponse response = restClient.execute(req, ctx);
             monitoringData.setResponseInTs(getEpochMillisecond());
+            MessageStageStats.SERVER_PROXY.record(Stage.OUTBOUND_REQUEST, start);
             final StatusLine statusLine = response.getStatusLine();
 
             //calculate request hash
@@ -584,9 +600,14 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
             messageEncoder.restResponse(restResponse);
 
             if (response.getEntity() != null) {
-                restResponseBody = new CachingStream();
-                TeeInputStream tee = new TeeInputStream(response.getEntity().getContent(), restResponseBody);
-                messageEncoder.restBody(tee);
+                if (MessageLog.isBodyLogged(requestProxyMessage.getRest().getServiceId(), false)) {
+                    restResponseBody = new CachingStream();
+                    TeeInputStream tee = new TeeInputStream(response.getEntity().getContent(), restResponseBody);
+                    messageEncoder.restBody(tee);
+                } else {
+                    // the body is not logged, so stream it straight to the client proxy
+                    messageEncoder.restBody(response.getEntity().getContent());
+                }
                 EntityUtils.consume(response.getEntity());
             }
 
@@ -49,7 +49,6 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -190,25 +189,18 @@ public class CertHashBasedOcspResponder implements StartStop {
     }
 
     private static List<OCSPResp> getOcspResponses(String[] hashes) throws Exception {
-        List<OCSPResp> ocspResponses = new ArrayList<>(hashes.length);
+        // all the responses are looked up with a single request to the signer
+        List<OCSPResp> ocspResponses = KeyConf.getOcspResponses(hashes);
 
-        for (String certHash : hashes) {
-            ocspResponses.add(getOcspResponse(certHash));
+        for (int i = 0; i < hashes.length; i++) {
+            if (ocspResponses.get(i) == null) {
+                throw new Exception("Could not find OCSP response for certificate " + hashes[i]);
+            }
         }
 
         return ocspResponses;
     }
 
-    private static OCSPResp getOcspResponse(String certHash) throws Exception {
-        OCSPResp ocsp = KeyConf.getOcspResponse(certHash);
-
-        if (ocsp == null) {
-            throw new Exception("Could not find OCSP response for certificate " + certHash);
-        }
-
-        return ocsp;
-    }
-
     private static String[] getCertHashes(HttpServletRequest request) throws Exception {
         String[] paramValues = request.getParameterValues(CERT_PARAM);
 
@@ -0,0 +1,149 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the processing time of the stages of message processing in the client proxy and the server proxy, when
+ * enabled with the proxy.message-stage-stats-enabled system property. A stage is timed as follows:
+ * <pre>
+ * long start = MessageStageStats.start();
+ * ...
+ * MessageStageStats.CLIENT_PROXY.record(Stage.SIGNING, start);
+ * </pre>
+ * When disabled, both calls return without reading the clock.
+ */
+public final class MessageStageStats {
+
+    /**
+     * The timed stages. The stages of one message may overlap, e.g. the server proxy verifies the TLS certificate
+     * of the client while parsing the request and the client proxy verifies the TLS certificate of the server
+     * while sending the outbound request.
+     */
+    public enum Stage {
+        /** Parsing the request received from the client information system or the client proxy */
+        REQUEST_PARSING("RequestParsing"),
+        /** Signing the outgoing message */
+        SIGNING("Signing"),
+        /** Verifying the TLS certificate of the peer security server and its OCSP responses */
+        TLS_VERIFICATION("TlsVerification"),
+        /** Verifying the signature of the incoming message */
+        SIGNATURE_VERIFICATION("SignatureVerification"),
+        /** Writing a message to the message log */
+        MESSAGE_LOGGING("MessageLogging"),
+        /** Sending the request to the server proxy or the service and receiving the response headers */
+        OUTBOUND_REQUEST("OutboundRequest"),
+        /** Parsing the response received from the server proxy or the service */
+        RESPONSE_PARSING("ResponseParsing"),
+        /** Storing the operational monitoring data of the request */
+        OP_MONITORING("OpMonitoring"),
+        /** Handling the whole request */
+        TOTAL("Total");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /**
+         * @return name of the stage in the reported metrics
+         */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final boolean ENABLED = SystemProperties.isProxyMessageStageStatsEnabled();
+
+    public static final MessageStageStats CLIENT_PROXY = new MessageStageStats("ClientProxy");
+    public static final MessageStageStats SERVER_PROXY = new MessageStageStats("ServerProxy");
+
+    private final String name;
+    private final LatencyHistogram[] histograms;
+
+    private MessageStageStats(String name) {
+        this.name = name;
+        this.histograms = new LatencyHistogram[ENABLED ? Stage.values().length : 0];
+
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return true if the stage processing times are recorded
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return the start time of a stage to pass to {@link #record(Stage, long)}
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time passed since the start of the stage.
+     * @param stage the stage
+     * @param start the start time returned by {@link #start()}
+     */
+    public void record(Stage stage, long start) {
+        if (ENABLED) {
+            histograms[stage.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Takes the snapshots of all the stages of the client proxy and the server proxy and resets the histograms.
+     * @return the snapshots keyed by proxy and stage, e.g. "ClientProxy.Signing", or an empty map if the
+     * statistics are disabled
+     */
+    public static Map<String, LatencyHistogram.Snapshot> snapshotAndReset() {
+        if (!ENABLED) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+        CLIENT_PROXY.addSnapshots(snapshots);
+        SERVER_PROXY.addSnapshots(snapshots);
+
+        return snapshots;
+    }
+
+    private void addSnapshots(Map<String, LatencyHistogram.Snapshot> snapshots) {
+        for (Stage stage : Stage.values()) {
+            snapshots.put(name + "." + stage.getMetricName(), histograms[stage.ordinal()].snapshotAndReset());
+        }
+    }
+}
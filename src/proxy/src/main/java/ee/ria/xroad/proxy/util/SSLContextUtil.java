@@ -24,12 +24,14 @@
  */
 package ee.ria.xroad.proxy.util;
 
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.conf.globalconf.AuthTrustManager;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.proxy.conf.AuthKeyManager;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 
 import java.security.KeyManagementException;
@@ -44,13 +46,21 @@ public final class SSLContextUtil {
     private SSLContextUtil() { }
 
     /**
-     * Creates SSLContext used in between security servers
+     * Creates SSLContext used in between security servers. The sessions of the context are cached
+     * for resumption according to the xroad-tls-session-* properties.
      * @return
      */
     public static SSLContext createXroadSSLContext() throws KeyManagementException, NoSuchAlgorithmException {
         SSLContext ctx = SSLContext.getInstance(CryptoUtils.SSL_PROTOCOL);
         ctx.init(new KeyManager[] {AuthKeyManager.getInstance()}, new TrustManager[] {new AuthTrustManager()},
                 new SecureRandom());
+        configureSessionCache(ctx.getClientSessionContext());
+        configureSessionCache(ctx.getServerSessionContext());
         return ctx;
     }
+
+    private static void configureSessionCache(SSLSessionContext sessionContext) {
+        sessionContext.setSessionCacheSize(SystemProperties.getXroadTLSSessionCacheSize());
+        sessionContext.setSessionTimeout(SystemProperties.getXroadTLSSessionTimeout());
+    }
 }
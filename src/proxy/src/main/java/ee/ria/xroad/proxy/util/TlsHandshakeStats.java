@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+
+import javax.net.ssl.SSLSession;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the TLS handshakes between security servers. A handshake that resumes a cached session carries the id of
+ * a session seen before, other handshakes are counted as full handshakes.
+ */
+public final class TlsHandshakeStats {
+
+    private static final LongAdder FULL_HANDSHAKES = new LongAdder();
+    private static final LongAdder RESUMED_HANDSHAKES = new LongAdder();
+
+    // the ids of the sessions established by the client proxy and the server proxy
+    private static final Cache<ByteBuffer, Boolean> CLIENT_SESSIONS = createSessionIdCache();
+    private static final Cache<ByteBuffer, Boolean> SERVER_SESSIONS = createSessionIdCache();
+
+    private TlsHandshakeStats() {
+    }
+
+    /**
+     * Records a handshake of the client proxy with a server proxy.
+     * @param session the session established by the handshake
+     */
+    public static void clientHandshake(SSLSession session) {
+        record(CLIENT_SESSIONS, session);
+    }
+
+    /**
+     * Records a handshake of the server proxy with a client proxy.
+     * @param session the session established by the handshake
+     */
+    public static void serverHandshake(SSLSession session) {
+        record(SERVER_SESSIONS, session);
+    }
+
+    /**
+     * @return listener recording the handshakes of a server proxy connector
+     */
+    public static SslHandshakeListener serverHandshakeListener() {
+        return new SslHandshakeListener() {
+            @Override
+            public void handshakeSucceeded(Event event) {
+                serverHandshake(event.getSSLEngine().getSession());
+            }
+        };
+    }
+
+    /**
+     * @return number of full TLS handshakes since startup
+     */
+    public static long getFullHandshakeCount() {
+        return FULL_HANDSHAKES.sum();
+    }
+
+    /**
+     * @return number of TLS handshakes resuming a cached session since startup
+     */
+    public static long getResumedHandshakeCount() {
+        return RESUMED_HANDSHAKES.sum();
+    }
+
+    private static void record(Cache<ByteBuffer, Boolean> sessions, SSLSession session) {
+        ByteBuffer id = ByteBuffer.wrap(session.getId());
+
+        if (id.hasRemaining() && sessions.asMap().putIfAbsent(id, Boolean.TRUE) != null) {
+            RESUMED_HANDSHAKES.increment();
+        } else {
+            FULL_HANDSHAKES.increment();
+        }
+    }
+
+    private static Cache<ByteBuffer, Boolean> createSessionIdCache() {
+        return CacheBuilder.newBuilder()
+                .maximumSize(SystemProperties.getXroadTLSSessionCacheSize())
+                .expireAfterWrite(SystemProperties.getXroadTLSSessionTimeout(), TimeUnit.SECONDS)
+                .build();
+    }
+}
@@ -124,6 +124,7 @@ public abstract class AbstractProxyIntegrationTest {
 
         System.setProperty(SystemProperties.PROXY_CLIENT_TIMEOUT, "15000");
         System.setProperty(SystemProperties.DATABASE_PROPERTIES, "src/test/resources/hibernate.properties");
+        SystemProperties.reload();
 
         jobManager = new JobManager();
         actorSystem = ActorSystem.create("Proxy", ConfigFactory.load().getConfig("proxy")
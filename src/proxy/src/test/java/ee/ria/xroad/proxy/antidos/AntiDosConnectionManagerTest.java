@@ -30,9 +30,16 @@ import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -41,11 +48,17 @@ import static org.junit.Assert.assertTrue;
  */
 public class AntiDosConnectionManagerTest {
 
+    private static final int NUM_PARTNERS = 2000;
+
     private static final Set<String> KNOWN_ADDRESSES = new HashSet<>();
     static {
         KNOWN_ADDRESSES.add("test1");
         KNOWN_ADDRESSES.add("test2");
         KNOWN_ADDRESSES.add("test3");
+
+        for (int i = 0; i < NUM_PARTNERS; i++) {
+            KNOWN_ADDRESSES.add(partnerAddress(i));
+        }
     }
 
     /**
@@ -156,8 +169,76 @@ public class AntiDosConnectionManagerTest {
         cm.assertEmpty();
     }
 
+    /**
+     * Test to ensure that connections from thousands of partners flooding the
+     * acceptor concurrently are all queued and handed out exactly once.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void manyPartnersFloodAcceptor() throws Exception {
+        final int acceptors = 8;
+        final int connectionsPerPartner = 5;
+        final int total = NUM_PARTNERS * connectionsPerPartner;
+
+        TestConfiguration conf = new TestConfiguration(5, 1.1);
+
+        TestSystemMetrics sm = new TestSystemMetrics();
+        sm.addLoad(7, 0.1);
+
+        TestConnectionManager cm = createConnectionManager(conf, sm);
+
+        ExecutorService executor = Executors.newFixedThreadPool(acceptors);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int a = 0; a < acceptors; a++) {
+            final int acceptor = a;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int i = acceptor; i < total; i += acceptors) {
+                    cm.accept(createConnection(partnerAddress(i % NUM_PARTNERS)));
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+
+        Map<String, Integer> received = new HashMap<>();
+        for (int i = 0; i < total; i++) {
+            TestSocketChannel next = cm.getNextConnection();
+            if (next == null) {
+                i--;
+                continue;
+            }
+            received.merge(next.getHostAddress(), 1, Integer::sum);
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(NUM_PARTNERS, received.size());
+        received.values().forEach(count -> assertEquals(connectionsPerPartner, count.intValue()));
+
+        cm.assertEmpty();
+
+        assertTrue("Admission of " + total + " connections took " + elapsed + " ms",
+                elapsed < TimeUnit.SECONDS.toMillis(30));
+    }
+
     // ------------------------------------------------------------------------
 
+    private static String partnerAddress(int i) {
+        return "partner" + i;
+    }
+
     private static TestConnectionManager createConnectionManager(
             TestConfiguration configuration, TestSystemMetrics systemMetrics)
                 throws Exception {
@@ -32,4 +32,10 @@ import lombok.RequiredArgsConstructor;
 class TestConfiguration extends AntiDosConfiguration {
     private final int minFreeFileHandles;
     private final double maxCpuLoad;
+
+    @Override
+    long getResourceSampleInterval() {
+        // sample the test metrics for every connection
+        return 0;
+    }
 }
@@ -0,0 +1,87 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.clientproxy;
+
+import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.conf.globalconf.EmptyGlobalConf;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.joda.time.DateTime;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the peer OCSP cache.
+ */
+public class PeerOcspCacheTest {
+
+    private static X509Certificate subject;
+    private static X509Certificate issuer;
+    private static PrivateKey signerKey;
+
+    /**
+     * Sets up an empty global configuration and loads test certificates.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void loadCerts() throws Exception {
+        GlobalConf.reload(new EmptyGlobalConf());
+
+        issuer = TestCertUtil.getCertChainCert("root_ca.p12");
+        signerKey = TestCertUtil.getCertChainKey("root_ca.p12");
+        subject = TestCertUtil.getCertChainCert("user_0.p12");
+    }
+
+    /**
+     * Tests that a fresh response is returned until its nextUpdate has passed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void nextUpdate() throws Exception {
+        PeerOcspCache cache = new PeerOcspCache();
+
+        OCSPResp valid = createResponse(new DateTime().plusMinutes(1));
+        cache.put("valid", valid);
+        assertEquals(valid, cache.get("valid"));
+
+        cache.put("passed", createResponse(new DateTime().minusMinutes(1)));
+        assertNull(cache.get("passed"));
+        assertNull(cache.get("missing"));
+    }
+
+    private static OCSPResp createResponse(DateTime nextUpdate) throws Exception {
+        return OcspTestUtils.createOCSPResponse(subject, issuer, issuer, signerKey, CertificateStatus.GOOD,
+                new DateTime().toDate(), nextUpdate.toDate());
+    }
+}
@@ -76,4 +76,15 @@ public class EmptyKeyConf implements KeyConfProvider {
         return ocspResponses;
     }
 
+    @Override
+    public List<OCSPResp> getOcspResponses(String[] certHashes)
+            throws Exception {
+        List<OCSPResp> ocspResponses = new ArrayList<>();
+        for (String certHash : certHashes) {
+            ocspResponses.add(getOcspResponse(certHash));
+        }
+
+        return ocspResponses;
+    }
+
 }
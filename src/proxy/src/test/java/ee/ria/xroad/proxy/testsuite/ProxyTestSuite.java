@@ -163,6 +163,7 @@ public final class ProxyTestSuite {
 
         System.setProperty(SystemProperties.PROXY_CLIENT_TIMEOUT, "15000");
         System.setProperty(SystemProperties.DATABASE_PROPERTIES, "src/test/resources/hibernate.properties");
+        SystemProperties.reload();
 
         jobManager = new JobManager();
         jobManager.start();
@@ -185,6 +186,7 @@ public final class ProxyTestSuite {
 
         // Make sure SSL is disabled
         System.setProperty(SystemProperties.PROXY_SSL_SUPPORT, "false");
+        SystemProperties.reload();
 
         runTestSuite(getDefaultServices(), tc);
     }
@@ -200,6 +202,7 @@ public final class ProxyTestSuite {
 
         // Make sure SSL is enabled
         System.setProperty(SystemProperties.PROXY_SSL_SUPPORT, "true");
+        SystemProperties.reload();
 
         List<StartStop> services = getDefaultServices();
         services.add(new DummySslServerProxy());
@@ -218,6 +221,7 @@ public final class ProxyTestSuite {
 
         // Make sure SSL is enabled
         System.setProperty(SystemProperties.PROXY_SSL_SUPPORT, "true");
+        SystemProperties.reload();
 
         for (MessageTestCase c : tc) {
             List<StartStop> services = getDefaultServices();
@@ -0,0 +1,69 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.util;
+
+import org.junit.Test;
+
+import javax.net.ssl.SSLSession;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests counting the full and resumed TLS handshakes.
+ */
+public class TlsHandshakeStatsTest {
+
+    @Test
+    public void countFullAndResumedHandshakes() {
+        long full = TlsHandshakeStats.getFullHandshakeCount();
+        long resumed = TlsHandshakeStats.getResumedHandshakeCount();
+
+        TlsHandshakeStats.clientHandshake(session(1));
+        TlsHandshakeStats.clientHandshake(session(1));
+        TlsHandshakeStats.clientHandshake(session(2));
+        // server proxy sessions are tracked separately from the client proxy sessions
+        TlsHandshakeStats.serverHandshake(session(1));
+        // sessions without an id cannot be resumed
+        TlsHandshakeStats.serverHandshake(session());
+        TlsHandshakeStats.serverHandshake(session());
+
+        assertEquals(5, TlsHandshakeStats.getFullHandshakeCount() - full);
+        assertEquals(1, TlsHandshakeStats.getResumedHandshakeCount() - resumed);
+    }
+
+    private static SSLSession session(int... id) {
+        byte[] idBytes = new byte[id.length];
+        for (int i = 0; i < id.length; i++) {
+            idBytes[i] = (byte) id[i];
+        }
+
+        SSLSession session = mock(SSLSession.class);
+        when(session.getId()).thenReturn(idBytes);
+
+        return session;
+    }
+}
@@ -0,0 +1,350 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.protocol.dto.CertRequestInfo;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenStatusInfo;
+import ee.ria.xroad.signer.protocol.message.ListTokens;
+import ee.ria.xroad.signer.protocol.message.ListTokensResponse;
+import ee.ria.xroad.signer.protocol.message.Sign;
+import ee.ria.xroad.signer.protocol.message.SignResponse;
+
+import akka.serialization.SerializerWithStringManifest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Akka serializer for the most frequent signer protocol messages. Encodes the messages (and the token, key and
+ * certificate graphs of {@link ListTokensResponse}) field by field into a compact binary format instead of using
+ * Java serialization. Bound to the message classes in the reference.conf of this module.
+ */
+public final class SignerProtocolSerializer extends SerializerWithStringManifest {
+
+    // unique among the serializers of the actor system, identifiers 0 - 40 are reserved by Akka
+    private static final int IDENTIFIER = 2001;
+
+    private static final String LIST_TOKENS = "ListTokens";
+    private static final String LIST_TOKENS_RESPONSE = "ListTokensResponse";
+    private static final String TOKEN_INFO = "TokenInfo";
+    private static final String SIGN = "Sign";
+    private static final String SIGN_RESPONSE = "SignResponse";
+
+    private static final int NULL_LENGTH = -1;
+    private static final byte[] EMPTY = new byte[0];
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object o) {
+        if (o instanceof ListTokens) {
+            return LIST_TOKENS;
+        } else if (o instanceof ListTokensResponse) {
+            return LIST_TOKENS_RESPONSE;
+        } else if (o instanceof TokenInfo) {
+            return TOKEN_INFO;
+        } else if (o instanceof Sign) {
+            return SIGN;
+        } else if (o instanceof SignResponse) {
+            return SIGN_RESPONSE;
+        }
+
+        throw new IllegalArgumentException("Cannot serialize " + o.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        if (o instanceof ListTokens) {
+            return EMPTY;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            if (o instanceof ListTokensResponse) {
+                writeList(out, (ListTokensResponse) o, SignerProtocolSerializer::writeTokenInfo);
+            } else if (o instanceof TokenInfo) {
+                writeTokenInfo(out, (TokenInfo) o);
+            } else if (o instanceof Sign) {
+                Sign sign = (Sign) o;
+                writeString(out, sign.getKeyId());
+                writeString(out, sign.getSignatureAlgorithmId());
+                writeBytes(out, sign.getDigest());
+            } else if (o instanceof SignResponse) {
+                writeBytes(out, ((SignResponse) o).getSignature());
+            } else {
+                throw new IllegalArgumentException("Cannot serialize " + o.getClass().getName());
+            }
+
+            out.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            switch (manifest) {
+                case LIST_TOKENS:
+                    return new ListTokens();
+                case LIST_TOKENS_RESPONSE:
+                    return new ListTokensResponse(readList(in, SignerProtocolSerializer::readTokenInfo));
+                case TOKEN_INFO:
+                    return readTokenInfo(in);
+                case SIGN:
+                    return new Sign(readString(in), readString(in), readBytes(in));
+                case SIGN_RESPONSE:
+                    return new SignResponse(readBytes(in));
+                default:
+                    throw new NotSerializableException("Unknown signer protocol message " + manifest);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeTokenInfo(DataOutputStream out, TokenInfo token) throws IOException {
+        writeString(out, token.getType());
+        writeString(out, token.getFriendlyName());
+        writeString(out, token.getId());
+        out.writeBoolean(token.isReadOnly());
+        out.writeBoolean(token.isAvailable());
+        out.writeBoolean(token.isActive());
+        writeString(out, token.getSerialNumber());
+        writeString(out, token.getLabel());
+        out.writeInt(token.getSlotIndex());
+        writeString(out, token.getStatus() != null ? token.getStatus().name() : null);
+        writeList(out, token.getKeyInfo(), SignerProtocolSerializer::writeKeyInfo);
+        writeMap(out, token.getTokenInfo());
+    }
+
+    private static TokenInfo readTokenInfo(DataInputStream in) throws IOException {
+        String type = readString(in);
+        String friendlyName = readString(in);
+        String id = readString(in);
+        boolean readOnly = in.readBoolean();
+        boolean available = in.readBoolean();
+        boolean active = in.readBoolean();
+        String serialNumber = readString(in);
+        String label = readString(in);
+        int slotIndex = in.readInt();
+        String status = readString(in);
+
+        return new TokenInfo(type, friendlyName, id, readOnly, available, active, serialNumber, label, slotIndex,
+                status != null ? TokenStatusInfo.valueOf(status) : null,
+                readList(in, SignerProtocolSerializer::readKeyInfo), readMap(in));
+    }
+
+    private static void writeKeyInfo(DataOutputStream out, KeyInfo key) throws IOException {
+        out.writeBoolean(key.isAvailable());
+        writeString(out, key.getUsage() != null ? key.getUsage().name() : null);
+        writeString(out, key.getFriendlyName());
+        writeString(out, key.getId());
+        writeString(out, key.getLabel());
+        writeString(out, key.getPublicKey());
+        writeList(out, key.getCerts(), SignerProtocolSerializer::writeCertificateInfo);
+        writeList(out, key.getCertRequests(), SignerProtocolSerializer::writeCertRequestInfo);
+        writeString(out, key.getSignMechanismName());
+    }
+
+    private static KeyInfo readKeyInfo(DataInputStream in) throws IOException {
+        boolean available = in.readBoolean();
+        String usage = readString(in);
+
+        return new KeyInfo(available, usage != null ? KeyUsageInfo.valueOf(usage) : null, readString(in),
+                readString(in), readString(in), readString(in),
+                readList(in, SignerProtocolSerializer::readCertificateInfo),
+                readList(in, SignerProtocolSerializer::readCertRequestInfo), readString(in));
+    }
+
+    private static void writeCertificateInfo(DataOutputStream out, CertificateInfo cert) throws IOException {
+        writeClientId(out, cert.getMemberId());
+        out.writeBoolean(cert.isActive());
+        out.writeBoolean(cert.isSavedToConfiguration());
+        writeString(out, cert.getStatus());
+        writeString(out, cert.getId());
+        writeBytes(out, cert.getCertificateBytes());
+        writeBytes(out, cert.getOcspBytes());
+    }
+
+    private static CertificateInfo readCertificateInfo(DataInputStream in) throws IOException {
+        return new CertificateInfo(readClientId(in), in.readBoolean(), in.readBoolean(), readString(in),
+                readString(in), readBytes(in), readBytes(in));
+    }
+
+    private static void writeCertRequestInfo(DataOutputStream out, CertRequestInfo certRequest) throws IOException {
+        writeString(out, certRequest.getId());
+        writeClientId(out, certRequest.getMemberId());
+        writeString(out, certRequest.getSubjectName());
+    }
+
+    private static CertRequestInfo readCertRequestInfo(DataInputStream in) throws IOException {
+        return new CertRequestInfo(readString(in), readClientId(in), readString(in));
+    }
+
+    private static void writeClientId(DataOutputStream out, ClientId clientId) throws IOException {
+        out.writeBoolean(clientId != null);
+
+        if (clientId != null) {
+            writeString(out, clientId.getXRoadInstance());
+            writeString(out, clientId.getMemberClass());
+            writeString(out, clientId.getMemberCode());
+            writeString(out, clientId.getSubsystemCode());
+        }
+    }
+
+    private static ClientId readClientId(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        return ClientId.create(readString(in), readString(in), readString(in), readString(in));
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        if (map == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        out.writeInt(map.size());
+
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+
+        if (size == NULL_LENGTH) {
+            return null;
+        }
+
+        Map<String, String> map = new LinkedHashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static <T> void writeList(DataOutputStream out, List<T> list, Writer<T> writer) throws IOException {
+        if (list == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        out.writeInt(list.size());
+
+        for (T item : list) {
+            writer.write(out, item);
+        }
+    }
+
+    private static <T> List<T> readList(DataInputStream in, Reader<T> reader) throws IOException {
+        int size = in.readInt();
+
+        if (size == NULL_LENGTH) {
+            return null;
+        }
+
+        List<T> list = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            list.add(reader.read(in));
+        }
+
+        return Collections.unmodifiableList(list);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(UTF_8) : null);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+
+        return bytes != null ? new String(bytes, UTF_8) : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(DataOutputStream out, T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol.message;
+
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Signer API message. An unmodifiable list of tokens, so that the response can be bound to the
+ * {@link ee.ria.xroad.signer.protocol.SignerProtocolSerializer} while the callers keep using it as a list.
+ */
+public final class ListTokensResponse extends AbstractList<TokenInfo> implements RandomAccess, Serializable {
+
+    private final List<TokenInfo> tokens;
+
+    /**
+     * Creates the response
+     * @param tokens the tokens
+     */
+    public ListTokensResponse(List<TokenInfo> tokens) {
+        this.tokens = Collections.unmodifiableList(new ArrayList<>(tokens));
+    }
+
+    @Override
+    public TokenInfo get(int index) {
+        return tokens.get(index);
+    }
+
+    @Override
+    public int size() {
+        return tokens.size();
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.protocol.dto.CertRequestInfo;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenStatusInfo;
+import ee.ria.xroad.signer.protocol.message.ListTokens;
+import ee.ria.xroad.signer.protocol.message.ListTokensResponse;
+import ee.ria.xroad.signer.protocol.message.Sign;
+import ee.ria.xroad.signer.protocol.message.SignResponse;
+
+import akka.actor.ActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.Serializers;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the signer protocol messages are bound to and survive the round trip through
+ * {@link SignerProtocolSerializer}.
+ */
+public class SignerProtocolSerializerTest {
+
+    private static ActorSystem actorSystem;
+    private static Serialization serialization;
+
+    /**
+     * Creates the actor system
+     */
+    @BeforeClass
+    public static void setUp() {
+        actorSystem = ActorSystem.create("SignerProtocolSerializerTest", ConfigFactory.load());
+        serialization = SerializationExtension.get(actorSystem);
+    }
+
+    /**
+     * Shuts down the actor system
+     */
+    @AfterClass
+    public static void tearDown() {
+        actorSystem.terminate();
+    }
+
+    @Test
+    public void listTokens() {
+        Object tokens = roundTrip(new ListTokensResponse(Arrays.asList(createToken("0"), createToken("1"))));
+
+        assertEquals(Arrays.asList(createToken("0"), createToken("1")), tokens);
+        assertTrue(roundTrip(new ListTokens()) instanceof ListTokens);
+    }
+
+    @Test
+    public void sign() {
+        Sign sign = (Sign) roundTrip(new Sign("key", "SHA256withRSA", new byte[] {1, 2, 3}));
+
+        assertEquals("key", sign.getKeyId());
+        assertEquals("SHA256withRSA", sign.getSignatureAlgorithmId());
+        assertArrayEquals(new byte[] {1, 2, 3}, sign.getDigest());
+        assertArrayEquals(new byte[] {4, 5}, ((SignResponse) roundTrip(new SignResponse(new byte[] {4, 5})))
+                .getSignature());
+    }
+
+    private static Object roundTrip(Object message) {
+        Serializer serializer = serialization.findSerializerFor(message);
+        assertTrue(serializer instanceof SignerProtocolSerializer);
+
+        byte[] bytes = serialization.serialize(message).get();
+
+        return serialization.deserialize(bytes, serializer.identifier(), Serializers.manifestFor(serializer, message))
+                .get();
+    }
+
+    private static TokenInfo createToken(String id) {
+        ClientId member = ClientId.create("EE", "GOV", "M1");
+        ClientId subsystem = ClientId.create("EE", "GOV", "M1", "SS1");
+
+        CertificateInfo cert = new CertificateInfo(subsystem, true, true, CertificateInfo.STATUS_REGISTERED, "c" + id,
+                new byte[] {1, 2}, null);
+        CertRequestInfo certRequest = new CertRequestInfo("r" + id, member, "CN=test");
+        List<KeyInfo> keys = Arrays.asList(
+                new KeyInfo(true, KeyUsageInfo.SIGNING, "sign key", "k" + id, "label", "cHVibGlj",
+                        Collections.singletonList(cert), Collections.singletonList(certRequest), "CKM_RSA_PKCS"),
+                new KeyInfo(false, null, null, "k2" + id, null, null, Collections.emptyList(),
+                        Collections.emptyList(), null));
+
+        Map<String, String> tokenInfo = new LinkedHashMap<>();
+        tokenInfo.put("Manufacturer ID", "test");
+
+        return new TokenInfo(TokenInfo.SOFTWARE_MODULE_TYPE, "Token " + id, id, false, true, true, null, "label",
+                0, TokenStatusInfo.OK, keys, tokenInfo);
+    }
+}
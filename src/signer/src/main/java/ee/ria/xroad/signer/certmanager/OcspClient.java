@@ -137,7 +137,12 @@ final class OcspClient {
     }
 
     private static byte[] getResponseData(HttpURLConnection connection) throws IOException {
-        byte[] responseData = IOUtils.toByteArray((InputStream) connection.getContent());
+        byte[] responseData;
+
+        // reading the response fully and closing the stream allows the connection to be reused (keep-alive)
+        try (InputStream in = (InputStream) connection.getContent()) {
+            responseData = IOUtils.toByteArray(in);
+        }
 
         if (responseData == null || responseData.length == 0) {
             throw new IOException("No response from responder");
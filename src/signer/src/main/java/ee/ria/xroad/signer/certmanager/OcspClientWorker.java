@@ -28,6 +28,7 @@ import ee.ria.xroad.common.CertificationServiceDiagnostics;
 import ee.ria.xroad.common.CertificationServiceStatus;
 import ee.ria.xroad.common.DiagnosticsErrorCodes;
 import ee.ria.xroad.common.OcspResponderStatus;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.globalconfextension.GlobalConfExtensions;
@@ -46,6 +47,7 @@ import ee.ria.xroad.signer.util.SignerUtil;
 import akka.actor.ActorRef;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 
@@ -56,13 +58,22 @@ import java.security.cert.X509Certificate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
@@ -77,6 +88,9 @@ import static java.util.Collections.emptyList;
  * server and providing the responses to the message signer.
  *
  * The certificate status is queried from the server at a fixed interval.
+ * The responses are fetched concurrently, starting from the certificates
+ * with the oldest cached responses, and the number of concurrent requests
+ * to a single OCSP responder is limited.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -99,11 +113,22 @@ public class OcspClientWorker extends AbstractSignerActor {
 
     private CertificationServiceDiagnostics certServDiagnostics;
 
+    private ExecutorService fetchExecutor;
+
+    private final ConcurrentMap<String, Semaphore> responderPermits = new ConcurrentHashMap<>();
+
     @Override
     public void preStart() throws Exception {
         super.preStart();
         changeChecker = new GlobalConfChangeChecker();
         certServDiagnostics = new CertificationServiceDiagnostics();
+        fetchExecutor = Executors.newFixedThreadPool(SystemProperties.getOcspFetchThreads());
+    }
+
+    @Override
+    public void postStop() throws Exception {
+        fetchExecutor.shutdownNow();
+        super.postStop();
     }
 
     @Override
@@ -210,27 +235,9 @@ public class OcspClientWorker extends AbstractSignerActor {
 
         log.info("Fetching OCSP responses for {} certificates", certs.size());
 
-        Boolean failed = false;
-        Map<String, OCSPResp> statuses = new HashMap<>();
-
-        for (X509Certificate subject : certs) {
-            try {
-                OCSPResp status = queryCertStatus(subject, new OcspVerifierOptions(
-                        GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate()));
-                if (status != null) {
-                    String subjectHash = calculateCertHexHash(subject);
-                    statuses.put(subjectHash, status);
-                } else {
-                    failed = true;
-                }
-            } catch (Exception e) {
-                failed = true;
-
-                log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e);
-            }
-        }
+        Map<String, OCSPResp> statuses = fetchResponses(certs);
 
-        if (failed) {
+        if (statuses.size() < certs.size()) {
             getSender().tell(FAILED, getSelf());
         } else {
             getSender().tell(SUCCESS, getSelf());
@@ -243,8 +250,53 @@ public class OcspClientWorker extends AbstractSignerActor {
         }
     }
 
+    /**
+     * Fetches the OCSP responses for the given certificates concurrently. The certificates are submitted
+     * in the given order.
+     * @param certs the certificates
+     * @return the successfully fetched and verified responses keyed by certificate hash
+     */
+    Map<String, OCSPResp> fetchResponses(List<X509Certificate> certs) {
+        OcspVerifierOptions verifierOptions = new OcspVerifierOptions(
+                GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate());
+
+        Map<X509Certificate, Future<OCSPResp>> results = new LinkedHashMap<>();
+
+        for (X509Certificate subject : certs) {
+            results.put(subject, fetchExecutor.submit(() -> queryCertStatus(subject, verifierOptions)));
+        }
+
+        Map<String, OCSPResp> statuses = new HashMap<>();
+
+        for (Entry<X509Certificate, Future<OCSPResp>> result : results.entrySet()) {
+            X509Certificate subject = result.getKey();
+
+            try {
+                OCSPResp status = result.getValue().get();
+
+                if (status != null) {
+                    statuses.put(calculateCertHexHash(subject), status);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.values().forEach(f -> f.cancel(true));
+
+                log.error("Interrupted while fetching OCSP responses");
+
+                break;
+            } catch (ExecutionException e) {
+                log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e.getCause());
+            } catch (Exception e) {
+                log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e);
+            }
+        }
+
+        return statuses;
+    }
+
     List<X509Certificate> getCertsForOcsp() {
         Set<X509Certificate> certs = new HashSet<>();
+        Map<X509Certificate, Date> thisUpdates = new HashMap<>();
 
         for (CertificateInfo certInfo : TokenManager.getAllCerts()) {
             if (!certInfo.isActive()) {
@@ -278,10 +330,34 @@ public class OcspClientWorker extends AbstractSignerActor {
                 continue; // ignore self-signed certificates
             }
 
+            thisUpdates.put(cert, getThisUpdate(certInfo.getOcspBytes()));
+
             getCertChain(cert).stream().filter(this::isCertValid).forEach(certs::add);
         }
 
-        return new ArrayList<>(certs);
+        // the responses are valid for a fixed time from thisUpdate, so the oldest ones (and the
+        // certificates without a known response) have the least remaining validity and are fetched first
+        List<X509Certificate> result = new ArrayList<>(certs);
+        result.sort(Comparator.comparing((X509Certificate c) -> thisUpdates.get(c),
+                Comparator.nullsFirst(Comparator.<Date>naturalOrder())));
+
+        return result;
+    }
+
+    private static Date getThisUpdate(byte[] ocspBytes) {
+        if (ocspBytes == null) {
+            return null;
+        }
+
+        try {
+            BasicOCSPResp basicResp = (BasicOCSPResp) new OCSPResp(ocspBytes).getResponseObject();
+
+            return basicResp.getResponses()[0].getThisUpdate();
+        } catch (Exception e) {
+            log.debug("Failed to parse cached OCSP response", e);
+
+            return null;
+        }
     }
 
     OCSPResp queryCertStatus(X509Certificate subject, OcspVerifierOptions verifierOptions) throws Exception {
@@ -305,7 +381,7 @@ public class OcspClientWorker extends AbstractSignerActor {
             try {
                 log.debug("Fetching response from: {}", responderURI);
 
-                response = OcspClient.fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+                response = fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
 
                 if (response != null) {
                     reportOcspDiagnostics(issuer, responderURI, DiagnosticsErrorCodes.RETURN_SUCCESS, LocalTime.now(),
@@ -350,7 +426,21 @@ public class OcspClientWorker extends AbstractSignerActor {
         }
     }
 
-    private void reportOcspDiagnostics(X509Certificate issuer, String responderURI, int statusCode,
+    private OCSPResp fetchResponse(String responderURI, X509Certificate subject, X509Certificate issuer,
+            PrivateKey signerKey, X509Certificate signer, String signAlgoId) throws Exception {
+        Semaphore permits = responderPermits.computeIfAbsent(responderURI,
+                uri -> new Semaphore(SystemProperties.getOcspResponderMaxConcurrentRequests()));
+
+        permits.acquire();
+
+        try {
+            return OcspClient.fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private synchronized void reportOcspDiagnostics(X509Certificate issuer, String responderURI, int statusCode,
             LocalTime prevUpdate, LocalTime nextUpdate) {
 
         OcspResponderStatus responderStatus = new OcspResponderStatus(statusCode, responderURI, prevUpdate, nextUpdate);
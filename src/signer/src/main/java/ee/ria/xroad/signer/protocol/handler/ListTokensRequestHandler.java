@@ -26,6 +26,7 @@ package ee.ria.xroad.signer.protocol.handler;
 
 import ee.ria.xroad.signer.protocol.AbstractRequestHandler;
 import ee.ria.xroad.signer.protocol.message.ListTokens;
+import ee.ria.xroad.signer.protocol.message.ListTokensResponse;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
 
 /**
@@ -36,7 +37,7 @@ public class ListTokensRequestHandler
 
     @Override
     protected Object handle(ListTokens message) throws Exception {
-        return TokenManager.listTokens();
+        return new ListTokensResponse(TokenManager.listTokens());
     }
 
 }
@@ -37,9 +37,13 @@ import ee.ria.xroad.signer.util.CalculateSignature;
 import ee.ria.xroad.signer.util.CalculatedSignature;
 import ee.ria.xroad.signer.util.SignerUtil;
 
+import akka.actor.ActorRef;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import static ee.ria.xroad.common.ErrorCodes.X_CANNOT_SIGN;
 import static ee.ria.xroad.common.ErrorCodes.X_FAILED_TO_GENERATE_R_KEY;
 import static ee.ria.xroad.signer.tokenmanager.TokenManager.setTokenAvailable;
@@ -81,6 +85,15 @@ public abstract class AbstractTokenWorker extends AbstractUpdateableActor {
         return e;
     }
 
+    /**
+     * Returns the executor that signing requests are run on. If null, signing is done by the worker itself,
+     * one request at a time. Workers that return an executor must allow {@link #sign} to be called concurrently.
+     * @return the signing executor or null
+     */
+    protected Executor getSigningExecutor() {
+        return null;
+    }
+
     @Override
     protected void onMessage(Object message) throws Exception {
         log.trace("onMessage()");
@@ -172,17 +185,41 @@ public abstract class AbstractTokenWorker extends AbstractUpdateableActor {
         sendSuccessResponse();
     }
 
-    private void handleCalculateSignature(CalculateSignature signRequest) throws Exception {
+    private void handleCalculateSignature(CalculateSignature signRequest) {
+        Executor executor = getSigningExecutor();
+
+        if (executor == null) {
+            sendResponse(calculateSignature(signRequest));
+
+            return;
+        }
+
+        ActorRef sender = getSender();
+        ActorRef self = getSelf();
+
+        try {
+            executor.execute(() -> sender.tell(calculateSignature(signRequest), self));
+        } catch (RejectedExecutionException e) {
+            log.error("Signing request with key '{}' rejected", signRequest.getKeyId(), e);
+
+            sender.tell(new CalculatedSignature(signRequest, null,
+                    translateError(e).withPrefix(X_CANNOT_SIGN)), self);
+        }
+    }
+
+    private CalculatedSignature calculateSignature(CalculateSignature signRequest) {
         try {
             byte data[] = SignerUtil.createDataToSign(signRequest.getDigest(), signRequest.getSignatureAlgorithmId());
 
             byte[] signature = sign(signRequest.getKeyId(), signRequest.getSignatureAlgorithmId(), data);
-            sendResponse(new CalculatedSignature(signRequest, signature, null));
+
+            return new CalculatedSignature(signRequest, signature, null);
         } catch (Exception e) { // catch-log-rethrow
             log.error("Error while signing with key '{}'", signRequest.getKeyId(), e);
 
             CodedException tr = translateError(customizeException(e)).withPrefix(X_CANNOT_SIGN);
-            sendResponse(new CalculatedSignature(signRequest, null, tr));
+
+            return new CalculatedSignature(signRequest, null, tr);
         }
     }
 
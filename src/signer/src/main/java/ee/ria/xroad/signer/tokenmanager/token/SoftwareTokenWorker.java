@@ -47,10 +47,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyPair;
 import java.security.KeyStore;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.Signature;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_PIN_INCORRECT;
@@ -89,7 +93,19 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
     // Use no digesting algorithm, since the input data is already a digest
     private static final String SIGNATURE_ALGORITHM = "NONEwithRSA";
 
-    private final Map<String, PrivateKey> privateKeys = new HashMap<>();
+    // Signature objects are not thread safe, but can be reused for signing with different keys
+    private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(SIGNATURE_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
+
+    // threads for signing in parallel, null if signing is done by the worker itself
+    private final ExecutorService signingExecutor;
 
     /**
      * Creates new worker.
@@ -98,6 +114,19 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
      */
     public SoftwareTokenWorker(TokenInfo tokenInfo, SoftwareTokenType ignored) {
         super(tokenInfo);
+
+        int signingThreads = SystemProperties.getSoftTokenSigningThreads();
+
+        signingExecutor = signingThreads > 1 ? Executors.newFixedThreadPool(signingThreads) : null;
+    }
+
+    @Override
+    public void postStop() throws Exception {
+        super.postStop();
+
+        if (signingExecutor != null) {
+            signingExecutor.shutdown();
+        }
     }
 
     @Override
@@ -127,6 +156,11 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         }
     }
 
+    @Override
+    protected Executor getSigningExecutor() {
+        return signingExecutor;
+    }
+
     @Override
     protected void activateToken(ActivateToken message) throws Exception {
         if (message.isActivate()) {
@@ -169,7 +203,10 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
 
         log.info("Deleting key file {}", path);
 
+        // the key store is deleted before the cached key, getPrivateKey relies on the order
         Files.deleteIfExists(path);
+
+        privateKeys.remove(keyId);
     }
 
     @Override
@@ -199,7 +236,7 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
 
         log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
 
-        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+        Signature signature = SIGNATURE.get();
         signature.initSign(key);
         signature.update(data);
 
@@ -284,10 +321,38 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         PrivateKey pkey = privateKeys.get(keyId);
 
         if (pkey == null) {
-            initializePrivateKey(keyId);
+            try {
+                pkey = loadPrivateKey(keyId);
+            } catch (FileNotFoundException e) {
+                // the key was deleted while it was being used for signing
+                log.debug("Key store of key '{}' not found", keyId);
+
+                return null;
+            }
+
+            if (pkey != null) {
+                log.debug("Found usable key '{}'", keyId);
+
+                PrivateKey existing = privateKeys.putIfAbsent(keyId, pkey);
+
+                if (existing != null) {
+                    pkey = existing;
+                } else if (!isTokenActive(tokenId)) {
+                    // the token was deactivated while the key was being loaded
+                    privateKeys.remove(keyId, pkey);
+                } else if (!Files.exists(Paths.get(getKeyStoreFileName(keyId)))) {
+                    // the key was deleted while it was being loaded, deleteKey removes the key store before the
+                    // cached key, so the key cached here after that is removed again
+                    log.debug("Key store of key '{}' deleted while loading the key", keyId);
+
+                    privateKeys.remove(keyId, pkey);
+
+                    return null;
+                }
+            }
         }
 
-        return privateKeys.get(keyId);
+        return pkey;
     }
 
     private void initializePrivateKey(String keyId) throws Exception {
@@ -380,7 +445,11 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         SoftwareTokenUtil.loadPrivateKey(getKeyStoreFileName(PIN_FILE), PIN_ALIAS, pin);
     }
 
-    private char[] getPin() throws Exception {
+    /**
+     * @return the PIN stored for the token
+     * @throws Exception if the PIN has not been provided
+     */
+    char[] getPin() throws Exception {
         final char[] pin = PasswordStore.getPassword(tokenId);
         verifyPinProvided(pin);
 
@@ -34,8 +34,10 @@ import ee.ria.xroad.common.ocsp.OcspVerifierOptions;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.testkit.TestActorRef;
+import org.apache.commons.io.IOUtils;
 import org.bouncycastle.cert.ocsp.CertificateStatus;
 import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.server.Request;
@@ -58,6 +60,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.net.ConnectException;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
@@ -66,8 +69,10 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -90,6 +95,7 @@ public class OcspClientTest {
     private static byte[] responseData;
 
     private static final Map<String, OCSPResp> OCSP_RESPONSES = new HashMap<>();
+    private static final Map<BigInteger, byte[]> RESPONSES_BY_SERIAL = new ConcurrentHashMap<>();
     private static X509Certificate ocspResponderCert;
 
     private TestActorRef<TestOcspClient> testActor;
@@ -150,6 +156,38 @@ public class OcspClientTest {
         verifier.verifyValidityAndStatus(ocsp, subject, GlobalConf.getCaCert("EE", subject));
     }
 
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void fetchResponsesForSeveralCertificates() throws Exception {
+        X509Certificate consumer = getDefaultClientCert();
+        X509Certificate producer = TestCertUtil.getProducer().certChain[0];
+
+        GlobalConf.reload(getTestGlobalConf());
+
+        Date thisUpdate = new DateTime().plusDays(1).toDate();
+
+        for (X509Certificate subject : Arrays.asList(consumer, producer)) {
+            RESPONSES_BY_SERIAL.put(subject.getSerialNumber(), OcspTestUtils.createOCSPResponse(subject,
+                    GlobalConf.getCaCert("EE", subject), ocspResponderCert, getOcspSignerKey(),
+                    CertificateStatus.GOOD, thisUpdate, null).getEncoded());
+        }
+
+        Map<String, OCSPResp> statuses = ocspClient.fetchResponses(Arrays.asList(consumer, producer));
+
+        assertEquals(2, statuses.size());
+
+        OcspVerifier verifier = new OcspVerifier(GlobalConf.getOcspFreshnessSeconds(false),
+                new OcspVerifierOptions(true));
+
+        for (X509Certificate subject : Arrays.asList(consumer, producer)) {
+            verifier.verifyValidityAndStatus(statuses.get(hash(subject)), subject,
+                    GlobalConf.getCaCert("EE", subject));
+        }
+    }
+
     /**
      * Test.
      * @throws Exception if an error occurs
@@ -264,6 +302,7 @@ public class OcspClientTest {
     @Before
     public void startup() throws Exception {
         OCSP_RESPONSES.clear();
+        RESPONSES_BY_SERIAL.clear();
 
         if (ocspResponderCert == null) {
             ocspResponderCert = TestCertUtil.getOcspSigner().certChain[0];
@@ -354,8 +393,12 @@ public class OcspClientTest {
             try {
                 response.setContentType(responseContentType);
 
-                if (responseData != null) {
-                    response.getOutputStream().write(responseData);
+                OCSPReq ocspRequest = new OCSPReq(IOUtils.toByteArray(request.getInputStream()));
+                byte[] data = RESPONSES_BY_SERIAL.getOrDefault(
+                        ocspRequest.getRequestList()[0].getCertID().getSerialNumber(), responseData);
+
+                if (data != null) {
+                    response.getOutputStream().write(data);
                 }
             } catch (Exception e) {
                 response.sendError(HttpStatus.INTERNAL_SERVER_ERROR_500, e.getMessage());
@@ -0,0 +1,284 @@
+/**
+ * The MIT License
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.protocol.message.DeleteKey;
+import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.util.SignerUtil;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.TestActorRef;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
+import static ee.ria.xroad.common.util.CryptoUtils.SHA256WITHRSA_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.SHA256_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests signing with the software token worker from several threads at once, as is done when the worker
+ * signs using its own executor.
+ */
+public class SoftwareTokenWorkerTest {
+
+    @ClassRule
+    public static final TemporaryFolder TEMP_DIR = new TemporaryFolder();
+
+    private static final ActorSystem ACTOR_SYSTEM = ActorSystem.create();
+
+    private static final char[] PIN = "1234".toCharArray();
+    private static final int KEY_SIZE = 1024;
+    private static final int SIGNING_THREADS = 8;
+    private static final int SIGNATURES_PER_THREAD = 20;
+
+    private TestActorRef<TestSoftwareTokenWorker> workerRef;
+    private SoftwareTokenWorker worker;
+
+    /**
+     * Stores the key stores of the software token in a temporary directory.
+     */
+    @BeforeClass
+    public static void setUpKeyDir() {
+        System.setProperty(SystemProperties.KEY_CONFIGURATION_FILE,
+                new File(TEMP_DIR.getRoot(), "keyconf.xml").getPath());
+    }
+
+    /**
+     * Shuts down the actor system.
+     * @throws Exception if an error occurs
+     */
+    @AfterClass
+    public static void shutdown() throws Exception {
+        System.clearProperty(SystemProperties.KEY_CONFIGURATION_FILE);
+
+        Await.ready(ACTOR_SYSTEM.terminate(), Duration.Inf());
+    }
+
+    /**
+     * Creates a worker for an active software token.
+     */
+    @Before
+    public void setUp() {
+        // the token stays in the token manager, keys get new identifiers in every test
+        TokenInfo tokenInfo = TokenManager.getTokenInfo(SoftwareTokenType.ID);
+
+        if (tokenInfo == null) {
+            tokenInfo = TokenManager.createToken(new SoftwareTokenType());
+        }
+
+        TokenManager.setTokenActive(SoftwareTokenType.ID, true);
+
+        workerRef = TestActorRef.create(ACTOR_SYSTEM, Props.create(TestSoftwareTokenWorker.class, tokenInfo));
+        worker = workerRef.underlyingActor();
+    }
+
+    /**
+     * Stops the token worker.
+     */
+    @After
+    public void tearDown() {
+        ACTOR_SYSTEM.stop(workerRef);
+    }
+
+    /**
+     * Test that signatures made from several threads with several keys at the same time are valid.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void signsFromSeveralThreads() throws Exception {
+        String[] keyIds = {SignerUtil.randomId(), SignerUtil.randomId()};
+        PublicKey[] publicKeys = {createKey(keyIds[0]), createKey(keyIds[1])};
+
+        ExecutorService executor = Executors.newFixedThreadPool(SIGNING_THREADS);
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int i = 0; i < SIGNING_THREADS; i++) {
+                int keyIndex = i % keyIds.length;
+
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < SIGNATURES_PER_THREAD; j++) {
+                        byte[] data = ("data " + keyIndex + " " + j).getBytes();
+
+                        assertTrue(verify(publicKeys[keyIndex], data, sign(keyIds[keyIndex], data)));
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that deleting a key while other threads are signing with it makes the signing fail with key not
+     * found, and that the signatures made before the deletion are valid.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void failsToSignWhenKeyIsDeletedWhileSigning() throws Exception {
+        String keyId = SignerUtil.randomId();
+        PublicKey publicKey = createKey(keyId);
+
+        String otherKeyId = SignerUtil.randomId();
+        PublicKey otherPublicKey = createKey(otherKeyId);
+
+        byte[] data = "data".getBytes();
+
+        CountDownLatch signed = new CountDownLatch(SIGNING_THREADS);
+        AtomicBoolean deleted = new AtomicBoolean();
+
+        ExecutorService executor = Executors.newFixedThreadPool(SIGNING_THREADS);
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int i = 0; i < SIGNING_THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    boolean signedBefore = false;
+
+                    while (true) {
+                        boolean deletedBefore = deleted.get();
+
+                        try {
+                            assertTrue(verify(publicKey, data, sign(keyId, data)));
+
+                            if (deletedBefore) {
+                                fail("Signed with a deleted key");
+                            }
+                        } catch (CodedException e) {
+                            assertEquals(X_KEY_NOT_FOUND, e.getFaultCode());
+
+                            if (deletedBefore) {
+                                return null;
+                            }
+                        }
+
+                        if (!signedBefore) {
+                            signedBefore = true;
+                            signed.countDown();
+                        }
+                    }
+                }));
+            }
+
+            assertTrue(signed.await(1, TimeUnit.MINUTES));
+
+            workerRef.tell(new DeleteKey(keyId, true), ActorRef.noSender());
+            deleted.set(true);
+
+            for (Future<?> result : results) {
+                result.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(verify(otherPublicKey, data, sign(otherKeyId, data)));
+
+        try {
+            sign(keyId, data);
+
+            fail("Signed with a deleted key");
+        } catch (CodedException e) {
+            assertEquals(X_KEY_NOT_FOUND, e.getFaultCode());
+        }
+    }
+
+    private byte[] sign(String keyId, byte[] data) throws Exception {
+        byte[] digest = calculateDigest(SHA256_ID, data);
+
+        return worker.sign(keyId, SHA256WITHRSA_ID, SignerUtil.createDataToSign(digest, SHA256WITHRSA_ID));
+    }
+
+    private static boolean verify(PublicKey publicKey, byte[] data, byte[] signatureValue) throws Exception {
+        Signature signature = Signature.getInstance(SHA256WITHRSA_ID);
+        signature.initVerify(publicKey);
+        signature.update(data);
+
+        return signature.verify(signatureValue);
+    }
+
+    private static PublicKey createKey(String keyId) throws Exception {
+        KeyPair keyPair = SoftwareTokenUtil.generateKeyPair(KEY_SIZE);
+
+        try (FileOutputStream out = new FileOutputStream(SoftwareTokenUtil.getKeyStoreFileName(keyId))) {
+            SoftwareTokenUtil.createKeyStore(keyPair, keyId, PIN).store(out, PIN);
+        }
+
+        TokenManager.addKey(SoftwareTokenType.ID, keyId, null);
+        TokenManager.setKeyAvailable(keyId, true);
+
+        return keyPair.getPublic();
+    }
+
+    private static class TestSoftwareTokenWorker extends SoftwareTokenWorker {
+
+        TestSoftwareTokenWorker(TokenInfo tokenInfo) {
+            super(tokenInfo, new SoftwareTokenType());
+        }
+
+        @Override
+        char[] getPin() {
+            return PIN;
+        }
+    }
+}